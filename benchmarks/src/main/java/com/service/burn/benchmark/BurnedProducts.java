@@ -0,0 +1,35 @@
+package com.service.burn.benchmark;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+import com.service.burn.model.Product;
+
+/**
+ * Lets a benchmark wait for the burned products it sent: every expected product gets a future which completes when the
+ * product comes back.
+ */
+class BurnedProducts implements Consumer<Product> {
+
+	private final ConcurrentMap<Long, CompletableFuture<Product>> expected = new ConcurrentHashMap<>();
+
+	/**
+	 * Expect a product, call before sending it.
+	 * @param product product which will come back burned.
+	 * @return future which completes with the burned product.
+	 */
+	CompletableFuture<Product> expect(Product product) {
+		CompletableFuture<Product> future = new CompletableFuture<>();
+		this.expected.put(product.getProductId(), future);
+		return future;
+	}
+
+	@Override
+	public void accept(Product burnedProduct) {
+		CompletableFuture<Product> future = this.expected.remove(burnedProduct.getProductId());
+		if (future != null)
+			future.complete(burnedProduct);
+	}
+}
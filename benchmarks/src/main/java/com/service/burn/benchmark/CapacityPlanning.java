@@ -0,0 +1,68 @@
+package com.service.burn.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.service.burn.Configuration;
+import com.service.burn.load.ArrivalPattern;
+import com.service.burn.load.IntDistribution;
+import com.service.burn.load.LoadMode;
+import com.service.burn.load.LoadProfile;
+import com.service.burn.simulation.FleetModel;
+import com.service.burn.simulation.FleetSimulation;
+import com.service.burn.simulation.SimulationReport;
+
+/**
+ * Answers "how many ovens do we need for X products per hour at p99 below Y seconds": simulates the configured oven with a growing
+ * number of ovens on virtual time (see FleetSimulation), all fleets in parallel, and prints utilisation, latency percentiles and
+ * queue length of every fleet and the smallest fleet which meets the target.<br>
+ * Products arrive at random (Poisson arrivals) with the configured temperature and burning time range.<br>
+ * Usage: CapacityPlanning [products per hour] [p99 target in seconds] [hours] [fewest ovens] [most ovens] [oven step]<br>
+ * Run with: java -cp benchmarks/target/benchmarks.jar com.service.burn.benchmark.CapacityPlanning (see benchmarks/pom.xml)
+ */
+public class CapacityPlanning {
+
+	public static void main(String[] args) {
+		double productsPerHour = args.length > 0 ? Double.parseDouble(args[0]) : 1000000;
+		double targetSeconds = args.length > 1 ? Double.parseDouble(args[1]) : 150;
+		double hours = args.length > 2 ? Double.parseDouble(args[2]) : 1;
+		int fewestOvens = args.length > 3 ? Integer.parseInt(args[3]) : 600;
+		int mostOvens = args.length > 4 ? Integer.parseInt(args[4]) : 800;
+		int step = args.length > 5 ? Integer.parseInt(args[5]) : 50;
+
+		LoadProfile profile = new LoadProfile(LoadMode.OPEN, productsPerHour / 3600, 1, (long) (hours * TimeUnit.HOURS.toMillis(1)),
+				ArrivalPattern.POISSON, 1, 42,
+				IntDistribution.uniform(Configuration.MIN_BURNING_TEMPERATURE, Configuration.MAX_BURNING_TEMPERATURE),
+				IntDistribution.uniform(Configuration.MIN_BURNING_TIME, Configuration.MAX_BURNING_TIME));
+		FleetModel oven = new FleetModel(1, Configuration.getTuning(), Configuration.TEMPERATURE_BAND_WIDTH, Configuration.BATCH_MAX_WAIT_MILLIS,
+				Configuration.DEFAULT_TEMPERATURE_FOR_BURNING, Configuration.OVEN_DEGREES_PER_SECOND, Configuration.DISPATCH_POLICY,
+				Configuration.PRIORITY_AGING_MILLIS);
+		List<FleetModel> fleets = new ArrayList<>();
+		for (int ovens = fewestOvens; ovens <= mostOvens; ovens += step) {
+			fleets.add(oven.withOvenCount(ovens));
+		}
+
+		System.out.println(String.format("%.0f products per hour for %.1f hours, p99 target %.0f s | %s", productsPerHour, hours, targetSeconds, oven));
+		long start = System.nanoTime();
+		List<SimulationReport> reports = FleetSimulation.sweep(fleets, profile, TimeUnit.MINUTES.toMillis(1));
+		SimulationReport smallest = null;
+		for (SimulationReport report : reports) {
+			System.out.println(report);
+			if (smallest == null && report.getLatencyNanos(99) <= targetSeconds * 1e9)
+				smallest = report;
+		}
+		System.out.println(smallest == null ? "No fleet meets the target" : "Smallest fleet meeting the target: " + smallest.getModel().getOvenCount() + " ovens");
+		if (smallest != null)
+			System.out.println("Waiting products per minute: " + formatQueueLengths(smallest.getQueueLengths()));
+		System.out.println(String.format("Simulated %d fleets in %d ms", reports.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+	}
+
+	private static String formatQueueLengths(int[] queueLengths) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < queueLengths.length; i++) {
+			builder.append(i == 0 ? "" : " ").append(queueLengths[i]);
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,94 @@
+package com.service.burn.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.service.burn.Configuration;
+import com.service.burn.model.OvenParameter;
+import com.service.burn.model.Product;
+import com.service.burn.oven.BatchScheduler;
+import com.service.burn.oven.OvenSlots;
+
+/**
+ * Simulates one oven burning a backlog of random products on virtual time and prints the makespan (time until the last product is burned)
+ * for three ways of dispatching:
+ * <ul>
+ * <li>one product per slot in arrival order</li>
+ * <li>temperature band batches, any band for any slot</li>
+ * <li>temperature band batches, the band which the slot burns fastest including its changeover time first</li>
+ * </ul>
+ * The oven holds slots * capacity products at a time, like the prefetch of a real oven, and uses the slot changeover model of OvenSlots.<br>
+ * Usage: ChangeoverSimulation [number of products] [number of slots]<br>
+ * Run with: java -cp benchmarks/target/benchmarks.jar com.service.burn.benchmark.ChangeoverSimulation (see benchmarks/pom.xml)
+ */
+public class ChangeoverSimulation {
+
+	public static void main(String[] args) {
+		int productCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int slotCount = args.length > 1 ? Integer.parseInt(args[1]) : Configuration.OVEN_SLOT_COUNT;
+		List<Product> products = createProducts(productCount, new Random(42));
+
+		System.out.println(productCount + " products, " + slotCount + " slots, " + Configuration.OVEN_DEGREES_PER_SECOND + " degrees per second");
+		System.out.println("One product per slot      | " + simulate(products, slotCount, 1, false));
+		System.out.println("Batches                   | " + simulate(products, slotCount, Configuration.OVEN_BATCH_CAPACITY, false));
+		System.out.println("Batches with slot affinity| " + simulate(products, slotCount, Configuration.OVEN_BATCH_CAPACITY, true));
+	}
+
+	/**
+	 * Burn all products in one simulated oven.
+	 * @param products products in arrival order.
+	 * @param slotCount number of slots.
+	 * @param capacity maximum number of products in a batch.
+	 * @param affinity true to prefer bands close to the slot temperature.
+	 * @return summary of the run.
+	 */
+	private static String simulate(List<Product> products, int slotCount, int capacity, boolean affinity) {
+		OvenSlots slots = new OvenSlots(slotCount, Configuration.DEFAULT_TEMPERATURE_FOR_BURNING, Configuration.OVEN_DEGREES_PER_SECOND);
+		BatchScheduler<Product> scheduler = new BatchScheduler<>(Configuration.TEMPERATURE_BAND_WIDTH, capacity, 0,
+				Configuration.BATCH_MAX_WAIT_MILLIS);
+		int window = slotCount * capacity;
+		int next = 0;
+		long makespan = 0;
+		long batches = 0;
+
+		PriorityQueue<long[]> freeAt = new PriorityQueue<>((first, second) -> Long.compare(first[0], second[0])); // {time, slot}
+		for (int slot = 0; slot < slotCount; slot++) {
+			freeAt.add(new long[] { 0, slot });
+		}
+		while (next < products.size() || scheduler.getPendingCount() > 0) {
+			long[] free = freeAt.poll();
+			long now = free[0];
+			final int slot = (int) free[1];
+			while (next < products.size() && scheduler.getPendingCount() < window) {
+				Product product = products.get(next++);
+				scheduler.add(product, product, now);
+			}
+
+			BatchScheduler.Batch<Product> batch = affinity
+					? scheduler.nextBatch(now, temperature -> slots.getChangeoverMillis(slot, temperature))
+					: scheduler.nextBatch(now);
+			OvenParameter parameter = batch.getOvenParameter();
+			long changeoverNanos = TimeUnit.MILLISECONDS.toNanos(slots.changeTemperature(slot, parameter.getTemparature()));
+			long doneAt = now + changeoverNanos + TimeUnit.SECONDS.toNanos(parameter.getBurningTime());
+			makespan = Math.max(makespan, doneAt);
+			batches++;
+			freeAt.add(new long[] { doneAt, slot });
+		}
+		return String.format("makespan %6d s | %5d batches | changeover %6d s",
+				TimeUnit.NANOSECONDS.toSeconds(makespan), batches, TimeUnit.MILLISECONDS.toSeconds(slots.getChangeoverMillis()));
+	}
+
+	private static List<Product> createProducts(int count, Random random) {
+		List<Product> products = new ArrayList<>(count);
+		for (int i = 1; i <= count; i++) {
+			int temperature = Configuration.MIN_BURNING_TEMPERATURE
+					+ random.nextInt(Configuration.MAX_BURNING_TEMPERATURE - Configuration.MIN_BURNING_TEMPERATURE + 1);
+			int time = Configuration.MIN_BURNING_TIME + random.nextInt(Configuration.MAX_BURNING_TIME - Configuration.MIN_BURNING_TIME + 1);
+			products.add(new Product("Product " + i, new OvenParameter(temperature, time)));
+		}
+		return products;
+	}
+}
@@ -0,0 +1,105 @@
+package com.service.burn.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.service.burn.Configuration;
+import com.service.burn.OvenService;
+import com.service.burn.ProductService;
+import com.service.burn.messaging.ProductWireFormat;
+import com.service.burn.model.OvenParameter;
+import com.service.burn.model.Product;
+import com.service.burn.transport.InMemoryTransport;
+
+/**
+ * Measures the delivery callbacks of the services one at a time on an in-memory transport:
+ * <ul>
+ * <li>ovenDelivery: a product is put in the product queue, the OvenService decodes, batches, burns and sends it back</li>
+ * <li>responseDelivery: a burned product is put in the response queue, the ProductService decodes, deduplicates, records and acks it</li>
+ * </ul>
+ * Products burn for 0 seconds at the preheated temperature in batches of one, so only the callbacks and the transport hops are measured.
+ * Events are logged at WARN only, otherwise writing the log would be measured.<br>
+ * Run with: java -jar benchmarks/target/benchmarks.jar DeliveryBenchmark -prof gc (see benchmarks/pom.xml)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dburn.log.level=WARN")
+public class DeliveryBenchmark {
+
+	/**
+	 * Transport of the oven, the benchmark takes the burned products from its response queue.
+	 */
+	private InMemoryTransport ovenTransport;
+
+	/**
+	 * Transport of the product service, the benchmark puts burned products in its response queue.
+	 */
+	private InMemoryTransport productTransport;
+	private OvenService oven;
+	private final BurnedProducts fromOven = new BurnedProducts();
+	private final BurnedProducts fromProductService = new BurnedProducts();
+
+	@Setup
+	public void setUp() throws IOException {
+		this.ovenTransport = new InMemoryTransport();
+		this.oven = new OvenService(this.ovenTransport, 4, 1);
+		this.oven.start();
+		this.ovenTransport.consume(Configuration.OVEN_RESPONSE_QUEUE_NAME, 64, delivery -> {
+			this.fromOven.accept(ProductWireFormat.of(delivery.getMessage()).decode(delivery.getMessage().getBody()));
+			delivery.ack();
+		});
+
+		this.productTransport = new InMemoryTransport();
+		ProductService productService = new ProductService(this.productTransport);
+		productService.addBurnedProductListener(this.fromProductService);
+		productService.openConnectionToGetBurnedProduct();
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.oven.stop(1, TimeUnit.SECONDS);
+		this.ovenTransport.close();
+		this.productTransport.close();
+	}
+
+	@Benchmark
+	public Product ovenDelivery() throws Exception {
+		Product product = new Product("Benchmark", new OvenParameter(Configuration.DEFAULT_TEMPERATURE_FOR_BURNING, 0));
+		CompletableFuture<Product> burned = this.fromOven.expect(product);
+		this.ovenTransport.publish(Configuration.PRODUCT_QUEUE_NAME, Configuration.PRODUCT_WIRE_FORMAT.toMessage(product)).get();
+		return burned.get(10, TimeUnit.SECONDS);
+	}
+
+	@Benchmark
+	public Product responseDelivery() throws Exception {
+		Product product = new Product("Benchmark", new OvenParameter(Configuration.DEFAULT_TEMPERATURE_FOR_BURNING, 0));
+		product.setBurnedBy("benchmark");
+		CompletableFuture<Product> received = this.fromProductService.expect(product);
+		this.productTransport.publish(Configuration.OVEN_RESPONSE_QUEUE_NAME, Configuration.PRODUCT_WIRE_FORMAT.toMessage(product)).get();
+		return received.get(10, TimeUnit.SECONDS);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(DeliveryBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class).build()).run();
+	}
+}
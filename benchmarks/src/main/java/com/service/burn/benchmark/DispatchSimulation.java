@@ -0,0 +1,99 @@
+package com.service.burn.benchmark;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.service.burn.Configuration;
+import com.service.burn.model.OvenParameter;
+import com.service.burn.model.Product;
+import com.service.burn.oven.BatchScheduler;
+import com.service.burn.oven.DispatchPolicy;
+
+/**
+ * Simulates one oven on virtual time with products arriving at random (Poisson arrivals) and prints the mean and 99th percentile
+ * turnaround (arrival until burned) for every dispatch policy, and the mean turnaround of the products the policy ranks highest.<br>
+ * Every product has the same temperature and is burned on its own, so only the dispatch order differs between the runs.
+ * Priorities for the PRIORITY run are random.<br>
+ * Usage: DispatchSimulation [number of products] [load between 0 and 1]<br>
+ * Run with: java -cp benchmarks/target/benchmarks.jar com.service.burn.benchmark.DispatchSimulation (see benchmarks/pom.xml)
+ */
+public class DispatchSimulation {
+
+	/**
+	 * Products with at least this priority count as top priority. FIFO gives every product priority 0, so all its products count.
+	 */
+	private static final int TOP_PRIORITY = DispatchPolicy.MAX_PRIORITY - 2;
+
+	public static void main(String[] args) {
+		int productCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		double load = args.length > 1 ? Double.parseDouble(args[1]) : 0.9;
+		int slotCount = Configuration.OVEN_SLOT_COUNT;
+
+		System.out.println(productCount + " products, " + slotCount + " slots, load " + load + ", aging "
+				+ Configuration.PRIORITY_AGING_MILLIS + " ms per level");
+		for (DispatchPolicy policy : DispatchPolicy.values()) {
+			System.out.println(String.format("%-18s | %s", policy, simulate(policy, productCount, slotCount, load, new Random(42))));
+		}
+	}
+
+	/**
+	 * Burn randomly arriving products in one simulated oven.
+	 * @param policy dispatch policy.
+	 * @param productCount number of products.
+	 * @param slotCount number of slots.
+	 * @param load share of the oven's capacity the arriving products need.
+	 * @param random source of arrivals, burning times and priorities.
+	 * @return summary of the run.
+	 */
+	private static String simulate(DispatchPolicy policy, int productCount, int slotCount, double load, Random random) {
+		BatchScheduler<long[]> scheduler = new BatchScheduler<>(Integer.MAX_VALUE, 1, 0, Long.MAX_VALUE / 1000000, policy,
+				Configuration.PRIORITY_AGING_MILLIS);
+		double meanBurnNanos = TimeUnit.SECONDS.toNanos(Configuration.MIN_BURNING_TIME + Configuration.MAX_BURNING_TIME) / 2.0;
+		double meanGapNanos = meanBurnNanos / slotCount / load;
+
+		long[] turnarounds = new long[productCount];
+		long topTurnaroundSum = 0;
+		int topCount = 0;
+		int burned = 0;
+		int arrived = 0;
+		long nextArrival = 0;
+		PriorityQueue<long[]> freeAt = new PriorityQueue<>((first, second) -> Long.compare(first[0], second[0])); // {time, slot}
+		for (int slot = 0; slot < slotCount; slot++) {
+			freeAt.add(new long[] { 0, slot });
+		}
+		while (burned < productCount) {
+			if (arrived < productCount && nextArrival <= freeAt.peek()[0]) {
+				int time = Configuration.MIN_BURNING_TIME + random.nextInt(Configuration.MAX_BURNING_TIME - Configuration.MIN_BURNING_TIME + 1);
+				Product product = new Product("Product " + arrived, new OvenParameter(Configuration.DEFAULT_TEMPERATURE_FOR_BURNING, time));
+				product.setPriority(random.nextInt(DispatchPolicy.MAX_PRIORITY + 1));
+				scheduler.add(product, new long[] { nextArrival, policy.getPriority(product) }, nextArrival);
+				arrived++;
+				nextArrival += (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+				continue;
+			}
+
+			long[] free = freeAt.poll();
+			BatchScheduler.Batch<long[]> batch = scheduler.nextBatch(free[0]);
+			if (batch == null) { // Idle until the next product arrives
+				freeAt.add(new long[] { nextArrival, free[1] });
+				continue;
+			}
+			long doneAt = free[0] + TimeUnit.SECONDS.toNanos(batch.getOvenParameter().getBurningTime());
+			long[] job = batch.getAttachments().get(0);
+			turnarounds[burned++] = doneAt - job[0];
+			if (job[1] >= TOP_PRIORITY) {
+				topTurnaroundSum += doneAt - job[0];
+				topCount++;
+			}
+			freeAt.add(new long[] { doneAt, free[1] });
+		}
+
+		Arrays.sort(turnarounds);
+		double mean = Arrays.stream(turnarounds).average().orElse(0);
+		return String.format("mean %6.1f s | p99 %6.1f s | max %6.1f s | top priority mean %6.1f s", mean / 1e9,
+				turnarounds[(int) Math.ceil(productCount * 0.99) - 1] / 1e9, turnarounds[productCount - 1] / 1e9,
+				topCount == 0 ? mean / 1e9 : topTurnaroundSum / 1e9 / topCount);
+	}
+}
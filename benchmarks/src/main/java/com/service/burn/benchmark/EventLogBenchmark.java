@@ -0,0 +1,82 @@
+package com.service.burn.benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.service.burn.Configuration;
+import com.service.burn.logging.EventLevel;
+import com.service.burn.logging.EventLog;
+
+/**
+ * Compares the cost for a consumer thread of logging a received product the old way (string concatenation, a new DateTimeFormatter
+ * and println on a shared stream) with the EventLog, on 4 threads at the same time. Both write to a stream which discards the bytes,
+ * so only the logging itself is measured. The EventLog drops events its writer can not keep up with, see its dropped count.<br>
+ * Run with: java -jar benchmarks/target/benchmarks.jar EventLogBenchmark (see benchmarks/pom.xml)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class EventLogBenchmark {
+
+	private PrintStream discard;
+	private EventLog log;
+	private long productId = 1234567890123L;
+
+	@Setup
+	public void setUp() {
+		this.discard = new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+		});
+		this.log = new EventLog(EventLevel.INFO, Configuration.LOG_BUFFER_SIZE, this.discard, Configuration.DATE_TIME_PATTERN);
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.log.close();
+		System.out.println("Events dropped: " + this.log.getDroppedCount());
+	}
+
+	@Benchmark
+	public void println() {
+		String now = DateTimeFormatter.ofPattern(Configuration.DATE_TIME_PATTERN).format(LocalDateTime.now());
+		this.discard.println("Received: 'Product ID: " + this.productId + " |  Name: Product 1' By Oven: amq.ctag-1 At " + now);
+	}
+
+	@Benchmark
+	public void eventLog() {
+		this.log.info("Received").with("product", this.productId).with("name", "Product 1").with("oven", "amq.ctag-1").log();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(EventLogBenchmark.class.getSimpleName()).build()).run();
+	}
+}
@@ -0,0 +1,83 @@
+package com.service.burn.benchmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.service.burn.journal.BurnJournal;
+import com.service.burn.model.OvenParameter;
+import com.service.burn.model.Product;
+import com.service.burn.model.ProductBinaryCodec;
+
+/**
+ * Compares durable writes of burned products from 16 response threads: the BurnJournal, where appends waiting together share
+ * one fsync, and a file which is synced after every product.<br>
+ * Run with: java -jar benchmarks/target/benchmarks.jar JournalBenchmark (see benchmarks/pom.xml)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(16)
+@Fork(1)
+public class JournalBenchmark {
+
+	private final Product product = new Product("Product 1", new OvenParameter(230, 10));
+	private Path directory;
+	private BurnJournal journal;
+	private FileChannel file;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.product.setBurnedBy("oven-1");
+		this.directory = Files.createTempDirectory("journal-benchmark");
+		this.journal = new BurnJournal(this.directory.resolve("journal"), 64 * 1024 * 1024);
+		this.file = FileChannel.open(this.directory.resolve("products.log"), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		this.journal.close();
+		this.file.close();
+	}
+
+	@Benchmark
+	public long journalGroupCommit() throws IOException {
+		return this.journal.append(this.product).join();
+	}
+
+	@Benchmark
+	public long syncEveryProduct() throws IOException {
+		ByteBuffer record = ByteBuffer.wrap(ProductBinaryCodec.encode(this.product));
+		synchronized (this.file) {
+			this.file.write(record);
+			this.file.force(false);
+			return this.file.position();
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(JournalBenchmark.class.getSimpleName()).build()).run();
+	}
+}
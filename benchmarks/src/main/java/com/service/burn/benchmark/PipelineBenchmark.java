@@ -0,0 +1,106 @@
+package com.service.burn.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.service.burn.Configuration;
+import com.service.burn.OvenService;
+import com.service.burn.ProductService;
+import com.service.burn.model.OvenParameter;
+import com.service.burn.model.Product;
+import com.service.burn.transport.InMemoryTransport;
+
+/**
+ * Measures the round trip of products through the whole pipeline on an in-memory transport: the ProductService sends them,
+ * two OvenServices burn them and the ProductService receives them back. roundTrip sends one product at a time (latency),
+ * roundTripBatch sends {@link #BATCH_SIZE} products and waits for all of them (time per product under load).<br>
+ * Products burn for 0 seconds at the preheated temperature in batches of one, so only the pipeline is measured.
+ * The journal is off and events are logged at WARN only, the journal has its own benchmark.<br>
+ * Run with: java -jar benchmarks/target/benchmarks.jar PipelineBenchmark -prof gc (see benchmarks/pom.xml)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dburn.log.level=WARN")
+public class PipelineBenchmark {
+
+	private static final int BATCH_SIZE = 64;
+
+	private InMemoryTransport transport;
+	private OvenService first;
+	private OvenService second;
+	private ProductService productService;
+	private final BurnedProducts burnedProducts = new BurnedProducts();
+
+	@Setup
+	public void setUp() throws IOException {
+		this.transport = new InMemoryTransport();
+		this.first = new OvenService(this.transport, 4, 1);
+		this.second = new OvenService(this.transport, 4, 1);
+		this.first.start();
+		this.second.start();
+		this.productService = new ProductService(this.transport);
+		this.productService.addBurnedProductListener(this.burnedProducts);
+		this.productService.declareProductQueue();
+		this.productService.openConnectionToGetBurnedProduct();
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.first.stop(1, TimeUnit.SECONDS);
+		this.second.stop(1, TimeUnit.SECONDS);
+		this.transport.close();
+	}
+
+	@Benchmark
+	public Product roundTrip() throws Exception {
+		return this.send().get(10, TimeUnit.SECONDS);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public List<Product> roundTripBatch() throws Exception {
+		List<CompletableFuture<Product>> futures = new ArrayList<>(BATCH_SIZE);
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			futures.add(this.send());
+		}
+		List<Product> burned = new ArrayList<>(BATCH_SIZE);
+		for (CompletableFuture<Product> future : futures) {
+			burned.add(future.get(10, TimeUnit.SECONDS));
+		}
+		return burned;
+	}
+
+	private CompletableFuture<Product> send() {
+		Product product = new Product("Benchmark", new OvenParameter(Configuration.DEFAULT_TEMPERATURE_FOR_BURNING, 0));
+		CompletableFuture<Product> burned = this.burnedProducts.expect(product);
+		this.productService.submitProduct(product).join();
+		return burned;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(PipelineBenchmark.class.getSimpleName()).addProfiler(GCProfiler.class).build()).run();
+	}
+}
@@ -0,0 +1,66 @@
+package com.service.burn.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.service.burn.model.OvenParameter;
+import com.service.burn.model.Product;
+import com.service.burn.model.ProductIdGenerator;
+
+/**
+ * Compares the cost of creating product ids on 4 threads at the same time: the Snowflake ProductIdGenerator, a shared AtomicLong
+ * and a synchronized counter. Only the generator is unique across processes, the counters show the cost of the contention alone.
+ * newProduct measures a whole Product construction (id, oven parameter and creation timestamp) on the same 4 threads.<br>
+ * Run with: java -jar benchmarks/target/benchmarks.jar ProductIdBenchmark (see benchmarks/pom.xml)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class ProductIdBenchmark {
+
+	private final ProductIdGenerator generator = new ProductIdGenerator(1);
+	private final AtomicLong atomicCounter = new AtomicLong();
+	private long counter;
+
+	@Benchmark
+	public long snowflakeGenerator() {
+		return this.generator.nextId();
+	}
+
+	@Benchmark
+	public long atomicCounter() {
+		return this.atomicCounter.incrementAndGet();
+	}
+
+	@Benchmark
+	public synchronized long synchronizedCounter() {
+		return ++this.counter;
+	}
+
+	@Benchmark
+	public Product newProduct() {
+		return new Product("Benchmark", new OvenParameter(230, 10));
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(ProductIdBenchmark.class.getSimpleName()).build()).run();
+	}
+}
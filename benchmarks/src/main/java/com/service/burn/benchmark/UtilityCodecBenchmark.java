@@ -0,0 +1,85 @@
+package com.service.burn.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.google.gson.GsonBuilder;
+import com.service.burn.Utility;
+import com.service.burn.messaging.ProductWireFormat;
+import com.service.burn.model.OvenParameter;
+import com.service.burn.model.Product;
+
+/**
+ * Compares the shared Gson codec in Utility with building a new Gson object and a String per message, and with the binary wire format.<br>
+ * Run with: java -jar benchmarks/target/benchmarks.jar UtilityCodecBenchmark (see benchmarks/pom.xml)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilityCodecBenchmark {
+
+	private Product product;
+	private byte[] body;
+	private byte[] binaryBody;
+
+	@Setup
+	public void setUp() {
+		this.product = new Product("Product 1", new OvenParameter(230, 10));
+		this.product.setBurnedBy("amq.ctag-oven-1");
+		this.body = Utility.getJsonBytes(this.product);
+		this.binaryBody = ProductWireFormat.BINARY.encode(this.product);
+	}
+
+	@Benchmark
+	public byte[] encodeNewGsonPerCall() {
+		String json = new GsonBuilder().create().toJson(this.product);
+		return json.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public byte[] encodeSharedCodec() {
+		return Utility.getJsonBytes(this.product);
+	}
+
+	@Benchmark
+	public Product decodeNewGsonPerCall() {
+		String json = new String(this.body, StandardCharsets.UTF_8);
+		return new GsonBuilder().create().fromJson(json, Product.class);
+	}
+
+	@Benchmark
+	public Product decodeSharedCodec() {
+		return Utility.getProduct(this.body);
+	}
+
+	@Benchmark
+	public byte[] encodeBinary() {
+		return ProductWireFormat.BINARY.encode(this.product);
+	}
+
+	@Benchmark
+	public Product decodeBinary() {
+		return ProductWireFormat.BINARY.decode(this.binaryBody);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(UtilityCodecBenchmark.class.getSimpleName()).build()).run();
+	}
+}
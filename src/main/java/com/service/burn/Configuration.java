@@ -1,86 +1,492 @@
 package com.service.burn;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
 import com.rabbitmq.client.ConnectionFactory;
+import com.service.burn.config.ConfigWatcher;
+import com.service.burn.config.InvalidConfigurationException;
+import com.service.burn.config.Settings;
+import com.service.burn.config.Tuning;
+import com.service.burn.load.ArrivalPattern;
+import com.service.burn.load.IntDistribution;
+import com.service.burn.load.LoadMode;
+import com.service.burn.load.LoadProfile;
+import com.service.burn.logging.EventLevel;
+import com.service.burn.messaging.ProductWireFormat;
+import com.service.burn.model.ProductIdGenerator;
+import com.service.burn.oven.DispatchPolicy;
 
 /**
- * Configuration class store several configuration variables and methods to tweak the project.
+ * Configuration class store several configuration variables and methods to tweak the project.<br>
+ * Every value can be set in the file CONFIG_FILE, by an environment variable or by a system property, see {@link Settings}.
+ * E.g. OVEN_SLOT_COUNT is read from the key oven.slot.count, the environment variable BURN_OVEN_SLOT_COUNT or the system property
+ * burn.oven.slot.count. Values are checked at startup, an invalid value stops the service with a message naming it.<br>
+ * The values of {@link Tuning} are also applied while the services run when the file changes (see addReloadListener),
+ * the other values are read once at startup.
  * @author Ashfaqul Haque
  *
  */
 public class Configuration {
 	/**
-	 * States the Id with which the product id will start.
+	 * Configuration file, set by the system property burn.config or the environment variable BURN_CONFIG.
+	 * Without a file the values come from environment variables, system properties and the defaults.
+	 */
+	public static final Path CONFIG_FILE = Paths.get(System.getProperty("burn.config",
+			System.getenv().getOrDefault("BURN_CONFIG", "burn.properties")));
+	
+	/**
+	 * Settings read at startup.
+	 */
+	private static final Settings SETTINGS = Settings.load(CONFIG_FILE, System.getenv(), System.getProperties());
+	
+	/**
+	 * Watches CONFIG_FILE once a reload listener is added.
+	 */
+	private static ConfigWatcher watcher;
+	
+	/**
+	 * Name of this oven process. Keys prefixed with the name, e.g. oven-2.oven.slot.count, override the common value for this oven only.
 	 */
-	public static int productIdCounter = 0;
+	public static final String OVEN_NAME = SETTINGS.getString("oven.name", null);
+	
+	/**
+	 * Number of burn slots an oven creates at startup, the highest OVEN_SLOT_COUNT a reload can set.
+	 */
+	public static final int OVEN_MAX_SLOT_COUNT = SETTINGS.getInt("oven.max.slot.count", 16, 1, 1024);
+	
+	/**
+	 * Values which can be changed while the services run, as read at startup.
+	 */
+	private static final Tuning TUNING = getTuning(SETTINGS);
+	
+	/**
+	 * Node number of this process in product ids (0 to 1023), see ProductIdGenerator.<br>
+	 * Set the system property burn.node.id to a different number for every product service process to guarantee unique ids.
+	 * Without it a number is derived from the host name and process id.
+	 */
+	public static final int PRODUCT_ID_NODE = SETTINGS.getInt("node.id", ProductIdGenerator.getDefaultNode(), 0, ProductIdGenerator.MAX_NODE);
 	
 	/**
 	 * Product queue name which will be used in the rabbitmq to transfer product to ovens.
 	 */
-	public static final String PRODUCT_QUEUE_NAME = "product_queue";
+	public static final String PRODUCT_QUEUE_NAME = SETTINGS.getString("product.queue.name", "product_queue");
 	
 	/**
 	 * Oven response queue name which will be used in the rabbitmq to transfer the burned product back.
 	 */
-	public static final String OVEN_RESPONSE_QUEUE_NAME = "oven_response";
+	public static final String OVEN_RESPONSE_QUEUE_NAME = SETTINGS.getString("oven.response.queue.name", "oven_response");
+	
+	/**
+	 * Queue which keeps the products the ovens can not burn, e.g. because they can not be read or failed too often.
+	 */
+	public static final String PRODUCT_DEAD_LETTER_QUEUE_NAME = SETTINGS.getString("product.dead.letter.queue.name", PRODUCT_QUEUE_NAME + ".dead");
+	
+	/**
+	 * Queue which keeps the burned products the product service can not read.
+	 */
+	public static final String OVEN_RESPONSE_DEAD_LETTER_QUEUE_NAME = SETTINGS.getString("oven.response.dead.letter.queue.name",
+			OVEN_RESPONSE_QUEUE_NAME + ".dead");
 	
 	/**
 	 * Date time pattern to show in the console.
 	 */
-	public static final String DATE_TIME_PATTERN = "yyyy/MM/dd HH:mm:ss";
+	public static final String DATE_TIME_PATTERN = SETTINGS.getString("date.time.pattern", "yyyy/MM/dd HH:mm:ss");
+	
+	/**
+	 * Lowest level of the events written to the console (DEBUG, INFO, WARN, ERROR or OFF).<br>
+	 * Set the system property burn.log.level to change it, e.g. WARN for load tests.
+	 */
+	public static final EventLevel LOG_LEVEL = SETTINGS.getEnum("log.level", EventLevel.INFO);
+	
+	/**
+	 * Number of events which can wait for the event log writer. Events logged while it is full are dropped and counted.
+	 */
+	public static final int LOG_BUFFER_SIZE = SETTINGS.getInt("log.buffer.size", 8192, 1, 1 << 20);
 	
 	/**
 	 * his tells RabbitMQ not to give more than one message to a worker at a time. Or, in other words, don't dispatch a new message to a worker until it has processed and acknowledged the previous one. Instead, it will dispatch it to the next worker that is not still busy.
 	 */
-	public static final int CONCURRENT_ASSIGNMENT_COUNT = 1;
+	public static final int CONCURRENT_ASSIGNMENT_COUNT = SETTINGS.getInt("concurrent.assignment.count", 1, 1, 65535);
+	
+	/**
+	 * Number of batches one oven process burns at the same time (burn slots).
+	 */
+	public static final int OVEN_SLOT_COUNT = TUNING.getSlotCount();
+	
+	/**
+	 * Maximum number of products burned together in one slot.<br>
+	 * Products are only burned together if their temperatures are in the same band (see TEMPERATURE_BAND_WIDTH).
+	 * The oven asks RabbitMQ for OVEN_SLOT_COUNT * OVEN_BATCH_CAPACITY unacknowledged products, unless oven.prefetch is set.
+	 */
+	public static final int OVEN_BATCH_CAPACITY = TUNING.getBatchCapacity();
+	
+	/**
+	 * Width of a temperature band in degrees. Products in the same band can be burned together.
+	 */
+	public static final int TEMPERATURE_BAND_WIDTH = SETTINGS.getInt("temperature.band.width", 25, 1, 1000);
+	
+	/**
+	 * Maximum time in milliseconds a product waits for other products of its temperature band before it is burned in a smaller batch.
+	 */
+	public static final long BATCH_LINGER_MILLIS = TUNING.getBatchLingerMillis();
+	
+	/**
+	 * Maximum time in milliseconds a product is passed over in favour of products closer to the temperature of a free slot.
+	 */
+	public static final long BATCH_MAX_WAIT_MILLIS = SETTINGS.getLong("batch.max.wait.millis", 120000, 0, 3600000);
+	
+	/**
+	 * Degrees per second a slot heats up or cools down when the next batch needs another temperature.<br>
+	 * Slots start preheated to DEFAULT_TEMPERATURE_FOR_BURNING.
+	 */
+	public static final int OVEN_DEGREES_PER_SECOND = SETTINGS.getInt("oven.degrees.per.second", 40, 1, 1000);
+	
+	/**
+	 * Order in which waiting products are burned: FIFO, SHORTEST_JOB_FIRST or PRIORITY.<br>
+	 * For SHORTEST_JOB_FIRST and PRIORITY the product queue is declared with x-max-priority. RabbitMQ does not change the arguments of an
+	 * existing queue, so the product queue has to be deleted when switching between FIFO and the other policies.
+	 */
+	public static final DispatchPolicy DISPATCH_POLICY = SETTINGS.getEnum("dispatch.policy", DispatchPolicy.FIFO);
+	
+	/**
+	 * Time in milliseconds after which a product waiting in an oven gains one priority level, so low priority products are not starved.
+	 */
+	public static final long PRIORITY_AGING_MILLIS = SETTINGS.getLong("priority.aging.millis", 5000, 1, 3600000);
+	
+	/**
+	 * Number of timer threads of an oven's burn engine.<br>
+	 * Burns do not hold a thread while burning, so a couple of timer threads can serve any number of slots.
+	 */
+	public static final int BURN_TIMER_THREADS = SETTINGS.getInt("burn.timer.threads", 2, 1, 64);
 	
 	/**
 	 * Default temperature to burn products if any other temperature is not provided.
 	 */
-	public static final int DEFAULT_TEMPERATURE_FOR_BURNING = 230;
+	public static final int DEFAULT_TEMPERATURE_FOR_BURNING = SETTINGS.getInt("default.burning.temperature", 230, 0, 1000);
 	
 	/**
 	 * Maximum burning temperature of a product
 	 */
-	public static final int MAX_BURNING_TEMPERATURE = 500;
+	public static final int MAX_BURNING_TEMPERATURE = SETTINGS.getInt("max.burning.temperature", 500, 0, 1000);
 	
 	/**
 	 * Minimum burning temperature of a product
 	 */
-	public static final int MIN_BURNING_TEMPERATURE = 100;
+	public static final int MIN_BURNING_TEMPERATURE = SETTINGS.getInt("min.burning.temperature", 100, 0, 1000);
 	
 	/**
 	 * Default burning time to run the oven for a product if any other time is not provided.
 	 */
-	public static final int DEFAILT_BURNING_TIME = 10;
+	public static final int DEFAILT_BURNING_TIME = SETTINGS.getInt("default.burning.time", 10, 1, 3600);
 	
 	/**
 	 * Maximum burning time of a product
 	 */
-	public static final int MAX_BURNING_TIME = 20;
+	public static final int MAX_BURNING_TIME = SETTINGS.getInt("max.burning.time", 20, 1, 3600);
+	
+	/**
+	 * Time in seconds a stopping oven lets its burns finish. Burns which would take longer are stopped and their products are sent
+	 * back to the product queue with the time they burned, so another oven only burns the rest.
+	 */
+	public static final int OVEN_DRAIN_TIMEOUT_SECONDS = SETTINGS.getInt("oven.drain.timeout.seconds", 5, 0, 3600);
 	
 	/**
 	 * Minimum burning time of a product
 	 */
-	public static final int MIN_BURNING_TIME = 5;
+	public static final int MIN_BURNING_TIME = SETTINGS.getInt("min.burning.time", 5, 1, 3600);
+	
+	static {
+		Settings.require(MIN_BURNING_TEMPERATURE <= DEFAULT_TEMPERATURE_FOR_BURNING && DEFAULT_TEMPERATURE_FOR_BURNING <= MAX_BURNING_TEMPERATURE,
+				"Burning temperatures must be min.burning.temperature <= default.burning.temperature <= max.burning.temperature but were "
+						+ MIN_BURNING_TEMPERATURE + ", " + DEFAULT_TEMPERATURE_FOR_BURNING + ", " + MAX_BURNING_TEMPERATURE);
+		Settings.require(MIN_BURNING_TIME <= DEFAILT_BURNING_TIME && DEFAILT_BURNING_TIME <= MAX_BURNING_TIME,
+				"Burning times must be min.burning.time <= default.burning.time <= max.burning.time but were "
+						+ MIN_BURNING_TIME + ", " + DEFAILT_BURNING_TIME + ", " + MAX_BURNING_TIME);
+	}
 	
 	/**
 	 * Number of product to be prepared
 	 */
-	public static final int PRODUCT_COUNT = 20;
+	public static final int PRODUCT_COUNT = SETTINGS.getInt("product.count", 20, 0, Integer.MAX_VALUE);
+	
+	/**
+	 * Load the product service sends instead of PRODUCT_COUNT products: OFF, OPEN (a rate of arrivals) or CLOSED (a number of products in flight).<br>
+	 * The load is described by the load.* keys, see getLoadProfile.
+	 */
+	public static final LoadMode LOAD_MODE = SETTINGS.getEnum("load.mode", LoadMode.OFF);
+	
+	/**
+	 * Maximum time in seconds the load generator waits for burned products after it stopped sending.
+	 */
+	public static final long LOAD_DRAIN_SECONDS = SETTINGS.getLong("load.drain.seconds", 120, 0, 86400);
+	
+	/**
+	 * Number of burned products after which the product service prints its pipeline latency report again.
+	 */
+	public static final int METRICS_REPORT_INTERVAL = SETTINGS.getInt("metrics.report.interval", 20, 1, Integer.MAX_VALUE);
+	
+	/**
+	 * Encoding in which the product service sends products.<br>
+	 * Ovens read the encoding from the content-type of each message and send the product back in the same encoding,
+	 * so JSON and BINARY producers can be switched one by one.
+	 */
+	public static final ProductWireFormat PRODUCT_WIRE_FORMAT = SETTINGS.getEnum("product.wire.format", ProductWireFormat.JSON);
+	
+	/**
+	 * Number of products the product service publishes in one batch.
+	 */
+	public static final int PUBLISH_BATCH_SIZE = TUNING.getPublishBatchSize();
+	
+	/**
+	 * Maximum number of published products waiting for a confirm from rabbitMQ.<br>
+	 * The product service stops publishing when this many products are unconfirmed.
+	 */
+	public static final int MAX_UNCONFIRMED_PRODUCTS = TUNING.getMaxUnconfirmedProducts();
+	
+	/**
+	 * Maximum number of times a product rejected (nacked) by rabbitMQ is published again.
+	 */
+	public static final int MAX_PUBLISH_RETRIES = SETTINGS.getInt("max.publish.retries", 3, 0, 100);
+	
+	/**
+	 * Maximum time in milliseconds to wait for rabbitMQ to confirm published products.
+	 */
+	public static final long PUBLISH_CONFIRM_TIMEOUT_MILLIS = SETTINGS.getLong("publish.confirm.timeout.millis", 30000, 1, 3600000);
+	
+	/**
+	 * Maximum number of times a delivered product which failed is retried before it goes to the dead letter queue.
+	 */
+	public static final int MAX_DELIVERY_RETRIES = SETTINGS.getInt("max.delivery.retries", 5, 0, 30);
+	
+	/**
+	 * Time in milliseconds a failed product waits before its first retry, doubled with every further retry.
+	 */
+	public static final long RETRY_INITIAL_BACKOFF_MILLIS = SETTINGS.getLong("retry.initial.backoff.millis", 1000, 1, 3600000);
+	
+	/**
+	 * Longest time in milliseconds a failed product waits before a retry.
+	 */
+	public static final long RETRY_MAX_BACKOFF_MILLIS = SETTINGS.getLong("retry.max.backoff.millis", 60000, RETRY_INITIAL_BACKOFF_MILLIS, 86400000);
+	
+	/**
+	 * Maximum number of channels an oven keeps open to publish burned products back.<br>
+	 * Channels are reused across products, so this only limits how many products can be published back at the same time.
+	 */
+	public static final int PUBLISHER_CHANNEL_POOL_SIZE = SETTINGS.getInt("publisher.channel.pool.size", 4, 1, 1024);
+	
+	/**
+	 * Maximum time in milliseconds to wait for a free publisher channel before the publish fails.
+	 */
+	public static final long PUBLISHER_BORROW_TIMEOUT_MILLIS = SETTINGS.getLong("publisher.borrow.timeout.millis", 5000, 1, 3600000);
+	
+	/**
+	 * Maximum number of product ids the product service remembers to drop burned products which come back twice, e.g. after an oven
+	 * lost its connection between sending a product back and acknowledging it.
+	 */
+	public static final int DEDUP_CACHE_SIZE = SETTINGS.getInt("dedup.cache.size", 100000, 1, 1 << 29);
+	
+	/**
+	 * Time in milliseconds the product service remembers the id of a burned product.
+	 */
+	public static final long DEDUP_TTL_MILLIS = SETTINGS.getLong("dedup.ttl.millis", 600000, 1, Long.MAX_VALUE / 1000000);
+	
+	/**
+	 * Keep a journal of every burned product on local disk in the product service. A product is acknowledged once it is in the journal.<br>
+	 * Off by default, the journal writes segment files of JOURNAL_SEGMENT_SIZE bytes into JOURNAL_DIRECTORY.
+	 */
+	public static final boolean JOURNAL_ENABLED = SETTINGS.getBoolean("journal.enabled", false);
+	
+	/**
+	 * Directory of the journal of burned products.
+	 */
+	public static final String JOURNAL_DIRECTORY = SETTINGS.getString("journal.directory", "journal");
+	
+	/**
+	 * Size in bytes of a journal segment file. A new segment is started when one is full.
+	 */
+	public static final int JOURNAL_SEGMENT_SIZE = SETTINGS.getInt("journal.segment.size", 64 * 1024 * 1024, 4096, Integer.MAX_VALUE);
+	
+	/**
+	 * Maximum number of burned products waiting to be written to the journal, the prefetch of the oven response queue while journaling.<br>
+	 * Products waiting at the same time share one disk sync, so a larger number gives a higher throughput.
+	 */
+	public static final int JOURNAL_MAX_PENDING_PRODUCTS = SETTINGS.getInt("journal.max.pending.products", 256, 1, 65535);
+	
+	/**
+	 * Checkpoint the time every burning product has burned in the oven, so a product redelivered after its oven died resumes its burn
+	 * instead of starting from zero, whichever oven it is redelivered to. Only ovens using the same checkpoint directory see the checkpoints.<br>
+	 * Off by default, the checkpoints are written into CHECKPOINT_DIRECTORY.
+	 */
+	public static final boolean CHECKPOINT_ENABLED = SETTINGS.getBoolean("checkpoint.enabled", false);
+	
+	/**
+	 * Directory of the burn checkpoints shared by the ovens, on one machine or on a shared file system which supports file locks.
+	 * Every oven writes its own memory mapped file in it and reads the files of all ovens (see CheckpointDirectory).
+	 */
+	public static final String CHECKPOINT_DIRECTORY = SETTINGS.getString("checkpoint.directory", "checkpoints");
+	
+	/**
+	 * Number of entries of a new checkpoint file of an oven, 24 bytes each. At most three quarters of them hold a checkpoint.
+	 */
+	public static final int CHECKPOINT_CAPACITY = SETTINGS.getInt("checkpoint.capacity", 65536, 16, 1 << 26);
+	
+	/**
+	 * Time in milliseconds between two checkpoints of the burning products.
+	 */
+	public static final long CHECKPOINT_INTERVAL_MILLIS = SETTINGS.getLong("checkpoint.interval.millis", 1000, 10, 3600000);
+	
+	/**
+	 * Time in milliseconds after which the checkpoint of a product which never came back may be dropped, e.g. because another oven burned it.
+	 */
+	public static final long CHECKPOINT_MAX_AGE_MILLIS = SETTINGS.getLong("checkpoint.max.age.millis", 3600000, 1000, 7L * 24 * 3600000);
+
+	/**
+	 * Let every oven send heartbeats with its slot usage, temperature, throughput and burn time, and keep a registry of the ovens
+	 * alive in the product service (see FleetRegistry). Off by default.
+	 */
+	public static final boolean HEARTBEAT_ENABLED = SETTINGS.getBoolean("heartbeat.enabled", false);
+
+	/**
+	 * Name of the fanout exchange through which the ovens send their heartbeats.
+	 */
+	public static final String FLEET_EXCHANGE_NAME = SETTINGS.getString("fleet.exchange.name", "oven_heartbeats");
+
+	/**
+	 * Time in milliseconds between two heartbeats of an oven.
+	 */
+	public static final long HEARTBEAT_INTERVAL_MILLIS = SETTINGS.getLong("heartbeat.interval.millis", 1000, 10, 3600000);
+
+	/**
+	 * Number of heartbeat intervals without a heartbeat after which an oven counts as dead.
+	 */
+	public static final int FLEET_EXPIRY_HEARTBEATS = SETTINGS.getInt("fleet.expiry.heartbeats", 3, 1, 100);
+
+	/**
+	 * Share of the slots of all ovens which may be busy before the product service warns that the fleet is saturated.
+	 */
+	public static final double FLEET_ALERT_UTILISATION = SETTINGS.getDouble("fleet.alert.utilisation", 0.9, 0, 1);
+
+	/**
+	 * Adapt the burn slots of an oven and the prefetch of the oven response consumer to the depth of their queues (see QueueDepthController).
+	 * OVEN_SLOT_COUNT is then the slot count an oven starts with. Off by default, the slots and prefetch then stay as configured.
+	 */
+	public static final boolean AUTOSCALE_ENABLED = SETTINGS.getBoolean("autoscale.enabled", false);
+
+	/**
+	 * Time in milliseconds between two looks at the queue depth when autoscaling.
+	 */
+	public static final long AUTOSCALE_INTERVAL_MILLIS = SETTINGS.getLong("autoscale.interval.millis", 1000, 10, 3600000);
+
+	/**
+	 * Lowest number of burn slots an idle oven scales down to, the highest is OVEN_MAX_SLOT_COUNT.
+	 */
+	public static final int OVEN_MIN_SLOT_COUNT = SETTINGS.getInt("oven.min.slot.count", 1, 1, OVEN_MAX_SLOT_COUNT);
+
+	/**
+	 * Highest prefetch of the oven response consumer when autoscaling. The lowest is its fixed prefetch
+	 * (CONCURRENT_ASSIGNMENT_COUNT, or JOURNAL_MAX_PENDING_PRODUCTS while journaling).
+	 */
+	public static final int RESPONSE_MAX_PREFETCH = SETTINGS.getInt("response.max.prefetch", 1024, 1, 65535);
+
+	/**
+	 * Time in milliseconds to wait before trying to recover a lost connection to rabbitMQ.
+	 */
+	public static final long NETWORK_RECOVERY_INTERVAL_MILLIS = SETTINGS.getLong("network.recovery.interval.millis", 2000, 1, 3600000);
 	
 	/**
 	 * This method is used to create a connection factory which will be used to connect with rabbitMQ messaging system.<br>
 	 * By default rabbitMQ runs at localhost in port 5672 with both username and password 'guest'<br>
-	 * If any of these are changed, update it accordingly here to get a successful connection.
+	 * If any of these are changed, set broker.host, broker.port, broker.username and broker.password accordingly to get a successful connection.
 	 * @return connection factory which will be used to communicate with PostMaster (RabbitMQ).
 	 */
 	public static ConnectionFactory getConnectionFactory() {
         ConnectionFactory factory = new ConnectionFactory();
-		factory.setHost("localhost");
-		factory.setPort(5672);
-		factory.setUsername("guest");
-		factory.setPassword("guest");
+		factory.setHost(SETTINGS.getString("broker.host", "localhost"));
+		factory.setPort(SETTINGS.getInt("broker.port", 5672, 1, 65535));
+		factory.setUsername(SETTINGS.getString("broker.username", "guest"));
+		factory.setPassword(SETTINGS.getString("broker.password", "guest"));
+		factory.setAutomaticRecoveryEnabled(true); // Re-open connections and channels if the broker connection is lost
+		factory.setTopologyRecoveryEnabled(true);
+		factory.setNetworkRecoveryInterval(NETWORK_RECOVERY_INTERVAL_MILLIS);
 		
 		return factory;
 	}
+	
+	/**
+	 * Get the values which can be changed while the services run, as read at startup.
+	 * @return tuning.
+	 */
+	public static Tuning getTuning() {
+		return TUNING;
+	}
+	
+	/**
+	 * Read the values which can be changed while the services run, with the overrides of OVEN_NAME.
+	 * @param settings settings, e.g. given to a reload listener.
+	 * @return checked tuning.
+	 * @throws InvalidConfigurationException if a value is invalid.
+	 */
+	public static Tuning getTuning(Settings settings) {
+		return Tuning.read(settings.forOven(OVEN_NAME), OVEN_MAX_SLOT_COUNT);
+	}
+	
+	/**
+	 * Read the load sent by the load generator:<br>
+	 * <b>load.rate</b> products per second of an open loop (default 1)<br>
+	 * <b>load.concurrency</b> products in flight of a closed loop (default 16)<br>
+	 * <b>load.duration.seconds</b> time during which products are sent (default 60)<br>
+	 * <b>load.arrival</b> CONSTANT, POISSON or BURSTY arrivals of an open loop (default POISSON)<br>
+	 * <b>load.burst.size</b> mean products per burst of BURSTY arrivals (default 10)<br>
+	 * <b>load.seed</b> seed of the random numbers (default 1)<br>
+	 * <b>load.temperature</b> and <b>load.burning.time</b> distributions, e.g. normal:300:50 (default uniform between the min and max)
+	 * @return load profile.
+	 * @throws InvalidConfigurationException if a value is invalid or LOAD_MODE is OFF.
+	 */
+	public static LoadProfile getLoadProfile() {
+		Settings.require(LOAD_MODE != LoadMode.OFF, "load.mode must be OPEN or CLOSED to generate load");
+		return new LoadProfile(LOAD_MODE,
+				SETTINGS.getDouble("load.rate", 1, 0.001, 1e7),
+				SETTINGS.getInt("load.concurrency", 16, 1, 1000000),
+				TimeUnit.SECONDS.toMillis(SETTINGS.getLong("load.duration.seconds", 60, 1, 86400)),
+				SETTINGS.getEnum("load.arrival", ArrivalPattern.POISSON),
+				SETTINGS.getDouble("load.burst.size", 10, 1, 1e6),
+				SETTINGS.getLong("load.seed", 1, Long.MIN_VALUE, Long.MAX_VALUE),
+				getDistribution("load.temperature", IntDistribution.uniform(MIN_BURNING_TEMPERATURE, MAX_BURNING_TEMPERATURE),
+						MIN_BURNING_TEMPERATURE, MAX_BURNING_TEMPERATURE),
+				getDistribution("load.burning.time", IntDistribution.uniform(MIN_BURNING_TIME, MAX_BURNING_TIME),
+						MIN_BURNING_TIME, MAX_BURNING_TIME));
+	}
+	
+	private static IntDistribution getDistribution(String key, IntDistribution defaultValue, int min, int max) {
+		String text = SETTINGS.getString(key, null);
+		if (text == null)
+			return defaultValue;
+		try {
+			return IntDistribution.parse(text, min, max);
+		} catch (IllegalArgumentException ex) {
+			throw new InvalidConfigurationException("Setting " + key + "='" + text + "': " + ex.getMessage());
+		}
+	}
+	
+	/**
+	 * Call the given listener with the new settings whenever CONFIG_FILE changes.<br>
+	 * The file is watched from the first listener on. A listener rejects invalid settings by throwing an
+	 * InvalidConfigurationException, the error is logged and the current values are kept.
+	 * @param listener listener of reloads.
+	 */
+	public static synchronized void addReloadListener(Consumer<Settings> listener) {
+		try {
+			if (watcher == null) {
+				watcher = new ConfigWatcher(CONFIG_FILE, System.getenv(), System.getProperties());
+				watcher.start();
+			}
+			watcher.addListener(listener);
+		} catch (IOException e) {
+			Utility.getEventLog().error("Exception Occurred", e).with("file", "not watched").log(); // Not a field, the event log reads the configuration
+		}
+	}
 }
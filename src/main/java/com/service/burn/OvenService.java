@@ -1,100 +1,853 @@
 package com.service.burn;
 
-import com.rabbitmq.client.Channel;
-import com.rabbitmq.client.Connection;
-import com.rabbitmq.client.ConnectionFactory;
-import com.rabbitmq.client.DeliverCallback;
-import com.rabbitmq.client.MessageProperties;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.service.burn.checkpoint.CheckpointDirectory;
+import com.service.burn.config.InvalidConfigurationException;
+import com.service.burn.config.Tuning;
+import com.service.burn.fleet.Heartbeat;
+import com.service.burn.logging.EventLevel;
+import com.service.burn.logging.EventLog;
+import com.service.burn.messaging.FailedDeliveryHandler;
+import com.service.burn.messaging.ProductWireFormat;
+import com.service.burn.metrics.LatencyStats;
 import com.service.burn.model.OvenParameter;
 import com.service.burn.model.Product;
+import com.service.burn.model.ProductStage;
+import com.service.burn.oven.BatchScheduler;
+import com.service.burn.oven.BurnEngine;
+import com.service.burn.oven.BurnExecutors;
+import com.service.burn.oven.OvenSlots;
+import com.service.burn.scaling.QueueDepthController;
+import com.service.burn.transport.Delivery;
+import com.service.burn.transport.DeliveryHandler;
+import com.service.burn.transport.Message;
+import com.service.burn.transport.RabbitTransport;
+import com.service.burn.transport.Subscription;
+import com.service.burn.transport.Transport;
 
 /**
  * OvenService class is used to create an oven which can be used to burn products.<br>
  * Run the main method in the class to create an oven.<br>
  * Run this class <b>N</b> times to get N number of ovens.<br>
+ * Each oven has several burn slots (see OVEN_SLOT_COUNT in Configuration) and burns that many batches at the same time.<br>
+ * A batch is a group of up to OVEN_BATCH_CAPACITY products whose temperatures are in the same band. It burns for the longest burning time
+ * among its products and every product is sent back on its own.<br>
+ * A free slot prefers batches close to its current temperature, since heating up or cooling down to another temperature takes time.<br>
+ * Burns run on timers of a burn engine, no thread is held while a product is burning.<br>
  * Product will be delivered to an oven which is not busy by the scheduler (RabbitMQ).<br>
  * If an oven is destroyed before completely burning a product, the product will be sent to another oven which is free and running.
+ * A product is only acknowledged once its burned result was confirmed, so the product service may get a result twice but never loses one.<br>
+ * A product which can not be read goes to the dead letter queue, one which can not be sent back is retried after a growing backoff
+ * and dead-lettered after MAX_DELIVERY_RETRIES (see {@link FailedDeliveryHandler}), so a bad product never holds a slot or the prefetch.<br>
+ * An oven talks to the product service through a {@link Transport}, so several ovens can also run inside one process (see SingleNodeService).<br>
+ * Slot count, batch capacity, linger time and prefetch can be changed while the oven runs (see applyTuning), burning batches are not affected.<br>
+ * A stopping oven lets its burns finish for a while. Burns which would take longer are stopped and their products are sent back to the
+ * product queue with the time they burned ({@link #BURNED_MILLIS_HEADER}), so the next oven only burns the rest (see stop).<br>
+ * With checkpointing the time every burning product has burned is also written to a {@link CheckpointDirectory} every
+ * CHECKPOINT_INTERVAL_MILLIS, so whichever oven on the same directory gets a product redelivered after a crash resumes it (see startCheckpointing).<br>
+ * With autoscaling the number of slots in use follows the depth of the product queue (see startAutoscaling), so a burst is burned
+ * by more slots and an idle oven does not hold more products than it burns.<br>
+ * With heartbeats the oven tells the fleet its slot usage, temperature, throughput and burn time at a fixed interval (see startHeartbeats),
+ * so the product service knows which ovens are alive and how busy they are.
  * @author Ashfaqul Haque
  *
  */
 public class OvenService {
-	
+
+	private static final EventLog LOG = Utility.getEventLog();
+
+	/**
+	 * Header with the time in milliseconds a product already burned in ovens which stopped before it was done.
+	 */
+	public static final String BURNED_MILLIS_HEADER = "burned-millis";
+
+	/**
+	 * Transport through which products arrive and are sent back.
+	 */
+	private final Transport transport;
+
+	/**
+	 * Burn slots of the oven.
+	 */
+	private final OvenSlots slots;
+
+	/**
+	 * Groups the delivered products into batches.
+	 */
+	private final BatchScheduler<BurnJob> scheduler;
+
+	/**
+	 * Maximum number of products in a batch.
+	 */
+	private volatile int batchCapacity;
+
+	/**
+	 * Number of unacknowledged products the oven asks for.
+	 */
+	private volatile int prefetch;
+
+	/**
+	 * Values applied last.
+	 */
+	private volatile Tuning tuning;
+
+	/**
+	 * Changes the slot count to the depth of the product queue, null unless autoscaling.
+	 */
+	private volatile QueueDepthController autoscaler;
+
+	/**
+	 * Checkpoints of the burning products, null unless checkpointing.
+	 */
+	private volatile CheckpointDirectory checkpoints;
+
+	/**
+	 * Wakes the oven up when a product waited long enough for its band to fill up, and writes the checkpoints.
+	 */
+	private final ScheduledExecutorService lingerTimer;
+
+	/**
+	 * Guards starting of batches and lingerCheckScheduled.
+	 */
+	private final Object dispatchLock = new Object();
+
+	/**
+	 * True while a linger check is scheduled on the linger timer.
+	 */
+	private boolean lingerCheckScheduled;
+
+	/**
+	 * Set once the oven stops, no batch is started afterwards.
+	 */
+	private volatile boolean stopped;
+
+	/**
+	 * Executor which runs the work done after a burn (acknowledge and send back).
+	 */
+	private final ExecutorService completionExecutor;
+
+	/**
+	 * Engine which runs the burns.
+	 */
+	private final BurnEngine burnEngine;
+
+	/**
+	 * Retries or dead-letters the products which failed.
+	 */
+	private final FailedDeliveryHandler failedDeliveries;
+
+	/**
+	 * Batches which are burning by slot.
+	 */
+	private final ConcurrentMap<Integer, BurningBatch> burningBatches = new ConcurrentHashMap<>();
+
+	/**
+	 * Products which were burned and are being sent back, each completes once its delivery is acknowledged or retried.
+	 */
+	private final Set<CompletableFuture<Void>> pendingReturns = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Consumer of the product queue, null until started.
+	 */
+	private volatile Subscription subscription;
+
+	/**
+	 * Burn times of the batches since the last heartbeat, replaced by every heartbeat.
+	 */
+	private volatile LatencyStats burnTimes = new LatencyStats();
+
+	/**
+	 * Time between two heartbeats, 0 unless sending heartbeats.
+	 */
+	private volatile long heartbeatIntervalMillis;
+
+	/**
+	 * Guards the values of the last heartbeat, so no heartbeat is sent after the leaving one.
+	 */
+	private final Object heartbeatLock = new Object();
+
+	/**
+	 * Number of products burned by the oven when the last heartbeat was sent.
+	 */
+	private long lastHeartbeatBurnedCount;
+
+	/**
+	 * Time in nanoseconds at which the last heartbeat was sent.
+	 */
+	private long lastHeartbeatAt;
+
+	/**
+	 * <p>Constructor to initialize an oven with the given number of burn slots of the configured batch capacity.</p>
+	 * @param transport transport to the product service.
+	 * @param slotCount number of batches burned at the same time.
+	 */
+	public OvenService(Transport transport, int slotCount) {
+		this(transport, slotCount, Configuration.OVEN_BATCH_CAPACITY);
+	}
+
+	/**
+	 * <p>Constructor to initialize an oven with the given number of burn slots.</p>
+	 * The number of slots can later be raised up to OVEN_MAX_SLOT_COUNT.
+	 * @param transport transport to the product service.
+	 * @param slotCount number of batches burned at the same time.
+	 * @param batchCapacity maximum number of products burned together in one slot, 1 to burn every product on its own.
+	 */
+	public OvenService(Transport transport, int slotCount, int batchCapacity) {
+		this.transport = transport;
+		int maxSlotCount = Math.max(slotCount, Configuration.OVEN_MAX_SLOT_COUNT);
+		this.slots = new OvenSlots(slotCount, maxSlotCount, Configuration.DEFAULT_TEMPERATURE_FOR_BURNING, Configuration.OVEN_DEGREES_PER_SECOND);
+		this.batchCapacity = batchCapacity;
+		this.prefetch = slotCount * batchCapacity;
+		this.tuning = new Tuning(slotCount, batchCapacity, 0, Configuration.BATCH_LINGER_MILLIS, Configuration.PUBLISH_BATCH_SIZE,
+				Configuration.MAX_UNCONFIRMED_PRODUCTS);
+		this.scheduler = new BatchScheduler<>(Configuration.TEMPERATURE_BAND_WIDTH, batchCapacity, Configuration.BATCH_LINGER_MILLIS,
+				Configuration.BATCH_MAX_WAIT_MILLIS, Configuration.DISPATCH_POLICY, Configuration.PRIORITY_AGING_MILLIS);
+		this.lingerTimer = new ScheduledThreadPoolExecutor(1, BurnExecutors.newThreadFactory("batch-linger"));
+		this.completionExecutor = BurnExecutors.newSlotExecutor(maxSlotCount, "oven-slot");
+		this.burnEngine = new BurnEngine(Configuration.BURN_TIMER_THREADS, this.completionExecutor);
+		this.failedDeliveries = new FailedDeliveryHandler(transport, Configuration.PRODUCT_QUEUE_NAME, Configuration.PRODUCT_DEAD_LETTER_QUEUE_NAME,
+				Configuration.MAX_DELIVERY_RETRIES, Configuration.RETRY_INITIAL_BACKOFF_MILLIS, Configuration.RETRY_MAX_BACKOFF_MILLIS);
+	}
+
 	public static void main(String[] argv) throws Exception {
-	    ConnectionFactory factory = Configuration.getConnectionFactory(); //Get the connection settings to connect to rabbitMQ
-	    
-	    final Connection connection = factory.newConnection(); //Get a new connection with given settings
-	    final Channel channel = connection.createChannel(); //Create a channel with RabbitMQ to communicate
-	    
-	    DeliverCallback deliverCallback = getDeliveryCallBack(channel);
-	    channel.queueDeclare(Configuration.PRODUCT_QUEUE_NAME, true, false, false, null); // This will declare a queue if not exists, otherwise it will listen the change in the queue
-	    System.out.println(" [*] Waiting for products to burn. To exit press CTRL+C");
-	
-	    channel.basicQos(Configuration.CONCURRENT_ASSIGNMENT_COUNT);
-	
-	    channel.basicConsume(Configuration.PRODUCT_QUEUE_NAME, false, deliverCallback, consumerTag -> { });
-	}
-	
-	/**
-	 * Start the oven to burn the product.
-	 * @param parameter oven parameter which has to be set to start burning.
-	 */
-	private static void startBurning(OvenParameter parameter) {
+	    Transport transport = new RabbitTransport(Configuration.getConnectionFactory(), //Get the connection settings to connect to rabbitMQ
+	    		Configuration.PUBLISHER_CHANNEL_POOL_SIZE, Configuration.PUBLISHER_BORROW_TIMEOUT_MILLIS);
+	    final OvenService oven = new OvenService(transport, Configuration.OVEN_SLOT_COUNT);
+	    final CheckpointDirectory checkpoints = Configuration.CHECKPOINT_ENABLED ? openCheckpoints() : null;
+	    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+	    	oven.stop(Configuration.OVEN_DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+	    	if (checkpoints != null)
+	    		checkpoints.close(); // Only once no burn writes a checkpoint any more
+	    	transport.close(); // Only once the burned products are acknowledged
+	    }, "oven-shutdown"));
+	    oven.applyTuning(Configuration.getTuning());
+	    if (checkpoints != null)
+	    	oven.startCheckpointing(checkpoints, Configuration.CHECKPOINT_INTERVAL_MILLIS); // Before the first product is delivered
+	    oven.start();
+	    if (Configuration.HEARTBEAT_ENABLED)
+	    	oven.startHeartbeats(Configuration.HEARTBEAT_INTERVAL_MILLIS);
+	    if (Configuration.AUTOSCALE_ENABLED)
+	    	oven.startAutoscaling(Configuration.OVEN_MIN_SLOT_COUNT, Configuration.AUTOSCALE_INTERVAL_MILLIS);
+	    Configuration.addReloadListener(settings -> {
+	    	try {
+	    		oven.applyTuning(Configuration.getTuning(settings));
+	    	} catch (IOException e) {
+	    		LOG.error("Exception Occurred", e).log();
+	    	}
+	    });
+	    LOG.info("Waiting for products to burn, to exit press CTRL+C").with("slots", oven.slots.getSlotCount())
+	    		.with("batchCapacity", oven.batchCapacity).with("prefetch", oven.prefetch)
+	    		.with("virtualThreads", BurnExecutors.isVirtualThreadSupported()).log();
+	}
+
+	/**
+	 * Open the configured checkpoint directory.
+	 * @return checkpoints of this oven, or null if the directory can not be used.
+	 */
+	private static CheckpointDirectory openCheckpoints() {
+		try {
+			CheckpointDirectory checkpoints = new CheckpointDirectory(Paths.get(Configuration.CHECKPOINT_DIRECTORY), Configuration.CHECKPOINT_CAPACITY,
+					Configuration.CHECKPOINT_MAX_AGE_MILLIS);
+			LOG.info("Checkpoints opened").with("file", checkpoints.getFile().toString()).with("products", checkpoints.size()).log();
+			return checkpoints;
+		} catch (IOException e) {
+			LOG.warn("Burning without checkpoints").with("directory", Configuration.CHECKPOINT_DIRECTORY).with("cause", e.getMessage()).log();
+			return null;
+		}
+	}
+
+	/**
+	 * Start writing the time every burning product has burned to the given checkpoints at a fixed interval.<br>
+	 * A delivered product with a checkpoint of any oven in the directory only burns the rest of its time, a checkpoint is removed
+	 * once its product was sent back. The checkpoints are not closed by the oven.
+	 * @param checkpoints checkpoints of this oven, they may be shared by the ovens of one process.
+	 * @param intervalMillis time between two checkpoints.
+	 */
+	public void startCheckpointing(CheckpointDirectory checkpoints, long intervalMillis) {
+		this.checkpoints = checkpoints;
+		this.lingerTimer.scheduleWithFixedDelay(this::writeCheckpoints, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Write a checkpoint for every product which is burning.
+	 */
+	private void writeCheckpoints() {
+		try {
+			int written = 0;
+			for (BurningBatch burning : this.burningBatches.values()) {
+				if (burning.burn == null)
+					continue;
+				long burnedMillis = burning.getBurnedMillis();
+				for (BurnJob job : burning.batch.getAttachments()) {
+					if (this.checkpoints.put(job.product.getProductId(), Math.min(job.getBurningMillis(), job.burnedMillis + burnedMillis)))
+						written++;
+				}
+			}
+			if (LOG.isEnabled(EventLevel.DEBUG))
+				LOG.debug("Checkpoints written").with("products", written).with("stored", this.checkpoints.size()).log();
+		} catch (RuntimeException e) {
+			LOG.error("Exception Occurred", e).log(); // A failed checkpoint must not stop the next ones
+		}
+	}
+
+	/**
+	 * Remove the checkpoint of a product which left the oven.
+	 * @param product product which was sent back.
+	 */
+	private void removeCheckpoint(Product product) {
+		CheckpointDirectory checkpoints = this.checkpoints;
+		if (checkpoints != null)
+			checkpoints.remove(product.getProductId());
+	}
+
+	/**
+	 * Start taking products from the product queue.<br>
+	 * The oven asks for enough unacknowledged products to fill every burn slot with a full batch, unless a prefetch is tuned.
+	 * @throws IOException if the queues can not be declared or consumed.
+	 */
+	public void start() throws IOException {
+		this.transport.declareQueue(Configuration.PRODUCT_QUEUE_NAME, Configuration.DISPATCH_POLICY.getMaxPriority()); // This will declare a queue if not exists, otherwise it will listen the change in the queue
+		this.transport.declareQueue(Configuration.OVEN_RESPONSE_QUEUE_NAME); // Declared once for all products sent back
+		this.failedDeliveries.declareQueues();
+		this.subscription = this.transport.consume(Configuration.PRODUCT_QUEUE_NAME, this.prefetch,
+				this.getDeliveryCallBack());
+	}
+
+	/**
+	 * Start sending a heartbeat to the FLEET_EXCHANGE_NAME exchange at a fixed interval, the oven must have been started.<br>
+	 * A heartbeat carries the slots in use and busy, their mean temperature, the products burned per second and the mean burn time
+	 * of the batches since the last heartbeat. A stopping oven sends a last heartbeat saying it leaves.
+	 * @param intervalMillis time between two heartbeats.
+	 * @throws IOException if the exchange can not be declared.
+	 */
+	public void startHeartbeats(long intervalMillis) throws IOException {
+		if (this.subscription == null)
+			throw new IllegalStateException("Oven must be started before it sends heartbeats");
+
+		this.transport.declareFanout(Configuration.FLEET_EXCHANGE_NAME);
+		synchronized (this.heartbeatLock) {
+			this.lastHeartbeatBurnedCount = this.slots.getBurnedCount();
+			this.lastHeartbeatAt = System.nanoTime();
+			this.heartbeatIntervalMillis = intervalMillis;
+		}
+		this.lingerTimer.scheduleAtFixedRate(() -> this.sendHeartbeat(false), 0, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Send a heartbeat with the state of the oven since the last one.
+	 * @param leaving true if it is the last heartbeat of a stopping oven.
+	 */
+	private void sendHeartbeat(boolean leaving) {
+		synchronized (this.heartbeatLock) {
+			if (this.heartbeatIntervalMillis == 0)
+				return; // Not started, or the leaving heartbeat was sent
+			try {
+				long now = System.nanoTime();
+				long burnedCount = this.slots.getBurnedCount();
+				double productsPerSecond = now > this.lastHeartbeatAt ? (burnedCount - this.lastHeartbeatBurnedCount) * 1e9 / (now - this.lastHeartbeatAt) : 0;
+				LatencyStats burned = this.burnTimes;
+				this.burnTimes = new LatencyStats();
+				int slotCount = this.slots.getSlotCount();
+				long temperatures = 0;
+				for (int slot = 0; slot < slotCount; slot++) {
+					temperatures += this.slots.getTemperature(slot);
+				}
+				Heartbeat heartbeat = new Heartbeat(this.subscription.getConsumerTag(), System.currentTimeMillis(), this.heartbeatIntervalMillis,
+						slotCount, this.slots.getBusyCount(), slotCount == 0 ? 0 : (int) (temperatures / slotCount), productsPerSecond,
+						burned.getMeanMicros() / 1000, leaving);
+				this.transport.broadcast(Configuration.FLEET_EXCHANGE_NAME, heartbeat.toMessage());
+				this.lastHeartbeatBurnedCount = burnedCount;
+				this.lastHeartbeatAt = now;
+				if (leaving)
+					this.heartbeatIntervalMillis = 0;
+				if (LOG.isEnabled(EventLevel.DEBUG))
+					LOG.debug("Heartbeat Sent").with("heartbeat", heartbeat.toString()).log();
+			} catch (IOException | RuntimeException e) {
+				LOG.error("Exception Occurred", e).log(); // The next heartbeat is tried, the fleet only expires the oven after several
+			}
+		}
+	}
+
+	/**
+	 * Stop taking new products (the consumer is cancelled) and wait for the in-flight burns to complete.<br>
+	 * Products still waiting for a batch are given back to the queue for another oven.
+	 * Burns which did not complete within the timeout are stopped, their products are published to the product queue again
+	 * with the time they burned and acknowledged once the transport confirmed them. A product which can not be published is
+	 * given back to the queue as it was and resumes from its checkpoint in an oven on the same checkpoint directory, or burns from the start.<br>
+	 * An oven sending heartbeats sends a last one saying it leaves the fleet.<br>
+	 * Returns once the burned products are sent back and acknowledged, waiting up to PUBLISH_CONFIRM_TIMEOUT_MILLIS for them,
+	 * so the transport can be closed afterwards without the products being burned again by another oven.
+	 * Once it returned no checkpoint is written any more and only products left unacknowledged may still remove theirs,
+	 * so the checkpoints can be closed.
+	 * @param timeout maximum time to wait for the in-flight burns.
+	 * @param unit unit of the timeout.
+	 */
+	public void stop(long timeout, TimeUnit unit) {
+		if (this.autoscaler != null)
+			this.autoscaler.close();
+		try {
+			if (this.subscription != null)
+				this.subscription.cancel();
+		} catch (IOException e) {
+			LOG.error("Exception Occurred", e).log();
+		}
+		synchronized (this.dispatchLock) {
+			this.stopped = true;
+		}
+		this.lingerTimer.shutdownNow();
+		this.sendHeartbeat(true); // Taken out of the fleet at once instead of once it expired
+		for (BurnJob job : this.scheduler.removeAll()) {
+			try {
+				job.delivery.nack(true);
+			} catch (IOException e) {
+				LOG.error("Exception Occurred", e).log();
+			}
+		}
+		this.burnEngine.shutdown();
+		LOG.info("Oven shutting down, waiting for burns to complete").with("inFlight", this.burnEngine.getInFlightCount()).log();
 		try {
-			Thread.sleep(parameter.getBurningTime() * 1000); //Converting into millisecond
+			if (!this.burnEngine.drain(timeout, unit)) {
+				LOG.warn("Burns did not complete, sending the rest of them to another oven").with("inFlight", this.burnEngine.getInFlightCount()).log();
+				this.checkpointBurns();
+			}
+			this.awaitPendingReturns();
+			if (!this.lingerTimer.awaitTermination(Configuration.PUBLISH_CONFIRM_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) // A checkpoint may still be written
+				LOG.warn("Linger timer did not stop").log();
 		} catch (InterruptedException _ignored) {
 			Thread.currentThread().interrupt();
 		}
+		this.completionExecutor.shutdown();
+	}
+
+	/**
+	 * Wait up to PUBLISH_CONFIRM_TIMEOUT_MILLIS until every burned product was sent back and its delivery settled.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	private void awaitPendingReturns() throws InterruptedException {
+		try {
+			CompletableFuture.allOf(this.pendingReturns.toArray(new CompletableFuture<?>[0])).get(Configuration.PUBLISH_CONFIRM_TIMEOUT_MILLIS,
+					TimeUnit.MILLISECONDS);
+		} catch (ExecutionException | TimeoutException e) {
+			LOG.warn("Burned products not acknowledged, they are burned again by another oven").with("pending", this.pendingReturns.size())
+					.with("cause", String.valueOf(e)).log();
+		}
 	}
-	
+
+	/**
+	 * Stop the burning batches and publish their products again with the time they burned.<br>
+	 * Waits up to PUBLISH_CONFIRM_TIMEOUT_MILLIS for the transport to confirm them.
+	 * @throws InterruptedException if interrupted while waiting for the confirms.
+	 */
+	private void checkpointBurns() throws InterruptedException {
+		List<CompletableFuture<Void>> published = new ArrayList<>();
+		for (BurningBatch burning : this.burningBatches.values()) {
+			if (burning.burn == null || !burning.burn.cancel())
+				continue; // Not started, or completed meanwhile and sent back by its completion call back
+			this.burningBatches.remove(burning.slot, burning);
+			long burnedMillis = burning.getBurnedMillis();
+			CheckpointDirectory checkpoints = this.checkpoints;
+			for (BurnJob job : burning.batch.getAttachments()) {
+				long productBurnedMillis = Math.min(job.getBurningMillis(), job.burnedMillis + burnedMillis);
+				if (checkpoints != null)
+					checkpoints.put(job.product.getProductId(), productBurnedMillis); // Kept in case the product can not be published
+				published.add(this.republish(job, productBurnedMillis));
+			}
+		}
+		try {
+			CompletableFuture.allOf(published.toArray(new CompletableFuture<?>[0])).get(Configuration.PUBLISH_CONFIRM_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException | TimeoutException e) {
+			LOG.warn("Burned time not sent with every product, they resume from their checkpoint or start over").with("cause", String.valueOf(e)).log();
+		}
+	}
+
+	/**
+	 * Publish a product whose burn was stopped to the product queue again and acknowledge its delivery once confirmed.
+	 * @param job product whose burn was stopped.
+	 * @param burnedMillis time the product burned so far.
+	 * @return future which completes once the delivery is settled.
+	 */
+	private CompletableFuture<Void> republish(BurnJob job, long burnedMillis) {
+		Message message = job.delivery.getMessage().withHeader(BURNED_MILLIS_HEADER, burnedMillis);
+		return this.transport.publish(Configuration.PRODUCT_QUEUE_NAME, message).handle((ignored, e) -> {
+			try {
+				if (e == null) {
+					job.delivery.ack();
+					this.removeCheckpoint(job.product); // The burned time travels with the product now
+					LOG.info("Burn Checkpointed").with("oven", job.delivery.getConsumerTag()).with("product", job.product.getProductId())
+							.with("burnedMillis", burnedMillis).with("remainingMillis", job.getBurningMillis() - burnedMillis).log();
+				} else {
+					job.delivery.nack(true); // Burned from the start by another oven
+				}
+			} catch (IOException ex) {
+				LOG.error("Exception Occurred", ex).with("product", job.product.getProductId()).log();
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Apply new tuning values while the oven runs.<br>
+	 * Batches which are burning finish in their slot, the next batches are formed and placed with the new values.
+	 * A slot taken out of use is freed once its batch is burned. The broker is asked for the new prefetch last.<br>
+	 * While autoscaling the slot count of the tuning is ignored, the oven keeps the slot count the autoscaling chose.
+	 * @param tuning new values.
+	 * @throws InvalidConfigurationException if the slot count is above the slots of the oven.
+	 * @throws IOException if the prefetch can not be changed.
+	 */
+	public synchronized void applyTuning(Tuning tuning) throws IOException {
+		Tuning applied = this.autoscaler == null ? tuning : tuning.withSlotCount(this.tuning.getSlotCount());
+		if (this.apply(applied))
+			LOG.info("Configuration applied").with("tuning", applied.toString()).log();
+	}
+
+	/**
+	 * Start changing the number of slots in use to the depth of the product queue, between the given minimum and the slots of the oven.<br>
+	 * Every slot adds a batch to the prefetch unless a fixed prefetch is tuned. See QueueDepthController for the rules.
+	 * @param minSlotCount lowest number of slots in use.
+	 * @param intervalMillis time between two looks at the queue depth.
+	 */
+	public void startAutoscaling(int minSlotCount, long intervalMillis) {
+		QueueDepthController controller = new QueueDepthController(this.transport, Configuration.PRODUCT_QUEUE_NAME, this.slots::getBurnedCount,
+				Math.min(minSlotCount, this.slots.getMaxSlotCount()), this.slots.getMaxSlotCount(), this.slots.getSlotCount(), this::scaleSlots);
+		this.autoscaler = controller;
+		controller.start(intervalMillis);
+		LOG.info("Autoscaling started").with("minSlots", minSlotCount).with("maxSlots", this.slots.getMaxSlotCount()).log();
+	}
+
+	/**
+	 * Change the number of slots in use, called by the autoscaling.
+	 * @param slotCount number of slots in use.
+	 * @throws IOException if the prefetch can not be changed.
+	 */
+	private synchronized void scaleSlots(int slotCount) throws IOException {
+		Tuning scaled = this.tuning.withSlotCount(slotCount);
+		if (this.apply(scaled))
+			LOG.info("Slots scaled").with("slots", slotCount).with("prefetch", scaled.getPrefetch())
+					.with("productsPerSecond", Math.round(this.autoscaler.getRate())).log();
+	}
+
+	/**
+	 * Apply tuning values, see applyTuning.
+	 * @param tuning new values.
+	 * @return false if the oven is stopped.
+	 * @throws IOException if the prefetch can not be changed.
+	 */
+	private boolean apply(Tuning tuning) throws IOException {
+		synchronized (this.dispatchLock) {
+			if (this.stopped)
+				return false;
+			if (tuning.getSlotCount() > this.slots.getMaxSlotCount())
+				throw new InvalidConfigurationException("Slot count " + tuning.getSlotCount() + " is above the " + this.slots.getMaxSlotCount()
+						+ " slots of the oven, raise oven.max.slot.count and restart");
+
+			this.scheduler.setBatchLimits(tuning.getBatchCapacity(), tuning.getBatchLingerMillis());
+			this.slots.setSlotCount(tuning.getSlotCount()); // Slots are acquired under the dispatch lock only
+			this.batchCapacity = tuning.getBatchCapacity();
+			this.prefetch = tuning.getPrefetch();
+			this.tuning = tuning;
+		}
+		Subscription current = this.subscription;
+		if (current != null)
+			current.setPrefetch(tuning.getPrefetch());
+		this.dispatchBatches(); // A larger batch capacity or more slots can make waiting products ready
+		return true;
+	}
+
+	/**
+	 * Get burn slots of the oven.
+	 * @return burn slots.
+	 */
+	public OvenSlots getSlots() {
+		return this.slots;
+	}
+
+	/**
+	 * Start the oven to burn a batch.<br>
+	 * The slot first changes to the temperature of the batch, then burns for the given time.
+	 * The burn runs on a timer of the burn engine, the given call back is run once both have passed.
+	 * @param slot slot in which the batch is burned.
+	 * @param temperature temperature which has to be set to start burning.
+	 * @param burnMillis burning time once the temperature is reached.
+	 * @param onBurned call back which is run after burning.
+	 * @return the in-flight burn.
+	 */
+	private BurnEngine.Burn startBurning(int slot, int temperature, long burnMillis, Runnable onBurned) {
+		long changeoverMillis = this.slots.changeTemperature(slot, temperature);
+		return this.burnEngine.burn(changeoverMillis + burnMillis, onBurned);
+	}
+
 	/**
 	 * Create a deliver call back class which will be called after a product is delivered to this oven.<br>
-	 * After a product is delivered to this oven, this will start burning the product considering burning requirement of the product<br>
-	 * This method will also send the product back after completing the burn.
-	 * @param channel the channel with which the product will be delivered to the oven
-	 * 
+	 * After a product is delivered to this oven, it waits in the batch scheduler for other products of its temperature band.
+	 * Batches which are ready are burned in the free slots. A product which can not be read is dead-lettered.<br>
+	 * The call back returns as soon as the product is scheduled, the product is sent back by the burn's completion call back.
+	 *
 	 * @return call back function.
 	 */
-	private static DeliverCallback getDeliveryCallBack(Channel channel) {
-		DeliverCallback deliverCallback = (consumerTag, delivery) -> {
-			String productJson = new String(delivery.getBody(), "UTF-8");
-	        Product productToBurn = Utility.getProduct(productJson);
-	        System.out.println("Received: '" + productToBurn.toString() + "' By Oven: " + consumerTag );
-	        OvenParameter parameter = productToBurn.getOvenParameter();
-	        System.out.println("Over Parameter Set: '" + parameter.toString() + "' To Oven: " + consumerTag);
+	private DeliveryHandler getDeliveryCallBack() {
+		DeliveryHandler deliverCallback = delivery -> {
 	        try {
-	        	System.out.println("Burning Started At '" + Utility.getCurrentDateTime() + "' By Oven: " + consumerTag);
-	        	startBurning(parameter);
-	        	System.out.println("Burning Ended At '" + Utility.getCurrentDateTime() + "' By Oven: " + consumerTag);
-	        } finally {
-	            System.out.println("Done" + " By Oven: " + consumerTag);
-	            channel.basicAck(delivery.getEnvelope().getDeliveryTag(), false); //Let Postmaster (RabbitMQ) know that the delivery has been acknowledged
-	            returnProductAfterBurning(productToBurn, consumerTag);
+	        	ProductWireFormat wireFormat = ProductWireFormat.of(delivery.getMessage()); // Products may come as JSON or binary
+	        	Product productToBurn = wireFormat.decode(delivery.getMessage().getBody());
+	        	productToBurn.stamp(ProductStage.OVEN_RECEIVED);
+	        	long burnedMillis = getBurnedMillis(delivery.getMessage());
+	        	CheckpointDirectory checkpoints = this.checkpoints;
+	        	if (checkpoints != null)
+	        		burnedMillis = Math.max(burnedMillis, checkpoints.get(productToBurn.getProductId())); // Burned by an oven which died
+	        	LOG.info("Received").with("product", productToBurn.getProductId()).with("name", productToBurn.getProductName())
+	        			.with("oven", delivery.getConsumerTag()).with("retries", FailedDeliveryHandler.getRetryCount(delivery.getMessage()))
+	        			.with("burnedMillis", burnedMillis).log();
+	        	boolean scheduled;
+	        	synchronized (this.dispatchLock) { // Otherwise a product added while stopping misses the nack of the waiting products
+	        		scheduled = !this.stopped;
+	        		if (scheduled)
+	        			this.scheduler.add(productToBurn, new BurnJob(productToBurn, wireFormat, delivery, burnedMillis), System.nanoTime());
+	        	}
+	        	if (!scheduled) {
+	        		delivery.nack(true); // Give the product to another oven
+	        		return;
+	        	}
+	        } catch (RuntimeException e) {
+	        	this.failDelivery(delivery, e); // Not requeued as is, it would fail again right away
+	        	return;
 	        }
+	        this.dispatchBatches();
 	    };
 	    return deliverCallback;
 	}
-	
+
+	/**
+	 * Start burning batches which are ready as long as slots are free.<br>
+	 * If products are left waiting for their band to fill up, a linger check is scheduled so they are burned
+	 * in a smaller batch once they waited BATCH_LINGER_MILLIS.
+	 */
+	private void dispatchBatches() {
+		synchronized (this.dispatchLock) {
+			if (this.stopped)
+				return;
+
+			int slot;
+			while ((slot = this.slots.peekFreeSlot()) >= 0) {
+				final int freeSlot = slot;
+				BatchScheduler.Batch<BurnJob> batch = this.scheduler.nextBatch(System.nanoTime(),
+						temperature -> this.slots.getChangeoverMillis(freeSlot, temperature));
+				if (batch == null)
+					break;
+				this.slots.acquire(slot, batch.size());
+				this.burnBatch(slot, batch);
+			}
+			if (this.slots.hasFreeSlot()) // Otherwise the next finished burn dispatches again
+				this.scheduleLingerCheck();
+		}
+	}
+
+	/**
+	 * Schedule a linger check for the oldest waiting product unless one is scheduled already.<br>
+	 * Must be called holding the dispatch lock.
+	 */
+	private void scheduleLingerCheck() {
+		long delay = this.scheduler.getNanosUntilNextDeadline(System.nanoTime());
+		if (delay < 0 || this.lingerCheckScheduled)
+			return;
+
+		this.lingerCheckScheduled = true;
+		this.lingerTimer.schedule(() -> {
+			synchronized (this.dispatchLock) {
+				this.lingerCheckScheduled = false;
+			}
+			this.dispatchBatches();
+		}, delay, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Burn a batch in the given slot.<br>
+	 * The batch burns until the product with the most burning time left is done, products which burned in a stopped oven before
+	 * only burn the rest of their time.
+	 * @param slot slot acquired for the batch.
+	 * @param batch batch to burn.
+	 */
+	private void burnBatch(int slot, BatchScheduler.Batch<BurnJob> batch) {
+		String consumerTag = batch.getAttachments().get(0).delivery.getConsumerTag();
+		OvenParameter parameter = batch.getOvenParameter();
+		long startedAt = System.nanoTime();
+		long burnMillis = 0;
+		for (BurnJob job : batch.getAttachments()) {
+			job.product.stamp(ProductStage.BURN_STARTED);
+			burnMillis = Math.max(burnMillis, job.getBurningMillis() - job.burnedMillis);
+		}
+		LOG.info("Burning Started").with("oven", consumerTag).with("slot", slot).with("products", batch.size())
+				.with("temperature", parameter.getTemparature()).with("millis", burnMillis)
+				.with("fromTemperature", this.slots.getTemperature(slot)).log();
+		BurningBatch burning = new BurningBatch(slot, batch, burnMillis);
+		this.burningBatches.put(slot, burning); // Before the burn starts, so a burn which completes at once is removed again
+		burning.burn = this.startBurning(slot, parameter.getTemparature(), burnMillis, () -> {
+			try {
+				LOG.info("Burning Ended").with("oven", consumerTag).with("slot", slot).log();
+			} finally {
+				this.finishBurning(slot, startedAt, batch);
+			}
+		});
+	}
+
+	/**
+	 * Free the slot of a burned batch and send every product in it back.<br>
+	 * A delivery is acknowledged once its product was confirmed by the transport. If sending fails the delivery is retried after
+	 * a backoff, so the product is burned again instead of being lost.
+	 * @param slot slot in which the batch was burned
+	 * @param startedAt time at which the burn started
+	 * @param batch burned batch
+	 */
+	private void finishBurning(int slot, long startedAt, BatchScheduler.Batch<BurnJob> batch) {
+		this.burningBatches.remove(slot);
+		long burnNanos = System.nanoTime() - startedAt;
+		this.slots.release(slot, burnNanos);
+		this.burnTimes.record(burnNanos);
+		for (BurnJob job : batch.getAttachments()) {
+			job.product.stamp(ProductStage.BURN_ENDED);
+			LOG.info("Done").with("oven", job.delivery.getConsumerTag()).with("slot", slot).with("product", job.product.getProductId()).log();
+			CompletableFuture<Void> settled = this.returnProductAfterBurning(job.product, job.wireFormat, job.delivery.getConsumerTag())
+					.handle((ignored, e) -> {
+						if (e != null)
+							return this.failDelivery(job.delivery, e); // Burned again by any oven after the backoff
+						try {
+							job.delivery.ack(); //Let Postmaster (RabbitMQ) know that the delivery has been acknowledged
+							this.removeCheckpoint(job.product);
+						} catch (IOException ex) {
+							LOG.error("Exception Occurred", ex).log();
+						}
+						return CompletableFuture.<Void>completedFuture(null);
+					}).thenCompose(retried -> retried);
+			this.pendingReturns.add(settled);
+			settled.whenComplete((ignored, e) -> this.pendingReturns.remove(settled)); // Removed at once if already settled
+		}
+		if (LOG.isEnabled(EventLevel.DEBUG)) // Only build the summary when it is written
+			LOG.debug("Slots").with("state", this.slots.toString()).log();
+		this.dispatchBatches();
+	}
+
 	/**
-	 * This method returns the given product to product service.
-	 * 
+	 * Retry or dead-letter a delivery which failed.
+	 * @param delivery delivery which failed, not acked or nacked yet.
+	 * @param cause failure of the delivery.
+	 * @return future which completes once the delivery is settled, also if it could not be moved.
+	 */
+	private CompletableFuture<Void> failDelivery(Delivery delivery, Throwable cause) {
+		return this.failedDeliveries.fail(delivery, cause).handle((queue, e) -> {
+			if (e != null) {
+				LOG.error("Exception Occurred", e).with("oven", delivery.getConsumerTag()).log();
+				return null;
+			}
+			LOG.warn("Delivery Failed").with("oven", delivery.getConsumerTag()).with("movedTo", queue)
+					.with("retries", FailedDeliveryHandler.getRetryCount(delivery.getMessage())).with("cause", String.valueOf(cause)).log();
+			return null;
+		});
+	}
+
+	/**
+	 * This method returns the given product to product service.<br>
+	 * The product is sent back in the same encoding in which it was delivered.
+	 *
 	 * @param product the product which will be returned
+	 * @param wireFormat encoding of the returned product
+	 * @param consumerTag tag of the oven which burned the product
+	 * @return future which completes once the product was confirmed, or exceptionally if it was not sent
+	 */
+	private CompletableFuture<Void> returnProductAfterBurning(Product product, ProductWireFormat wireFormat, String consumerTag) {
+		product.setBurnedBy(consumerTag);
+		long publishedAt = System.nanoTime();
+		return this.transport.publish(Configuration.OVEN_RESPONSE_QUEUE_NAME, wireFormat.toMessage(product)).whenComplete((ignored, e) -> {
+			if (e != null) {
+				LOG.error("Exception Occurred", e).with("product", product.getProductId()).log();
+				return;
+			}
+			LOG.info("Product Sent back After Burning").with("product", product.getProductId()).with("oven", consumerTag)
+					.with("micros", TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - publishedAt)).log();
+		});
+	}
+
+	/**
+	 * Get time a delivered product already burned in ovens which stopped before it was done.
+	 * @param message delivered message.
+	 * @return value of the burned millis header, 0 if the product did not burn yet.
 	 */
-	private static void returnProductAfterBurning(Product product, String consumerTag) {
-		ConnectionFactory factory = Configuration.getConnectionFactory();
-	        
-	    try (Connection connection = factory.newConnection();
-        	Channel channel = connection.createChannel()) {
-        	channel.queueDeclare(Configuration.OVEN_RESPONSE_QUEUE_NAME, true, false, false, null);
-        	product.setBurnedBy(consumerTag);
-            String json = Utility.getJson(product);
-            
-            channel.basicPublish("", Configuration.OVEN_RESPONSE_QUEUE_NAME,
-                    MessageProperties.PERSISTENT_TEXT_PLAIN,
-                    json.getBytes("UTF-8"));
-            
-            System.out.println("Product Sent back After Burning: '" + product.toString() + "' By Oven: " + consumerTag);
-        } catch (Exception e) {
-			System.out.println("Exception Occurred: '" + e.getMessage() + "'");
+	private static long getBurnedMillis(Message message) {
+		Object burnedMillis = message.getHeaders().get(BURNED_MILLIS_HEADER);
+		return burnedMillis instanceof Number ? Math.max(0, ((Number) burnedMillis).longValue()) : 0;
+	}
+
+	/**
+	 * A delivered product waiting in the batch scheduler or burning.
+	 */
+	private static class BurnJob {
+		private final Product product;
+		private final ProductWireFormat wireFormat;
+		private final Delivery delivery;
+
+		/**
+		 * Time the product burned in other ovens before it was delivered.
+		 */
+		private final long burnedMillis;
+
+		private BurnJob(Product product, ProductWireFormat wireFormat, Delivery delivery, long burnedMillis) {
+			this.product = product;
+			this.wireFormat = wireFormat;
+			this.delivery = delivery;
+			this.burnedMillis = burnedMillis;
+		}
+
+		/**
+		 * Get the whole burning time of the product.
+		 * @return burning time in milliseconds.
+		 */
+		private long getBurningMillis() {
+			return TimeUnit.SECONDS.toMillis(this.product.getOvenParameter().getBurningTime());
+		}
+	}
+
+	/**
+	 * A batch burning in a slot.
+	 */
+	private static class BurningBatch {
+		private final int slot;
+		private final BatchScheduler.Batch<BurnJob> batch;
+
+		/**
+		 * Burning time of the batch once its temperature is reached.
+		 */
+		private final long burnMillis;
+
+		/**
+		 * Burn of the batch, set once it started.
+		 */
+		private volatile BurnEngine.Burn burn;
+
+		private BurningBatch(int slot, BatchScheduler.Batch<BurnJob> batch, long burnMillis) {
+			this.slot = slot;
+			this.batch = batch;
+			this.burnMillis = burnMillis;
+		}
+
+		/**
+		 * Get time the batch burned at its temperature so far, not counting the temperature change.
+		 * @return burned time in milliseconds.
+		 */
+		private long getBurnedMillis() {
+			long changeoverMillis = this.burn.getDurationMillis() - this.burnMillis;
+			return Math.max(0, Math.min(this.burnMillis, this.burn.getElapsedMillis() - changeoverMillis));
 		}
 	}
 }
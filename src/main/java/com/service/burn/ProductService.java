@@ -1,105 +1,505 @@
 package com.service.burn;
 
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
-import com.rabbitmq.client.Channel;
-import com.rabbitmq.client.Connection;
-import com.rabbitmq.client.ConnectionFactory;
-import com.rabbitmq.client.DeliverCallback;
-import com.rabbitmq.client.MessageProperties;
+import com.service.burn.config.Tuning;
+import com.service.burn.fleet.FleetRegistry;
+import com.service.burn.fleet.Heartbeat;
+import com.service.burn.journal.BurnJournal;
+import com.service.burn.load.LoadGenerator;
+import com.service.burn.load.LoadMode;
+import com.service.burn.load.LoadProfile;
+import com.service.burn.load.LoadReport;
+import com.service.burn.logging.EventLevel;
+import com.service.burn.logging.EventLog;
+import com.service.burn.messaging.DedupCache;
+import com.service.burn.messaging.FailedDeliveryHandler;
+import com.service.burn.messaging.MalformedProductException;
+import com.service.burn.messaging.ProductBatchPublisher;
+import com.service.burn.messaging.ProductWireFormat;
+import com.service.burn.messaging.PublishReport;
+import com.service.burn.metrics.PipelineMetrics;
 import com.service.burn.model.OvenParameter;
 import com.service.burn.model.Product;
+import com.service.burn.model.ProductStage;
+import com.service.burn.scaling.QueueDepthController;
+import com.service.burn.transport.Delivery;
+import com.service.burn.transport.DeliveryHandler;
+import com.service.burn.transport.RabbitTransport;
+import com.service.burn.transport.Subscription;
+import com.service.burn.transport.Transport;
 
 /**
  * <h2>ProductService class is used to create products which will be delivered to ovens.</h2><br>
  * Run the main method of the class to start product service.<br>
  * Create product by console input.<br>
+ * With LOAD_MODE set in the Configuration class the service runs as a load generator instead and reports throughput and latency.<br>
  * This service will also get the burned product back from the ovens<br>
- * Run OvenService n times to create n oven so that the products created can be consumed by the ovens.
- * 
+ * Every burned product can be written to a {@link BurnJournal} on local disk before it is acknowledged, so the results can be audited and replayed.<br>
+ * With autoscaling the prefetch of the burned products follows the depth of the response queue, so a burst of burned products drains quickly.<br>
+ * The heartbeats of the ovens are kept in a {@link FleetRegistry}, which shows how many ovens are alive and how busy they are,
+ * and warns when the fleet is saturated, before the product queue backs up.<br>
+ * Run OvenService n times to create n oven so that the products created can be consumed by the ovens.<br>
+ * The service talks to the ovens through a {@link Transport}: RabbitMQ when started by the main method,
+ * or an in-memory transport when the whole pipeline runs in one process (see SingleNodeService).
+ *
  * @author Ashfaqul Haque
  *
  */
-public class ProductService 
+public class ProductService
 {
-    public static void main( String[] args ) throws IOException, TimeoutException
+	private static final EventLog LOG = Utility.getEventLog();
+
+	/**
+	 * Transport through which products are sent and burned products come back.
+	 */
+	private final Transport transport;
+
+	/**
+	 * Journal of the burned products, null to keep none.
+	 */
+	private final BurnJournal journal;
+
+	/**
+	 * Ids of the burned products received lately, a product which comes back twice is only counted once.
+	 */
+	private final DedupCache receivedProductIds = new DedupCache(Configuration.DEDUP_CACHE_SIZE, Configuration.DEDUP_TTL_MILLIS);
+
+	/**
+	 * Dead-letters the burned products which can not be read and retries the ones which can not be journaled.
+	 */
+	private final FailedDeliveryHandler failedDeliveries;
+
+	/**
+	 * Number of burned products received so far.
+	 */
+	private int burnedProductCount;
+
+	/**
+	 * Guards burnedProductCount and wakes up threads waiting for burned products.
+	 */
+	private final Object burnedProductLock = new Object();
+
+	/**
+	 * Latencies of the burned products received so far.
+	 */
+	private final PipelineMetrics metrics = new PipelineMetrics();
+
+	/**
+	 * Ovens alive with their last heartbeat.
+	 */
+	private final FleetRegistry fleet;
+
+	/**
+	 * Called with every burned product received, e.g. by a load generator.
+	 */
+	private final List<Consumer<Product>> burnedProductListeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Consumer of the oven response queue, null until the connection is opened.
+	 */
+	private volatile Subscription responseSubscription;
+
+	/**
+	 * Publish batch size and unconfirmed limit, replaced when the configuration is reloaded.
+	 */
+	private volatile Tuning tuning = Configuration.getTuning();
+
+	/**
+	 * <p>Constructor to initialize a product service on the given transport.</p>
+	 * @param transport transport to the ovens.
+	 */
+	public ProductService(Transport transport) {
+		this(transport, null);
+	}
+
+	/**
+	 * <p>Constructor to initialize a product service on the given transport which writes the burned products to a journal.</p>
+	 * @param transport transport to the ovens.
+	 * @param journal journal of the burned products, null to keep none.
+	 */
+	public ProductService(Transport transport, BurnJournal journal) {
+		this.transport = transport;
+		this.journal = journal;
+		this.failedDeliveries = new FailedDeliveryHandler(transport, Configuration.OVEN_RESPONSE_QUEUE_NAME,
+				Configuration.OVEN_RESPONSE_DEAD_LETTER_QUEUE_NAME, Configuration.MAX_DELIVERY_RETRIES, Configuration.RETRY_INITIAL_BACKOFF_MILLIS,
+				Configuration.RETRY_MAX_BACKOFF_MILLIS);
+		this.fleet = new FleetRegistry(Configuration.FLEET_EXPIRY_HEARTBEATS, Configuration.FLEET_ALERT_UTILISATION, this.getFleetListener());
+	}
+
+    public static void main( String[] args ) throws IOException, TimeoutException, InterruptedException
     {
-        System.out.println("Product Service Started");
-        openConnectionToGetBurnedProduct();
-        ConnectionFactory factory = Configuration.getConnectionFactory(); //Get the connection settings to connect to rabbitMQ
-        
-        try (Connection connection = factory.newConnection();  // Get a new connection
-        	Channel channel = connection.createChannel()) { // Create a new channel to pass message
-        	channel.queueDeclare(Configuration.PRODUCT_QUEUE_NAME, true, false, false, null); // Declare a queue for message passing
-            for(int j = 1; j <= Configuration.PRODUCT_COUNT; j++) {
-            	try {
-            		Product product = getProduct(j);
-            		String json = Utility.getJson(product);
-                    
-                    channel.basicPublish("", Configuration.PRODUCT_QUEUE_NAME,  //Send the product to scheduler
-                            MessageProperties.PERSISTENT_TEXT_PLAIN,
-                            json.getBytes("UTF-8"));
-                    
-                    System.out.println("Sent: '" + product.toString() + "' | At " + Utility.getCurrentDateTime());	
-                
-            	} catch (Exception e) {
-            		System.out.println(e.getMessage());
-            	}
-            }
+        LOG.info("Product Service Started").log();
+        Transport transport = new RabbitTransport(Configuration.getConnectionFactory(), //Get the connection settings to connect to rabbitMQ
+        		Configuration.PUBLISHER_CHANNEL_POOL_SIZE, Configuration.PUBLISHER_BORROW_TIMEOUT_MILLIS);
+        BurnJournal journal = null;
+        if (Configuration.JOURNAL_ENABLED) {
+        	journal = new BurnJournal(Paths.get(Configuration.JOURNAL_DIRECTORY), Configuration.JOURNAL_SEGMENT_SIZE);
+        	Runtime.getRuntime().addShutdownHook(new Thread(journal::close, "journal-shutdown"));
+        	LOG.info("Journal opened").with("directory", Configuration.JOURNAL_DIRECTORY).with("records", journal.getNextSequence()).log();
+        }
+        ProductService productService = new ProductService(transport, journal);
+        productService.getMetrics().register("product-service"); // Latencies can be watched with jconsole
+        productService.openConnectionToGetBurnedProduct();
+        if (Configuration.HEARTBEAT_ENABLED) {
+        	productService.watchFleet(Configuration.HEARTBEAT_INTERVAL_MILLIS);
+        	productService.getFleet().register("product-service");
+        }
+        if (Configuration.AUTOSCALE_ENABLED)
+        	productService.startAutoscaling(Configuration.RESPONSE_MAX_PREFETCH, Configuration.AUTOSCALE_INTERVAL_MILLIS);
+        Configuration.addReloadListener(settings -> productService.applyTuning(Configuration.getTuning(settings)));
+
+        if (Configuration.LOAD_MODE != LoadMode.OFF) {
+        	productService.generateLoad(Configuration.getLoadProfile());
+        	return;
+        }
+        List<Product> products = createProducts(Configuration.PRODUCT_COUNT);
+        PublishReport report = productService.submitProducts(products);
+        LOG.info("Sent").with("products", products.size()).with("report", report.toString()).log();
+    }
+
+    /**
+     * Send the given load, wait for the burned products and log the throughput and latency.<br>
+     * The pipeline metrics are reset first, so the report only covers the load.
+     * @param profile load to send, e.g. the one configured by the load.* settings.
+     * @return summary of the load.
+     * @throws IOException if the product queue can not be declared.
+     * @throws InterruptedException if interrupted while sending or waiting.
+     */
+    public LoadReport generateLoad(LoadProfile profile) throws IOException, InterruptedException {
+    	LoadGenerator generator = new LoadGenerator(profile, this::submitProduct);
+    	this.declareProductQueue();
+    	this.metrics.reset();
+    	this.addBurnedProductListener(generator::productBurned);
+    	LOG.info("Load started").with("profile", profile.toString()).log();
+    	LoadReport report = generator.run(Configuration.LOAD_DRAIN_SECONDS, TimeUnit.SECONDS);
+    	LOG.info("Load finished").with("report", report.toString()).log();
+    	LOG.info(this.metrics.getReport()).log();
+    	return report;
+    }
+
+    /**
+     * Send the given products to the scheduler in batches and wait until the scheduler confirmed them.<br>
+     * Products are sent in PUBLISH_BATCH_SIZE batches with at most MAX_UNCONFIRMED_PRODUCTS waiting for a confirm,
+     * as tuned when the sending starts.
+     * Products rejected by the scheduler are sent again up to MAX_PUBLISH_RETRIES times.<br>
+     * Every product gets the message priority of the DISPATCH_POLICY.
+     * @param products products to send.
+     * @return summary of the sending.
+     * @throws IOException if the products can not be sent or are not confirmed in time.
+     */
+    public PublishReport submitProducts(List<Product> products) throws IOException {
+    	this.declareProductQueue();
+    	Tuning current = this.tuning;
+    	ProductBatchPublisher publisher = new ProductBatchPublisher(this.transport, Configuration.PRODUCT_QUEUE_NAME,
+    			Configuration.PRODUCT_WIRE_FORMAT, Configuration.DISPATCH_POLICY, current.getPublishBatchSize(), current.getMaxUnconfirmedProducts(),
+    			Configuration.MAX_PUBLISH_RETRIES, Configuration.PUBLISH_CONFIRM_TIMEOUT_MILLIS);
+    	return publisher.publishAll(products);
+    }
+
+    /**
+     * Send one product to the scheduler without waiting, with the message priority of the DISPATCH_POLICY.<br>
+     * The product queue must have been declared, see declareProductQueue.
+     * @param product product to send.
+     * @return future which completes once the scheduler confirmed the product.
+     */
+    public CompletableFuture<Void> submitProduct(Product product) {
+    	product.stamp(ProductStage.ENQUEUED);
+    	return this.transport.publish(Configuration.PRODUCT_QUEUE_NAME,
+    			Configuration.PRODUCT_WIRE_FORMAT.toMessage(product).withPriority(Configuration.DISPATCH_POLICY.getPriority(product)));
+    }
+
+    /**
+     * Declare the queue through which products are sent to the ovens, unless it exists.
+     * @throws IOException if the queue can not be declared.
+     */
+    public void declareProductQueue() throws IOException {
+    	this.transport.declareQueue(Configuration.PRODUCT_QUEUE_NAME, Configuration.DISPATCH_POLICY.getMaxPriority()); // Declare a queue for message passing
+    }
+
+    /**
+     * Add a listener which is called with every burned product received, after it was recorded.
+     * @param listener listener.
+     */
+    public void addBurnedProductListener(Consumer<Product> listener) {
+    	this.burnedProductListeners.add(listener);
+    }
+
+    /**
+     * Create the given number of randomly generated products.
+     * @param count number of products.
+     * @return created products.
+     */
+    public static List<Product> createProducts(int count) {
+    	List<Product> products = new ArrayList<>(count);
+        for(int j = 1; j <= count; j++) {
+        	products.add(getProduct(j));
         }
+        return products;
     }
-    
+
     /**
      * Get a product randomly generated
      * @return created product.
      */
     private static Product getProduct(int id) {
-    	
+
     	int temerature = Utility.getRandom(Configuration.MAX_BURNING_TEMPERATURE, Configuration.MIN_BURNING_TEMPERATURE);
     	int time = Utility.getRandom(Configuration.MAX_BURNING_TIME, Configuration.MIN_BURNING_TIME);
     	OvenParameter parameter = new OvenParameter(temerature, time);
     	Product product = new Product("Product " + id, parameter);
-    	
+
     	return product;
     }
-    
+
     /**
      * Open a connection to get burned product back from the oven.<br>
      * Gets the product back from a queue set in the configuration file.
+     * @throws IOException if the response queue can not be consumed.
      */
-    private static void openConnectionToGetBurnedProduct() {
-    	ConnectionFactory factory = Configuration.getConnectionFactory();
-	    
-    	try {
-    		final Connection connection = factory.newConnection();
-    	    final Channel channel = connection.createChannel();
-    	    
-    	    DeliverCallback deliverCallback = getDeliveryCallBack(channel);
-    	    channel.queueDeclare(Configuration.OVEN_RESPONSE_QUEUE_NAME, true, false, false, null);
-
-    	    channel.basicQos(Configuration.CONCURRENT_ASSIGNMENT_COUNT); // Determines how many product can be assigned to an oven without knowing whether the oven already has heavy work or not.
-
-    	    channel.basicConsume(Configuration.OVEN_RESPONSE_QUEUE_NAME, false, deliverCallback, consumerTag -> { }); //Consume a product from oven and call deliverCallBack
-    	    System.out.println("Connection Opened to Get Burned Product at " + Utility.getCurrentDateTime());
-    	} catch (Exception ex) {
-    		System.out.println(ex.getMessage());
+    public void openConnectionToGetBurnedProduct() throws IOException {
+    	this.transport.declareQueue(Configuration.OVEN_RESPONSE_QUEUE_NAME);
+    	this.failedDeliveries.declareQueues();
+    	this.responseSubscription = this.transport.consume(Configuration.OVEN_RESPONSE_QUEUE_NAME, this.getResponsePrefetch(), //Consume a product from oven and call deliverCallBack
+    			this.getDeliveryCallBack());
+    	LOG.info("Connection Opened to Get Burned Product").log();
+    }
+
+    /**
+     * Start receiving the heartbeats of the ovens into the fleet registry and expiring the ovens which stopped sending them.
+     * @param intervalMillis time between two looks for dead ovens.
+     * @throws IOException if the heartbeat exchange can not be declared or subscribed.
+     */
+    public void watchFleet(long intervalMillis) throws IOException {
+    	this.transport.declareFanout(Configuration.FLEET_EXCHANGE_NAME);
+    	this.transport.subscribe(Configuration.FLEET_EXCHANGE_NAME, message -> {
+    		try {
+    			this.fleet.record(Heartbeat.fromMessage(message));
+    		} catch (IllegalArgumentException e) {
+    			LOG.warn("Heartbeat Dropped").with("cause", e.getMessage()).log();
+    		}
+    	});
+    	this.fleet.start(intervalMillis);
+    	LOG.info("Watching Oven Fleet").with("exchange", Configuration.FLEET_EXCHANGE_NAME).log();
+    }
+
+    /**
+     * Get the ovens alive and their slot usage, throughput and burn time.<br>
+     * A producer can check isSaturated before sending, to slow down while the ovens are busy.
+     * @return fleet registry, empty unless the fleet is watched.
+     */
+    public FleetRegistry getFleet() {
+    	return this.fleet;
+    }
+
+    /**
+     * Get the listener which logs the changes of the fleet.<br>
+     * Ovens joining and leaving are logged, a saturated fleet and a fleet without ovens are warned about.
+     * @return fleet listener.
+     */
+    private FleetRegistry.FleetListener getFleetListener() {
+    	return new FleetRegistry.FleetListener() {
+    		@Override
+    		public void ovenJoined(Heartbeat heartbeat) {
+    			LOG.info("Oven Joined").with("oven", heartbeat.getOvenId()).with("slots", heartbeat.getSlotCount()).log();
+    		}
+
+    		@Override
+    		public void ovenLost(String ovenId, boolean expired) {
+    			LOG.event(expired ? EventLevel.WARN : EventLevel.INFO, expired ? "Oven Expired" : "Oven Left").with("oven", ovenId)
+    					.with("ovens", fleet.getOvenCount()).log();
+    			if (fleet.getOvenCount() == 0)
+    				LOG.warn("No Oven Alive, products wait in the queue").log();
+    		}
+
+    		@Override
+    		public void saturationChanged(boolean saturated, double utilisation) {
+    			LOG.event(saturated ? EventLevel.WARN : EventLevel.INFO, saturated ? "Oven Fleet Saturated" : "Oven Fleet Recovered")
+    					.with("utilisation", Math.round(utilisation * 100)).with("busySlots", fleet.getBusySlotCount())
+    					.with("slots", fleet.getSlotCount()).with("productsPerSecond", Math.round(fleet.getProductsPerSecond())).log();
+    		}
+    	};
+    }
+
+    /**
+     * Start raising the prefetch of the burned products while they pile up in the response queue, up to the given maximum,
+     * and lowering it back to the fixed prefetch once the queue is empty. See QueueDepthController for the rules.<br>
+     * The connection must have been opened, see openConnectionToGetBurnedProduct.
+     * @param maxPrefetch highest prefetch.
+     * @param intervalMillis time between two looks at the queue depth.
+     */
+    public void startAutoscaling(int maxPrefetch, long intervalMillis) {
+    	int prefetch = this.getResponsePrefetch();
+    	QueueDepthController[] controller = new QueueDepthController[1];
+    	controller[0] = new QueueDepthController(this.transport, Configuration.OVEN_RESPONSE_QUEUE_NAME, this::getBurnedProductCount,
+    			prefetch, Math.max(prefetch, maxPrefetch), prefetch, scaled -> {
+    				this.responseSubscription.setPrefetch(scaled);
+    				LOG.info("Response prefetch scaled").with("prefetch", scaled)
+    						.with("productsPerSecond", Math.round(controller[0].getRate())).log();
+    			});
+    	controller[0].start(intervalMillis);
+    }
+
+    /**
+     * Get the fixed prefetch of the burned products.
+     * @return CONCURRENT_ASSIGNMENT_COUNT, or JOURNAL_MAX_PENDING_PRODUCTS while journaling since products waiting for the journal are not acked yet.
+     */
+    private int getResponsePrefetch() {
+    	return this.journal == null ? Configuration.CONCURRENT_ASSIGNMENT_COUNT : Configuration.JOURNAL_MAX_PENDING_PRODUCTS;
+    }
+
+    /**
+     * Wait until the given number of burned products came back.
+     * @param count number of burned products to wait for.
+     * @param timeout maximum time to wait.
+     * @param unit unit of the timeout.
+     * @return true if the products came back, false if the timeout passed first.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean awaitBurnedProducts(int count, long timeout, TimeUnit unit) throws InterruptedException {
+    	long deadline = System.nanoTime() + unit.toNanos(timeout);
+    	synchronized (this.burnedProductLock) {
+    		while (this.burnedProductCount < count) {
+    			long remaining = deadline - System.nanoTime();
+    			if (remaining <= 0)
+    				return false;
+    			TimeUnit.NANOSECONDS.timedWait(this.burnedProductLock, remaining);
+    		}
+    		return true;
     	}
     }
-    
+
+    /**
+     * Apply new tuning values, they are used by the next call of submitProducts.
+     * @param tuning new values.
+     */
+    public void applyTuning(Tuning tuning) {
+    	this.tuning = tuning;
+    	LOG.info("Configuration applied").with("publishBatchSize", tuning.getPublishBatchSize())
+    			.with("maxUnconfirmedProducts", tuning.getMaxUnconfirmedProducts()).log();
+    }
+
     /**
-     * Get the function which will be called after a burned product is returned.
-     * @param channel in which the burned product will get back.
+     * Get latencies of the burned products received so far.
+     * @return pipeline metrics.
+     */
+    public PipelineMetrics getMetrics() {
+    	return this.metrics;
+    }
+
+    /**
+     * Get the function which will be called after a burned product is returned.<br>
+     * Every burned product is recorded in the pipeline metrics, which are printed every METRICS_REPORT_INTERVAL products.<br>
+     * With a journal the product is acknowledged once it is on disk. If it can not be written it is retried after a backoff.<br>
+     * A burned product which can not be read goes to the dead letter queue.<br>
+     * Ovens acknowledge a product only after sending it back, so a product can come back twice. The second one is acknowledged and dropped.
      * @return DeliverCallBack function.
      */
-    private static DeliverCallback getDeliveryCallBack(Channel channel) {
-		  DeliverCallback deliverCallback = (consumerTag, delivery) -> {
-		        String productJson = new String(delivery.getBody(), "UTF-8"); //Get message in given char set.
-		        Product burnedProduct = Utility.getProduct(productJson);
-		        System.out.println("Received Burned Product: '" + burnedProduct.toString() + "'. At " + Utility.getCurrentDateTime());
-		        System.out.println("Received product was burned by oven: " + burnedProduct.getBurnedBy() );
-		        channel.basicAck(delivery.getEnvelope().getDeliveryTag(), false); //Let Postmaster (RabbitMQ) know that the delivery has been acknowledged
+    private DeliveryHandler getDeliveryCallBack() {
+    	DeliveryHandler deliverCallback = delivery -> {
+		        Product burnedProduct;
+		        try {
+		        	burnedProduct = ProductWireFormat.of(delivery.getMessage()).decode(delivery.getMessage().getBody()); //Read the body in the encoding named by its content-type.
+		        } catch (MalformedProductException e) {
+		        	this.failDelivery(delivery, e);
+		        	return;
+		        }
+		        if (!this.receivedProductIds.add(burnedProduct.getProductId())) {
+		        	LOG.info("Duplicate Burned Product Dropped").with("product", burnedProduct.getProductId())
+		        			.with("burnedBy", burnedProduct.getBurnedBy()).with("redelivered", delivery.isRedelivered()).log();
+		        	delivery.ack();
+		        	return;
+		        }
+		        burnedProduct.stamp(ProductStage.RESPONSE_RECEIVED);
+		        if (this.journal == null) {
+		        	this.receiveBurnedProduct(burnedProduct, delivery);
+		        	return;
+		        }
+		        CompletableFuture<Long> written;
+		        try {
+		        	written = this.journal.append(burnedProduct);
+		        } catch (IOException | RuntimeException e) {
+		        	this.receivedProductIds.remove(burnedProduct.getProductId()); // Not handled, so not a duplicate when it comes again
+		        	this.failDelivery(delivery, e);
+		        	return;
+		        }
+		        written.whenComplete((sequence, e) -> {
+		        	if (e == null) {
+		        		this.receiveBurnedProduct(burnedProduct, delivery);
+		        		return;
+		        	}
+		        	LOG.error("Exception Occurred", e).with("product", burnedProduct.getProductId()).log();
+		        	this.receivedProductIds.remove(burnedProduct.getProductId()); // Not handled, so not a duplicate when it comes again
+		        	this.failDelivery(delivery, e); // Written again once it is back from the delay queue
+		        });
 		    };
 		    return deliverCallback;
 	  }
+
+    /**
+     * Record, acknowledge and count a received burned product.
+     * @param burnedProduct burned product.
+     * @param delivery delivery of the product.
+     */
+    private void receiveBurnedProduct(Product burnedProduct, Delivery delivery) {
+    	this.metrics.record(burnedProduct);
+    	LOG.info("Received Burned Product").with("product", burnedProduct.getProductId()).with("name", burnedProduct.getProductName())
+    			.with("burnedBy", burnedProduct.getBurnedBy()).log();
+    	try {
+    		delivery.ack(); //Let Postmaster (RabbitMQ) know that the delivery has been acknowledged
+    	} catch (IOException e) {
+    		LOG.error("Exception Occurred", e).log();
+    	}
+    	if (this.countBurnedProduct() % Configuration.METRICS_REPORT_INTERVAL == 0)
+    		LOG.info(this.metrics.getReport()).log();
+    	for (Consumer<Product> listener : this.burnedProductListeners) {
+    		listener.accept(burnedProduct);
+    	}
+    }
+
+    /**
+     * Retry or dead-letter a delivered burned product which failed.
+     * @param delivery delivery which failed, not acked or nacked yet.
+     * @param cause failure of the delivery.
+     */
+    private void failDelivery(Delivery delivery, Throwable cause) {
+    	this.failedDeliveries.fail(delivery, cause).whenComplete((queue, e) -> {
+    		if (e != null) {
+    			LOG.error("Exception Occurred", e).log();
+    			return;
+    		}
+    		LOG.warn("Burned Product Failed").with("movedTo", queue)
+    				.with("retries", FailedDeliveryHandler.getRetryCount(delivery.getMessage())).with("cause", String.valueOf(cause)).log();
+    	});
+    }
+
+    /**
+     * Get number of burned products received so far, unlike the metrics it is not reset by a load run.
+     * @return burned product count.
+     */
+    private long getBurnedProductCount() {
+    	synchronized (this.burnedProductLock) {
+    		return this.burnedProductCount;
+    	}
+    }
+
+    /**
+     * Count a received burned product and wake up waiting threads.
+     * @return number of burned products received so far.
+     */
+    private int countBurnedProduct() {
+    	synchronized (this.burnedProductLock) {
+    		this.burnedProductCount++;
+    		this.burnedProductLock.notifyAll();
+    		return this.burnedProductCount;
+    	}
+    }
 }
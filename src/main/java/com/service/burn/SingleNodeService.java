@@ -0,0 +1,71 @@
+package com.service.burn;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.service.burn.logging.EventLevel;
+import com.service.burn.load.LoadMode;
+import com.service.burn.logging.EventLog;
+import com.service.burn.messaging.PublishReport;
+import com.service.burn.model.Product;
+import com.service.burn.transport.InMemoryTransport;
+
+/**
+ * <h2>SingleNodeService class runs the whole product, oven and response pipeline in one process.</h2>
+ * Products, ovens and the product service talk through an in-memory transport, so no RabbitMQ broker is needed.<br>
+ * Usage: SingleNodeService [number of ovens] [number of products]<br>
+ * With LOAD_MODE set in the Configuration class the load generator sends the products instead, the number of products is then ignored.<br>
+ * This is useful for single box deployments and throughput tests.
+ *
+ */
+public class SingleNodeService {
+
+	private static final EventLog LOG = Utility.getEventLog();
+
+	public static void main(String[] args) throws Exception {
+		int ovenCount = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+		int productCount = args.length > 1 ? Integer.parseInt(args[1]) : Configuration.PRODUCT_COUNT;
+
+		InMemoryTransport transport = new InMemoryTransport();
+		OvenService[] ovens = new OvenService[ovenCount];
+		ProductService productService = new ProductService(transport);
+		productService.getMetrics().register("single-node");
+		if (Configuration.HEARTBEAT_ENABLED) // Before the ovens, so their first heartbeats are seen
+			productService.watchFleet(Configuration.HEARTBEAT_INTERVAL_MILLIS);
+		for (int i = 0; i < ovenCount; i++) {
+			ovens[i] = new OvenService(transport, Configuration.OVEN_SLOT_COUNT);
+			ovens[i].start();
+			if (Configuration.HEARTBEAT_ENABLED)
+				ovens[i].startHeartbeats(Configuration.HEARTBEAT_INTERVAL_MILLIS);
+		}
+		LOG.info("Single node started").with("ovens", ovenCount).with("slots", Configuration.OVEN_SLOT_COUNT).log();
+
+		productService.openConnectionToGetBurnedProduct();
+		if (Configuration.LOAD_MODE != LoadMode.OFF) {
+			productService.generateLoad(Configuration.getLoadProfile());
+			stop(ovens, transport);
+			return;
+		}
+		List<Product> products = ProductService.createProducts(productCount);
+		long start = System.nanoTime();
+		PublishReport report = productService.submitProducts(products);
+		LOG.info("Sent").with("products", products.size()).with("report", report.toString()).log();
+
+		long timeoutSeconds = (long) Configuration.MAX_BURNING_TIME * productCount / Math.max(1, ovenCount * Configuration.OVEN_SLOT_COUNT) + Configuration.MAX_BURNING_TIME;
+		boolean completed = productService.awaitBurnedProducts(productCount, timeoutSeconds, TimeUnit.SECONDS);
+		LOG.event(completed ? EventLevel.INFO : EventLevel.WARN, completed ? "All products burned" : "Not all products burned")
+				.with("products", productCount).with("millis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).log();
+		LOG.info(productService.getMetrics().getReport()).log();
+		if (Configuration.HEARTBEAT_ENABLED)
+			LOG.info(productService.getFleet().getReport()).log();
+
+		stop(ovens, transport);
+	}
+
+	private static void stop(OvenService[] ovens, InMemoryTransport transport) {
+		for (OvenService oven : ovens) {
+			oven.stop(Configuration.MAX_BURNING_TIME, TimeUnit.SECONDS);
+		}
+		transport.close();
+	}
+}
@@ -1,12 +1,28 @@
 package com.service.burn;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ThreadLocalRandom;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
 import com.google.gson.JsonSyntaxException;
+import com.service.burn.logging.EventLog;
+import com.service.burn.model.OvenParameter;
+import com.service.burn.model.OvenParameterTypeAdapter;
 import com.service.burn.model.Product;
+import com.service.burn.model.ProductTypeAdapter;
 
 /**
  * Utility class contains several utility functions which are used throughout the project.
@@ -15,15 +31,67 @@ import com.service.burn.model.Product;
  */
 public class Utility {
 	
+	/**
+	 * Shared Gson object. Gson is thread safe, so one instance serves every message instead of building a new one per call.
+	 */
+	private static final Gson GSON = new GsonBuilder()
+			.registerTypeAdapter(Product.class, new ProductTypeAdapter())
+			.registerTypeAdapter(OvenParameter.class, new OvenParameterTypeAdapter())
+			.create();
+	
+	/**
+	 * Initial buffer size for a product written as JSON, large enough for a typical product.
+	 */
+	private static final int JSON_BUFFER_SIZE = 128;
+	
+	/**
+	 * Formatter of DATE_TIME_PATTERN. DateTimeFormatter is immutable and thread safe, so it is built once.
+	 */
+	private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern(Configuration.DATE_TIME_PATTERN);
+	
+	/**
+	 * Event log of the services, written to the console on its own thread. Waiting events are written when the process exits.
+	 */
+	private static final EventLog EVENT_LOG = createEventLog();
+	
 	/**
 	 * Converts given product into JSON String.
 	 * @param product which will be converted into JSON String
 	 * @return Converted JSON String
 	 */
 	public static String getJson(Product product) {
-		Gson gson = getGson();
-        String json = gson.toJson(product); // Convert product into JSON String.
-        return json;
+        return GSON.toJson(product, Product.class); // Convert product into JSON String.
+	}
+	
+	/**
+	 * Converts given product into UTF-8 encoded JSON bytes, ready to be used as a message body.
+	 * @param product which will be converted
+	 * @return UTF-8 encoded JSON
+	 */
+	public static byte[] getJsonBytes(Product product) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(JSON_BUFFER_SIZE);
+		try {
+			writeJson(product, out);
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex); // Writing into memory does not fail
+		}
+		return out.toByteArray();
+	}
+	
+	/**
+	 * Writes given product as UTF-8 encoded JSON into the given stream.
+	 * @param product which will be written
+	 * @param out stream to write to, it is flushed but not closed
+	 * @throws IOException if the stream can not be written
+	 */
+	public static void writeJson(Product product, OutputStream out) throws IOException {
+		Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+		try {
+			GSON.toJson(product, Product.class, writer);
+		} catch (JsonIOException ex) {
+			throw new IOException(ex);
+		}
+		writer.flush();
 	}
 	
 	/**
@@ -33,13 +101,36 @@ public class Utility {
 	 * @throws JsonSyntaxException
 	 */
 	public static Product getProduct(String json) throws JsonSyntaxException {
-        Gson gson = getGson();
-        try {
-        	Product product = gson.fromJson(json, Product.class); // Converts JSON into product.
-            return product;
-        } catch (JsonSyntaxException ex) {
-        	throw ex;
-        }
+        return GSON.fromJson(json, Product.class); // Converts JSON into product.
+	}
+	
+	/**
+	 * Converts given UTF-8 encoded JSON bytes (e.g. a message body) into product object.
+	 * @param json which will be converted
+	 * @return product
+	 * @throws JsonSyntaxException if the bytes are not a valid product
+	 */
+	public static Product getProduct(byte[] json) throws JsonSyntaxException {
+		try {
+			return readProduct(new ByteArrayInputStream(json));
+		} catch (IOException ex) {
+			throw new JsonSyntaxException(ex); // Reading from memory only fails on malformed input
+		}
+	}
+	
+	/**
+	 * Reads a product from a stream of UTF-8 encoded JSON.
+	 * @param in stream to read from, it is not closed
+	 * @return product
+	 * @throws IOException if the stream can not be read
+	 * @throws JsonSyntaxException if the stream does not contain a valid product
+	 */
+	public static Product readProduct(InputStream in) throws IOException, JsonSyntaxException {
+		try {
+			return GSON.fromJson(new InputStreamReader(in, StandardCharsets.UTF_8), Product.class);
+		} catch (JsonIOException ex) {
+			throw new IOException(ex);
+		}
 	}
 	
 	/**
@@ -47,7 +138,7 @@ public class Utility {
 	 * Date time format is set in the Configuration class.<br>
 	 * Date time format can be updated by editing DATE_TIME_PATTERN variable in the Configuration class.
 	 * <p>
-     * This method will create a formatter based on a simple
+     * The formatter is built once from a simple
      * <a href="#patterns">pattern of letters and symbols</a>
      * as described in the class documentation.
      * For example, {@code d MMM uuuu} will format 2011-12-03 as '3 Dec 2011'.
@@ -55,27 +146,32 @@ public class Utility {
 	 * @return current formatted DateTime string.
 	 */
 	public static String getCurrentDateTime() {
-		DateTimeFormatter formatter = DateTimeFormatter.ofPattern(Configuration.DATE_TIME_PATTERN);  
-		LocalDateTime now = LocalDateTime.now();  
-		return formatter.format(now);  
+		return DATE_TIME_FORMATTER.format(LocalDateTime.now());
 	}
 	
 	/**
-	 * Generate a random number between given range
-	 * @param max maximum number which can be generated
-	 * @param min minimum number which can be generated
-	 * @return random number
+	 * Get the event log of the services.<br>
+	 * Its level is set by LOG_LEVEL in the Configuration class.
+	 * @return event log.
 	 */
-	public static int getRandom(int max, int min) {
-		return (int)((Math.random() * ((max - min) + 1)) + min);
+	public static EventLog getEventLog() {
+		return EVENT_LOG;
+	}
+	
+	private static EventLog createEventLog() {
+		EventLog log = new EventLog(Configuration.LOG_LEVEL, Configuration.LOG_BUFFER_SIZE, System.out, Configuration.DATE_TIME_PATTERN);
+		Runtime.getRuntime().addShutdownHook(new Thread(log::close, "event-log-shutdown"));
+		return log;
 	}
 	
 	/**
-	 * Get a Gson object from GsonBuilder.
-	 * @return Gson object.
+	 * Generate a random number between given range.<br>
+	 * Every thread uses its own generator, so threads creating products at the same time do not contend on a shared one.
+	 * @param max maximum number which can be generated
+	 * @param min minimum number which can be generated
+	 * @return random number
 	 */
-	private static Gson getGson() {
-		GsonBuilder builder = new GsonBuilder();
-        return builder.create();
+	public static int getRandom(int max, int min) {
+		return ThreadLocalRandom.current().nextInt(min, max + 1);
 	}
 }
@@ -0,0 +1,414 @@
+package com.service.burn.checkpoint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongSupplier;
+
+import com.service.burn.Utility;
+import com.service.burn.logging.EventLog;
+
+/**
+ * <h2>BurnCheckpointStore class keeps the time every burning product has burned so far in a memory mapped file.</h2>
+ * The file is a hash table with open addressing (linear probing) keyed by product id, so a checkpoint is written in place
+ * without any allocation and survives a crash of the process as soon as it is written.<br>
+ * <b>file:</b> magic (int) | capacity (int) | zero (long) | entries<br>
+ * <b>entry:</b> product id (long) | state (long: 0 empty, -1 removed, otherwise burned milliseconds + 1) | written at, epoch milliseconds (long)<br>
+ * A product burned by another oven leaves its checkpoint behind, so once three quarters of the entries are taken the table is rebuilt
+ * without the removed entries and the checkpoints older than the maximum age. If it is still full, new checkpoints are not kept.
+ * The rebuilt table is written to a new file which is renamed over the old one, so a crash during a rebuild keeps the old table.<br>
+ * The file is locked while open, so only one store at a time uses it. A closed store keeps no checkpoints and has none,
+ * since the file may already be used by another store.<br>
+ * Other ovens look a product up without opening the store (see {@link #read(Path, long)}), e.g. to resume a product
+ * whose oven died.
+ *
+ */
+public class BurnCheckpointStore implements AutoCloseable {
+
+	private static final EventLog LOG = Utility.getEventLog();
+
+	/**
+	 * First int of the file.
+	 */
+	public static final int MAGIC = 0x434B5054; // "CKPT"
+
+	static final int HEADER_SIZE = 16;
+	static final int ENTRY_SIZE = 24;
+
+	private static final long EMPTY = 0;
+	private static final long REMOVED = -1;
+
+	/**
+	 * File of the store.
+	 */
+	private final Path file;
+
+	/**
+	 * Open file, its lock and its mapping, replaced by a rebuild.
+	 */
+	private FileChannel channel;
+	private FileLock lock;
+	private MappedByteBuffer buffer;
+
+	/**
+	 * Number of entries, a power of two.
+	 */
+	private final int capacity;
+
+	/**
+	 * Checkpoints older than this are dropped when the table is rebuilt.
+	 */
+	private final long maxAgeMillis;
+
+	/**
+	 * Clock in epoch milliseconds.
+	 */
+	private final LongSupplier clock;
+
+	/**
+	 * Number of entries holding a checkpoint.
+	 */
+	private int size;
+
+	/**
+	 * Number of removed entries, they are only reused by a rebuild or a put probing over them.
+	 */
+	private int removed;
+
+	/**
+	 * Set once the store is closed, the mapping is not touched afterwards.
+	 */
+	private boolean closed;
+
+	/**
+	 * <p>Constructor to initialize a store in the given file, keeping the checkpoints already in it.</p>
+	 * @param file file of the store, created if missing.
+	 * @param capacity number of entries of a new file, rounded up to a power of two. An existing file keeps its capacity.
+	 * @param maxAgeMillis age after which a checkpoint may be dropped.
+	 * @throws IOException if the file can not be read or written, or is used by another store.
+	 */
+	public BurnCheckpointStore(Path file, int capacity, long maxAgeMillis) throws IOException {
+		this(file, capacity, maxAgeMillis, System::currentTimeMillis);
+	}
+
+	/**
+	 * <p>Constructor to initialize a store with the given clock.</p>
+	 * @param file file of the store, created if missing.
+	 * @param capacity number of entries of a new file, rounded up to a power of two. An existing file keeps its capacity.
+	 * @param maxAgeMillis age after which a checkpoint may be dropped.
+	 * @param clock clock in epoch milliseconds.
+	 * @throws IOException if the file can not be read or written, or is used by another store.
+	 */
+	BurnCheckpointStore(Path file, int capacity, long maxAgeMillis, LongSupplier clock) throws IOException {
+		if (capacity < 1 || capacity > 1 << 26)
+			throw new IllegalArgumentException("Capacity must be between 1 and " + (1 << 26) + ", but was " + capacity);
+
+		this.file = file;
+		this.maxAgeMillis = maxAgeMillis;
+		this.clock = clock;
+		if (file.getParent() != null)
+			Files.createDirectories(file.getParent());
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			this.lock = tryLock(this.channel);
+			if (this.lock == null)
+				throw new IOException(file + " is used by another store");
+			int fileCapacity = this.channel.size() >= HEADER_SIZE ? this.readHeader(file) : 0;
+			this.capacity = fileCapacity > 0 ? fileCapacity : Integer.highestOneBit(Math.max(1, capacity * 2 - 1));
+			this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) this.capacity * ENTRY_SIZE);
+		} catch (IOException | RuntimeException ex) {
+			this.channel.close();
+			throw ex;
+		}
+		this.buffer.putInt(0, MAGIC);
+		this.buffer.putInt(4, this.capacity);
+		for (int index = 0; index < this.capacity; index++) {
+			long state = this.buffer.getLong(stateOffset(index));
+			if (state == REMOVED)
+				this.removed++;
+			else if (state != EMPTY)
+				this.size++;
+		}
+	}
+
+	/**
+	 * Write the time a product burned so far, replacing its previous checkpoint.
+	 * @param productId id of the product.
+	 * @param burnedMillis time the product burned so far.
+	 * @return true if the checkpoint was written, false if the store is full or closed.
+	 */
+	public synchronized boolean put(long productId, long burnedMillis) {
+		if (this.closed)
+			return false;
+		int index = this.find(productId);
+		if (index < 0) {
+			if ((this.size + this.removed + 1) * 4L > this.capacity * 3L) {
+				this.rebuild();
+				if ((this.size + 1) * 4L > this.capacity * 3L)
+					return false;
+			}
+			index = this.findFree(productId);
+			if (this.buffer.getLong(stateOffset(index)) == REMOVED)
+				this.removed--;
+			this.size++;
+			this.buffer.putLong(keyOffset(index), productId);
+		}
+		this.buffer.putLong(timeOffset(index), this.clock.getAsLong());
+		this.buffer.putLong(stateOffset(index), Math.max(0, burnedMillis) + 1); // Written last, a torn entry reads as its old state
+		return true;
+	}
+
+	/**
+	 * Get the time a product burned so far.
+	 * @param productId id of the product.
+	 * @return burned time in milliseconds, 0 if the product has no checkpoint or the store is closed.
+	 */
+	public synchronized long get(long productId) {
+		if (this.closed)
+			return 0;
+		int index = this.find(productId);
+		return index < 0 ? 0 : this.buffer.getLong(stateOffset(index)) - 1;
+	}
+
+	/**
+	 * Remove the checkpoint of a product, e.g. once it is burned.
+	 * @param productId id of the product.
+	 * @return true if the product had a checkpoint, false if not or the store is closed.
+	 */
+	public synchronized boolean remove(long productId) {
+		if (this.closed)
+			return false;
+		int index = this.find(productId);
+		if (index < 0)
+			return false;
+
+		this.buffer.putLong(stateOffset(index), REMOVED); // Keeps the probe chain of the entries behind it intact
+		this.size--;
+		this.removed++;
+		return true;
+	}
+
+	/**
+	 * Get number of checkpoints in the store.
+	 * @return checkpoint count.
+	 */
+	public synchronized int size() {
+		return this.size;
+	}
+
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	public Path getFile() {
+		return this.file;
+	}
+
+	/**
+	 * Force the checkpoints to disk, they already survive a crash of the process without it but not a crash of the machine.
+	 */
+	public synchronized void force() {
+		if (!this.closed)
+			this.buffer.force();
+	}
+
+	@Override
+	public synchronized void close() {
+		if (this.closed)
+			return;
+		this.closed = true;
+		this.buffer.force();
+		try {
+			this.lock.release();
+			this.channel.close(); // The mapping stays valid until the buffer is garbage collected
+		} catch (IOException ex) {
+			LOG.error("Exception Occurred", ex).log();
+		}
+	}
+
+	/**
+	 * Read the time a product burned so far from the file of a store without opening the store, e.g. the store of another oven.<br>
+	 * The file is not locked and may be written meanwhile. An entry is written state last, so a checkpoint being written reads
+	 * as its old value.
+	 * @param file file of a store.
+	 * @param productId id of the product.
+	 * @return burned time in milliseconds, 0 if the product has no checkpoint in the file or the file is empty.
+	 * @throws IOException if the file can not be read or is not a checkpoint store.
+	 */
+	public static long read(Path file, long productId) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			if (!readFully(channel, header, 0) || header.getInt(0) == 0)
+				return 0; // Created but not yet written
+			int capacity = header.getInt(4);
+			if (header.getInt(0) != MAGIC || Integer.bitCount(capacity) != 1)
+				throw new IOException(file + " is not a checkpoint store");
+
+			ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+			for (int probe = 0, index = home(productId, capacity); probe < capacity; probe++, index = (index + 1) & (capacity - 1)) {
+				if (!readFully(channel, entry, keyOffset(index)))
+					return 0;
+				long state = entry.getLong(8);
+				if (state == EMPTY)
+					return 0;
+				if (state != REMOVED && entry.getLong(0) == productId)
+					return state - 1;
+			}
+			return 0;
+		}
+	}
+
+	/**
+	 * Read the buffer from the given position of a file.
+	 * @return false if the file ends before the buffer is full.
+	 */
+	private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		buffer.clear();
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position + buffer.position());
+			if (read < 0)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Find the entry of a product.
+	 * @return index of the entry, -1 if the product has no checkpoint.
+	 */
+	private int find(long productId) {
+		for (int probe = 0, index = this.home(productId); probe < this.capacity; probe++, index = (index + 1) & (this.capacity - 1)) {
+			long state = this.buffer.getLong(stateOffset(index));
+			if (state == EMPTY)
+				return -1;
+			if (state != REMOVED && this.buffer.getLong(keyOffset(index)) == productId)
+				return index;
+		}
+		return -1;
+	}
+
+	/**
+	 * Find the first empty or removed entry on the probe chain of a product which has no checkpoint.
+	 */
+	private int findFree(long productId) {
+		return findFree(this.buffer, this.capacity, this.home(productId));
+	}
+
+	private static int findFree(MappedByteBuffer buffer, int capacity, int home) {
+		int index = home;
+		while (buffer.getLong(stateOffset(index)) > 0) {
+			index = (index + 1) & (capacity - 1);
+		}
+		return index;
+	}
+
+	/**
+	 * Rebuild the table without the removed entries and the checkpoints older than the maximum age.<br>
+	 * The new table is written and forced to a file next to the store, which is locked and then renamed over the store,
+	 * so the store file always holds a whole table. If the rebuild fails the old table is kept.
+	 */
+	private void rebuild() {
+		Path rebuilt = this.file.resolveSibling(this.file.getFileName() + ".rebuild");
+		FileChannel rebuiltChannel = null;
+		FileLock rebuiltLock;
+		MappedByteBuffer rebuiltBuffer;
+		int kept = 0;
+		try {
+			rebuiltChannel = FileChannel.open(rebuilt, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			rebuiltLock = tryLock(rebuiltChannel);
+			if (rebuiltLock == null)
+				throw new IOException(rebuilt + " is used by another store");
+			rebuiltBuffer = rebuiltChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) this.capacity * ENTRY_SIZE);
+			rebuiltBuffer.putInt(0, MAGIC);
+			rebuiltBuffer.putInt(4, this.capacity);
+			long oldest = this.clock.getAsLong() - this.maxAgeMillis;
+			for (int index = 0; index < this.capacity; index++) {
+				long state = this.buffer.getLong(stateOffset(index));
+				long time = this.buffer.getLong(timeOffset(index));
+				if (state > 0 && time >= oldest) {
+					long productId = this.buffer.getLong(keyOffset(index));
+					int free = findFree(rebuiltBuffer, this.capacity, home(productId, this.capacity));
+					rebuiltBuffer.putLong(keyOffset(free), productId);
+					rebuiltBuffer.putLong(timeOffset(free), time);
+					rebuiltBuffer.putLong(stateOffset(free), state);
+					kept++;
+				}
+			}
+			rebuiltBuffer.force();
+			Files.move(rebuilt, this.file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException | RuntimeException ex) {
+			LOG.error("Exception Occurred", ex).with("checkpoints", "not rebuilt").log();
+			if (rebuiltChannel != null) {
+				try {
+					rebuiltChannel.close();
+					Files.deleteIfExists(rebuilt);
+				} catch (IOException _ignored) {
+					// Written again by the next rebuild
+				}
+			}
+			return;
+		}
+
+		FileChannel replaced = this.channel;
+		FileLock replacedLock = this.lock;
+		this.channel = rebuiltChannel;
+		this.lock = rebuiltLock; // Moved along with the file
+		this.buffer = rebuiltBuffer;
+		this.size = kept;
+		this.removed = 0;
+		try {
+			replacedLock.release();
+			replaced.close(); // Its file is gone, only this store still had it open
+		} catch (IOException ex) {
+			LOG.error("Exception Occurred", ex).log();
+		}
+	}
+
+	private int readHeader(Path file) throws IOException {
+		MappedByteBuffer header = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+		int magic = header.getInt(0);
+		if (magic == 0)
+			return 0;
+		int capacity = header.getInt(4);
+		if (magic != MAGIC || Integer.bitCount(capacity) != 1)
+			throw new IOException(file + " is not a checkpoint store");
+		return capacity;
+	}
+
+	private static FileLock tryLock(FileChannel channel) throws IOException {
+		try {
+			return channel.tryLock();
+		} catch (OverlappingFileLockException ex) {
+			return null; // Locked by a store of this process
+		}
+	}
+
+	private int home(long productId) {
+		return home(productId, this.capacity);
+	}
+
+	private static int home(long productId, int capacity) {
+		long hash = productId * 0x9E3779B97F4A7C15L; // Ids of one node differ in their low bits, spread them over the table
+		return (int) (hash ^ (hash >>> 32)) & (capacity - 1);
+	}
+
+	private static int keyOffset(int index) {
+		return HEADER_SIZE + index * ENTRY_SIZE;
+	}
+
+	private static int stateOffset(int index) {
+		return keyOffset(index) + 8;
+	}
+
+	private static int timeOffset(int index) {
+		return keyOffset(index) + 16;
+	}
+}
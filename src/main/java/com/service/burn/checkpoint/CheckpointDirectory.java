@@ -0,0 +1,133 @@
+package com.service.burn.checkpoint;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.service.burn.Utility;
+import com.service.burn.logging.EventLog;
+
+/**
+ * <h2>CheckpointDirectory class shares the burn checkpoints of all ovens through one directory.</h2>
+ * Every oven writes its checkpoints to a {@link BurnCheckpointStore} of its own in the directory, named oven-&lt;n&gt;.checkpoints
+ * after the first number whose file is not locked by a running oven. The file of an oven which died is unlocked, so the next oven
+ * started takes it over and the directory holds no more files than ovens ran at the same time.<br>
+ * A product redelivered after its oven died goes to any oven, so a lookup reads the files of all ovens and takes the longest time
+ * burned. The files of the other ovens are read without opening their stores, a few reads per oven next to a burn of seconds.<br>
+ * An oven only writes and removes the checkpoints in its own file. The checkpoint a dead oven left for a product burned by another
+ * oven is dropped by age once an oven took the file over.
+ *
+ */
+public class CheckpointDirectory implements AutoCloseable {
+
+	private static final EventLog LOG = Utility.getEventLog();
+
+	/**
+	 * Ending of the checkpoint files in the directory.
+	 */
+	public static final String FILE_SUFFIX = ".checkpoints";
+
+	/**
+	 * Highest number of ovens sharing a directory.
+	 */
+	static final int MAX_OVEN_COUNT = 1024;
+
+	private final Path directory;
+
+	/**
+	 * Store of this oven.
+	 */
+	private final BurnCheckpointStore store;
+
+	/**
+	 * <p>Constructor to initialize the checkpoints of an oven in the given directory, taking the first file not used by another oven.</p>
+	 * @param directory directory shared by the ovens, created if missing.
+	 * @param capacity number of entries of a new file, see BurnCheckpointStore.
+	 * @param maxAgeMillis age after which a checkpoint may be dropped.
+	 * @throws IOException if the directory can not be written, or every file is used by another oven.
+	 */
+	public CheckpointDirectory(Path directory, int capacity, long maxAgeMillis) throws IOException {
+		Files.createDirectories(directory);
+		this.directory = directory;
+		BurnCheckpointStore opened = null;
+		IOException failure = null;
+		for (int oven = 0; oven < MAX_OVEN_COUNT && opened == null; oven++) {
+			try {
+				opened = new BurnCheckpointStore(directory.resolve("oven-" + oven + FILE_SUFFIX), capacity, maxAgeMillis);
+			} catch (IOException ex) {
+				failure = ex; // Used by a running oven, or not a store
+			}
+		}
+		if (opened == null)
+			throw new IOException("No checkpoint file free in " + directory, failure);
+		this.store = opened;
+	}
+
+	/**
+	 * Write the time a product burned so far to the file of this oven.
+	 * @param productId id of the product.
+	 * @param burnedMillis time the product burned so far.
+	 * @return true if the checkpoint was written, see BurnCheckpointStore.put.
+	 */
+	public boolean put(long productId, long burnedMillis) {
+		return this.store.put(productId, burnedMillis);
+	}
+
+	/**
+	 * Get the longest time a product burned so far in any oven of the directory.<br>
+	 * A file which can not be read, e.g. because it is being replaced, is skipped.
+	 * @param productId id of the product.
+	 * @return burned time in milliseconds, 0 if no oven has a checkpoint of the product.
+	 */
+	public long get(long productId) {
+		long burnedMillis = this.store.get(productId);
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, "*" + FILE_SUFFIX)) {
+			for (Path file : files) {
+				if (file.equals(this.store.getFile()))
+					continue;
+				try {
+					burnedMillis = Math.max(burnedMillis, BurnCheckpointStore.read(file, productId));
+				} catch (IOException ex) {
+					LOG.warn("Checkpoints not read").with("file", file.toString()).with("cause", ex.getMessage()).log();
+				}
+			}
+		} catch (IOException ex) {
+			LOG.error("Exception Occurred", ex).with("directory", this.directory.toString()).log();
+		}
+		return burnedMillis;
+	}
+
+	/**
+	 * Remove the checkpoint of a product from the file of this oven.
+	 * @param productId id of the product.
+	 * @return true if the product had a checkpoint in it.
+	 */
+	public boolean remove(long productId) {
+		return this.store.remove(productId);
+	}
+
+	/**
+	 * Get number of checkpoints in the file of this oven.
+	 * @return checkpoint count.
+	 */
+	public int size() {
+		return this.store.size();
+	}
+
+	/**
+	 * Get file of this oven.
+	 * @return checkpoint file.
+	 */
+	public Path getFile() {
+		return this.store.getFile();
+	}
+
+	/**
+	 * Close the file of this oven, so the next oven started can take it over.
+	 */
+	@Override
+	public void close() {
+		this.store.close();
+	}
+}
@@ -0,0 +1,138 @@
+package com.service.burn.config;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.service.burn.Utility;
+import com.service.burn.logging.EventLog;
+
+/**
+ * <h2>ConfigWatcher class reloads the settings when the configuration file changes.</h2>
+ * The directory of the file is watched on a daemon thread. Editors often write a file in several steps, so a change is only
+ * read once the file was quiet for {@link #DEBOUNCE_MILLIS}.<br>
+ * Every listener gets the new settings. If the file can not be read or a listener finds a value invalid, the error is logged and
+ * the services keep their current values until the file is fixed.<br>
+ * A missing file is not read: a file which was deleted, or is saved by an editor deleting and writing it again, keeps the current
+ * values instead of falling back to the defaults. The file is read again once it was created.
+ *
+ */
+public class ConfigWatcher implements AutoCloseable {
+
+	private static final EventLog LOG = Utility.getEventLog();
+
+	/**
+	 * Time in milliseconds the file has to be quiet before it is read.
+	 */
+	public static final long DEBOUNCE_MILLIS = 200;
+
+	private final Path file;
+	private final Map<String, String> environment;
+	private final Properties systemProperties;
+	private final List<Consumer<Settings>> listeners = new CopyOnWriteArrayList<>();
+	private final WatchService watchService;
+	private final Thread thread;
+
+	/**
+	 * <p>Constructor to initialize a watcher of the given file, it does not watch until started.</p>
+	 * @param file configuration file, its directory must exist.
+	 * @param environment environment variables, they still win over the file after a reload.
+	 * @param systemProperties system properties, they still win over the file after a reload.
+	 * @throws IOException if the directory can not be watched.
+	 */
+	public ConfigWatcher(Path file, Map<String, String> environment, Properties systemProperties) throws IOException {
+		this.file = file.toAbsolutePath();
+		this.environment = environment;
+		this.systemProperties = systemProperties;
+		this.watchService = FileSystems.getDefault().newWatchService();
+		this.file.getParent().register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY);
+		this.thread = new Thread(this::watch, "config-watcher");
+		this.thread.setDaemon(true);
+	}
+
+	/**
+	 * Add a listener which gets the settings after every reload.
+	 * @param listener listener, it throws an {@link InvalidConfigurationException} to reject the settings.
+	 */
+	public void addListener(Consumer<Settings> listener) {
+		this.listeners.add(listener);
+	}
+
+	/**
+	 * Start watching the file.
+	 */
+	public void start() {
+		this.thread.start();
+	}
+
+	/**
+	 * Read the file again and give the settings to every listener.
+	 * @return true if the settings were read and accepted by every listener, false if the file is missing.
+	 */
+	public boolean reload() {
+		if (!Files.isRegularFile(this.file)) {
+			LOG.warn("Configuration file missing, keeping the current configuration").with("file", this.file.toString()).log();
+			return false;
+		}
+		try {
+			Settings settings = Settings.load(this.file, this.environment, this.systemProperties);
+			for (Consumer<Settings> listener : this.listeners) {
+				listener.accept(settings);
+			}
+			return true;
+		} catch (IllegalArgumentException e) { // Also an InvalidConfigurationException
+			LOG.error("Exception Occurred", e).with("configuration", "kept").log();
+			return false;
+		}
+	}
+
+	/**
+	 * Stop watching the file.
+	 */
+	@Override
+	public void close() {
+		try {
+			this.watchService.close();
+		} catch (IOException e) {
+			LOG.error("Exception Occurred", e).log();
+		}
+	}
+
+	private void watch() {
+		try {
+			while (true) {
+				WatchKey key = this.watchService.take();
+				boolean changed = this.isFileChanged(key);
+				while (key.reset() && (key = this.watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+					changed |= this.isFileChanged(key); // Wait until the file is quiet
+				}
+				if (changed)
+					this.reload();
+			}
+		} catch (InterruptedException | ClosedWatchServiceException _ignored) {
+			// Closed
+		}
+	}
+
+	private boolean isFileChanged(WatchKey key) {
+		boolean changed = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW || this.file.getFileName().equals(event.context()))
+				changed = true;
+		}
+		return changed;
+	}
+}
@@ -0,0 +1,28 @@
+package com.service.burn.config;
+
+/**
+ * InvalidConfigurationException is thrown when a configuration value can not be read or is out of its range.<br>
+ * The message names the key, the value and where the value came from.
+ *
+ */
+public class InvalidConfigurationException extends IllegalArgumentException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * <p>Constructor to initialize the exception with a message.</p>
+	 * @param message what is wrong.
+	 */
+	public InvalidConfigurationException(String message) {
+		super(message);
+	}
+
+	/**
+	 * <p>Constructor to initialize the exception with a message and its cause.</p>
+	 * @param message what is wrong.
+	 * @param cause cause.
+	 */
+	public InvalidConfigurationException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
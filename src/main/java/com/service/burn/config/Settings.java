@@ -0,0 +1,270 @@
+package com.service.burn.config;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * <h2>Settings class holds configuration values read from a file, environment variables and system properties.</h2>
+ * Keys are lower case and dotted, e.g. <code>oven.slot.count</code>. A key can be set in three places, later ones win:<br>
+ * <b>file:</b> a properties file, <code>oven.slot.count=8</code><br>
+ * <b>environment variable:</b> upper case with underscores and the prefix BURN_, <code>BURN_OVEN_SLOT_COUNT=8</code><br>
+ * <b>system property:</b> the prefix burn., <code>-Dburn.oven.slot.count=8</code><br>
+ * Settings are immutable, a reload creates new settings. Values are checked when they are read, an invalid value throws
+ * an {@link InvalidConfigurationException} naming the key, the value and its source.<br>
+ * Settings can be narrowed to one oven with {@link #forOven(String)}: a key prefixed with the name of the oven,
+ * e.g. <code>oven-2.oven.slot.count=2</code>, then wins over the key without prefix.
+ *
+ */
+public class Settings {
+
+	/**
+	 * Prefix of system properties which are settings.
+	 */
+	public static final String PROPERTY_PREFIX = "burn.";
+
+	/**
+	 * Prefix of environment variables which are settings.
+	 */
+	public static final String ENVIRONMENT_PREFIX = "BURN_";
+
+	/**
+	 * Values by key.
+	 */
+	private final Map<String, String> values;
+
+	/**
+	 * Where each value came from, for error messages.
+	 */
+	private final Map<String, String> sources;
+
+	/**
+	 * Name of the oven whose overrides win, null for none.
+	 */
+	private final String ovenName;
+
+	private Settings(Map<String, String> values, Map<String, String> sources, String ovenName) {
+		this.values = values;
+		this.sources = sources;
+		this.ovenName = ovenName;
+	}
+
+	/**
+	 * Create settings from the given values only, e.g. for tests.
+	 * @param values values by key.
+	 * @return settings.
+	 */
+	public static Settings of(Map<String, String> values) {
+		Map<String, String> sources = new HashMap<>();
+		for (String key : values.keySet()) {
+			sources.put(key, "given values");
+		}
+		return new Settings(new HashMap<>(values), sources, null);
+	}
+
+	/**
+	 * Read settings from a file, environment variables and system properties.
+	 * @param file properties file, may be null or missing.
+	 * @param environment environment variables, e.g. System.getenv().
+	 * @param systemProperties system properties, e.g. System.getProperties().
+	 * @return settings.
+	 * @throws InvalidConfigurationException if the file exists but can not be read.
+	 */
+	public static Settings load(Path file, Map<String, String> environment, Properties systemProperties) {
+		Map<String, String> values = new HashMap<>();
+		Map<String, String> sources = new HashMap<>();
+		if (file != null && Files.isRegularFile(file)) {
+			Properties properties = new Properties();
+			try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				properties.load(reader);
+			} catch (IOException | IllegalArgumentException ex) {
+				throw new InvalidConfigurationException("Configuration file " + file + " can not be read: " + ex.getMessage(), ex);
+			}
+			for (String key : properties.stringPropertyNames()) {
+				put(values, sources, key.trim(), properties.getProperty(key), "file " + file);
+			}
+		}
+		for (Map.Entry<String, String> entry : environment.entrySet()) {
+			String name = entry.getKey();
+			if (name.startsWith(ENVIRONMENT_PREFIX) && name.length() > ENVIRONMENT_PREFIX.length()) {
+				String key = name.substring(ENVIRONMENT_PREFIX.length()).toLowerCase(Locale.ROOT).replace('_', '.');
+				put(values, sources, key, entry.getValue(), "environment variable " + name);
+			}
+		}
+		for (String name : systemProperties.stringPropertyNames()) {
+			if (name.startsWith(PROPERTY_PREFIX) && name.length() > PROPERTY_PREFIX.length())
+				put(values, sources, name.substring(PROPERTY_PREFIX.length()), systemProperties.getProperty(name), "system property " + name);
+		}
+		return new Settings(values, sources, null);
+	}
+
+	private static void put(Map<String, String> values, Map<String, String> sources, String key, String value, String source) {
+		values.put(key, value.trim());
+		sources.put(key, source);
+	}
+
+	/**
+	 * Get settings in which the overrides of an oven win.
+	 * @param name name of the oven, null for none.
+	 * @return settings of the oven.
+	 */
+	public Settings forOven(String name) {
+		return new Settings(this.values, this.sources, name == null || name.isEmpty() ? null : name);
+	}
+
+	/**
+	 * Get all values, e.g. to print them.
+	 * @return values by key, read only.
+	 */
+	public Map<String, String> getValues() {
+		return Collections.unmodifiableMap(this.values);
+	}
+
+	/**
+	 * Get a text value.
+	 * @param key key of the value.
+	 * @param defaultValue value if the key is not set.
+	 * @return value.
+	 */
+	public String getString(String key, String defaultValue) {
+		String value = this.lookup(key);
+		return value == null || value.isEmpty() ? defaultValue : value;
+	}
+
+	/**
+	 * Get an int value.
+	 * @param key key of the value.
+	 * @param defaultValue value if the key is not set.
+	 * @param min lowest valid value.
+	 * @param max highest valid value.
+	 * @return value.
+	 * @throws InvalidConfigurationException if the value is not a number or out of range.
+	 */
+	public int getInt(String key, int defaultValue, int min, int max) {
+		return (int) this.getLong(key, defaultValue, min, max);
+	}
+
+	/**
+	 * Get a long value.
+	 * @param key key of the value.
+	 * @param defaultValue value if the key is not set.
+	 * @param min lowest valid value.
+	 * @param max highest valid value.
+	 * @return value.
+	 * @throws InvalidConfigurationException if the value is not a number or out of range.
+	 */
+	public long getLong(String key, long defaultValue, long min, long max) {
+		String text = this.getString(key, null);
+		long value;
+		if (text == null) {
+			value = defaultValue;
+		} else {
+			try {
+				value = Long.parseLong(text);
+			} catch (NumberFormatException ex) {
+				throw new InvalidConfigurationException(this.describe(key, text) + " is not a number");
+			}
+		}
+		if (value < min || value > max)
+			throw new InvalidConfigurationException(this.describe(key, String.valueOf(value)) + " must be between " + min + " and " + max);
+		return value;
+	}
+
+	/**
+	 * Get a decimal value.
+	 * @param key key of the value.
+	 * @param defaultValue value if the key is not set.
+	 * @param min lowest valid value.
+	 * @param max highest valid value.
+	 * @return value.
+	 * @throws InvalidConfigurationException if the value is not a number or out of range.
+	 */
+	public double getDouble(String key, double defaultValue, double min, double max) {
+		String text = this.getString(key, null);
+		double value;
+		if (text == null) {
+			value = defaultValue;
+		} else {
+			try {
+				value = Double.parseDouble(text);
+			} catch (NumberFormatException ex) {
+				throw new InvalidConfigurationException(this.describe(key, text) + " is not a number");
+			}
+		}
+		if (!(value >= min && value <= max)) // Also rejects NaN
+			throw new InvalidConfigurationException(this.describe(key, String.valueOf(value)) + " must be between " + min + " and " + max);
+		return value;
+	}
+
+	/**
+	 * Get an enum value by its name, ignoring case.
+	 * @param key key of the value.
+	 * @param defaultValue value if the key is not set, gives the type of the enum.
+	 * @return value.
+	 * @throws InvalidConfigurationException if the value is not a name of the enum.
+	 */
+	public <E extends Enum<E>> E getEnum(String key, E defaultValue) {
+		String text = this.getString(key, null);
+		if (text == null)
+			return defaultValue;
+		for (E constant : defaultValue.getDeclaringClass().getEnumConstants()) {
+			if (constant.name().equalsIgnoreCase(text))
+				return constant;
+		}
+		throw new InvalidConfigurationException(this.describe(key, text) + " must be one of "
+				+ Arrays.toString(defaultValue.getDeclaringClass().getEnumConstants()));
+	}
+
+	/**
+	 * Get a boolean value.
+	 * @param key key of the value.
+	 * @param defaultValue value if the key is not set.
+	 * @return value.
+	 * @throws InvalidConfigurationException if the value is neither true nor false.
+	 */
+	public boolean getBoolean(String key, boolean defaultValue) {
+		String text = this.getString(key, null);
+		if (text == null)
+			return defaultValue;
+		if ("true".equalsIgnoreCase(text) || "false".equalsIgnoreCase(text))
+			return Boolean.parseBoolean(text);
+		throw new InvalidConfigurationException(this.describe(key, text) + " must be true or false");
+	}
+
+	/**
+	 * Check that a condition between values holds.
+	 * @param condition condition.
+	 * @param message what is wrong if the condition does not hold.
+	 * @throws InvalidConfigurationException if the condition does not hold.
+	 */
+	public static void require(boolean condition, String message) {
+		if (!condition)
+			throw new InvalidConfigurationException(message);
+	}
+
+	private String lookup(String key) {
+		if (this.ovenName != null) {
+			String value = this.values.get(this.ovenName + "." + key);
+			if (value != null)
+				return value;
+		}
+		return this.values.get(key);
+	}
+
+	private String describe(String key, String value) {
+		String source = null;
+		if (this.ovenName != null)
+			source = this.sources.get(this.ovenName + "." + key);
+		if (source == null)
+			source = this.sources.get(key);
+		return "Setting " + key + "='" + value + "' (" + (source == null ? "default" : source) + ")";
+	}
+}
@@ -0,0 +1,149 @@
+package com.service.burn.config;
+
+/**
+ * <h2>Tuning class holds the settings which can be changed while the services run.</h2>
+ * A reload of the configuration creates a new tuning which the services apply without stopping: batches which are burning
+ * finish with the values they started with, the next batches use the new values.<br>
+ * Values are read with {@link #read(Settings, int)}, which checks every value and the values against each other.
+ *
+ */
+public class Tuning {
+
+	/**
+	 * Key of the number of batches one oven burns at the same time.
+	 */
+	public static final String OVEN_SLOT_COUNT = "oven.slot.count";
+
+	/**
+	 * Key of the maximum number of products burned together in one slot.
+	 */
+	public static final String OVEN_BATCH_CAPACITY = "oven.batch.capacity";
+
+	/**
+	 * Key of the number of unacknowledged products an oven asks for, 0 for slot count times batch capacity.
+	 */
+	public static final String OVEN_PREFETCH = "oven.prefetch";
+
+	/**
+	 * Key of the maximum time in milliseconds a product waits for other products of its band.
+	 */
+	public static final String BATCH_LINGER_MILLIS = "batch.linger.millis";
+
+	/**
+	 * Key of the number of products the product service publishes in one batch.
+	 */
+	public static final String PUBLISH_BATCH_SIZE = "publish.batch.size";
+
+	/**
+	 * Key of the maximum number of published products waiting for a confirm.
+	 */
+	public static final String MAX_UNCONFIRMED_PRODUCTS = "max.unconfirmed.products";
+
+	private final int slotCount;
+	private final int batchCapacity;
+	private final int prefetch;
+	private final long batchLingerMillis;
+	private final int publishBatchSize;
+	private final int maxUnconfirmedProducts;
+
+	/**
+	 * <p>Constructor to initialize a tuning with the given values.</p>
+	 * @param slotCount number of batches one oven burns at the same time.
+	 * @param batchCapacity maximum number of products burned together in one slot.
+	 * @param prefetch number of unacknowledged products an oven asks for, 0 for slotCount * batchCapacity.
+	 * @param batchLingerMillis maximum time in milliseconds a product waits for other products of its band.
+	 * @param publishBatchSize number of products published in one batch.
+	 * @param maxUnconfirmedProducts maximum number of published products waiting for a confirm.
+	 */
+	public Tuning(int slotCount, int batchCapacity, int prefetch, long batchLingerMillis, int publishBatchSize, int maxUnconfirmedProducts) {
+		this.slotCount = slotCount;
+		this.batchCapacity = batchCapacity;
+		this.prefetch = prefetch;
+		this.batchLingerMillis = batchLingerMillis;
+		this.publishBatchSize = publishBatchSize;
+		this.maxUnconfirmedProducts = maxUnconfirmedProducts;
+	}
+
+	/**
+	 * Read and check a tuning from settings. Keys which are not set get their default.
+	 * @param settings settings, narrowed to an oven for its overrides.
+	 * @param maxSlotCount highest slot count an oven can use.
+	 * @return tuning.
+	 * @throws InvalidConfigurationException if a value is invalid.
+	 */
+	public static Tuning read(Settings settings, int maxSlotCount) {
+		int slotCount = settings.getInt(OVEN_SLOT_COUNT, 4, 1, maxSlotCount);
+		int batchCapacity = settings.getInt(OVEN_BATCH_CAPACITY, 4, 1, 1000);
+		int prefetch = settings.getInt(OVEN_PREFETCH, 0, 0, 65535);
+		long batchLingerMillis = settings.getLong(BATCH_LINGER_MILLIS, 500, 0, 600000);
+		int publishBatchSize = settings.getInt(PUBLISH_BATCH_SIZE, 100, 1, 100000);
+		int maxUnconfirmedProducts = settings.getInt(MAX_UNCONFIRMED_PRODUCTS, 1000, 1, 1000000);
+		Settings.require(publishBatchSize <= maxUnconfirmedProducts,
+				PUBLISH_BATCH_SIZE + " (" + publishBatchSize + ") must not be above " + MAX_UNCONFIRMED_PRODUCTS + " (" + maxUnconfirmedProducts + ")");
+		return new Tuning(slotCount, batchCapacity, prefetch, batchLingerMillis, publishBatchSize, maxUnconfirmedProducts);
+	}
+
+	/**
+	 * Get the same tuning with another slot count, e.g. one chosen by autoscaling.
+	 * @param slotCount number of batches one oven burns at the same time.
+	 * @return tuning.
+	 */
+	public Tuning withSlotCount(int slotCount) {
+		return new Tuning(slotCount, this.batchCapacity, this.prefetch, this.batchLingerMillis, this.publishBatchSize, this.maxUnconfirmedProducts);
+	}
+
+	/**
+	 * Get number of batches one oven burns at the same time.
+	 * @return slot count.
+	 */
+	public int getSlotCount() {
+		return this.slotCount;
+	}
+
+	/**
+	 * Get maximum number of products burned together in one slot.
+	 * @return batch capacity.
+	 */
+	public int getBatchCapacity() {
+		return this.batchCapacity;
+	}
+
+	/**
+	 * Get number of unacknowledged products an oven asks for.
+	 * @return prefetch, slot count times batch capacity unless set.
+	 */
+	public int getPrefetch() {
+		return this.prefetch > 0 ? this.prefetch : this.slotCount * this.batchCapacity;
+	}
+
+	/**
+	 * Get maximum time in milliseconds a product waits for other products of its band.
+	 * @return linger time.
+	 */
+	public long getBatchLingerMillis() {
+		return this.batchLingerMillis;
+	}
+
+	/**
+	 * Get number of products published in one batch.
+	 * @return publish batch size.
+	 */
+	public int getPublishBatchSize() {
+		return this.publishBatchSize;
+	}
+
+	/**
+	 * Get maximum number of published products waiting for a confirm.
+	 * @return max unconfirmed products.
+	 */
+	public int getMaxUnconfirmedProducts() {
+		return this.maxUnconfirmedProducts;
+	}
+
+	@Override
+	public String toString() {
+		return "slots: " + this.slotCount + " | batch capacity: " + this.batchCapacity + " | prefetch: " + this.getPrefetch()
+				+ " | linger: " + this.batchLingerMillis + " ms | publish batch: " + this.publishBatchSize
+				+ " | max unconfirmed: " + this.maxUnconfirmedProducts;
+	}
+}
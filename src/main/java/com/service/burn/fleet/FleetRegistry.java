@@ -0,0 +1,321 @@
+package com.service.burn.fleet;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.service.burn.Utility;
+import com.service.burn.logging.EventLog;
+
+/**
+ * <h2>FleetRegistry class keeps the last heartbeat of every oven alive and sums them up into a view of the whole fleet.</h2>
+ * An oven joins with its first heartbeat and leaves with a heartbeat carrying the leaving flag. An oven which sent no heartbeat for
+ * the given number of its heartbeat intervals counts as dead and is expired, so a crashed oven does not count as capacity.<br>
+ * The fleet is saturated while the share of busy slots is at or above the alert utilisation: products sent now wait in the
+ * product queue, so a producer may slow down (see isSaturated). Joins, losses and changes of the saturation are given to a listener.<br>
+ * Ages are measured from the time a heartbeat was received, so the clocks of the ovens do not matter.
+ *
+ */
+public class FleetRegistry implements FleetRegistryMBean, AutoCloseable {
+
+	private static final EventLog LOG = Utility.getEventLog();
+
+	/**
+	 * Told about changes of the fleet. Called on the thread which recorded the heartbeat or expired the oven.
+	 */
+	public interface FleetListener {
+
+		/**
+		 * Called when the first heartbeat of an oven is recorded.
+		 * @param heartbeat first heartbeat of the oven.
+		 */
+		void ovenJoined(Heartbeat heartbeat);
+
+		/**
+		 * Called when an oven left or was expired.
+		 * @param ovenId id of the oven.
+		 * @param expired true if the oven sent no heartbeat in time, false if it said it is leaving.
+		 */
+		void ovenLost(String ovenId, boolean expired);
+
+		/**
+		 * Called when the fleet becomes saturated or not any more.
+		 * @param saturated true if the utilisation rose to the alert utilisation, false if it fell below.
+		 * @param utilisation utilisation of the fleet.
+		 */
+		void saturationChanged(boolean saturated, double utilisation);
+	}
+
+	/**
+	 * Last heartbeat of every oven alive by oven id.
+	 */
+	private final ConcurrentMap<String, Received> ovens = new ConcurrentHashMap<>();
+
+	/**
+	 * Number of heartbeat intervals without a heartbeat after which an oven is expired.
+	 */
+	private final int expiryHeartbeats;
+
+	/**
+	 * Utilisation at or above which the fleet is saturated.
+	 */
+	private final double alertUtilisation;
+
+	private final FleetListener listener;
+
+	/**
+	 * Clock in milliseconds.
+	 */
+	private final LongSupplier clock;
+
+	private volatile boolean saturated;
+
+	/**
+	 * Runs the expiry once started.
+	 */
+	private ScheduledExecutorService timer;
+
+	/**
+	 * <p>Constructor to initialize an empty registry, ovens are only expired once started.</p>
+	 * @param expiryHeartbeats number of heartbeat intervals without a heartbeat after which an oven is expired, at least 1.
+	 * @param alertUtilisation utilisation at or above which the fleet is saturated, between 0 and 1.
+	 * @param listener told about changes of the fleet.
+	 */
+	public FleetRegistry(int expiryHeartbeats, double alertUtilisation, FleetListener listener) {
+		this(expiryHeartbeats, alertUtilisation, listener, System::currentTimeMillis);
+	}
+
+	/**
+	 * <p>Constructor to initialize an empty registry with the given clock.</p>
+	 * @param expiryHeartbeats number of heartbeat intervals without a heartbeat after which an oven is expired, at least 1.
+	 * @param alertUtilisation utilisation at or above which the fleet is saturated, between 0 and 1.
+	 * @param listener told about changes of the fleet.
+	 * @param clock clock in milliseconds.
+	 */
+	FleetRegistry(int expiryHeartbeats, double alertUtilisation, FleetListener listener, LongSupplier clock) {
+		if (expiryHeartbeats < 1 || alertUtilisation < 0 || alertUtilisation > 1)
+			throw new IllegalArgumentException("Expiry must be at least 1 heartbeat and alert utilisation between 0 and 1");
+
+		this.expiryHeartbeats = expiryHeartbeats;
+		this.alertUtilisation = alertUtilisation;
+		this.listener = listener;
+		this.clock = clock;
+	}
+
+	/**
+	 * Record the heartbeat of an oven, an oven which is leaving is dropped at once.
+	 * @param heartbeat received heartbeat.
+	 */
+	public synchronized void record(Heartbeat heartbeat) {
+		if (heartbeat.isLeaving()) {
+			if (this.ovens.remove(heartbeat.getOvenId()) != null)
+				this.listener.ovenLost(heartbeat.getOvenId(), false);
+		} else if (this.ovens.put(heartbeat.getOvenId(), new Received(heartbeat, this.clock.getAsLong())) == null) {
+			this.listener.ovenJoined(heartbeat);
+		}
+		this.checkSaturation();
+	}
+
+	/**
+	 * Drop every oven which sent no heartbeat for the expiry number of its heartbeat intervals.
+	 * @return ids of the expired ovens.
+	 */
+	public synchronized List<String> expire() {
+		long now = this.clock.getAsLong();
+		List<String> expired = new ArrayList<>();
+		for (Iterator<Map.Entry<String, Received>> it = this.ovens.entrySet().iterator(); it.hasNext();) {
+			Map.Entry<String, Received> oven = it.next();
+			Received received = oven.getValue();
+			if (now - received.receivedAtMillis > received.heartbeat.getIntervalMillis() * this.expiryHeartbeats) {
+				it.remove();
+				expired.add(oven.getKey());
+				this.listener.ovenLost(oven.getKey(), true);
+			}
+		}
+		this.checkSaturation();
+		return expired;
+	}
+
+	/**
+	 * Start expiring dead ovens at a fixed interval on a daemon thread.
+	 * @param intervalMillis time between two expiries.
+	 */
+	public synchronized void start(long intervalMillis) {
+		if (this.timer != null)
+			throw new IllegalStateException("Fleet registry is already started");
+
+		ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+			Thread thread = new Thread(runnable, "fleet-expiry");
+			thread.setDaemon(true);
+			return thread;
+		});
+		timer.scheduleWithFixedDelay(() -> {
+			try {
+				this.expire();
+			} catch (RuntimeException e) {
+				LOG.error("Exception Occurred", e).with("ovens", "not expired").log();
+			}
+		}, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+		this.timer = timer;
+	}
+
+	/**
+	 * Stop expiring.
+	 */
+	@Override
+	public synchronized void close() {
+		if (this.timer != null)
+			this.timer.shutdownNow();
+	}
+
+	/**
+	 * Register the registry with the platform MBean server as com.service.burn:type=FleetRegistry,name=&lt;name&gt;.<br>
+	 * A failed registration (e.g. the name is taken) is logged, the registry keeps working without JMX.
+	 * @param name name of the service whose fleet this is.
+	 * @return true if registered.
+	 */
+	public boolean register(String name) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.registerMBean(this, new ObjectName("com.service.burn:type=FleetRegistry,name=" + ObjectName.quote(name)));
+			return true;
+		} catch (JMException e) {
+			LOG.error("Exception Occurred", e).with("name", name).log();
+			return false;
+		}
+	}
+
+	/**
+	 * Get the last heartbeat of every oven alive.
+	 * @return heartbeats, in no particular order.
+	 */
+	public List<Heartbeat> getOvens() {
+		List<Heartbeat> heartbeats = new ArrayList<>(this.ovens.size());
+		for (Received received : this.ovens.values()) {
+			heartbeats.add(received.heartbeat);
+		}
+		return heartbeats;
+	}
+
+	@Override
+	public int getOvenCount() {
+		return this.ovens.size();
+	}
+
+	@Override
+	public int getSlotCount() {
+		int slots = 0;
+		for (Received received : this.ovens.values()) {
+			slots += received.heartbeat.getSlotCount();
+		}
+		return slots;
+	}
+
+	@Override
+	public int getBusySlotCount() {
+		int busy = 0;
+		for (Received received : this.ovens.values()) {
+			busy += Math.min(received.heartbeat.getBusySlotCount(), received.heartbeat.getSlotCount()); // Slots taken out of use may still burn
+		}
+		return busy;
+	}
+
+	/**
+	 * Get share of the slots burning a batch.
+	 * @return utilisation between 0 and 1, 0 if no oven is alive.
+	 */
+	@Override
+	public double getUtilisation() {
+		int slots = 0;
+		int busy = 0;
+		for (Received received : this.ovens.values()) {
+			slots += received.heartbeat.getSlotCount();
+			busy += Math.min(received.heartbeat.getBusySlotCount(), received.heartbeat.getSlotCount());
+		}
+		return slots == 0 ? 0 : (double) busy / slots;
+	}
+
+	@Override
+	public double getProductsPerSecond() {
+		double rate = 0;
+		for (Received received : this.ovens.values()) {
+			rate += received.heartbeat.getProductsPerSecond();
+		}
+		return rate;
+	}
+
+	@Override
+	public double getMeanBurnMillis() {
+		double rate = 0;
+		double weighted = 0;
+		for (Received received : this.ovens.values()) {
+			rate += received.heartbeat.getProductsPerSecond();
+			weighted += received.heartbeat.getProductsPerSecond() * received.heartbeat.getMeanBurnMillis();
+		}
+		return rate == 0 ? 0 : weighted / rate;
+	}
+
+	/**
+	 * Tell whether the fleet is saturated, so products sent now wait in the product queue.<br>
+	 * A producer can check it before sending, e.g. to slow down or to warn. A fleet without any oven is not saturated,
+	 * since there is no heartbeat telling how busy it is.
+	 * @return true while the utilisation is at or above the alert utilisation.
+	 */
+	@Override
+	public boolean isSaturated() {
+		return this.saturated;
+	}
+
+	@Override
+	public String getReport() {
+		StringBuilder builder = new StringBuilder(String.format("Fleet of %d ovens: %d/%d slots busy (%.0f%%), %.1f products/s, %.0f ms per batch",
+				this.getOvenCount(), this.getBusySlotCount(), this.getSlotCount(), this.getUtilisation() * 100, this.getProductsPerSecond(),
+				this.getMeanBurnMillis()));
+		for (Received received : this.ovens.values()) {
+			builder.append(System.lineSeparator()).append("  ").append(received.heartbeat);
+		}
+		return builder.toString();
+	}
+
+	@Override
+	public String toString() {
+		return this.getReport();
+	}
+
+	/**
+	 * Tell the listener when the utilisation crossed the alert utilisation. Must be called holding the lock of the registry.
+	 */
+	private void checkSaturation() {
+		double utilisation = this.getUtilisation();
+		boolean saturated = !this.ovens.isEmpty() && utilisation >= this.alertUtilisation;
+		if (saturated != this.saturated) {
+			this.saturated = saturated;
+			this.listener.saturationChanged(saturated, utilisation);
+		}
+	}
+
+	/**
+	 * A heartbeat and the time it was received.
+	 */
+	private static class Received {
+		private final Heartbeat heartbeat;
+		private final long receivedAtMillis;
+
+		private Received(Heartbeat heartbeat, long receivedAtMillis) {
+			this.heartbeat = heartbeat;
+			this.receivedAtMillis = receivedAtMillis;
+		}
+	}
+}
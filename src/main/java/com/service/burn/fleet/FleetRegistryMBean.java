@@ -0,0 +1,48 @@
+package com.service.burn.fleet;
+
+/**
+ * Management interface of FleetRegistry, shown by JMX clients (e.g. jconsole) under com.service.burn:type=FleetRegistry.
+ *
+ */
+public interface FleetRegistryMBean {
+
+	/**
+	 * @return number of ovens alive.
+	 */
+	int getOvenCount();
+
+	/**
+	 * @return number of slots in use over all ovens, the number of batches the fleet can burn at the same time.
+	 */
+	int getSlotCount();
+
+	/**
+	 * @return number of slots burning a batch over all ovens.
+	 */
+	int getBusySlotCount();
+
+	/**
+	 * @return share of the slots burning a batch, between 0 and 1.
+	 */
+	double getUtilisation();
+
+	/**
+	 * @return products burned per second by all ovens.
+	 */
+	double getProductsPerSecond();
+
+	/**
+	 * @return mean time a batch burned, weighted by the products each oven burned.
+	 */
+	double getMeanBurnMillis();
+
+	/**
+	 * @return true while the utilisation is at or above the alert utilisation.
+	 */
+	boolean isSaturated();
+
+	/**
+	 * @return text report of the fleet, one line per oven.
+	 */
+	String getReport();
+}
@@ -0,0 +1,143 @@
+package com.service.burn.fleet;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.service.burn.transport.Message;
+
+/**
+ * <h2>Heartbeat class is the status an oven sends to the fleet at a fixed interval.</h2>
+ * It is sent as a small binary message, all numbers are fixed width big endian:<br>
+ * <b>version</b> (1 byte) | <b>ovenId</b> (UTF-8 prefixed by its byte length as a short) | <b>sentAt</b> (long) | <b>interval</b> (long) |
+ * <b>slotCount</b> (int) | <b>busySlotCount</b> (int) | <b>temperature</b> (int) | <b>productsPerSecond</b> (double) |
+ * <b>meanBurnMillis</b> (double) | <b>leaving</b> (1 byte)<br>
+ * A heartbeat with the leaving flag is the last one of an oven which stops, so it is dropped from the fleet at once.
+ *
+ */
+public class Heartbeat {
+
+	/**
+	 * Content type of a heartbeat message.
+	 */
+	public static final String CONTENT_TYPE = "application/x-oven-heartbeat";
+
+	/**
+	 * Version of the layout, written as the first byte so the layout can evolve.
+	 */
+	public static final byte VERSION = 1;
+
+	private final String ovenId;
+	private final long sentAtMillis;
+	private final long intervalMillis;
+	private final int slotCount;
+	private final int busySlotCount;
+	private final int temperature;
+	private final double productsPerSecond;
+	private final double meanBurnMillis;
+	private final boolean leaving;
+
+	/**
+	 * <p>Constructor to initialize a heartbeat.</p>
+	 * @param ovenId id of the oven, its consumer tag.
+	 * @param sentAtMillis time the heartbeat was sent in epoch milliseconds.
+	 * @param intervalMillis time until the next heartbeat of the oven.
+	 * @param slotCount number of slots in use.
+	 * @param busySlotCount number of slots burning a batch.
+	 * @param temperature mean temperature of the slots in use.
+	 * @param productsPerSecond products burned per second since the last heartbeat.
+	 * @param meanBurnMillis mean time a batch burned since the last heartbeat, including the temperature change, 0 if none burned.
+	 * @param leaving true if the oven stops and sends no more heartbeats.
+	 */
+	public Heartbeat(String ovenId, long sentAtMillis, long intervalMillis, int slotCount, int busySlotCount, int temperature,
+			double productsPerSecond, double meanBurnMillis, boolean leaving) {
+		this.ovenId = ovenId;
+		this.sentAtMillis = sentAtMillis;
+		this.intervalMillis = intervalMillis;
+		this.slotCount = slotCount;
+		this.busySlotCount = busySlotCount;
+		this.temperature = temperature;
+		this.productsPerSecond = productsPerSecond;
+		this.meanBurnMillis = meanBurnMillis;
+		this.leaving = leaving;
+	}
+
+	/**
+	 * Convert the heartbeat into a message.
+	 * @return message with the encoded heartbeat.
+	 */
+	public Message toMessage() {
+		byte[] id = this.ovenId.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocate(1 + 2 + id.length + 8 + 8 + 4 + 4 + 4 + 8 + 8 + 1);
+		buffer.put(VERSION).putShort((short) id.length).put(id).putLong(this.sentAtMillis).putLong(this.intervalMillis)
+				.putInt(this.slotCount).putInt(this.busySlotCount).putInt(this.temperature).putDouble(this.productsPerSecond)
+				.putDouble(this.meanBurnMillis).put((byte) (this.leaving ? 1 : 0));
+		return new Message(buffer.array(), CONTENT_TYPE);
+	}
+
+	/**
+	 * Read a heartbeat from a message.
+	 * @param message message with an encoded heartbeat.
+	 * @return heartbeat.
+	 * @throws IllegalArgumentException if the message is not a heartbeat.
+	 */
+	public static Heartbeat fromMessage(Message message) {
+		if (!CONTENT_TYPE.equals(message.getContentType()))
+			throw new IllegalArgumentException("Message of type '" + message.getContentType() + "' is not a heartbeat");
+		try {
+			ByteBuffer buffer = ByteBuffer.wrap(message.getBody());
+			byte version = buffer.get();
+			if (version != VERSION)
+				throw new IllegalArgumentException("Unsupported heartbeat version " + version);
+
+			byte[] id = new byte[buffer.getShort() & 0xFFFF];
+			buffer.get(id);
+			return new Heartbeat(new String(id, StandardCharsets.UTF_8), buffer.getLong(), buffer.getLong(), buffer.getInt(), buffer.getInt(),
+					buffer.getInt(), buffer.getDouble(), buffer.getDouble(), buffer.get() != 0);
+		} catch (BufferUnderflowException ex) {
+			throw new IllegalArgumentException("Heartbeat is truncated", ex);
+		}
+	}
+
+	public String getOvenId() {
+		return this.ovenId;
+	}
+
+	public long getSentAtMillis() {
+		return this.sentAtMillis;
+	}
+
+	public long getIntervalMillis() {
+		return this.intervalMillis;
+	}
+
+	public int getSlotCount() {
+		return this.slotCount;
+	}
+
+	public int getBusySlotCount() {
+		return this.busySlotCount;
+	}
+
+	public int getTemperature() {
+		return this.temperature;
+	}
+
+	public double getProductsPerSecond() {
+		return this.productsPerSecond;
+	}
+
+	public double getMeanBurnMillis() {
+		return this.meanBurnMillis;
+	}
+
+	public boolean isLeaving() {
+		return this.leaving;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: %d/%d slots busy at %d degrees, %.1f products/s, %.0f ms per batch%s", this.ovenId, this.busySlotCount,
+				this.slotCount, this.temperature, this.productsPerSecond, this.meanBurnMillis, this.leaving ? ", leaving" : "");
+	}
+}
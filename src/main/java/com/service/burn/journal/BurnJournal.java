@@ -0,0 +1,423 @@
+package com.service.burn.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ObjLongConsumer;
+import java.util.zip.CRC32;
+
+import com.service.burn.Utility;
+import com.service.burn.logging.EventLog;
+import com.service.burn.model.Product;
+import com.service.burn.model.ProductBinaryCodec;
+
+/**
+ * <h2>BurnJournal class is an append-only journal of burned products on local disk.</h2>
+ * The journal is a directory of segment files of a fixed size which are memory mapped, so an append is a copy into memory.
+ * A segment is named by the sequence number of its first record and a new one is started when the current one is full.<br>
+ * <b>segment:</b> magic (int) | sequence of the first record (long) | records, the free rest is zero<br>
+ * <b>record:</b> length (int) | CRC32 of the product (int) | product in the layout of {@link ProductBinaryCodec}<br>
+ * An append returns a future which completes with the sequence number of the record once it is on disk.
+ * A single flusher thread forces the segment to disk for every append waiting at that time (group commit),
+ * so many appends share one fsync and the throughput grows with the number of concurrent appends.<br>
+ * On open the last segment is scanned: the journal ends at the first record which is cut off or whose CRC does not match,
+ * e.g. after a crash in the middle of a write, and everything behind it is cleared.
+ *
+ */
+public class BurnJournal implements AutoCloseable {
+
+	private static final EventLog LOG = Utility.getEventLog();
+
+	/**
+	 * First int of every segment file.
+	 */
+	public static final int MAGIC = 0x4255524E; // "BURN"
+
+	/**
+	 * Bytes in front of the first record of a segment.
+	 */
+	static final int SEGMENT_HEADER_SIZE = 4 + 8;
+
+	/**
+	 * Bytes in front of the product of a record.
+	 */
+	static final int RECORD_HEADER_SIZE = 4 + 4;
+
+	/**
+	 * File name extension of the segments.
+	 */
+	private static final String SEGMENT_SUFFIX = ".journal";
+
+	/**
+	 * Directory of the segments.
+	 */
+	private final Path directory;
+
+	/**
+	 * Size of a new segment in bytes.
+	 */
+	private final int segmentSize;
+
+	/**
+	 * Guards the active segment, nextSequence, pending and closed.
+	 */
+	private final Object lock = new Object();
+
+	/**
+	 * Segment to which records are appended.
+	 */
+	private Segment active;
+
+	/**
+	 * Sequence number of the next record.
+	 */
+	private long nextSequence;
+
+	/**
+	 * Appends waiting for the next commit.
+	 */
+	private List<PendingAppend> pending = new ArrayList<>();
+
+	/**
+	 * Set once the journal is closed, no append is taken afterwards.
+	 */
+	private boolean closed;
+
+	/**
+	 * Number of times the journal was forced to disk.
+	 */
+	private final LongAdder commitCount = new LongAdder();
+
+	/**
+	 * Thread which forces appended records to disk.
+	 */
+	private final Thread flusher;
+
+	/**
+	 * <p>Constructor to initialize a journal in the given directory, recovering the records already in it.</p>
+	 * @param directory directory of the segments, created if missing.
+	 * @param segmentSize size of a segment in bytes, it must hold at least one product.
+	 * @throws IOException if the directory or a segment can not be read or written.
+	 */
+	public BurnJournal(Path directory, int segmentSize) throws IOException {
+		if (segmentSize < SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE)
+			throw new IllegalArgumentException("Segment size must be at least " + (SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE) + " bytes");
+
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		Files.createDirectories(directory);
+		List<Path> segments = this.listSegments();
+		if (segments.isEmpty()) {
+			this.active = this.createSegment(0);
+		} else {
+			this.active = this.openSegment(segments.get(segments.size() - 1));
+			this.nextSequence = this.active.baseSequence + this.active.recover();
+		}
+		this.flusher = new Thread(this::flushLoop, "journal-flusher");
+		this.flusher.setDaemon(true);
+		this.flusher.start();
+	}
+
+	/**
+	 * Append a burned product to the journal.
+	 * @param product burned product.
+	 * @return future which completes with the sequence number of the record once it is on disk.
+	 * @throws IOException if a new segment can not be started.
+	 * @throws IllegalStateException if the journal is closed.
+	 */
+	public CompletableFuture<Long> append(Product product) throws IOException {
+		byte[] payload = ProductBinaryCodec.encode(product);
+		int recordSize = RECORD_HEADER_SIZE + payload.length;
+		if (recordSize > this.segmentSize - SEGMENT_HEADER_SIZE)
+			throw new IllegalArgumentException("Product of " + payload.length + " bytes does not fit into a segment");
+		CRC32 crc = new CRC32();
+		crc.update(payload, 0, payload.length);
+
+		CompletableFuture<Long> future = new CompletableFuture<>();
+		synchronized (this.lock) {
+			if (this.closed)
+				throw new IllegalStateException("Journal is closed");
+			if (this.active.buffer.remaining() < recordSize)
+				this.roll();
+			this.active.buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+			this.pending.add(new PendingAppend(this.nextSequence++, future));
+			this.lock.notify();
+		}
+		return future;
+	}
+
+	/**
+	 * Read the records of the journal in order, starting at the given sequence number.<br>
+	 * Records appended while replaying are not read. Records which are not on disk yet may be read.
+	 * @param fromSequence sequence number of the first record to read.
+	 * @param handler called with every product and its sequence number.
+	 * @return number of records read.
+	 * @throws IOException if a segment can not be read.
+	 */
+	public long replay(long fromSequence, ObjLongConsumer<Product> handler) throws IOException {
+		long activeBase;
+		int activeEnd;
+		synchronized (this.lock) {
+			activeBase = this.active.baseSequence;
+			activeEnd = this.active.buffer.position();
+		}
+		List<Path> segments = this.listSegments();
+		long count = 0;
+		for (int index = 0; index < segments.size(); index++) {
+			long baseSequence = getBaseSequence(segments.get(index));
+			if (baseSequence > activeBase)
+				break; // Started after the replay began
+			if (index + 1 < segments.size() && getBaseSequence(segments.get(index + 1)) <= fromSequence)
+				continue; // Every record of the segment is before fromSequence
+			try (FileChannel channel = FileChannel.open(segments.get(index), StandardOpenOption.READ)) {
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				int limit = baseSequence == activeBase ? activeEnd : buffer.capacity();
+				count += scan(buffer, baseSequence, fromSequence, limit, handler);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Get sequence number of the next record, which is the number of records in the journal.
+	 * @return next sequence number.
+	 */
+	public long getNextSequence() {
+		synchronized (this.lock) {
+			return this.nextSequence;
+		}
+	}
+
+	/**
+	 * Get number of times the journal was forced to disk. Appends waiting at the same time share one commit.
+	 * @return commit count.
+	 */
+	public long getCommitCount() {
+		return this.commitCount.sum();
+	}
+
+	/**
+	 * Stop taking appends, commit the waiting ones and close the journal.
+	 */
+	@Override
+	public void close() {
+		synchronized (this.lock) {
+			if (this.closed)
+				return;
+			this.closed = true;
+			this.lock.notify();
+		}
+		try {
+			this.flusher.join();
+		} catch (InterruptedException _ignored) {
+			Thread.currentThread().interrupt();
+		}
+		this.active.close();
+	}
+
+	/**
+	 * Force appended records to disk and complete their futures, until the journal is closed.
+	 */
+	private void flushLoop() {
+		while (true) {
+			List<PendingAppend> batch;
+			Segment segment;
+			synchronized (this.lock) {
+				while (this.pending.isEmpty() && !this.closed) {
+					try {
+						this.lock.wait();
+					} catch (InterruptedException _ignored) {
+						// Only stops once closed and drained
+					}
+				}
+				if (this.pending.isEmpty())
+					return;
+				batch = this.pending;
+				this.pending = new ArrayList<>();
+				segment = this.active; // Records of earlier segments were forced when the segment was full
+			}
+			try {
+				segment.buffer.force();
+				this.commitCount.increment();
+				for (PendingAppend append : batch) {
+					append.future.complete(append.sequence);
+				}
+			} catch (RuntimeException ex) {
+				for (PendingAppend append : batch) {
+					append.future.completeExceptionally(ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Force the full active segment to disk and start a new one. Must be called holding the lock.
+	 * @throws IOException if the new segment can not be created.
+	 */
+	private void roll() throws IOException {
+		this.active.buffer.force();
+		this.active.close();
+		this.active = this.createSegment(this.nextSequence);
+	}
+
+	private Segment createSegment(long baseSequence) throws IOException {
+		Path path = this.directory.resolve(String.format("%020d", baseSequence) + SEGMENT_SUFFIX);
+		Segment segment = this.openSegment(path);
+		segment.buffer.putInt(0, MAGIC);
+		segment.buffer.putLong(4, baseSequence);
+		segment.buffer.force();
+		return segment;
+	}
+
+	private Segment openSegment(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			long size = Math.max(channel.size(), this.segmentSize);
+			if (size > Integer.MAX_VALUE)
+				throw new IOException("Segment " + path + " is larger than 2 GB");
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			int magic = buffer.getInt(0);
+			if (magic != 0 && magic != MAGIC)
+				throw new IOException(path + " is not a journal segment");
+			buffer.putInt(0, MAGIC); // A segment may have been created but not written before a crash
+			buffer.putLong(4, getBaseSequence(path));
+			buffer.position(SEGMENT_HEADER_SIZE);
+			return new Segment(getBaseSequence(path), channel, buffer);
+		} catch (IOException | RuntimeException ex) {
+			channel.close();
+			throw ex;
+		}
+	}
+
+	private List<Path> listSegments() throws IOException {
+		List<Path> segments = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*" + SEGMENT_SUFFIX)) {
+			for (Path path : stream) {
+				segments.add(path);
+			}
+		}
+		Collections.sort(segments); // Names are zero padded sequence numbers
+		return segments;
+	}
+
+	private static long getBaseSequence(Path segment) {
+		String name = segment.getFileName().toString();
+		return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+	}
+
+	/**
+	 * Read the valid records of a segment.
+	 * @param buffer segment.
+	 * @param baseSequence sequence number of the first record in the segment.
+	 * @param fromSequence sequence number of the first record given to the handler.
+	 * @param limit position behind which nothing is read.
+	 * @param handler called with every product from fromSequence on and its sequence number.
+	 * @return number of records given to the handler.
+	 */
+	static long scan(ByteBuffer buffer, long baseSequence, long fromSequence, int limit, ObjLongConsumer<Product> handler) {
+		int position = SEGMENT_HEADER_SIZE;
+		long sequence = baseSequence;
+		long count = 0;
+		CRC32 crc = new CRC32();
+		byte[] payload = new byte[0];
+		while ((position = nextRecord(buffer, position, limit, crc)) >= 0) {
+			int length = buffer.getInt(position);
+			if (sequence >= fromSequence) {
+				if (payload.length != length)
+					payload = new byte[length];
+				ByteBuffer record = buffer.duplicate();
+				record.position(position + RECORD_HEADER_SIZE);
+				record.get(payload);
+				handler.accept(ProductBinaryCodec.decode(payload), sequence);
+				count++;
+			}
+			position += RECORD_HEADER_SIZE + length;
+			sequence++;
+		}
+		return count;
+	}
+
+	/**
+	 * Check the record at the given position.
+	 * @return the position if a complete record with a matching CRC starts there, otherwise -1.
+	 */
+	private static int nextRecord(ByteBuffer buffer, int position, int limit, CRC32 crc) {
+		if (position > limit - RECORD_HEADER_SIZE)
+			return -1;
+		int length = buffer.getInt(position);
+		if (length <= 0 || length > limit - position - RECORD_HEADER_SIZE)
+			return -1;
+		crc.reset();
+		ByteBuffer payload = buffer.duplicate();
+		payload.position(position + RECORD_HEADER_SIZE).limit(position + RECORD_HEADER_SIZE + length);
+		crc.update(payload);
+		return (int) crc.getValue() == buffer.getInt(position + 4) ? position : -1;
+	}
+
+	/**
+	 * A mapped segment file.
+	 */
+	private static class Segment {
+		private final long baseSequence;
+		private final FileChannel channel;
+		private final MappedByteBuffer buffer;
+
+		private Segment(long baseSequence, FileChannel channel, MappedByteBuffer buffer) {
+			this.baseSequence = baseSequence;
+			this.channel = channel;
+			this.buffer = buffer;
+		}
+
+		/**
+		 * Find the end of the valid records and clear everything behind it, so a cut off record is not read later.
+		 * @return number of valid records.
+		 */
+		private int recover() {
+			int end = SEGMENT_HEADER_SIZE;
+			int count = 0;
+			CRC32 crc = new CRC32();
+			while (nextRecord(this.buffer, end, this.buffer.capacity(), crc) >= 0) {
+				end += RECORD_HEADER_SIZE + this.buffer.getInt(end);
+				count++;
+			}
+			for (int position = end; position < this.buffer.capacity(); position++) {
+				if (this.buffer.get(position) != 0)
+					this.buffer.put(position, (byte) 0);
+			}
+			this.buffer.force();
+			this.buffer.position(end);
+			return count;
+		}
+
+		private void close() {
+			try {
+				this.channel.close(); // The mapping stays valid until the buffer is garbage collected
+			} catch (IOException ex) {
+				LOG.error("Exception Occurred", ex).log();
+			}
+		}
+	}
+
+	/**
+	 * An append waiting for its commit.
+	 */
+	private static class PendingAppend {
+		private final long sequence;
+		private final CompletableFuture<Long> future;
+
+		private PendingAppend(long sequence, CompletableFuture<Long> future) {
+			this.sequence = sequence;
+			this.future = future;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package com.service.burn.load;
+
+import java.util.SplittableRandom;
+
+/**
+ * <h2>ArrivalPattern enum gives the time between two products of an open loop load.</h2>
+ * Every pattern has the same mean rate, they differ in how the arrivals are spread.
+ *
+ */
+public enum ArrivalPattern {
+
+	/**
+	 * Products arrive at a fixed interval.
+	 */
+	CONSTANT {
+		@Override
+		public long nextGapNanos(SplittableRandom random, double ratePerSecond, double burstSize) {
+			return Math.round(NANOS_PER_SECOND / ratePerSecond);
+		}
+	},
+
+	/**
+	 * Products arrive independently of each other (Poisson process): the gaps are exponentially distributed.
+	 */
+	POISSON {
+		@Override
+		public long nextGapNanos(SplittableRandom random, double ratePerSecond, double burstSize) {
+			return exponential(random, NANOS_PER_SECOND / ratePerSecond);
+		}
+	},
+
+	/**
+	 * Products arrive in bursts of on average burstSize products at once (geometrically distributed), the bursts arrive as a Poisson process.
+	 */
+	BURSTY {
+		@Override
+		public long nextGapNanos(SplittableRandom random, double ratePerSecond, double burstSize) {
+			if (random.nextDouble() >= 1 / burstSize)
+				return 0; // Same burst
+			return exponential(random, burstSize * NANOS_PER_SECOND / ratePerSecond);
+		}
+	};
+
+	private static final double NANOS_PER_SECOND = 1e9;
+
+	/**
+	 * Get the time until the next product arrives.
+	 * @param random random numbers.
+	 * @param ratePerSecond mean number of products per second.
+	 * @param burstSize mean number of products arriving at once, only used by BURSTY.
+	 * @return gap in nanoseconds.
+	 */
+	public abstract long nextGapNanos(SplittableRandom random, double ratePerSecond, double burstSize);
+
+	private static long exponential(SplittableRandom random, double meanNanos) {
+		return Math.round(-Math.log(1 - random.nextDouble()) * meanNanos); // 1 - x is never 0
+	}
+}
@@ -0,0 +1,128 @@
+package com.service.burn.load;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * <h2>IntDistribution class draws whole numbers, e.g. the temperature or burning time of generated products.</h2>
+ * A distribution is written as text, numbers separated by colons:<br>
+ * <b>fixed:v</b> always v<br>
+ * <b>uniform:a:b</b> every number from a to b equally likely<br>
+ * <b>normal:mean:deviation</b> a bell curve around mean<br>
+ * <b>exponential:mean</b> mostly small numbers with a long tail<br>
+ * Drawn numbers are clamped into the range given when parsing, so products always stay valid.
+ *
+ */
+public class IntDistribution {
+
+	private enum Kind { FIXED, UNIFORM, NORMAL, EXPONENTIAL }
+
+	private final Kind kind;
+	private final double first;
+	private final double second;
+	private final int min;
+	private final int max;
+
+	private IntDistribution(Kind kind, double first, double second, int min, int max) {
+		this.kind = kind;
+		this.first = first;
+		this.second = second;
+		this.min = min;
+		this.max = max;
+	}
+
+	/**
+	 * Create a distribution of every number from min to max equally likely.
+	 * @param min lowest number.
+	 * @param max highest number.
+	 * @return distribution.
+	 */
+	public static IntDistribution uniform(int min, int max) {
+		return new IntDistribution(Kind.UNIFORM, min, max, min, max);
+	}
+
+	/**
+	 * Parse a distribution.
+	 * @param text distribution as text, e.g. normal:300:50.
+	 * @param min lowest number drawn.
+	 * @param max highest number drawn.
+	 * @return distribution.
+	 * @throws IllegalArgumentException if the text is not a distribution.
+	 */
+	public static IntDistribution parse(String text, int min, int max) {
+		String[] parts = text.trim().split(":");
+		Kind kind;
+		try {
+			kind = Kind.valueOf(parts[0].trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException ex) {
+			throw new IllegalArgumentException("Unknown distribution '" + text + "', use fixed:v, uniform:a:b, normal:mean:deviation or exponential:mean");
+		}
+		int arguments = kind == Kind.UNIFORM || kind == Kind.NORMAL ? 2 : 1;
+		if (parts.length != arguments + 1)
+			throw new IllegalArgumentException("Distribution '" + text + "' needs " + arguments + " numbers");
+		double first;
+		double second;
+		try {
+			first = Double.parseDouble(parts[1]);
+			second = arguments == 2 ? Double.parseDouble(parts[2]) : 0;
+		} catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("Distribution '" + text + "' has an invalid number");
+		}
+		if ((kind == Kind.UNIFORM && second < first) || (kind == Kind.NORMAL && second < 0) || (kind == Kind.EXPONENTIAL && first <= 0))
+			throw new IllegalArgumentException("Distribution '" + text + "' has invalid parameters");
+		return new IntDistribution(kind, first, second, min, max);
+	}
+
+	/**
+	 * Draw a number.
+	 * @param random random numbers.
+	 * @return number between min and max.
+	 */
+	public int sample(SplittableRandom random) {
+		double value;
+		switch (this.kind) {
+		case FIXED:
+			value = this.first;
+			break;
+		case UNIFORM:
+			value = random.nextInt((int) this.first, (int) this.second + 1);
+			break;
+		case NORMAL:
+			value = this.first + this.second * nextGaussian(random);
+			break;
+		default:
+			value = -Math.log(1 - random.nextDouble()) * this.first;
+			break;
+		}
+		return (int) Math.max(this.min, Math.min(this.max, Math.round(value)));
+	}
+
+	/**
+	 * Draw a standard normal number with the polar method, SplittableRandom has no nextGaussian.
+	 */
+	private static double nextGaussian(SplittableRandom random) {
+		double x;
+		double y;
+		double square;
+		do {
+			x = 2 * random.nextDouble() - 1;
+			y = 2 * random.nextDouble() - 1;
+			square = x * x + y * y;
+		} while (square >= 1 || square == 0);
+		return x * Math.sqrt(-2 * Math.log(square) / square);
+	}
+
+	@Override
+	public String toString() {
+		switch (this.kind) {
+		case FIXED:
+			return "fixed:" + (long) this.first;
+		case UNIFORM:
+			return "uniform:" + (long) this.first + ":" + (long) this.second;
+		case NORMAL:
+			return "normal:" + this.first + ":" + this.second;
+		default:
+			return "exponential:" + this.first;
+		}
+	}
+}
@@ -0,0 +1,201 @@
+package com.service.burn.load;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import com.service.burn.Utility;
+import com.service.burn.logging.EventLog;
+import com.service.burn.model.OvenParameter;
+import com.service.burn.model.Product;
+import com.service.burn.model.ProductStage;
+
+/**
+ * <h2>LoadGenerator class sends randomly generated products at a configured pace, for capacity planning.</h2>
+ * An open loop sends products at the times drawn from its arrival pattern, also when it falls behind. A product sent late
+ * keeps its planned creation time, so its latency includes the delay (no coordinated omission).<br>
+ * A closed loop keeps a fixed number of products in flight: every burned product which comes back is replaced by a new one.
+ * A product which can not be sent is not replaced. Failed sends are counted in the report, only the first one is logged,
+ * so a broker outage under load does not flood the log.<br>
+ * Products are drawn from one seeded SplittableRandom, so a run can be repeated with the same products and arrivals.
+ * Call {@link #productBurned(Product)} for every burned product which comes back.
+ *
+ */
+public class LoadGenerator {
+
+	private static final EventLog LOG = Utility.getEventLog();
+
+	private final LoadProfile profile;
+
+	/**
+	 * Sends a product, the future completes once the product was accepted.
+	 */
+	private final Function<Product, CompletableFuture<Void>> sender;
+
+	/**
+	 * Random numbers of the products and arrivals, guarded by itself.
+	 */
+	private final SplittableRandom random;
+
+	/**
+	 * Number of products generated so far, guarded by random.
+	 */
+	private long productCount;
+
+	/**
+	 * Id of the first generated product, burned products with a lower id are not part of the run.
+	 */
+	private volatile long firstProductId = Long.MAX_VALUE;
+
+	/**
+	 * True while products are sent.
+	 */
+	private volatile boolean sending;
+
+	/**
+	 * Guards the counters and wakes up the thread waiting for the run to end.
+	 */
+	private final Object lock = new Object();
+
+	private long submitted;
+	private long failed;
+	private long burned;
+
+	/**
+	 * <p>Constructor to initialize a load generator.</p>
+	 * @param profile load to send.
+	 * @param sender sends a product, e.g. through the product service.
+	 */
+	public LoadGenerator(LoadProfile profile, Function<Product, CompletableFuture<Void>> sender) {
+		this.profile = profile;
+		this.sender = sender;
+		this.random = new SplittableRandom(profile.getSeed());
+	}
+
+	/**
+	 * Send products for the duration of the profile, then wait for the burned products to come back.
+	 * @param drainTimeout maximum time to wait for the burned products after sending.
+	 * @param unit unit of the timeout.
+	 * @return summary of the run.
+	 * @throws InterruptedException if interrupted while sending or waiting.
+	 */
+	public LoadReport run(long drainTimeout, TimeUnit unit) throws InterruptedException {
+		long start = System.nanoTime();
+		long end = start + TimeUnit.MILLISECONDS.toNanos(this.profile.getDurationMillis());
+		this.sending = true;
+		try {
+			if (this.profile.getMode() == LoadMode.OPEN)
+				this.runOpenLoop(start, end);
+			else
+				this.runClosedLoop(end);
+		} finally {
+			this.sending = false;
+		}
+		long sendNanos = System.nanoTime() - start;
+
+		long deadline = System.nanoTime() + unit.toNanos(drainTimeout);
+		synchronized (this.lock) {
+			while (this.burned + this.failed < this.submitted) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0)
+					break;
+				TimeUnit.NANOSECONDS.timedWait(this.lock, remaining);
+			}
+			return new LoadReport(this.submitted, this.failed, this.burned, sendNanos, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Count a burned product which came back. In a closed loop a new product is sent for it.
+	 * @param product burned product.
+	 */
+	public void productBurned(Product product) {
+		if (product.getProductId() < this.firstProductId)
+			return; // Sent before the run
+		synchronized (this.lock) {
+			this.burned++;
+			this.lock.notifyAll();
+		}
+		if (this.sending && this.profile.getMode() == LoadMode.CLOSED)
+			this.send(0);
+	}
+
+	private void runOpenLoop(long start, long end) throws InterruptedException {
+		long next = start;
+		long now;
+		while ((now = System.nanoTime()) < end) {
+			if (now < next) {
+				LockSupport.parkNanos(this, Math.min(next, end) - now);
+			} else {
+				this.send(now - next);
+				long gap;
+				synchronized (this.random) {
+					gap = this.profile.getArrivalPattern().nextGapNanos(this.random, this.profile.getRatePerSecond(), this.profile.getBurstSize());
+				}
+				next += gap;
+			}
+			if (Thread.interrupted())
+				throw new InterruptedException();
+		}
+	}
+
+	private void runClosedLoop(long end) throws InterruptedException {
+		for (int i = 0; i < this.profile.getConcurrency(); i++) {
+			this.send(0);
+		}
+		synchronized (this.lock) {
+			long remaining;
+			while ((remaining = end - System.nanoTime()) > 0) {
+				TimeUnit.NANOSECONDS.timedWait(this.lock, remaining);
+			}
+		}
+	}
+
+	/**
+	 * Generate and send a product.
+	 * @param lateNanos time since the product should have been sent.
+	 */
+	private void send(long lateNanos) {
+		Product product = this.nextProduct(lateNanos);
+		synchronized (this.lock) {
+			this.submitted++;
+		}
+		CompletableFuture<Void> sent;
+		try {
+			sent = this.sender.apply(product);
+		} catch (RuntimeException ex) {
+			sent = new CompletableFuture<>();
+			sent.completeExceptionally(ex);
+		}
+		sent.whenComplete((ignored, e) -> {
+			if (e == null)
+				return;
+			long failed;
+			synchronized (this.lock) {
+				failed = ++this.failed;
+				this.lock.notifyAll();
+			}
+			if (failed == 1) // The others are counted in the report
+				LOG.warn("Load Product Not Sent").with("product", product.getProductId()).with("cause", String.valueOf(e)).log();
+		});
+	}
+
+	private Product nextProduct(long lateNanos) {
+		int temperature;
+		int burningTime;
+		long number;
+		synchronized (this.random) {
+			temperature = this.profile.getTemperature().sample(this.random);
+			burningTime = this.profile.getBurningTime().sample(this.random);
+			number = ++this.productCount;
+		}
+		Product product = new Product("Load " + number, new OvenParameter(temperature, burningTime));
+		if (number == 1)
+			this.firstProductId = product.getProductId();
+		if (lateNanos > 0)
+			product.setTimestamp(ProductStage.CREATED, product.getTimestamp(ProductStage.CREATED) - lateNanos);
+		return product;
+	}
+}
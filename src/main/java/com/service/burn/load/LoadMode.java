@@ -0,0 +1,25 @@
+package com.service.burn.load;
+
+/**
+ * <h2>LoadMode enum tells how the load generator paces the products it sends.</h2>
+ *
+ */
+public enum LoadMode {
+
+	/**
+	 * No load generator, the product service sends PRODUCT_COUNT products once.
+	 */
+	OFF,
+
+	/**
+	 * Open loop: products arrive at a target rate whether or not the ovens keep up, like orders from many independent clients.
+	 * Latency grows without bound once the rate is above the capacity of the ovens.
+	 */
+	OPEN,
+
+	/**
+	 * Closed loop: a fixed number of products is in flight, the next product is sent when a burned one comes back.
+	 * Throughput is the capacity of the ovens at that concurrency.
+	 */
+	CLOSED
+}
@@ -0,0 +1,93 @@
+package com.service.burn.load;
+
+/**
+ * <h2>LoadProfile class describes the load a load generator sends.</h2>
+ *
+ */
+public class LoadProfile {
+
+	private final LoadMode mode;
+	private final double ratePerSecond;
+	private final int concurrency;
+	private final long durationMillis;
+	private final ArrivalPattern arrivalPattern;
+	private final double burstSize;
+	private final long seed;
+	private final IntDistribution temperature;
+	private final IntDistribution burningTime;
+
+	/**
+	 * <p>Constructor to initialize a load profile.</p>
+	 * @param mode open or closed loop.
+	 * @param ratePerSecond mean products per second of an open loop.
+	 * @param concurrency products in flight of a closed loop.
+	 * @param durationMillis time during which products are sent.
+	 * @param arrivalPattern spread of the arrivals of an open loop.
+	 * @param burstSize mean number of products per burst of a BURSTY open loop.
+	 * @param seed seed of the random numbers, the same seed gives the same products and arrivals.
+	 * @param temperature distribution of the burning temperatures.
+	 * @param burningTime distribution of the burning times in seconds.
+	 */
+	public LoadProfile(LoadMode mode, double ratePerSecond, int concurrency, long durationMillis, ArrivalPattern arrivalPattern,
+			double burstSize, long seed, IntDistribution temperature, IntDistribution burningTime) {
+		if (mode == LoadMode.OFF)
+			throw new IllegalArgumentException("A load profile needs an open or closed loop");
+		if (ratePerSecond <= 0 || concurrency < 1 || durationMillis < 1 || burstSize < 1)
+			throw new IllegalArgumentException("Rate, concurrency, duration and burst size must be positive");
+
+		this.mode = mode;
+		this.ratePerSecond = ratePerSecond;
+		this.concurrency = concurrency;
+		this.durationMillis = durationMillis;
+		this.arrivalPattern = arrivalPattern;
+		this.burstSize = burstSize;
+		this.seed = seed;
+		this.temperature = temperature;
+		this.burningTime = burningTime;
+	}
+
+	public LoadMode getMode() {
+		return this.mode;
+	}
+
+	public double getRatePerSecond() {
+		return this.ratePerSecond;
+	}
+
+	public int getConcurrency() {
+		return this.concurrency;
+	}
+
+	public long getDurationMillis() {
+		return this.durationMillis;
+	}
+
+	public ArrivalPattern getArrivalPattern() {
+		return this.arrivalPattern;
+	}
+
+	public double getBurstSize() {
+		return this.burstSize;
+	}
+
+	public long getSeed() {
+		return this.seed;
+	}
+
+	public IntDistribution getTemperature() {
+		return this.temperature;
+	}
+
+	public IntDistribution getBurningTime() {
+		return this.burningTime;
+	}
+
+	@Override
+	public String toString() {
+		String pacing = this.mode == LoadMode.OPEN
+				? this.arrivalPattern + " at " + this.ratePerSecond + "/s" + (this.arrivalPattern == ArrivalPattern.BURSTY ? " in bursts of " + this.burstSize : "")
+				: this.concurrency + " in flight";
+		return this.mode + " loop, " + pacing + " for " + this.durationMillis + " ms | temperature: " + this.temperature
+				+ " | burning time: " + this.burningTime + " | seed: " + this.seed;
+	}
+}
@@ -0,0 +1,75 @@
+package com.service.burn.load;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h2>LoadReport class summarises a run of the load generator.</h2>
+ * Latencies are not part of the report, they are measured on the products by the pipeline metrics of the product service.
+ *
+ */
+public class LoadReport {
+
+	private final long submitted;
+	private final long failed;
+	private final long burned;
+	private final long sendNanos;
+	private final long elapsedNanos;
+
+	/**
+	 * <p>Constructor to initialize a report.</p>
+	 * @param submitted number of products sent.
+	 * @param failed number of products which could not be sent.
+	 * @param burned number of burned products which came back.
+	 * @param sendNanos time during which products were sent.
+	 * @param elapsedNanos time from the first product sent until the last burned product came back or the wait for it ended.
+	 */
+	public LoadReport(long submitted, long failed, long burned, long sendNanos, long elapsedNanos) {
+		this.submitted = submitted;
+		this.failed = failed;
+		this.burned = burned;
+		this.sendNanos = sendNanos;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	public long getSubmitted() {
+		return this.submitted;
+	}
+
+	public long getFailed() {
+		return this.failed;
+	}
+
+	public long getBurned() {
+		return this.burned;
+	}
+
+	public long getElapsedNanos() {
+		return this.elapsedNanos;
+	}
+
+	/**
+	 * Get rate at which products were sent.
+	 * @return products per second.
+	 */
+	public double getOfferedRate() {
+		return perSecond(this.submitted, this.sendNanos);
+	}
+
+	/**
+	 * Get rate at which burned products came back.
+	 * @return products per second.
+	 */
+	public double getThroughput() {
+		return perSecond(this.burned, this.elapsedNanos);
+	}
+
+	private static double perSecond(long count, long nanos) {
+		return nanos <= 0 ? 0 : count * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("submitted: %d | failed: %d | burned: %d | offered: %.1f/s | throughput: %.1f/s | elapsed: %d ms",
+				this.submitted, this.failed, this.burned, this.getOfferedRate(), this.getThroughput(), TimeUnit.NANOSECONDS.toMillis(this.elapsedNanos));
+	}
+}
@@ -0,0 +1,50 @@
+package com.service.burn.logging;
+
+/**
+ * <h2>EventLevel enum tells how important an event is.</h2>
+ * An event log writes the events of its level and above, OFF writes nothing.
+ *
+ */
+public enum EventLevel {
+
+	/**
+	 * Details for finding a problem, e.g. every message sent.
+	 */
+	DEBUG,
+
+	/**
+	 * Normal progress, e.g. products received and burned.
+	 */
+	INFO,
+
+	/**
+	 * Something went wrong but the service goes on, e.g. a product is given back to the queue.
+	 */
+	WARN,
+
+	/**
+	 * Something failed, e.g. a product could not be sent.
+	 */
+	ERROR,
+
+	/**
+	 * Nothing is written.
+	 */
+	OFF;
+
+	/**
+	 * Get level of a name, ignoring case.
+	 * @param name name of the level, may be null.
+	 * @param defaultLevel level returned if the name is null or unknown.
+	 * @return level.
+	 */
+	public static EventLevel parse(String name, EventLevel defaultLevel) {
+		if (name == null)
+			return defaultLevel;
+		for (EventLevel level : values()) {
+			if (level.name().equalsIgnoreCase(name.trim()))
+				return level;
+		}
+		return defaultLevel;
+	}
+}
@@ -0,0 +1,451 @@
+package com.service.burn.logging;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <h2>EventLog class writes structured events on its own thread, so logging does not slow down the threads which log.</h2>
+ * An event is a name with up to MAX_FIELDS key value pairs and is written as one line:<br>
+ * <code>2020/01/01 12:00:00.042 INFO  Received product=42 oven=amq.ctag-1</code><br>
+ * Logging thread: <code>log.event(EventLevel.INFO, "Received").with("product", id).with("oven", tag).log();</code><br>
+ * The event is collected in a builder of the logging thread and copied into a ring buffer of preallocated slots,
+ * so logging allocates nothing besides boxing of object values, takes no lock and does not format anything.
+ * The writer thread turns the events into text with a cached date formatter and writes them in blocks.<br>
+ * If the ring buffer is full the event is dropped and counted instead of blocking, the writer reports the dropped events.<br>
+ * Values are turned into text on the writer thread, so only values which do not change afterwards should be logged.
+ * Arguments of with() must not log themselves, since they would reuse the builder of the thread.
+ *
+ */
+public class EventLog implements AutoCloseable {
+
+	/**
+	 * Maximum number of key value pairs of an event, further pairs are ignored.
+	 */
+	public static final int MAX_FIELDS = 6;
+
+	/**
+	 * Longest time the writer sleeps before it looks at the ring buffer again without being woken up.
+	 */
+	private static final long WRITER_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	/**
+	 * Size of text after which the writer writes even though more events are waiting.
+	 */
+	private static final int WRITE_BLOCK_SIZE = 8192;
+
+	/**
+	 * Marks a value slot which holds a long in numbers instead of an object.
+	 */
+	private static final Object LONG_VALUE = new Object();
+
+	/**
+	 * Lowest level which is written.
+	 */
+	private final EventLevel level;
+
+	/**
+	 * Ring buffer, slot of sequence s is ring[s &amp; mask].
+	 */
+	private final Slot[] ring;
+
+	private final int mask;
+
+	/**
+	 * Next sequence to be claimed by a logging thread.
+	 */
+	private final AtomicLong head = new AtomicLong();
+
+	/**
+	 * Next sequence to be written, only advanced by the writer.
+	 */
+	private volatile long tail;
+
+	/**
+	 * Number of events dropped because the ring buffer was full.
+	 */
+	private final LongAdder dropped = new LongAdder();
+
+	/**
+	 * Builder of an event for every logging thread.
+	 */
+	private final ThreadLocal<Event> events = ThreadLocal.withInitial(Event::new);
+
+	/**
+	 * Stream to which the lines are written.
+	 */
+	private final PrintStream out;
+
+	/**
+	 * Formats the date and time of an event up to seconds.
+	 */
+	private final DateTimeFormatter formatter;
+
+	/**
+	 * Second and text of the second last formatted, events of the same second reuse the text.
+	 */
+	private long formattedSecond = Long.MIN_VALUE;
+	private String formattedSecondText;
+
+	private final Thread writer;
+
+	/**
+	 * True while the writer sleeps and wants to be woken up for a new event.
+	 */
+	private volatile boolean writerWaiting;
+
+	/**
+	 * Set by close, the writer stops once the ring buffer is written.
+	 */
+	private volatile boolean stopping;
+
+	/**
+	 * Set after the writer stopped, events are then written by the logging thread.
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * <p>Constructor to initialize an event log and start its writer thread.</p>
+	 * @param level lowest level which is written.
+	 * @param bufferSize number of events which can wait for the writer, rounded up to a power of two.
+	 * @param out stream to which the lines are written.
+	 * @param dateTimePattern pattern of the date and time up to seconds, milliseconds are appended.
+	 */
+	public EventLog(EventLevel level, int bufferSize, PrintStream out, String dateTimePattern) {
+		if (bufferSize <= 0)
+			throw new IllegalArgumentException("Buffer size must be positive but was " + bufferSize);
+
+		this.level = level;
+		int size = Integer.highestOneBit(bufferSize);
+		size = size < bufferSize ? size << 1 : size;
+		this.ring = new Slot[size];
+		for (int i = 0; i < size; i++) {
+			this.ring[i] = new Slot();
+		}
+		this.mask = size - 1;
+		this.out = out;
+		this.formatter = DateTimeFormatter.ofPattern(dateTimePattern);
+		this.writer = new Thread(this::writeEvents, "event-log");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Check if events of a level are written.
+	 * @param eventLevel level of the event.
+	 * @return true if written.
+	 */
+	public boolean isEnabled(EventLevel eventLevel) {
+		return eventLevel != EventLevel.OFF && eventLevel.compareTo(this.level) >= 0;
+	}
+
+	/**
+	 * Start an event. Add its values with with() and finish it with log().
+	 * @param eventLevel level of the event.
+	 * @param name name of the event, e.g. "Received".
+	 * @return builder of the event, reused by the next event of the thread.
+	 */
+	public Event event(EventLevel eventLevel, String name) {
+		if (!this.isEnabled(eventLevel))
+			return Event.DISABLED;
+
+		Event event = this.events.get();
+		event.reset(this, eventLevel, name);
+		return event;
+	}
+
+	/**
+	 * Start an INFO event.
+	 * @param name name of the event.
+	 * @return builder of the event.
+	 */
+	public Event info(String name) {
+		return this.event(EventLevel.INFO, name);
+	}
+
+	/**
+	 * Start a DEBUG event.
+	 * @param name name of the event.
+	 * @return builder of the event.
+	 */
+	public Event debug(String name) {
+		return this.event(EventLevel.DEBUG, name);
+	}
+
+	/**
+	 * Start a WARN event.
+	 * @param name name of the event.
+	 * @return builder of the event.
+	 */
+	public Event warn(String name) {
+		return this.event(EventLevel.WARN, name);
+	}
+
+	/**
+	 * Log an ERROR event for an exception, with its message.
+	 * @param name name of the event, e.g. "Exception Occurred".
+	 * @param ex exception.
+	 * @return builder of the event, log() has to be called.
+	 */
+	public Event error(String name, Throwable ex) {
+		return this.event(EventLevel.ERROR, name).with("message", ex.getMessage());
+	}
+
+	/**
+	 * Get number of events dropped because the writer could not keep up.
+	 * @return dropped events.
+	 */
+	public long getDroppedCount() {
+		return this.dropped.sum();
+	}
+
+	/**
+	 * Wait until every event logged before is written, used by tests and before the process exits.
+	 * @param timeout maximum time to wait.
+	 * @param unit unit of the timeout.
+	 * @return true if written in time.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+		long target = this.head.get();
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (this.tail < target && !this.closed) {
+			if (System.nanoTime() - deadline >= 0)
+				return false;
+			LockSupport.unpark(this.writer);
+			Thread.sleep(1);
+		}
+		return true;
+	}
+
+	/**
+	 * Write the waiting events and stop the writer thread. Events logged afterwards are written by the logging thread.
+	 */
+	@Override
+	public void close() {
+		this.stopping = true;
+		LockSupport.unpark(this.writer);
+		try {
+			this.writer.join();
+		} catch (InterruptedException _ignored) {
+			Thread.currentThread().interrupt();
+		}
+		this.closed = true;
+	}
+
+	/**
+	 * Copy an event into the ring buffer, or write it directly once the log is closed.
+	 * @param event finished event.
+	 */
+	private void publish(Event event) {
+		long timeMillis = System.currentTimeMillis();
+		if (this.closed) {
+			synchronized (this) {
+				StringBuilder line = new StringBuilder(128);
+				this.format(line, timeMillis, event.level, event.name, event.fieldCount, event.keys, event.values, event.numbers);
+				this.out.print(line);
+				this.out.flush();
+			}
+			return;
+		}
+
+		long sequence;
+		do {
+			sequence = this.head.get();
+			if (sequence - this.tail >= this.ring.length) {
+				this.dropped.increment(); // Never block the logging thread
+				return;
+			}
+		} while (!this.head.compareAndSet(sequence, sequence + 1));
+
+		Slot slot = this.ring[(int) sequence & this.mask];
+		slot.timeMillis = timeMillis;
+		slot.level = event.level;
+		slot.name = event.name;
+		slot.fieldCount = event.fieldCount;
+		System.arraycopy(event.keys, 0, slot.keys, 0, event.fieldCount);
+		System.arraycopy(event.values, 0, slot.values, 0, event.fieldCount);
+		System.arraycopy(event.numbers, 0, slot.numbers, 0, event.fieldCount);
+		slot.sequence = sequence; // Volatile write publishes the slot to the writer
+		if (this.writerWaiting)
+			LockSupport.unpark(this.writer);
+	}
+
+	/**
+	 * Loop of the writer thread: write the events in sequence until stopped and everything is written.
+	 */
+	private void writeEvents() {
+		StringBuilder block = new StringBuilder(WRITE_BLOCK_SIZE * 2);
+		long reportedDropped = 0;
+		while (true) {
+			long next = this.tail;
+			Slot slot = this.ring[(int) next & this.mask];
+			if (slot.sequence == next) {
+				this.format(block, slot.timeMillis, slot.level, slot.name, slot.fieldCount, slot.keys, slot.values, slot.numbers);
+				slot.clear();
+				this.tail = next + 1; // Frees the slot for the logging threads
+				if (block.length() < WRITE_BLOCK_SIZE)
+					continue;
+			}
+
+			long droppedNow = this.dropped.sum();
+			if (droppedNow > reportedDropped) {
+				block.append("Events dropped, the event log could not keep up: ").append(droppedNow - reportedDropped).append(System.lineSeparator());
+				reportedDropped = droppedNow;
+			}
+			if (block.length() > 0) {
+				this.out.print(block);
+				this.out.flush();
+				block.setLength(0);
+			}
+			if (slot.sequence == next)
+				continue; // Block was full, more events are waiting
+			if (this.stopping && this.head.get() == this.tail)
+				return;
+
+			this.writerWaiting = true;
+			if (slot.sequence != next && !this.stopping) // Check again, an event may have come before writerWaiting was set
+				LockSupport.parkNanos(this, WRITER_PARK_NANOS);
+			this.writerWaiting = false;
+		}
+	}
+
+	/**
+	 * Append an event as one line.
+	 */
+	private void format(StringBuilder line, long timeMillis, EventLevel eventLevel, String name, int fieldCount,
+			String[] keys, Object[] values, long[] numbers) {
+		long second = Math.floorDiv(timeMillis, 1000);
+		if (second != this.formattedSecond) {
+			this.formattedSecondText = this.formatter.format(LocalDateTime.ofInstant(Instant.ofEpochSecond(second), ZoneId.systemDefault()));
+			this.formattedSecond = second;
+		}
+		int millis = (int) Math.floorMod(timeMillis, 1000);
+		line.append(this.formattedSecondText).append('.');
+		if (millis < 100)
+			line.append('0');
+		if (millis < 10)
+			line.append('0');
+		line.append(millis).append(' ').append(eventLevel);
+		if (eventLevel.name().length() == 4)
+			line.append(' ');
+		line.append(' ').append(name);
+		for (int i = 0; i < fieldCount; i++) {
+			line.append(' ').append(keys[i]).append('=');
+			if (values[i] == LONG_VALUE) {
+				line.append(numbers[i]);
+				continue;
+			}
+			String text = String.valueOf(values[i]);
+			if (text.indexOf(' ') >= 0)
+				line.append('"').append(text).append('"');
+			else
+				line.append(text);
+		}
+		line.append(System.lineSeparator());
+	}
+
+	/**
+	 * Builder of an event on the logging thread.
+	 */
+	public static final class Event {
+
+		/**
+		 * Builder returned for events below the level, it ignores everything.
+		 */
+		private static final Event DISABLED = new Event();
+
+		private EventLog log;
+		private EventLevel level;
+		private String name;
+		private int fieldCount;
+		private final String[] keys = new String[MAX_FIELDS];
+		private final Object[] values = new Object[MAX_FIELDS];
+		private final long[] numbers = new long[MAX_FIELDS];
+
+		private Event() {
+		}
+
+		private void reset(EventLog eventLog, EventLevel eventLevel, String eventName) {
+			this.log = eventLog;
+			this.level = eventLevel;
+			this.name = eventName;
+			this.fieldCount = 0;
+		}
+
+		/**
+		 * Add a value to the event.
+		 * @param key name of the value.
+		 * @param value value, turned into text on the writer thread.
+		 * @return this event.
+		 */
+		public Event with(String key, Object value) {
+			if (this.log != null && this.fieldCount < MAX_FIELDS) {
+				this.keys[this.fieldCount] = key;
+				this.values[this.fieldCount++] = value;
+			}
+			return this;
+		}
+
+		/**
+		 * Add a number to the event without boxing it.
+		 * @param key name of the value.
+		 * @param value value.
+		 * @return this event.
+		 */
+		public Event with(String key, long value) {
+			if (this.log != null && this.fieldCount < MAX_FIELDS) {
+				this.keys[this.fieldCount] = key;
+				this.numbers[this.fieldCount] = value;
+				this.values[this.fieldCount++] = LONG_VALUE;
+			}
+			return this;
+		}
+
+		/**
+		 * Hand the event to the event log.
+		 */
+		public void log() {
+			EventLog eventLog = this.log;
+			if (eventLog == null)
+				return;
+			this.log = null; // A second log() of the same builder does nothing
+			eventLog.publish(this);
+			for (int i = 0; i < this.fieldCount; i++) {
+				this.values[i] = null; // Do not keep logged objects alive
+			}
+		}
+	}
+
+	/**
+	 * Preallocated slot of the ring buffer.
+	 */
+	private static final class Slot {
+
+		/**
+		 * Sequence of the event in the slot, written last by the logging thread.
+		 */
+		private volatile long sequence = -1;
+
+		private long timeMillis;
+		private EventLevel level;
+		private String name;
+		private int fieldCount;
+		private final String[] keys = new String[MAX_FIELDS];
+		private final Object[] values = new Object[MAX_FIELDS];
+		private final long[] numbers = new long[MAX_FIELDS];
+
+		private void clear() {
+			for (int i = 0; i < this.fieldCount; i++) {
+				this.values[i] = null;
+			}
+			this.name = null;
+		}
+	}
+}
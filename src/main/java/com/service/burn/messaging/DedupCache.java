@@ -0,0 +1,215 @@
+package com.service.burn.messaging;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * <h2>DedupCache class remembers recently seen product ids to drop redelivered products.</h2>
+ * A message is redelivered when its consumer dies or its channel closes before the ack arrived, even if the work was done.
+ * The consumer adds the id of every product it handles and skips a product whose id is already in the cache.<br>
+ * Ids are kept in an open addressing table of primitive longs, so no id is boxed, and in a ring in the order they were added.
+ * The cache holds at most maxEntries ids: an id leaves the cache after the time to live, or earlier when the cache is full
+ * and it is the oldest one (a removed id keeps its place in the ring until then).<br>
+ * Redeliveries arrive within seconds, so the time to live only needs to cover a broker failover.
+ *
+ */
+public class DedupCache {
+
+	/**
+	 * Maximum number of ids in the cache.
+	 */
+	private final int maxEntries;
+
+	/**
+	 * Time after which an id leaves the cache.
+	 */
+	private final long ttlNanos;
+
+	/**
+	 * Clock in nanoseconds.
+	 */
+	private final LongSupplier clock;
+
+	/**
+	 * Ids of the table.
+	 */
+	private final long[] keys;
+
+	/**
+	 * Add number of the id in each slot of the table, 0 for an empty slot.
+	 */
+	private final long[] addNumbers;
+
+	/**
+	 * Mask of a table slot, the table size is a power of two.
+	 */
+	private final int mask;
+
+	/**
+	 * Ids in the order they were added, at addNumber % maxEntries.
+	 */
+	private final long[] ringKeys;
+
+	/**
+	 * Time at which the ids of the ring were added.
+	 */
+	private final long[] ringTimes;
+
+	/**
+	 * Add number of the oldest id in the ring.
+	 */
+	private long head = 1;
+
+	/**
+	 * Add number of the next id.
+	 */
+	private long tail = 1;
+
+	/**
+	 * Number of ids in the table.
+	 */
+	private int size;
+
+	/**
+	 * <p>Constructor to initialize an empty cache.</p>
+	 * @param maxEntries maximum number of ids in the cache.
+	 * @param ttlMillis time after which an id leaves the cache.
+	 */
+	public DedupCache(int maxEntries, long ttlMillis) {
+		this(maxEntries, ttlMillis, System::nanoTime);
+	}
+
+	/**
+	 * <p>Constructor to initialize an empty cache with the given clock.</p>
+	 * @param maxEntries maximum number of ids in the cache.
+	 * @param ttlMillis time after which an id leaves the cache.
+	 * @param clock clock in nanoseconds.
+	 */
+	DedupCache(int maxEntries, long ttlMillis, LongSupplier clock) {
+		if (maxEntries < 1 || maxEntries > 1 << 29)
+			throw new IllegalArgumentException("Max entries must be between 1 and " + (1 << 29));
+
+		this.maxEntries = maxEntries;
+		this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+		this.clock = clock;
+		int tableSize = Integer.highestOneBit(maxEntries * 2 - 1) << 1; // At most half full, so probes stay short
+		this.keys = new long[tableSize];
+		this.addNumbers = new long[tableSize];
+		this.mask = tableSize - 1;
+		this.ringKeys = new long[maxEntries];
+		this.ringTimes = new long[maxEntries];
+	}
+
+	/**
+	 * Add an id unless it is in the cache.
+	 * @param id product id.
+	 * @return true if the id was added, false if it was in the cache (a duplicate).
+	 */
+	public synchronized boolean add(long id) {
+		long now = this.clock.getAsLong();
+		this.evictExpired(now);
+		int slot = this.indexOf(id);
+		while (this.addNumbers[slot] != 0) {
+			if (this.keys[slot] == id)
+				return false;
+			slot = (slot + 1) & this.mask;
+		}
+		if (this.tail - this.head == this.maxEntries) {
+			this.evictOldest();
+			slot = this.indexOf(id); // Eviction may have moved entries
+			while (this.addNumbers[slot] != 0) {
+				slot = (slot + 1) & this.mask;
+			}
+		}
+		long addNumber = this.tail++;
+		this.keys[slot] = id;
+		this.addNumbers[slot] = addNumber;
+		int ringIndex = (int) (addNumber % this.maxEntries);
+		this.ringKeys[ringIndex] = id;
+		this.ringTimes[ringIndex] = now;
+		this.size++;
+		return true;
+	}
+
+	/**
+	 * Tell whether an id is in the cache.
+	 * @param id product id.
+	 * @return true if the id is in the cache.
+	 */
+	public synchronized boolean contains(long id) {
+		this.evictExpired(this.clock.getAsLong());
+		return this.find(id) >= 0;
+	}
+
+	/**
+	 * Remove an id, e.g. because handling its product failed and it will come again.
+	 * @param id product id.
+	 * @return true if the id was in the cache.
+	 */
+	public synchronized boolean remove(long id) {
+		int slot = this.find(id);
+		if (slot < 0)
+			return false;
+		this.delete(slot); // Its ring entry is skipped when it is evicted
+		return true;
+	}
+
+	/**
+	 * Get number of ids in the cache.
+	 * @return size.
+	 */
+	public synchronized int size() {
+		this.evictExpired(this.clock.getAsLong());
+		return this.size;
+	}
+
+	private void evictExpired(long now) {
+		while (this.head < this.tail && now - this.ringTimes[(int) (this.head % this.maxEntries)] >= this.ttlNanos) {
+			this.evictOldest();
+		}
+	}
+
+	private void evictOldest() {
+		long addNumber = this.head++;
+		int slot = this.find(this.ringKeys[(int) (addNumber % this.maxEntries)]);
+		if (slot >= 0 && this.addNumbers[slot] == addNumber) // Otherwise the id was removed and maybe added again
+			this.delete(slot);
+	}
+
+	private int find(long id) {
+		int slot = this.indexOf(id);
+		while (this.addNumbers[slot] != 0) {
+			if (this.keys[slot] == id)
+				return slot;
+			slot = (slot + 1) & this.mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Empty a slot and move later entries of its probe sequence back, so no tombstones are needed.
+	 * @param slot slot to empty.
+	 */
+	private void delete(int slot) {
+		int gap = slot;
+		int next = slot;
+		while (true) {
+			next = (next + 1) & this.mask;
+			if (this.addNumbers[next] == 0)
+				break;
+			int home = this.indexOf(this.keys[next]);
+			if (((next - home) & this.mask) >= ((next - gap) & this.mask)) { // The entry may move back to the gap
+				this.keys[gap] = this.keys[next];
+				this.addNumbers[gap] = this.addNumbers[next];
+				gap = next;
+			}
+		}
+		this.addNumbers[gap] = 0;
+		this.size--;
+	}
+
+	private int indexOf(long id) {
+		long hash = id * 0x9E3779B97F4A7C15L; // Spread sequential ids over the table
+		return (int) (hash ^ (hash >>> 32)) & this.mask;
+	}
+}
@@ -0,0 +1,219 @@
+package com.service.burn.messaging;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.service.burn.transport.Delivery;
+import com.service.burn.transport.Message;
+import com.service.burn.transport.Transport;
+
+/**
+ * <h2>FailedDeliveryHandler class takes a delivery its consumer could not handle off the queue, so one bad message never stalls the consumer.</h2>
+ * <ul>
+ * <li>A message which can never be handled (a {@link MalformedProductException}) goes to the dead letter queue at once.</li>
+ * <li>Any other failure counts as transient. The message is published to a delay queue, which moves it back to its queue
+ * after a backoff that doubles with every retry (initial backoff, twice that, ... up to the maximum backoff).
+ * The number of retries travels with the message in the {@value #RETRY_COUNT_HEADER} header.</li>
+ * <li>A message which failed again after the maximum number of retries goes to the dead letter queue.</li>
+ * </ul>
+ * Dead letters carry headers naming the reason, the failure, the consumer, the time and the queue they came from, so they can be inspected
+ * and published again by hand.<br>
+ * The delivery is acknowledged once the transport confirmed the moved message. If the message can not be moved it is given back to the queue.
+ *
+ */
+public class FailedDeliveryHandler {
+
+	/**
+	 * Header with the number of times the message was retried.
+	 */
+	public static final String RETRY_COUNT_HEADER = "retry-count";
+
+	/**
+	 * Header with the reason a message was dead-lettered, {@value #REASON_MALFORMED} or {@value #REASON_RETRIES_EXHAUSTED}.
+	 */
+	public static final String FAILURE_REASON_HEADER = "failure-reason";
+
+	/**
+	 * Header with the last failure of the message.
+	 */
+	public static final String FAILURE_MESSAGE_HEADER = "failure-message";
+
+	/**
+	 * Header with the tag of the consumer which dead-lettered the message.
+	 */
+	public static final String FAILED_BY_HEADER = "failed-by";
+
+	/**
+	 * Header with the time in epoch milliseconds at which the message was dead-lettered.
+	 */
+	public static final String FAILED_AT_HEADER = "failed-at";
+
+	/**
+	 * Header with the queue the dead-lettered message was taken from.
+	 */
+	public static final String ORIGINAL_QUEUE_HEADER = "original-queue";
+
+	public static final String REASON_MALFORMED = "malformed";
+	public static final String REASON_RETRIES_EXHAUSTED = "retries-exhausted";
+
+	private final Transport transport;
+
+	/**
+	 * Queue the failed deliveries come from and go back to.
+	 */
+	private final String queue;
+
+	private final String deadLetterQueue;
+
+	/**
+	 * Maximum number of times a message is retried before it is dead-lettered.
+	 */
+	private final int maxRetries;
+
+	private final long initialBackoffMillis;
+	private final long maxBackoffMillis;
+
+	private final AtomicLong retried = new AtomicLong();
+	private final AtomicLong deadLettered = new AtomicLong();
+
+	/**
+	 * <p>Constructor to initialize a handler, the queues it needs are declared by declareQueues().</p>
+	 * @param transport transport of the queue.
+	 * @param queue queue the failed deliveries come from.
+	 * @param deadLetterQueue queue which keeps the messages which can not be handled.
+	 * @param maxRetries maximum number of times a message is retried, 0 to dead-letter at the first failure.
+	 * @param initialBackoffMillis delay before the first retry.
+	 * @param maxBackoffMillis longest delay before a retry.
+	 */
+	public FailedDeliveryHandler(Transport transport, String queue, String deadLetterQueue, int maxRetries, long initialBackoffMillis,
+			long maxBackoffMillis) {
+		if (maxRetries < 0 || initialBackoffMillis < 1 || maxBackoffMillis < initialBackoffMillis)
+			throw new IllegalArgumentException("Retries must not be negative and backoffs at least 1 ms with initial not above max");
+
+		this.transport = transport;
+		this.queue = queue;
+		this.deadLetterQueue = deadLetterQueue;
+		this.maxRetries = maxRetries;
+		this.initialBackoffMillis = initialBackoffMillis;
+		this.maxBackoffMillis = maxBackoffMillis;
+	}
+
+	/**
+	 * Declare the dead letter queue and one delay queue per backoff.
+	 * @throws IOException if a queue can not be declared.
+	 */
+	public void declareQueues() throws IOException {
+		this.transport.declareQueue(this.deadLetterQueue);
+		for (int retryCount = 0; retryCount < this.maxRetries; retryCount++) {
+			long backoffMillis = this.getBackoffMillis(retryCount);
+			this.transport.declareDelayQueue(this.getRetryQueue(backoffMillis), backoffMillis, this.queue);
+		}
+	}
+
+	/**
+	 * Retry or dead-letter a delivery which failed, and settle it.
+	 * @param delivery delivery which failed, not acked or nacked yet.
+	 * @param cause failure of the delivery.
+	 * @return future which completes with the queue the message was moved to once the delivery is acknowledged,
+	 * or completes exceptionally if the message could not be moved and the delivery was given back to its queue.
+	 */
+	public CompletableFuture<String> fail(Delivery delivery, Throwable cause) {
+		Message message = delivery.getMessage();
+		int retryCount = getRetryCount(message);
+		String reason = isPermanent(cause) ? REASON_MALFORMED : retryCount >= this.maxRetries ? REASON_RETRIES_EXHAUSTED : null;
+		String target;
+		Message moved = message.withHeader(FAILURE_MESSAGE_HEADER, String.valueOf(unwrap(cause)));
+		if (reason == null) {
+			target = this.getRetryQueue(this.getBackoffMillis(retryCount));
+			moved = moved.withHeader(RETRY_COUNT_HEADER, retryCount + 1);
+		} else {
+			target = this.deadLetterQueue;
+			moved = moved.withHeader(FAILURE_REASON_HEADER, reason).withHeader(FAILED_BY_HEADER, delivery.getConsumerTag())
+					.withHeader(FAILED_AT_HEADER, System.currentTimeMillis()).withHeader(ORIGINAL_QUEUE_HEADER, this.queue);
+		}
+
+		CompletableFuture<String> settled = new CompletableFuture<>();
+		this.transport.publish(target, moved).whenComplete((ignored, e) -> {
+			try {
+				if (e == null) {
+					delivery.ack();
+					(reason == null ? this.retried : this.deadLettered).incrementAndGet();
+					settled.complete(target);
+				} else {
+					delivery.nack(true); // Not moved, handled again once redelivered
+					settled.completeExceptionally(e);
+				}
+			} catch (IOException ex) {
+				settled.completeExceptionally(ex);
+			}
+		});
+		return settled;
+	}
+
+	/**
+	 * Get the delay before a retry.
+	 * @param retryCount number of times the message was retried before.
+	 * @return initial backoff doubled retryCount times, at most the maximum backoff.
+	 */
+	public long getBackoffMillis(int retryCount) {
+		long backoffMillis = this.initialBackoffMillis;
+		for (int i = 0; i < retryCount && backoffMillis < this.maxBackoffMillis; i++) {
+			backoffMillis *= 2;
+		}
+		return Math.min(backoffMillis, this.maxBackoffMillis);
+	}
+
+	/**
+	 * Get name of the delay queue for a backoff.
+	 * @param backoffMillis delay of the queue.
+	 * @return queue name, e.g. product_queue.retry.1000.
+	 */
+	public String getRetryQueue(long backoffMillis) {
+		return this.queue + ".retry." + backoffMillis;
+	}
+
+	public String getDeadLetterQueue() {
+		return this.deadLetterQueue;
+	}
+
+	/**
+	 * Get number of messages sent to a delay queue so far.
+	 * @return retried message count.
+	 */
+	public long getRetriedCount() {
+		return this.retried.get();
+	}
+
+	/**
+	 * Get number of messages sent to the dead letter queue so far.
+	 * @return dead-lettered message count.
+	 */
+	public long getDeadLetteredCount() {
+		return this.deadLettered.get();
+	}
+
+	/**
+	 * Get number of times a message was retried.
+	 * @param message message to read.
+	 * @return value of the retry count header, 0 if the message was not retried.
+	 */
+	public static int getRetryCount(Message message) {
+		Object retryCount = message.getHeaders().get(RETRY_COUNT_HEADER);
+		return retryCount instanceof Number ? ((Number) retryCount).intValue() : 0;
+	}
+
+	/**
+	 * Tell whether a failure would happen again with every retry.
+	 * @param cause failure of a delivery.
+	 * @return true if the message can never be handled.
+	 */
+	private static boolean isPermanent(Throwable cause) {
+		return unwrap(cause) instanceof MalformedProductException;
+	}
+
+	private static Throwable unwrap(Throwable cause) {
+		return cause instanceof CompletionException && cause.getCause() != null ? cause.getCause() : cause;
+	}
+}
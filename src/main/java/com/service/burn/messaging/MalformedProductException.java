@@ -0,0 +1,19 @@
+package com.service.burn.messaging;
+
+/**
+ * MalformedProductException is thrown when a message body can not be read as a product.
+ *
+ */
+public class MalformedProductException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * <p>Constructor to initialize the exception.</p>
+	 * @param message description of the problem.
+	 * @param cause failure reported by the codec.
+	 */
+	public MalformedProductException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
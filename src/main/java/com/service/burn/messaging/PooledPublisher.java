@@ -0,0 +1,384 @@
+package com.service.burn.messaging;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+import com.rabbitmq.client.ShutdownSignalException;
+import com.service.burn.metrics.LatencyStats;
+import com.service.burn.transport.PublishRejectedException;
+
+/**
+ * <h2>PooledPublisher class publishes messages to RabbitMQ over one long lived connection.</h2>
+ * The connection is opened and the queues are declared once in {@link #start()}.<br>
+ * Channels are not thread safe for publishing, so every publish borrows a channel from a bounded pool and gives it back afterwards.<br>
+ * Pooled channels are in confirm mode: every publish returns a future which completes when the broker confirms the message.<br>
+ * If the connection or a channel is lost, the broken channel is discarded, a new connection is opened if required and the publish is retried once.
+ * The publisher reopens its connection itself, so automatic recovery of the client is turned off for it and a replaced connection is aborted.
+ * Messages still waiting for a confirm on a lost channel fail.<br>
+ * Time between publishing and the confirm is recorded in {@link #getPublishLatency()}.
+ *
+ */
+public class PooledPublisher implements AutoCloseable {
+
+	/**
+	 * Number of attempts made for a single publish before the failure is reported to the caller.
+	 */
+	private static final int PUBLISH_ATTEMPTS = 2;
+
+	/**
+	 * Settings used to open (and re-open) the connection, without automatic recovery.
+	 */
+	private final ConnectionFactory factory;
+
+	/**
+	 * Queues which are declared once when the connection is opened.
+	 */
+	private final String[] queues;
+
+	/**
+	 * Channels which are open and currently not used by any publisher thread.
+	 */
+	private final BlockingQueue<PooledChannel> idleChannels;
+
+	/**
+	 * Limits the number of channels which can be used at the same time.
+	 */
+	private final Semaphore channelPermits;
+
+	/**
+	 * Maximum time to wait for a free channel.
+	 */
+	private final long borrowTimeoutMillis;
+
+	/**
+	 * Latency between publishing and the confirm of every publish.
+	 */
+	private final LatencyStats publishLatency = new LatencyStats();
+
+	/**
+	 * Guards opening of the connection.
+	 */
+	private final Object connectionLock = new Object();
+
+	/**
+	 * Current connection, null until started.
+	 */
+	private volatile Connection connection;
+
+	/**
+	 * Set once the publisher is closed.
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * <p>Constructor to initialize a publisher.</p>
+	 * Nothing is opened until {@link #start()} is called.
+	 * @param factory connection settings, they are copied and automatic recovery is turned off in the copy.
+	 * @param poolSize maximum number of channels used to publish concurrently.
+	 * @param borrowTimeoutMillis maximum time to wait for a free channel.
+	 * @param queues queues which will be declared once the connection is opened.
+	 */
+	public PooledPublisher(ConnectionFactory factory, int poolSize, long borrowTimeoutMillis, String... queues) {
+		if (poolSize < 1)
+			throw new IllegalArgumentException("Channel pool size must be at least 1");
+
+		this.factory = factory.clone();
+		this.factory.setAutomaticRecoveryEnabled(false); // Otherwise a lost connection recovers in the background next to the reopened one
+		this.factory.setTopologyRecoveryEnabled(false);
+		this.queues = queues.clone();
+		this.idleChannels = new ArrayBlockingQueue<>(poolSize);
+		this.channelPermits = new Semaphore(poolSize, true);
+		this.borrowTimeoutMillis = borrowTimeoutMillis;
+	}
+
+	/**
+	 * Open the connection and declare the queues.
+	 * @throws IOException if the connection can not be opened.
+	 * @throws TimeoutException if the broker does not answer in time.
+	 */
+	public void start() throws IOException, TimeoutException {
+		this.getConnection();
+	}
+
+	/**
+	 * Publish a message to the given queue through the default exchange.
+	 * @param queue name of the queue.
+	 * @param properties message properties.
+	 * @param body message body.
+	 * @return future which completes when the broker confirms the message, or fails if the broker rejects it or the channel is lost.
+	 */
+	public CompletableFuture<Void> publish(String queue, AMQP.BasicProperties properties, byte[] body) {
+		IOException failure = null;
+		for (int attempt = 0; attempt < PUBLISH_ATTEMPTS; attempt++) {
+			PooledChannel pooled;
+			try {
+				pooled = this.borrow();
+			} catch (IOException ex) {
+				return failed(ex);
+			}
+			boolean healthy = false;
+			try {
+				CompletableFuture<Void> confirmed = pooled.publish(queue, properties, body);
+				healthy = true;
+				return confirmed;
+			} catch (IOException ex) {
+				failure = ex;
+			} catch (ShutdownSignalException ex) {
+				failure = new IOException(ex);
+			} finally {
+				this.giveBack(pooled, healthy);
+			}
+		}
+		return failed(failure);
+	}
+
+	/**
+	 * Get latency statistics of the publishes made so far.
+	 * @return publish to confirm latency.
+	 */
+	public LatencyStats getPublishLatency() {
+		return this.publishLatency;
+	}
+
+	@Override
+	public void close() {
+		this.closed = true;
+		PooledChannel pooled;
+		while ((pooled = this.idleChannels.poll()) != null) {
+			pooled.close();
+		}
+		synchronized (this.connectionLock) {
+			if (this.connection != null) {
+				try {
+					this.connection.close();
+				} catch (Exception _ignored) {
+					// The connection is already gone, nothing left to release.
+				}
+				this.connection = null;
+			}
+		}
+	}
+
+	/**
+	 * Borrow an open channel from the pool, creating one if the pool has none idle.
+	 * @return open channel.
+	 * @throws IOException if no channel can be borrowed in time or opened.
+	 */
+	private PooledChannel borrow() throws IOException {
+		if (this.closed)
+			throw new IOException("Publisher is closed");
+
+		try {
+			if (!this.channelPermits.tryAcquire(this.borrowTimeoutMillis, TimeUnit.MILLISECONDS))
+				throw new IOException("No publisher channel became free within " + this.borrowTimeoutMillis + " ms");
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a publisher channel");
+		}
+
+		try {
+			PooledChannel pooled;
+			while ((pooled = this.idleChannels.poll()) != null) {
+				if (pooled.isOpen())
+					return pooled;
+				pooled.close();
+			}
+			return new PooledChannel(this.getConnection().createChannel());
+		} catch (IOException | TimeoutException | RuntimeException ex) {
+			this.channelPermits.release();
+			throw ex instanceof IOException ? (IOException) ex : new IOException(ex);
+		}
+	}
+
+	/**
+	 * Return a borrowed channel to the pool. Broken channels are closed instead of being reused.
+	 * @param pooled borrowed channel.
+	 * @param healthy false if the last operation on the channel failed.
+	 */
+	private void giveBack(PooledChannel pooled, boolean healthy) {
+		try {
+			if (healthy && !this.closed && pooled.isOpen() && this.idleChannels.offer(pooled))
+				return;
+
+			pooled.close();
+		} finally {
+			this.channelPermits.release();
+		}
+	}
+
+	/**
+	 * Get the current connection, opening a new one (and declaring the queues on it) if there is none or it was lost.
+	 * @return open connection.
+	 * @throws IOException if the connection can not be opened.
+	 * @throws TimeoutException if the broker does not answer in time.
+	 */
+	private Connection getConnection() throws IOException, TimeoutException {
+		Connection current = this.connection;
+		if (current != null && current.isOpen())
+			return current;
+
+		synchronized (this.connectionLock) {
+			if (this.closed)
+				throw new IOException("Publisher is closed");
+
+			current = this.connection;
+			if (current != null && current.isOpen())
+				return current;
+
+			if (current != null)
+				current.abort(); // Frees its threads and channels, messages waiting for a confirm on it already failed
+			Connection opened = this.factory.newConnection();
+			try {
+				Channel channel = opened.createChannel();
+				try {
+					for (String queue : this.queues) {
+						channel.queueDeclare(queue, true, false, false, null);
+					}
+				} finally {
+					closeQuietly(channel);
+				}
+			} catch (IOException | RuntimeException ex) {
+				opened.abort();
+				throw ex;
+			}
+			this.connection = opened;
+			return opened;
+		}
+	}
+
+	/**
+	 * Get a future which has already failed.
+	 * @param failure cause of the failure.
+	 * @return failed future.
+	 */
+	private static CompletableFuture<Void> failed(IOException failure) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		future.completeExceptionally(failure);
+		return future;
+	}
+
+	/**
+	 * Close a channel ignoring any failure.
+	 * @param channel channel to close.
+	 */
+	private static void closeQuietly(Channel channel) {
+		try {
+			if (channel.isOpen())
+				channel.close();
+		} catch (Exception _ignored) {
+			// Closing a broken channel is best effort.
+		}
+	}
+
+	/**
+	 * A pooled channel in confirm mode with the futures of its unconfirmed publishes.
+	 */
+	private class PooledChannel implements ConfirmListener {
+
+		private final Channel channel;
+
+		/**
+		 * Unconfirmed publishes by sequence number.
+		 */
+		private final ConcurrentNavigableMap<Long, PendingPublish> unconfirmed = new ConcurrentSkipListMap<>();
+
+		private PooledChannel(Channel channel) throws IOException {
+			this.channel = channel;
+			channel.confirmSelect();
+			channel.addConfirmListener(this);
+			channel.addShutdownListener(cause -> this.failUnconfirmed(new IOException("Publisher channel was closed", cause)));
+		}
+
+		private CompletableFuture<Void> publish(String queue, AMQP.BasicProperties properties, byte[] body) throws IOException {
+			PendingPublish pending = new PendingPublish();
+			long sequenceNumber = this.channel.getNextPublishSeqNo();
+			this.unconfirmed.put(sequenceNumber, pending); // Remember before publishing, the confirm may arrive before basicPublish returns
+			try {
+				this.channel.basicPublish("", queue, properties, body);
+			} catch (IOException | RuntimeException ex) {
+				this.unconfirmed.remove(sequenceNumber);
+				throw ex;
+			}
+			return pending.future;
+		}
+
+		@Override
+		public void handleAck(long deliveryTag, boolean multiple) {
+			for (PendingPublish pending : this.remove(deliveryTag, multiple)) {
+				PooledPublisher.this.publishLatency.record(System.nanoTime() - pending.publishedAt);
+				pending.future.complete(null);
+			}
+		}
+
+		@Override
+		public void handleNack(long deliveryTag, boolean multiple) {
+			for (PendingPublish pending : this.remove(deliveryTag, multiple)) {
+				pending.future.completeExceptionally(new PublishRejectedException("Broker rejected message " + deliveryTag));
+			}
+		}
+
+		private Iterable<PendingPublish> remove(long deliveryTag, boolean multiple) {
+			if (!multiple) {
+				PendingPublish pending = this.unconfirmed.remove(deliveryTag);
+				return pending == null ? Collections.<PendingPublish>emptyList() : Collections.singletonList(pending);
+			}
+			List<PendingPublish> removed = new ArrayList<>();
+			Map<Long, PendingPublish> confirmedHead = this.unconfirmed.headMap(deliveryTag, true);
+			for (Long sequenceNumber : confirmedHead.keySet()) {
+				PendingPublish pending = confirmedHead.remove(sequenceNumber);
+				if (pending != null)
+					removed.add(pending);
+			}
+			return removed;
+		}
+
+		private void failUnconfirmed(IOException failure) {
+			for (Long sequenceNumber : this.unconfirmed.keySet()) {
+				PendingPublish pending = this.unconfirmed.remove(sequenceNumber);
+				if (pending != null)
+					pending.future.completeExceptionally(failure);
+			}
+		}
+
+		private boolean isOpen() {
+			return this.channel.isOpen();
+		}
+
+		private void close() {
+			if (!this.unconfirmed.isEmpty() && this.channel.isOpen()) {
+				try {
+					this.channel.waitForConfirms(PooledPublisher.this.borrowTimeoutMillis); // Give outstanding publishes a chance to be confirmed
+				} catch (Exception _ignored) {
+					// Unconfirmed publishes fail below
+				}
+			}
+			closeQuietly(this.channel);
+			this.failUnconfirmed(new IOException("Publisher channel was closed"));
+		}
+	}
+
+	/**
+	 * A publish waiting for its confirm.
+	 */
+	private static class PendingPublish {
+		private final long publishedAt = System.nanoTime();
+		private final CompletableFuture<Void> future = new CompletableFuture<>();
+	}
+}
@@ -0,0 +1,248 @@
+package com.service.burn.messaging;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.service.burn.Utility;
+import com.service.burn.logging.EventLevel;
+import com.service.burn.logging.EventLog;
+import com.service.burn.metrics.LatencyStats;
+import com.service.burn.model.Product;
+import com.service.burn.model.ProductStage;
+import com.service.burn.oven.DispatchPolicy;
+import com.service.burn.transport.Message;
+import com.service.burn.transport.Transport;
+
+/**
+ * <h2>ProductBatchPublisher class publishes many products and waits for the transport to confirm each of them.</h2>
+ * Products are published in batches. Every publish is tracked until the transport confirms it
+ * (with RabbitMQ: an asynchronous publisher confirm).<br>
+ * The number of unconfirmed products is bounded, so a slow broker slows the publisher down instead of filling its memory.<br>
+ * Products rejected by the transport are published again up to a maximum number of retries.<br>
+ * Every product is published with the message priority its dispatch policy gives it.
+ *
+ */
+public class ProductBatchPublisher {
+
+	private static final EventLog LOG = Utility.getEventLog();
+
+	/**
+	 * Transport to publish to.
+	 */
+	private final Transport transport;
+
+	/**
+	 * Queue to which products are published.
+	 */
+	private final String queue;
+
+	/**
+	 * Encoding of the published products.
+	 */
+	private final ProductWireFormat wireFormat;
+
+	/**
+	 * Policy which gives the message priority of every product.
+	 */
+	private final DispatchPolicy dispatchPolicy;
+
+	/**
+	 * Number of products published before rejected products are retried and progress is reported.
+	 */
+	private final int batchSize;
+
+	/**
+	 * Maximum number of times a rejected product is published again.
+	 */
+	private final int maxRetries;
+
+	/**
+	 * Maximum time to wait for the transport to confirm.
+	 */
+	private final long confirmTimeoutMillis;
+
+	/**
+	 * Limits the number of unconfirmed products.
+	 */
+	private final Semaphore inFlight;
+
+	/**
+	 * Number of unconfirmed products.
+	 */
+	private final AtomicInteger outstanding = new AtomicInteger();
+
+	/**
+	 * Rejected products waiting to be published again.
+	 */
+	private final Queue<PendingProduct> retries = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Publish to confirm latency.
+	 */
+	private volatile LatencyStats confirmLatency = new LatencyStats();
+
+	private final AtomicLong confirmed = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong retried = new AtomicLong();
+
+	/**
+	 * <p>Constructor to initialize a publisher.</p>
+	 * @param transport transport to publish to.
+	 * @param queue queue to which products are published.
+	 * @param wireFormat encoding of the products.
+	 * @param batchSize number of products per batch.
+	 * @param maxInFlight maximum number of unconfirmed products.
+	 * @param maxRetries maximum number of times a rejected product is published again.
+	 * @param confirmTimeoutMillis maximum time to wait for confirms.
+	 */
+	public ProductBatchPublisher(Transport transport, String queue, ProductWireFormat wireFormat, int batchSize, int maxInFlight,
+			int maxRetries, long confirmTimeoutMillis) {
+		this(transport, queue, wireFormat, DispatchPolicy.FIFO, batchSize, maxInFlight, maxRetries, confirmTimeoutMillis);
+	}
+
+	/**
+	 * <p>Constructor to initialize a publisher which sets message priorities.</p>
+	 * @param transport transport to publish to.
+	 * @param queue queue to which products are published, declared with the maximum priority of the policy.
+	 * @param wireFormat encoding of the products.
+	 * @param dispatchPolicy policy which gives the message priority of every product.
+	 * @param batchSize number of products per batch.
+	 * @param maxInFlight maximum number of unconfirmed products.
+	 * @param maxRetries maximum number of times a rejected product is published again.
+	 * @param confirmTimeoutMillis maximum time to wait for confirms.
+	 */
+	public ProductBatchPublisher(Transport transport, String queue, ProductWireFormat wireFormat, DispatchPolicy dispatchPolicy,
+			int batchSize, int maxInFlight, int maxRetries, long confirmTimeoutMillis) {
+		if (batchSize < 1 || maxInFlight < 1)
+			throw new IllegalArgumentException("Batch size and in-flight limit must be at least 1");
+
+		this.transport = transport;
+		this.queue = queue;
+		this.wireFormat = wireFormat;
+		this.dispatchPolicy = dispatchPolicy;
+		this.batchSize = batchSize;
+		this.maxRetries = maxRetries;
+		this.confirmTimeoutMillis = confirmTimeoutMillis;
+		this.inFlight = new Semaphore(maxInFlight);
+	}
+
+	/**
+	 * Publish all given products and wait until each one is confirmed or has used up its retries.<br>
+	 * Only one thread may call this method at a time.
+	 * @param products products to publish.
+	 * @return summary of the publish.
+	 * @throws IOException if the transport does not confirm in time.
+	 */
+	public PublishReport publishAll(List<Product> products) throws IOException {
+		this.resetCounters();
+		long start = System.nanoTime();
+		for (int from = 0; from < products.size(); from += this.batchSize) {
+			int to = Math.min(products.size(), from + this.batchSize);
+			for (Product product : products.subList(from, to)) {
+				product.stamp(ProductStage.ENQUEUED);
+				this.publish(new PendingProduct(product, this.wireFormat.toMessage(product).withPriority(this.dispatchPolicy.getPriority(product))));
+			}
+			this.publishRetries();
+			if (LOG.isEnabled(EventLevel.DEBUG))
+				LOG.debug("Batch Sent").with("products", to - from).with("sent", to).with("total", products.size())
+						.with("waitingForConfirm", this.outstanding.get()).log();
+		}
+		this.awaitConfirms();
+		return new PublishReport(products.size(), this.confirmed.get(), this.failed.get(), this.retried.get(),
+				System.nanoTime() - start, this.confirmLatency);
+	}
+
+	/**
+	 * Publish one product, waiting while too many products are unconfirmed.
+	 * @param pending product to publish.
+	 * @throws IOException if no in-flight permit becomes free in time.
+	 */
+	private void publish(PendingProduct pending) throws IOException {
+		try {
+			if (!this.inFlight.tryAcquire(this.confirmTimeoutMillis, TimeUnit.MILLISECONDS))
+				throw new IOException("Transport did not confirm products within " + this.confirmTimeoutMillis + " ms");
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for confirms");
+		}
+		pending.attempts++;
+		long publishedAt = System.nanoTime();
+		this.outstanding.incrementAndGet();
+		this.transport.publish(this.queue, pending.message).whenComplete((ignored, failure) -> {
+			if (failure == null) {
+				this.confirmLatency.record(System.nanoTime() - publishedAt);
+				this.confirmed.incrementAndGet();
+			} else if (pending.attempts <= this.maxRetries) {
+				this.retries.add(pending); // Published again by the publishing thread
+			} else {
+				this.failed.incrementAndGet();
+				LOG.warn("Product could not be delivered to the scheduler").with("product", pending.product.toString())
+						.with("cause", failure.getMessage()).log();
+			}
+			this.outstanding.decrementAndGet();
+			this.inFlight.release();
+		});
+	}
+
+	/**
+	 * Publish again every product rejected so far.
+	 * @throws IOException if no in-flight permit becomes free in time.
+	 */
+	private void publishRetries() throws IOException {
+		PendingProduct pending;
+		while ((pending = this.retries.poll()) != null) {
+			this.retried.incrementAndGet();
+			this.publish(pending);
+		}
+	}
+
+	/**
+	 * Wait until every product is confirmed or failed, publishing rejected products again meanwhile.
+	 * @throws IOException if the transport does not confirm in time.
+	 */
+	private void awaitConfirms() throws IOException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.confirmTimeoutMillis);
+		while (this.outstanding.get() > 0 || !this.retries.isEmpty()) {
+			this.publishRetries();
+			if (System.nanoTime() > deadline)
+				throw new IOException(this.outstanding.get() + " products were not confirmed within " + this.confirmTimeoutMillis + " ms");
+			try {
+				TimeUnit.MILLISECONDS.sleep(1);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for confirms");
+			}
+		}
+	}
+
+	/**
+	 * Reset the counters before a new bulk publish.
+	 */
+	private void resetCounters() {
+		this.confirmLatency = new LatencyStats();
+		this.confirmed.set(0);
+		this.failed.set(0);
+		this.retried.set(0);
+	}
+
+	/**
+	 * A product waiting for its confirm.
+	 */
+	private static class PendingProduct {
+		private final Product product;
+		private final Message message;
+		private volatile int attempts;
+
+		private PendingProduct(Product product, Message message) {
+			this.product = product;
+			this.message = message;
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package com.service.burn.messaging;
+
+import com.google.gson.JsonParseException;
+import com.service.burn.Utility;
+import com.service.burn.model.Product;
+import com.service.burn.model.ProductBinaryCodec;
+import com.service.burn.transport.Message;
+
+/**
+ * <h2>ProductWireFormat enum lists the encodings a product can travel in.</h2>
+ * The encoding of a message is named by its content-type header, so JSON and binary producers and ovens can run side by side.<br>
+ * Messages without a content-type (or with text/plain, as sent by older services) are read as JSON.
+ *
+ */
+public enum ProductWireFormat {
+
+	/**
+	 * Product as UTF-8 encoded JSON.
+	 */
+	JSON("application/json"),
+
+	/**
+	 * Product in the compact layout of ProductBinaryCodec.
+	 */
+	BINARY("application/x-burn-product");
+
+	/**
+	 * Content-type header value of the format.
+	 */
+	private final String contentType;
+
+	private ProductWireFormat(String contentType) {
+		this.contentType = contentType;
+	}
+
+	/**
+	 * Get content-type header value of the format.
+	 * @return content-type.
+	 */
+	public String getContentType() {
+		return this.contentType;
+	}
+
+	/**
+	 * Converts given product into a message carrying the content-type of this format.
+	 * @param product which will be converted
+	 * @return message
+	 */
+	public Message toMessage(Product product) {
+		return new Message(this.encode(product), this.contentType);
+	}
+
+	/**
+	 * Converts given product into a message body.
+	 * @param product which will be converted
+	 * @return message body
+	 */
+	public byte[] encode(Product product) {
+		return this == BINARY ? ProductBinaryCodec.encode(product) : Utility.getJsonBytes(product);
+	}
+
+	/**
+	 * Converts given message body into product object.
+	 * @param body message body
+	 * @return product
+	 * @throws MalformedProductException if the body is not a valid product in this format
+	 */
+	public Product decode(byte[] body) {
+		try {
+			Product product = this == BINARY ? ProductBinaryCodec.decode(body) : Utility.getProduct(body);
+			if (product == null)
+				throw new IllegalArgumentException("Message body is empty");
+			if (product.getOvenParameter() == null)
+				throw new IllegalArgumentException("Product has no oven parameter");
+
+			return product;
+		} catch (JsonParseException | IllegalArgumentException ex) {
+			throw new MalformedProductException("Can not read product as " + this.name() + ": " + ex.getMessage(), ex);
+		}
+	}
+
+	/**
+	 * Get the format named by a content-type header.
+	 * @param contentType content-type header of a message, may be null.
+	 * @return BINARY if the header names the binary format, otherwise JSON.
+	 */
+	public static ProductWireFormat forContentType(String contentType) {
+		return BINARY.contentType.equalsIgnoreCase(contentType == null ? "" : contentType.trim()) ? BINARY : JSON;
+	}
+
+	/**
+	 * Get the format of a received message.
+	 * @param message received message.
+	 * @return format of the message body.
+	 */
+	public static ProductWireFormat of(Message message) {
+		return forContentType(message.getContentType());
+	}
+}
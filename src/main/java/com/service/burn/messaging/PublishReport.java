@@ -0,0 +1,98 @@
+package com.service.burn.messaging;
+
+import com.service.burn.metrics.LatencyStats;
+
+/**
+ * <h2>PublishReport class summarizes a bulk publish.</h2>
+ * It tells how many products were confirmed by the broker, how many had to be retried or failed,
+ * the reached throughput and the latency between publishing and getting the confirm.
+ *
+ */
+public class PublishReport {
+
+	/**
+	 * Number of products given to publish.
+	 */
+	private final int submitted;
+
+	/**
+	 * Number of products confirmed by the broker.
+	 */
+	private final long confirmed;
+
+	/**
+	 * Number of products which were not confirmed after all retries.
+	 */
+	private final long failed;
+
+	/**
+	 * Number of publishes repeated after a nack.
+	 */
+	private final long retried;
+
+	/**
+	 * Time taken by the whole publish.
+	 */
+	private final long elapsedNanos;
+
+	/**
+	 * Latency between publishing a product and getting its confirm.
+	 */
+	private final LatencyStats confirmLatency;
+
+	/**
+	 * <p>Constructor to initialize a report.</p>
+	 * @param submitted number of products given to publish.
+	 * @param confirmed number of products confirmed by the broker.
+	 * @param failed number of products which were not confirmed.
+	 * @param retried number of repeated publishes.
+	 * @param elapsedNanos time taken by the whole publish.
+	 * @param confirmLatency publish to confirm latency.
+	 */
+	public PublishReport(int submitted, long confirmed, long failed, long retried, long elapsedNanos, LatencyStats confirmLatency) {
+		this.submitted = submitted;
+		this.confirmed = confirmed;
+		this.failed = failed;
+		this.retried = retried;
+		this.elapsedNanos = elapsedNanos;
+		this.confirmLatency = confirmLatency;
+	}
+
+	public int getSubmitted() {
+		return this.submitted;
+	}
+
+	public long getConfirmed() {
+		return this.confirmed;
+	}
+
+	public long getFailed() {
+		return this.failed;
+	}
+
+	public long getRetried() {
+		return this.retried;
+	}
+
+	public long getElapsedNanos() {
+		return this.elapsedNanos;
+	}
+
+	public LatencyStats getConfirmLatency() {
+		return this.confirmLatency;
+	}
+
+	/**
+	 * Get number of confirmed products per second.
+	 * @return throughput in messages per second.
+	 */
+	public double getThroughput() {
+		return this.elapsedNanos <= 0 ? 0 : this.confirmed * 1_000_000_000.0 / this.elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Submitted: %d | Confirmed: %d | Failed: %d | Retried: %d | Throughput: %.0f msgs/sec | Confirm latency %s",
+				this.submitted, this.confirmed, this.failed, this.retried, this.getThroughput(), this.confirmLatency);
+	}
+}
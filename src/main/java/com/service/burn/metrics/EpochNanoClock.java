@@ -0,0 +1,34 @@
+package com.service.burn.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EpochNanoClock class tells the time in nanoseconds since 1970 with the resolution of System.nanoTime().<br>
+ * The wall clock is read once when the class is loaded, later readings add the elapsed monotonic time to it,
+ * so timestamps of one process never go back and differences between them are exact.
+ * Timestamps of different processes can be compared as far as their wall clocks agree (e.g. through NTP).
+ *
+ */
+public final class EpochNanoClock {
+
+	/**
+	 * Wall clock time at which the clock was started, in nanoseconds since 1970.
+	 */
+	private static final long EPOCH_NANOS_AT_START = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+
+	/**
+	 * Monotonic time at which the clock was started.
+	 */
+	private static final long NANO_TIME_AT_START = System.nanoTime();
+
+	private EpochNanoClock() {
+	}
+
+	/**
+	 * Get current time.
+	 * @return nanoseconds since 1970.
+	 */
+	public static long now() {
+		return EPOCH_NANOS_AT_START + (System.nanoTime() - NANO_TIME_AT_START);
+	}
+}
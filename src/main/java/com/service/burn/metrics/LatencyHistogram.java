@@ -0,0 +1,155 @@
+package com.service.burn.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <h2>LatencyHistogram class counts recorded latencies in log-linear buckets, like an HDR histogram.</h2>
+ * Values below 128 ns get a bucket each. Above that every power of two is split into 64 buckets, so a value is reported
+ * with less than 1.6% error from nanoseconds up to days, in a fixed array of about 3800 counters.<br>
+ * Recording is lock free and cheap enough for every product on the hot path. Percentiles are read while recording goes on,
+ * they are not an atomic snapshot but are off by at most the samples recorded during the read.
+ *
+ */
+public class LatencyHistogram {
+
+	/**
+	 * Number of bits of a value kept exactly, the rest is dropped into the bucket.
+	 */
+	private static final int SUB_BUCKET_BITS = 7;
+
+	/**
+	 * Buckets per power of two above the exact range.
+	 */
+	private static final int SUB_BUCKET_HALF = 1 << (SUB_BUCKET_BITS - 1);
+
+	/**
+	 * Number of buckets needed for any positive long.
+	 */
+	private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS + 2) * SUB_BUCKET_HALF;
+
+	/**
+	 * Number of samples by bucket.
+	 */
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+	/**
+	 * Number of recorded samples.
+	 */
+	private final LongAdder count = new LongAdder();
+
+	/**
+	 * Sum of all recorded samples in nanoseconds.
+	 */
+	private final LongAdder totalNanos = new LongAdder();
+
+	/**
+	 * Largest recorded sample in nanoseconds.
+	 */
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	/**
+	 * Record one latency sample.
+	 * @param nanos elapsed time in nanoseconds, negative values (clocks of two hosts apart) are recorded as 0.
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		this.counts.incrementAndGet(indexOf(value));
+		this.count.increment();
+		this.totalNanos.add(value);
+		long max = this.maxNanos.get();
+		while (value > max && !this.maxNanos.compareAndSet(max, value)) {
+			max = this.maxNanos.get();
+		}
+	}
+
+	/**
+	 * Get number of recorded samples.
+	 * @return sample count.
+	 */
+	public long getCount() {
+		return this.count.sum();
+	}
+
+	/**
+	 * Get mean of the recorded samples.
+	 * @return mean latency in nanoseconds, 0 if nothing was recorded.
+	 */
+	public double getMeanNanos() {
+		long samples = this.count.sum();
+		return samples == 0 ? 0 : this.totalNanos.sum() / (double) samples;
+	}
+
+	/**
+	 * Get largest recorded sample.
+	 * @return max latency in nanoseconds.
+	 */
+	public long getMaxNanos() {
+		return this.maxNanos.get();
+	}
+
+	/**
+	 * Get the latency below or at which the given percentage of the samples are.
+	 * @param percentile percentage between 0 and 100.
+	 * @return latency in nanoseconds, rounded up to the end of its bucket but never above the max, 0 if nothing was recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = 0;
+		for (int index = 0; index < BUCKET_COUNT; index++) {
+			total += this.counts.get(index);
+		}
+		if (total == 0)
+			return 0;
+
+		long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * total));
+		long seen = 0;
+		for (int index = 0; index < BUCKET_COUNT; index++) {
+			seen += this.counts.get(index);
+			if (seen >= rank)
+				return Math.min(highestValueOf(index), this.maxNanos.get());
+		}
+		return this.maxNanos.get();
+	}
+
+	/**
+	 * Get bucket of a value.
+	 * @param value value, not negative.
+	 * @return index of the bucket.
+	 */
+	static int indexOf(long value) {
+		int shift = Math.max(0, Long.SIZE - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+		int subBucket = (int) (value >>> shift);
+		return shift == 0 ? subBucket : shift * SUB_BUCKET_HALF + subBucket;
+	}
+
+	/**
+	 * Get largest value of a bucket.
+	 * @param index index of the bucket.
+	 * @return largest value which falls into the bucket.
+	 */
+	static long highestValueOf(int index) {
+		if (index < 2 * SUB_BUCKET_HALF)
+			return index;
+		int shift = index / SUB_BUCKET_HALF - 1;
+		long subBucket = index - shift * SUB_BUCKET_HALF;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count: %d | mean: %.1f ms | p50: %.1f ms | p90: %.1f ms | p99: %.1f ms | p99.9: %.1f ms | max: %.1f ms",
+				this.getCount(), this.getMeanNanos() / 1e6, toMillis(this.getValueAtPercentile(50)), toMillis(this.getValueAtPercentile(90)),
+				toMillis(this.getValueAtPercentile(99)), toMillis(this.getValueAtPercentile(99.9)), toMillis(this.getMaxNanos()));
+	}
+
+	/**
+	 * Convert nanoseconds to fractional milliseconds.
+	 * @param nanos nanoseconds.
+	 * @return milliseconds.
+	 */
+	static double toMillis(long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+}
@@ -0,0 +1,70 @@
+package com.service.burn.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyStats class keeps a lock free running summary (count, mean and max) of recorded latencies.<br>
+ * It is cheap enough to be updated from every message on the hot path by any number of threads.
+ *
+ */
+public class LatencyStats {
+
+	/**
+	 * Number of recorded samples.
+	 */
+	private final LongAdder count = new LongAdder();
+
+	/**
+	 * Sum of all recorded samples in nanoseconds.
+	 */
+	private final LongAdder totalNanos = new LongAdder();
+
+	/**
+	 * Largest recorded sample in nanoseconds.
+	 */
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	/**
+	 * Record one latency sample.
+	 * @param nanos elapsed time in nanoseconds.
+	 */
+	public void record(long nanos) {
+		this.count.increment();
+		this.totalNanos.add(nanos);
+		long max = this.maxNanos.get();
+		while (nanos > max && !this.maxNanos.compareAndSet(max, nanos)) {
+			max = this.maxNanos.get();
+		}
+	}
+
+	/**
+	 * Get number of recorded samples.
+	 * @return sample count.
+	 */
+	public long getCount() {
+		return this.count.sum();
+	}
+
+	/**
+	 * Get mean of the recorded samples.
+	 * @return mean latency in microseconds, 0 if nothing was recorded.
+	 */
+	public double getMeanMicros() {
+		long samples = this.count.sum();
+		return samples == 0 ? 0 : this.totalNanos.sum() / (samples * 1000.0);
+	}
+
+	/**
+	 * Get largest recorded sample.
+	 * @return max latency in microseconds.
+	 */
+	public long getMaxMicros() {
+		return this.maxNanos.get() / 1000;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count: %d | mean: %.1f us | max: %d us", this.getCount(), this.getMeanMicros(), this.getMaxMicros());
+	}
+}
@@ -0,0 +1,184 @@
+package com.service.burn.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.service.burn.Utility;
+import com.service.burn.logging.EventLog;
+import com.service.burn.model.Product;
+import com.service.burn.model.ProductStage;
+
+/**
+ * <h2>PipelineMetrics class shows where the time of a burned product went.</h2>
+ * Every burned product which comes back is recorded from the timestamps it collected on its way (see ProductStage) into four histograms:<br>
+ * <b>queue wait:</b> enqueued until burn started, the time spent in the product queue and waiting for a batch in the oven.<br>
+ * <b>burn:</b> burn started until burn ended, including the temperature changeover of the slot.<br>
+ * <b>return trip:</b> burn ended until the product service received the product.<br>
+ * <b>end to end:</b> created until the product service received the product.<br>
+ * Intervals whose timestamps are missing (e.g. products of an older oven) are not recorded. The metrics are exposed through JMX
+ * (see register) and as a text report.
+ *
+ */
+public class PipelineMetrics implements PipelineMetricsMBean {
+
+	private static final EventLog LOG = Utility.getEventLog();
+
+	/**
+	 * Histograms, replaced as a whole on reset.
+	 */
+	private volatile Histograms histograms = new Histograms();
+
+	/**
+	 * Record the latencies of a burned product.
+	 * @param product burned product with its timestamps.
+	 */
+	public void record(Product product) {
+		Histograms current = this.histograms;
+		current.products.increment();
+		record(current.queueWait, product, ProductStage.ENQUEUED, ProductStage.BURN_STARTED);
+		record(current.burn, product, ProductStage.BURN_STARTED, ProductStage.BURN_ENDED);
+		record(current.returnTrip, product, ProductStage.BURN_ENDED, ProductStage.RESPONSE_RECEIVED);
+		record(current.endToEnd, product, ProductStage.CREATED, ProductStage.RESPONSE_RECEIVED);
+	}
+
+	private static void record(LatencyHistogram histogram, Product product, ProductStage from, ProductStage to) {
+		long start = product.getTimestamp(from);
+		long end = product.getTimestamp(to);
+		if (start != 0 && end != 0)
+			histogram.record(end - start);
+	}
+
+	/**
+	 * Register the metrics with the platform MBean server as com.service.burn:type=PipelineMetrics,name=&lt;name&gt;.<br>
+	 * A failed registration (e.g. the name is taken) is logged, the metrics keep working without JMX.
+	 * @param name name of the service whose metrics these are.
+	 * @return true if registered.
+	 */
+	public boolean register(String name) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.registerMBean(this, new ObjectName("com.service.burn:type=PipelineMetrics,name=" + ObjectName.quote(name)));
+			return true;
+		} catch (JMException e) {
+			LOG.error("Exception Occurred", e).with("name", name).log();
+			return false;
+		}
+	}
+
+	/**
+	 * Get histogram of the queue wait.
+	 * @return queue wait histogram.
+	 */
+	public LatencyHistogram getQueueWait() {
+		return this.histograms.queueWait;
+	}
+
+	/**
+	 * Get histogram of the burn time.
+	 * @return burn histogram.
+	 */
+	public LatencyHistogram getBurn() {
+		return this.histograms.burn;
+	}
+
+	/**
+	 * Get histogram of the return trip.
+	 * @return return trip histogram.
+	 */
+	public LatencyHistogram getReturnTrip() {
+		return this.histograms.returnTrip;
+	}
+
+	/**
+	 * Get histogram of the end to end time.
+	 * @return end to end histogram.
+	 */
+	public LatencyHistogram getEndToEnd() {
+		return this.histograms.endToEnd;
+	}
+
+	@Override
+	public long getProductCount() {
+		return this.histograms.products.sum();
+	}
+
+	@Override
+	public double getQueueWaitP50Millis() {
+		return LatencyHistogram.toMillis(this.getQueueWait().getValueAtPercentile(50));
+	}
+
+	@Override
+	public double getQueueWaitP99Millis() {
+		return LatencyHistogram.toMillis(this.getQueueWait().getValueAtPercentile(99));
+	}
+
+	@Override
+	public double getBurnP50Millis() {
+		return LatencyHistogram.toMillis(this.getBurn().getValueAtPercentile(50));
+	}
+
+	@Override
+	public double getBurnP99Millis() {
+		return LatencyHistogram.toMillis(this.getBurn().getValueAtPercentile(99));
+	}
+
+	@Override
+	public double getReturnTripP50Millis() {
+		return LatencyHistogram.toMillis(this.getReturnTrip().getValueAtPercentile(50));
+	}
+
+	@Override
+	public double getReturnTripP99Millis() {
+		return LatencyHistogram.toMillis(this.getReturnTrip().getValueAtPercentile(99));
+	}
+
+	@Override
+	public double getEndToEndP50Millis() {
+		return LatencyHistogram.toMillis(this.getEndToEnd().getValueAtPercentile(50));
+	}
+
+	@Override
+	public double getEndToEndP99Millis() {
+		return LatencyHistogram.toMillis(this.getEndToEnd().getValueAtPercentile(99));
+	}
+
+	@Override
+	public double getEndToEndMaxMillis() {
+		return LatencyHistogram.toMillis(this.getEndToEnd().getMaxNanos());
+	}
+
+	@Override
+	public String getReport() {
+		Histograms current = this.histograms;
+		return "Pipeline latency of " + current.products.sum() + " burned products" + System.lineSeparator()
+				+ "  queue wait  | " + current.queueWait + System.lineSeparator()
+				+ "  burn        | " + current.burn + System.lineSeparator()
+				+ "  return trip | " + current.returnTrip + System.lineSeparator()
+				+ "  end to end  | " + current.endToEnd;
+	}
+
+	@Override
+	public void reset() {
+		this.histograms = new Histograms();
+	}
+
+	@Override
+	public String toString() {
+		return this.getReport();
+	}
+
+	/**
+	 * Histograms recorded since the last reset.
+	 */
+	private static class Histograms {
+		private final LongAdder products = new LongAdder();
+		private final LatencyHistogram queueWait = new LatencyHistogram();
+		private final LatencyHistogram burn = new LatencyHistogram();
+		private final LatencyHistogram returnTrip = new LatencyHistogram();
+		private final LatencyHistogram endToEnd = new LatencyHistogram();
+	}
+}
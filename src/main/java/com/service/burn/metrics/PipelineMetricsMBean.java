@@ -0,0 +1,69 @@
+package com.service.burn.metrics;
+
+/**
+ * Management interface of PipelineMetrics, shown by JMX clients (e.g. jconsole) under com.service.burn:type=PipelineMetrics.<br>
+ * All latencies are in milliseconds.
+ *
+ */
+public interface PipelineMetricsMBean {
+
+	/**
+	 * @return number of burned products recorded.
+	 */
+	long getProductCount();
+
+	/**
+	 * @return median time from enqueued until the burn started (broker queue and batch wait in the oven).
+	 */
+	double getQueueWaitP50Millis();
+
+	/**
+	 * @return 99th percentile of the queue wait.
+	 */
+	double getQueueWaitP99Millis();
+
+	/**
+	 * @return median time from burn start until burn end, including the temperature changeover.
+	 */
+	double getBurnP50Millis();
+
+	/**
+	 * @return 99th percentile of the burn time.
+	 */
+	double getBurnP99Millis();
+
+	/**
+	 * @return median time from burn end until the product service received the product.
+	 */
+	double getReturnTripP50Millis();
+
+	/**
+	 * @return 99th percentile of the return trip.
+	 */
+	double getReturnTripP99Millis();
+
+	/**
+	 * @return median time from creation until the product service received the burned product.
+	 */
+	double getEndToEndP50Millis();
+
+	/**
+	 * @return 99th percentile of the end to end time.
+	 */
+	double getEndToEndP99Millis();
+
+	/**
+	 * @return maximum end to end time.
+	 */
+	double getEndToEndMaxMillis();
+
+	/**
+	 * @return text report of every latency, the same as printed by the product service.
+	 */
+	String getReport();
+
+	/**
+	 * Forget every recorded product.
+	 */
+	void reset();
+}
@@ -0,0 +1,82 @@
+package com.service.burn.model;
+
+import java.io.IOException;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * OvenParameterTypeAdapter class reads and writes an oven parameter as JSON without reflection.<br>
+ * The JSON layout is the same as the one Gson creates by reflection: {"temperature":230,"burningTime":10}
+ *
+ */
+public class OvenParameterTypeAdapter extends TypeAdapter<OvenParameter> {
+
+	@Override
+	public void write(JsonWriter out, OvenParameter parameter) throws IOException {
+		if (parameter == null) {
+			out.nullValue();
+			return;
+		}
+		out.beginObject();
+		out.name("temperature").value(parameter.getTemparature());
+		out.name("burningTime").value(parameter.getBurningTime());
+		out.endObject();
+	}
+
+	@Override
+	public OvenParameter read(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		int temperature = 0;
+		int burningTime = 0;
+		in.beginObject();
+		while (in.hasNext()) {
+			switch (in.nextName()) {
+			case "temperature":
+				temperature = readInt(in);
+				break;
+			case "burningTime":
+				burningTime = readInt(in);
+				break;
+			default:
+				in.skipValue(); // Ignore fields added by newer producers
+			}
+		}
+		in.endObject();
+		return new OvenParameter(temperature, burningTime);
+	}
+
+	/**
+	 * Read an int value, reporting a value which is not a number the same way Gson's reflective adapters do.
+	 * @param in JSON reader.
+	 * @return int value.
+	 * @throws IOException if the JSON can not be read.
+	 */
+	static int readInt(JsonReader in) throws IOException {
+		try {
+			return in.nextInt();
+		} catch (NumberFormatException ex) {
+			throw new JsonSyntaxException(ex);
+		}
+	}
+
+	/**
+	 * Read a long value, reporting a value which is not a number the same way Gson's reflective adapters do.
+	 * @param in JSON reader.
+	 * @return long value.
+	 * @throws IOException if the JSON can not be read.
+	 */
+	static long readLong(JsonReader in) throws IOException {
+		try {
+			return in.nextLong();
+		} catch (NumberFormatException ex) {
+			throw new JsonSyntaxException(ex);
+		}
+	}
+}
@@ -1,24 +1,32 @@
 package com.service.burn.model;
 
 import com.service.burn.Configuration;
+import com.service.burn.metrics.EpochNanoClock;
 
 /**
 * <h2>Product class represents a product which will be passed to oven for burning.</h2>
 * 
-* <h2>Product class has 3 properties-</h2>
-* <b>productId:</b> an auto incremented id starting from 1 unique for each product.</br>
+* <h2>Product class has 5 properties-</h2>
+* <b>productId:</b> a 64 bit id unique for each product across threads and processes (see ProductIdGenerator).</br>
 * <b>productName:</b> a name for the product.<br>
-* <b>ovenParameter:</b> couple of parameters which clarify the oven settings required to burn the product. (e.g. temperature, time).
+* <b>ovenParameter:</b> couple of parameters which clarify the oven settings required to burn the product. (e.g. temperature, time).<br>
+* <b>priority:</b> priority of the product when ovens dispatch by priority, higher is burned first (0 by default).<br>
+* <b>timestamps:</b> nanoseconds since 1970 at which the product passed each ProductStage (0 if not passed yet).
 * <br><br>
 * @author Ashfaqul Haque
 * 
 */
 public class Product {
 	
+	/**
+	 * Creates the ids of the products created by this process.
+	 */
+	private static final ProductIdGenerator ID_GENERATOR = new ProductIdGenerator(Configuration.PRODUCT_ID_NODE);
+	
 	/**
 	 * Id of the product.
 	 */
-	private int productId;
+	private long productId;
 	
 	/**
 	 * Name of the product.
@@ -35,23 +43,50 @@ public class Product {
 	 */
 	private String burnedBy;
 	
+	/**
+	 * Priority of the product, used when ovens dispatch by priority.
+	 */
+	private int priority;
+	
+	/**
+	 * Timestamps of the product by ProductStage ordinal, in nanoseconds since 1970 (see EpochNanoClock).
+	 */
+	private final long[] timestamps = new long[ProductStage.values().length];
+	
 	
 	/**
 	 * <h2>Constructor to initialize a product with given product name and oven parameter to burn the product.</h2><br>
-	 * Product id is auto incremented and will be set automatically.
+	 * Product id is generated and will be set automatically.
 	 * @param productName name of the product.
 	 * @param ovenParameter oven settings to burn the product.
 	 */
 	public Product(String productName, OvenParameter ovenParameter) {
 		this.productName = productName;
-		this.productId = ++Configuration.productIdCounter; //Increase counter by 1 to get unique auto incremented product id.
+		this.productId = ID_GENERATOR.nextId(); //Lock free, unique across threads and product service processes.
 		this.ovenParameter = ovenParameter;
+		this.stamp(ProductStage.CREATED);
+	}
+	
+	/**
+	 * <h2>Constructor to restore a product which was read from a message.</h2><br>
+	 * Product id is taken as given and no timestamp is set, so it also creates products which never leave the process
+	 * (e.g. in a simulation) without taking ids of the real products.
+	 * @param productId id of the product.
+	 * @param productName name of the product.
+	 * @param ovenParameter oven settings to burn the product.
+	 * @param burnedBy oven tag with which the product was burned, null if not burned yet.
+	 */
+	public Product(long productId, String productName, OvenParameter ovenParameter, String burnedBy) {
+		this.productId = productId;
+		this.productName = productName;
+		this.ovenParameter = ovenParameter;
+		this.burnedBy = burnedBy;
 	}
 	
 	/**
 	 * <h2>Constructor to initialize a product with given product name.</h2><br>
 	 * Oven settings will be default.<br>
-	 * Product Id is auto incremented and will be set automatically.
+	 * Product Id is generated and will be set automatically.
 	 * @param productName name of the product.
 	 */
 	public Product(String productName) {
@@ -62,7 +97,7 @@ public class Product {
 	 * <p>Get product id of current product.</p>
 	 * @return product id.
 	 */
-	public int getProductId() {
+	public long getProductId() {
 		return this.productId;
 	}
 	
@@ -98,6 +133,48 @@ public class Product {
 		return this.burnedBy;
 	}
 	
+	/**
+	 * <p>Get priority of the product.</p>
+	 * @return priority, higher is burned first.
+	 */
+	public int getPriority() {
+		return this.priority;
+	}
+	
+	/**
+	 * <p>Set priority of the product.</p>
+	 * @param priority priority between 0 and 9, higher is burned first.
+	 */
+	public void setPriority(int priority) {
+		this.priority = priority;
+	}
+	
+	/**
+	 * <p>Get time at which the product passed a stage.</p>
+	 * @param stage stage of the burn pipeline.
+	 * @return nanoseconds since 1970, 0 if the product did not pass the stage.
+	 */
+	public long getTimestamp(ProductStage stage) {
+		return this.timestamps[stage.ordinal()];
+	}
+	
+	/**
+	 * <p>Set time at which the product passed a stage.</p>
+	 * @param stage stage of the burn pipeline.
+	 * @param epochNanos nanoseconds since 1970.
+	 */
+	public void setTimestamp(ProductStage stage, long epochNanos) {
+		this.timestamps[stage.ordinal()] = epochNanos;
+	}
+	
+	/**
+	 * <p>Record that the product passes a stage now.</p>
+	 * @param stage stage of the burn pipeline.
+	 */
+	public void stamp(ProductStage stage) {
+		this.setTimestamp(stage, EpochNanoClock.now());
+	}
+	
 	@Override
 	public String toString() {
 		return "Product ID: " + this.productId + " |  Name: " + this.productName;
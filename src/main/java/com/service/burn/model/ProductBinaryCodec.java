@@ -0,0 +1,154 @@
+package com.service.burn.model;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <h2>ProductBinaryCodec class reads and writes a product in a compact binary layout.</h2>
+ * All numbers are fixed width big endian and strings are UTF-8 prefixed by their byte length as an int (-1 for null):<br>
+ * <b>version</b> (1 byte) | <b>productId</b> (long) | <b>productName</b> (string) |
+ * <b>hasOvenParameter</b> (1 byte) | <b>temperature</b> (int) | <b>burningTime</b> (int) | <b>burnedBy</b> (string) | <b>priority</b> (1 byte) |
+ * <b>stages</b> (1 byte, bit n set if the product passed the ProductStage with ordinal n) | <b>timestamp</b> (long) of every stage set<br>
+ * Older versions are still read: version 3 has no timestamps, version 2 in addition has an int productId
+ * and version 1 in addition has no priority byte (read as priority 0).<br>
+ * Field names are not repeated in every message, so a product takes roughly half the bytes of its JSON form.
+ *
+ */
+public class ProductBinaryCodec {
+
+	/**
+	 * Version of the layout, written as the first byte so the layout can evolve.
+	 */
+	public static final byte VERSION = 4;
+
+	/**
+	 * Version of the layout without timestamps, still read.
+	 */
+	private static final byte VERSION_WITHOUT_TIMESTAMPS = 3;
+
+	/**
+	 * Version of the layout with an int product id, still read.
+	 */
+	private static final byte VERSION_WITH_INT_ID = 2;
+
+	/**
+	 * Version of the layout with an int product id and without priority, still read.
+	 */
+	private static final byte VERSION_WITHOUT_PRIORITY = 1;
+
+	/**
+	 * Length written for a null string.
+	 */
+	private static final int NULL_LENGTH = -1;
+
+	/**
+	 * Stages of the burn pipeline, cached since values() copies the array on every call.
+	 */
+	private static final ProductStage[] STAGES = ProductStage.values();
+
+	/**
+	 * Converts given product into bytes.
+	 * @param product which will be converted
+	 * @return encoded product
+	 */
+	public static byte[] encode(Product product) {
+		byte[] name = toBytes(product.getProductName());
+		byte[] burnedBy = toBytes(product.getBurnedBy());
+		OvenParameter parameter = product.getOvenParameter();
+		int stages = 0;
+		for (ProductStage stage : STAGES) {
+			if (product.getTimestamp(stage) != 0)
+				stages |= 1 << stage.ordinal();
+		}
+		int size = 1 + 8 + sizeOf(name) + 1 + (parameter == null ? 0 : 8) + sizeOf(burnedBy) + 1 + 1 + 8 * Integer.bitCount(stages);
+
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		buffer.put(VERSION);
+		buffer.putLong(product.getProductId());
+		putString(buffer, name);
+		buffer.put((byte) (parameter == null ? 0 : 1));
+		if (parameter != null) {
+			buffer.putInt(parameter.getTemparature());
+			buffer.putInt(parameter.getBurningTime());
+		}
+		putString(buffer, burnedBy);
+		buffer.put((byte) product.getPriority());
+		buffer.put((byte) stages);
+		for (ProductStage stage : STAGES) {
+			if ((stages & (1 << stage.ordinal())) != 0)
+				buffer.putLong(product.getTimestamp(stage));
+		}
+		return buffer.array();
+	}
+
+	/**
+	 * Converts given bytes into product object.
+	 * @param bytes encoded product
+	 * @return product
+	 * @throws IllegalArgumentException if the bytes are not a valid encoded product
+	 */
+	public static Product decode(byte[] bytes) {
+		try {
+			ByteBuffer buffer = ByteBuffer.wrap(bytes);
+			byte version = buffer.get();
+			if (version < VERSION_WITHOUT_PRIORITY || version > VERSION)
+				throw new IllegalArgumentException("Unsupported binary product version " + version);
+
+			long productId = version <= VERSION_WITH_INT_ID ? buffer.getInt() : buffer.getLong();
+			String productName = getString(buffer);
+			OvenParameter parameter = null;
+			if (buffer.get() != 0)
+				parameter = new OvenParameter(buffer.getInt(), buffer.getInt());
+			String burnedBy = getString(buffer);
+			Product product = new Product(productId, productName, parameter, burnedBy);
+			if (version != VERSION_WITHOUT_PRIORITY)
+				product.setPriority(buffer.get());
+			if (version > VERSION_WITHOUT_TIMESTAMPS)
+				getTimestamps(buffer, product);
+			return product;
+		} catch (BufferUnderflowException ex) {
+			throw new IllegalArgumentException("Binary product is truncated", ex);
+		}
+	}
+
+	private static void getTimestamps(ByteBuffer buffer, Product product) {
+		int stages = buffer.get() & 0xFF;
+		for (int ordinal = 0; ordinal < Byte.SIZE; ordinal++) {
+			if ((stages & (1 << ordinal)) == 0)
+				continue;
+			long timestamp = buffer.getLong();
+			if (ordinal < STAGES.length) // Stages added by newer services are skipped
+				product.setTimestamp(STAGES[ordinal], timestamp);
+		}
+	}
+
+	private static byte[] toBytes(String value) {
+		return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static int sizeOf(byte[] value) {
+		return 4 + (value == null ? 0 : value.length);
+	}
+
+	private static void putString(ByteBuffer buffer, byte[] value) {
+		if (value == null) {
+			buffer.putInt(NULL_LENGTH);
+			return;
+		}
+		buffer.putInt(value.length);
+		buffer.put(value);
+	}
+
+	private static String getString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length == NULL_LENGTH)
+			return null;
+		if (length < 0 || length > buffer.remaining())
+			throw new IllegalArgumentException("Invalid string length " + length);
+
+		String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+		buffer.position(buffer.position() + length);
+		return value;
+	}
+}
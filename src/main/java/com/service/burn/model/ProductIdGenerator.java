@@ -0,0 +1,118 @@
+package com.service.burn.model;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * <h2>ProductIdGenerator class creates 64 bit product ids which are unique across threads, processes and restarts.</h2>
+ * An id is laid out like a Snowflake id:<br>
+ * <b>timestamp</b> (41 bits, milliseconds since 2020-01-01) | <b>node</b> (10 bits) | <b>sequence</b> (12 bits)<br>
+ * Every product service process needs its own node (0 to 1023). Within a node the timestamp and sequence are taken from one
+ * AtomicLong with a compare and set, so any number of threads can create ids without a lock.<br>
+ * If more than 4096 ids are needed in one millisecond, or the clock goes back, the generator borrows the next milliseconds
+ * instead of waiting, so ids stay unique and increasing. Ids are only handed out ahead of the clock for as long as the burst lasts.
+ *
+ */
+public class ProductIdGenerator {
+
+	/**
+	 * Start of the timestamp, 2020-01-01T00:00:00Z in milliseconds since 1970.
+	 */
+	public static final long EPOCH_MILLIS = 1577836800000L;
+
+	/**
+	 * Highest node number.
+	 */
+	public static final int MAX_NODE = (1 << 10) - 1;
+
+	private static final int SEQUENCE_BITS = 12;
+	private static final int NODE_BITS = 10;
+	private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+	/**
+	 * Node bits of every id, already shifted into place.
+	 */
+	private final long nodeBits;
+
+	/**
+	 * Source of the current time in milliseconds since 1970.
+	 */
+	private final LongSupplier clock;
+
+	/**
+	 * Timestamp and sequence of the last id: (milliseconds since EPOCH_MILLIS) &lt;&lt; 12 | sequence.
+	 */
+	private final AtomicLong last = new AtomicLong();
+
+	/**
+	 * <p>Constructor to initialize a generator for the given node.</p>
+	 * @param node number of the node, unique for every process creating products (0 to 1023).
+	 */
+	public ProductIdGenerator(int node) {
+		this(node, System::currentTimeMillis);
+	}
+
+	/**
+	 * <p>Constructor to initialize a generator with its own clock, used by tests.</p>
+	 * @param node number of the node.
+	 * @param clock current time in milliseconds since 1970.
+	 */
+	ProductIdGenerator(int node, LongSupplier clock) {
+		if (node < 0 || node > MAX_NODE)
+			throw new IllegalArgumentException("Node must be between 0 and " + MAX_NODE + " but was " + node);
+
+		this.nodeBits = (long) node << SEQUENCE_BITS;
+		this.clock = clock;
+	}
+
+	/**
+	 * Create the next id.
+	 * @return id, greater than every id created before by this generator.
+	 */
+	public long nextId() {
+		long now = (this.clock.getAsLong() - EPOCH_MILLIS) << SEQUENCE_BITS;
+		long next;
+		while (true) {
+			long previous = this.last.get();
+			if (previous >= now) { // Same millisecond (or clock behind): an increment never fails, a full sequence overflows into the next millisecond
+				next = this.last.incrementAndGet();
+				break;
+			}
+			if (this.last.compareAndSet(previous, now)) { // First id of a new millisecond
+				next = now;
+				break;
+			}
+		}
+		return ((next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)) | this.nodeBits | (next & SEQUENCE_MASK);
+	}
+
+	/**
+	 * Get the node which created an id.
+	 * @param id product id.
+	 * @return node number.
+	 */
+	public static int getNode(long id) {
+		return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE);
+	}
+
+	/**
+	 * Get the time at which an id was created.
+	 * @param id product id.
+	 * @return milliseconds since 1970.
+	 */
+	public static long getTimestampMillis(long id) {
+		return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+	}
+
+	/**
+	 * Get a node number for this process when none is configured.<br>
+	 * The number is derived from the host name and process id, two processes may get the same number by chance (1 in 1024).
+	 * Configure a node per process where uniqueness has to be guaranteed.
+	 * @return node number between 0 and MAX_NODE.
+	 */
+	public static int getDefaultNode() {
+		String name = ManagementFactory.getRuntimeMXBean().getName(); // pid@host
+		return (name.hashCode() & Integer.MAX_VALUE) % (MAX_NODE + 1);
+	}
+}
@@ -0,0 +1,40 @@
+package com.service.burn.model;
+
+/**
+ * <h2>ProductStage enum names the points of the burn pipeline at which a product is timestamped.</h2>
+ * The timestamps travel with the product from the product service to the oven and back (see Product.getTimestamp).
+ * They are written in the order of this enum, so new stages must be added at the end.
+ *
+ */
+public enum ProductStage {
+
+	/**
+	 * Product was created by the product service.
+	 */
+	CREATED,
+
+	/**
+	 * Product was handed to the transport for the product queue.
+	 */
+	ENQUEUED,
+
+	/**
+	 * Product was delivered to an oven.
+	 */
+	OVEN_RECEIVED,
+
+	/**
+	 * Batch of the product was started in a slot, including the temperature changeover.
+	 */
+	BURN_STARTED,
+
+	/**
+	 * Batch of the product was burned.
+	 */
+	BURN_ENDED,
+
+	/**
+	 * Burned product came back to the product service.
+	 */
+	RESPONSE_RECEIVED
+}
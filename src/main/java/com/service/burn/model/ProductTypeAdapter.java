@@ -0,0 +1,143 @@
+package com.service.burn.model;
+
+import java.io.IOException;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * ProductTypeAdapter class reads and writes a product as JSON without reflection.<br>
+ * The JSON layout is the same as the one Gson creates by reflection, so products written by older services can still be read.
+ *
+ */
+public class ProductTypeAdapter extends TypeAdapter<Product> {
+
+	/**
+	 * Adapter used for the oven parameter of the product.
+	 */
+	private final OvenParameterTypeAdapter ovenParameterAdapter = new OvenParameterTypeAdapter();
+
+	/**
+	 * Stages of the burn pipeline, cached since values() copies the array on every call.
+	 */
+	private static final ProductStage[] STAGES = ProductStage.values();
+
+	@Override
+	public void write(JsonWriter out, Product product) throws IOException {
+		if (product == null) {
+			out.nullValue();
+			return;
+		}
+		out.beginObject();
+		out.name("productId").value(product.getProductId());
+		out.name("productName").value(product.getProductName());
+		out.name("ovenParameter");
+		this.ovenParameterAdapter.write(out, product.getOvenParameter());
+		out.name("burnedBy").value(product.getBurnedBy());
+		out.name("priority").value(product.getPriority());
+		out.name("timestamps");
+		writeTimestamps(out, product);
+		out.endObject();
+	}
+
+	@Override
+	public Product read(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		long productId = 0;
+		String productName = null;
+		OvenParameter ovenParameter = null;
+		String burnedBy = null;
+		int priority = 0;
+		long[] timestamps = null;
+		in.beginObject();
+		while (in.hasNext()) {
+			switch (in.nextName()) {
+			case "productId":
+				productId = OvenParameterTypeAdapter.readLong(in);
+				break;
+			case "productName":
+				productName = readNullableString(in);
+				break;
+			case "ovenParameter":
+				ovenParameter = this.ovenParameterAdapter.read(in);
+				break;
+			case "burnedBy":
+				burnedBy = readNullableString(in);
+				break;
+			case "priority":
+				priority = OvenParameterTypeAdapter.readInt(in);
+				break;
+			case "timestamps":
+				timestamps = readTimestamps(in);
+				break;
+			default:
+				in.skipValue(); // Ignore fields added by newer producers
+			}
+		}
+		in.endObject();
+		Product product = new Product(productId, productName, ovenParameter, burnedBy);
+		product.setPriority(priority);
+		if (timestamps != null) {
+			for (ProductStage stage : STAGES) {
+				product.setTimestamp(stage, timestamps[stage.ordinal()]);
+			}
+		}
+		return product;
+	}
+
+	/**
+	 * Write the timestamps as an array indexed by ProductStage ordinal, the way Gson writes the long array by reflection.
+	 * @param out JSON writer.
+	 * @param product product whose timestamps are written.
+	 * @throws IOException if the JSON can not be written.
+	 */
+	private static void writeTimestamps(JsonWriter out, Product product) throws IOException {
+		out.beginArray();
+		for (ProductStage stage : STAGES) {
+			out.value(product.getTimestamp(stage));
+		}
+		out.endArray();
+	}
+
+	/**
+	 * Read the timestamps written by writeTimestamps, stages added by newer services are skipped.
+	 * @param in JSON reader.
+	 * @return timestamps by ProductStage ordinal, null if the value is null.
+	 * @throws IOException if the JSON can not be read.
+	 */
+	private static long[] readTimestamps(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		long[] timestamps = new long[STAGES.length];
+		in.beginArray();
+		for (int ordinal = 0; in.hasNext(); ordinal++) {
+			if (ordinal < timestamps.length)
+				timestamps[ordinal] = OvenParameterTypeAdapter.readLong(in);
+			else
+				in.skipValue();
+		}
+		in.endArray();
+		return timestamps;
+	}
+
+	/**
+	 * Read a string value which may be null.
+	 * @param in JSON reader.
+	 * @return string or null.
+	 * @throws IOException if the JSON can not be read.
+	 */
+	private static String readNullableString(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		return in.nextString();
+	}
+}
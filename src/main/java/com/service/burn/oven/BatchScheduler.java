@@ -0,0 +1,456 @@
+package com.service.burn.oven;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToLongFunction;
+
+import com.service.burn.model.OvenParameter;
+import com.service.burn.model.Product;
+
+/**
+ * <h2>BatchScheduler class groups waiting products into batches which can be burned together.</h2>
+ * Products are grouped by temperature band (e.g. 200-224, 225-249 for a band width of 25).
+ * A batch holds products of one band only, up to the capacity of a burn slot.<br>
+ * A band is ready to be burned when it has enough products to fill a slot, or when its oldest product has waited
+ * longer than the linger time, so a rare temperature is never stuck waiting for company.<br>
+ * Inside a band products are kept in the order of the dispatch policy (first in first out, shortest job first or priority).
+ * A waiting product gains one priority level per aging interval, so it is eventually burned even if products with a higher
+ * priority keep arriving. Since every product ages at the same rate, the order of two products never changes while they wait.
+ * Without an aging interval priorities are strict.<br>
+ * When a slot asks for a batch the dispatch policy comes first: only ready bands whose next product is less than one priority
+ * level (after aging) below the best next product are candidates. Among them the slot gets the band it burns fastest, counting
+ * the time it needs to heat up or cool down to the temperature of the band, so the oven does not swing between hot and cold batches.
+ * A band passed over for its temperature ages until it is the best one, and a band which has waited longer than the maximum
+ * wait is taken first regardless of anything else.<br>
+ * Times are passed in by the caller (System.nanoTime() in an oven, virtual time in a simulation).<br>
+ * The scheduler is thread safe.
+ *
+ * @param <T> type of the attachment kept with every product (e.g. the delivery to acknowledge).
+ */
+public class BatchScheduler<T> {
+
+	/**
+	 * Width of a temperature band in degrees.
+	 */
+	private final int bandWidth;
+
+	/**
+	 * Maximum number of products in a batch, can be changed while products wait.
+	 */
+	private int capacity;
+
+	/**
+	 * Longest time a product waits for other products of its band, can be changed while products wait.
+	 */
+	private long lingerNanos;
+
+	/**
+	 * Longest time a product is passed over in favour of bands closer to the slot temperature.
+	 */
+	private final long maxWaitNanos;
+
+	/**
+	 * Policy which gives the priority of a product.
+	 */
+	private final DispatchPolicy dispatchPolicy;
+
+	/**
+	 * Waiting time after which a product gains one priority level.
+	 */
+	private final long agingNanos;
+
+	/**
+	 * Waiting products by band.
+	 */
+	private final Map<Integer, Band<T>> bands = new TreeMap<>();
+
+	/**
+	 * Number of waiting products.
+	 */
+	private int pendingCount;
+
+	/**
+	 * Number of products added so far, keeps products of equal rank in arrival order.
+	 */
+	private long addedCount;
+
+	/**
+	 * <p>Constructor to initialize a scheduler.</p>
+	 * @param bandWidth width of a temperature band in degrees.
+	 * @param capacity maximum number of products in a batch.
+	 * @param lingerMillis longest time a product waits for other products of its band.
+	 * @param maxWaitMillis longest time a product is passed over in favour of bands closer to the slot temperature.
+	 */
+	public BatchScheduler(int bandWidth, int capacity, long lingerMillis, long maxWaitMillis) {
+		this(bandWidth, capacity, lingerMillis, maxWaitMillis, DispatchPolicy.FIFO, 0);
+	}
+
+	/**
+	 * <p>Constructor to initialize a scheduler with a dispatch policy.</p>
+	 * @param bandWidth width of a temperature band in degrees.
+	 * @param capacity maximum number of products in a batch.
+	 * @param lingerMillis longest time a product waits for other products of its band.
+	 * @param maxWaitMillis longest time a product is passed over in favour of bands closer to the slot temperature.
+	 * @param dispatchPolicy policy which gives the priority of a product.
+	 * @param agingMillis waiting time after which a product gains one priority level.
+	 */
+	public BatchScheduler(int bandWidth, int capacity, long lingerMillis, long maxWaitMillis, DispatchPolicy dispatchPolicy, long agingMillis) {
+		if (bandWidth < 1 || capacity < 1)
+			throw new IllegalArgumentException("Band width and capacity must be at least 1");
+
+		this.bandWidth = bandWidth;
+		this.capacity = capacity;
+		this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+		this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+		this.dispatchPolicy = dispatchPolicy;
+		this.agingNanos = TimeUnit.MILLISECONDS.toNanos(agingMillis);
+	}
+
+	/**
+	 * Add a product which waits to be burned.
+	 * @param product product to burn.
+	 * @param attachment attachment returned with the product in its batch.
+	 * @param now current time in nanoseconds.
+	 */
+	public synchronized void add(Product product, T attachment, long now) {
+		int band = product.getOvenParameter().getTemparature() / this.bandWidth;
+		int priority = this.dispatchPolicy.getPriority(product);
+		long rank = this.agingNanos == 0 ? -priority : now - priority * this.agingNanos; // A level higher is worth one aging interval of waiting
+		this.bands.computeIfAbsent(band, key -> new Band<>())
+			.add(new Entry<>(product, attachment, now, priority, rank, this.addedCount++));
+		this.pendingCount++;
+	}
+
+	/**
+	 * Take the next batch which is ready to be burned, without a temperature preference.<br>
+	 * A band which waited longer than the maximum wait comes first. Among the bands whose next product is within one priority level
+	 * of the best, a full band comes before a band whose linger time is over, then the band whose next product ranks first.
+	 * @param now current time in nanoseconds.
+	 * @return batch, or null if no band is ready.
+	 */
+	public Batch<T> nextBatch(long now) {
+		return this.chooseBatch(now, null);
+	}
+
+	/**
+	 * Take the next batch which is ready to be burned in a slot which needs the given time to change to another temperature.<br>
+	 * A band which waited longer than the maximum wait comes first. Among the bands whose next product is within one priority level
+	 * of the best, the band which burns the most products per second is taken, counting the changeover time of the slot and the
+	 * longest burning time of the batch. Ties are broken as in {@link #nextBatch(long)}.
+	 * @param now current time in nanoseconds.
+	 * @param changeoverMillis time in milliseconds the slot needs to change to a given temperature.
+	 * @return batch, or null if no band is ready.
+	 */
+	public Batch<T> nextBatch(long now, IntToLongFunction changeoverMillis) {
+		return this.chooseBatch(now, changeoverMillis);
+	}
+
+	/**
+	 * Get time until the next band becomes ready because of its linger time.
+	 * @param now current time in nanoseconds.
+	 * @return nanoseconds until the oldest waiting product reaches its linger time (0 if already reached), -1 if nothing is waiting.
+	 */
+	public synchronized long getNanosUntilNextDeadline(long now) {
+		long oldest = Long.MAX_VALUE;
+		for (Band<T> band : this.bands.values()) {
+			oldest = Math.min(oldest, band.getOldestArrival());
+		}
+		return oldest == Long.MAX_VALUE ? -1 : Math.max(0, oldest + this.lingerNanos - now);
+	}
+
+	/**
+	 * Change the batch capacity and linger time, e.g. when the configuration is reloaded.<br>
+	 * Waiting products keep their place, the next batch is chosen with the new values.
+	 * @param capacity maximum number of products in a batch.
+	 * @param lingerMillis longest time a product waits for other products of its band.
+	 */
+	public synchronized void setBatchLimits(int capacity, long lingerMillis) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity must be at least 1");
+
+		this.capacity = capacity;
+		this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+	}
+
+	/**
+	 * Get number of products waiting to be burned.
+	 * @return pending product count.
+	 */
+	public synchronized int getPendingCount() {
+		return this.pendingCount;
+	}
+
+	/**
+	 * Remove every waiting product, e.g. to give them back when the oven stops.
+	 * @return attachments of the removed products, in no particular order.
+	 */
+	public synchronized List<T> removeAll() {
+		List<T> attachments = new ArrayList<>(this.pendingCount);
+		for (Band<T> band : this.bands.values()) {
+			for (Entry<T> entry : band.byRank) {
+				attachments.add(entry.attachment);
+			}
+		}
+		this.bands.clear();
+		this.pendingCount = 0;
+		return attachments;
+	}
+
+	/**
+	 * Take the best ready band, see {@link #nextBatch(long)} and {@link #nextBatch(long, IntToLongFunction)}.
+	 * @param now current time in nanoseconds.
+	 * @param changeoverMillis changeover time of the slot, null to ignore temperatures.
+	 * @return batch, or null if no band is ready.
+	 */
+	private synchronized Batch<T> chooseBatch(long now, IntToLongFunction changeoverMillis) {
+		Band<T> overdue = null;
+		double bestLevel = Double.NEGATIVE_INFINITY;
+		for (Band<T> band : this.bands.values()) {
+			if (!this.isReady(band, now))
+				continue;
+
+			long arrivedAt = band.getOldestArrival();
+			if (now - arrivedAt >= this.maxWaitNanos && (overdue == null || arrivedAt < overdue.getOldestArrival()))
+				overdue = band;
+			bestLevel = Math.max(bestLevel, this.getLevel(band.byRank.first(), now));
+		}
+		if (overdue != null)
+			return this.take(overdue);
+
+		Band<T> chosen = null;
+		double chosenRate = 0;
+		for (Band<T> band : this.bands.values()) {
+			if (!this.isReady(band, now) || this.getLevel(band.byRank.first(), now) <= bestLevel - 1)
+				continue;
+
+			double rate = changeoverMillis == null ? 0 : this.getProductsPerSecond(band, changeoverMillis);
+			if (chosen == null || this.compare(band, rate, chosen, chosenRate) < 0) {
+				chosen = band;
+				chosenRate = rate;
+			}
+		}
+		return chosen == null ? null : this.take(chosen);
+	}
+
+	/**
+	 * Check whether a band can be burned now.
+	 * @param band waiting products of the band.
+	 * @param now current time in nanoseconds.
+	 * @return true if the band is full or its oldest product waited for the linger time.
+	 */
+	private boolean isReady(Band<T> band, long now) {
+		return band.size() >= this.capacity || now - band.getOldestArrival() >= this.lingerNanos;
+	}
+
+	/**
+	 * Get priority level of a waiting product including the levels it gained by waiting.
+	 * @param entry waiting product.
+	 * @param now current time in nanoseconds.
+	 * @return priority plus one level per aging interval waited.
+	 */
+	private double getLevel(Entry<T> entry, long now) {
+		return this.agingNanos == 0 ? entry.priority : entry.priority + (double) (now - entry.arrivedAt) / this.agingNanos;
+	}
+
+	/**
+	 * Get number of products per second the next batch of a band would burn in a slot.
+	 * @param band waiting products of the band.
+	 * @param changeoverMillis changeover time of the slot.
+	 * @return products per second.
+	 */
+	private double getProductsPerSecond(Band<T> band, IntToLongFunction changeoverMillis) {
+		int size = Math.min(band.size(), this.capacity);
+		OvenParameter parameter = Batch.getOvenParameter(band.byRank.iterator(), size);
+		long millis = changeoverMillis.applyAsLong(parameter.getTemparature()) + TimeUnit.SECONDS.toMillis(parameter.getBurningTime());
+		return millis <= 0 ? Double.MAX_VALUE : size * 1000.0 / millis;
+	}
+
+	/**
+	 * Compare two ready bands whose next products are within one priority level.
+	 * @param first first band.
+	 * @param firstRate products per second of the first band.
+	 * @param second second band.
+	 * @param secondRate products per second of the second band.
+	 * @return negative if the first band should be burned before the second.
+	 */
+	private int compare(Band<T> first, double firstRate, Band<T> second, double secondRate) {
+		if (firstRate != secondRate)
+			return firstRate > secondRate ? -1 : 1;
+		boolean firstFull = first.size() >= this.capacity;
+		boolean secondFull = second.size() >= this.capacity;
+		if (firstFull != secondFull)
+			return firstFull ? -1 : 1;
+		return Entry.ORDER.compare(first.byRank.first(), second.byRank.first());
+	}
+
+	/**
+	 * Take up to one batch of products from the given band.
+	 * @param band band to take from.
+	 * @return batch.
+	 */
+	private Batch<T> take(Band<T> band) {
+		List<Entry<T>> entries = new ArrayList<>(Math.min(band.size(), this.capacity));
+		while (entries.size() < this.capacity && band.size() > 0) {
+			entries.add(band.poll());
+		}
+		this.pendingCount -= entries.size();
+		if (band.size() == 0)
+			this.bands.values().remove(band);
+		return new Batch<>(entries);
+	}
+
+	/**
+	 * Waiting products of one band, kept both in dispatch order and in arrival order.
+	 */
+	private static class Band<T> {
+
+		/**
+		 * Dispatch order, the next product to burn first.
+		 */
+		private final TreeSet<Entry<T>> byRank = new TreeSet<>(Entry.ORDER);
+
+		/**
+		 * Arrival order, the product which waits for the longest time first.
+		 */
+		private final TreeSet<Entry<T>> byArrival = new TreeSet<>(Entry.ARRIVAL_ORDER);
+
+		private void add(Entry<T> entry) {
+			this.byRank.add(entry);
+			this.byArrival.add(entry);
+		}
+
+		private Entry<T> poll() {
+			Entry<T> entry = this.byRank.pollFirst();
+			this.byArrival.remove(entry);
+			return entry;
+		}
+
+		private int size() {
+			return this.byRank.size();
+		}
+
+		private long getOldestArrival() {
+			return this.byArrival.first().arrivedAt;
+		}
+	}
+
+	/**
+	 * A waiting product.
+	 */
+	private static class Entry<T> {
+
+		/**
+		 * Dispatch order: lowest rank first, then arrival order.
+		 */
+		private static final Comparator<Entry<?>> ORDER = Comparator.<Entry<?>>comparingLong(entry -> entry.rank)
+				.thenComparingLong(entry -> entry.sequence);
+
+		/**
+		 * Arrival order: earliest arrival first, then the order of adding.
+		 */
+		private static final Comparator<Entry<?>> ARRIVAL_ORDER = Comparator.<Entry<?>>comparingLong(entry -> entry.arrivedAt)
+				.thenComparingLong(entry -> entry.sequence);
+
+		private final Product product;
+		private final T attachment;
+		private final long arrivedAt;
+		private final int priority;
+
+		/**
+		 * Arrival time moved back by one aging interval per priority level, the negated priority without aging.
+		 */
+		private final long rank;
+		private final long sequence;
+
+		private Entry(Product product, T attachment, long arrivedAt, int priority, long rank, long sequence) {
+			this.product = product;
+			this.attachment = attachment;
+			this.arrivedAt = arrivedAt;
+			this.priority = priority;
+			this.rank = rank;
+			this.sequence = sequence;
+		}
+	}
+
+	/**
+	 * <h2>Batch class is a group of products burned together in one slot.</h2>
+	 * The batch burns at the average temperature of its products for the longest burning time among them.
+	 *
+	 * @param <T> type of the attachments.
+	 */
+	public static class Batch<T> {
+
+		private final List<Product> products;
+		private final List<T> attachments;
+		private final OvenParameter ovenParameter;
+
+		private Batch(List<Entry<T>> entries) {
+			List<Product> batchProducts = new ArrayList<>(entries.size());
+			List<T> batchAttachments = new ArrayList<>(entries.size());
+			for (Entry<T> entry : entries) {
+				batchProducts.add(entry.product);
+				batchAttachments.add(entry.attachment);
+			}
+			this.products = Collections.unmodifiableList(batchProducts);
+			this.attachments = Collections.unmodifiableList(batchAttachments);
+			this.ovenParameter = getOvenParameter(entries.iterator(), entries.size());
+		}
+
+		/**
+		 * Get oven settings to burn the given products together.
+		 * @param entries waiting products.
+		 * @param count number of products to take from the entries, at least 1.
+		 * @return average temperature and longest burning time of the products.
+		 */
+		private static OvenParameter getOvenParameter(Iterator<? extends Entry<?>> entries, int count) {
+			long temperatureSum = 0;
+			int burningTime = 0;
+			for (int i = 0; i < count; i++) {
+				Entry<?> entry = entries.next();
+				OvenParameter parameter = entry.product.getOvenParameter();
+				temperatureSum += parameter.getTemparature();
+				burningTime = Math.max(burningTime, parameter.getBurningTime());
+			}
+			return new OvenParameter((int) Math.round((double) temperatureSum / count), burningTime);
+		}
+
+		/**
+		 * Get products of the batch, in dispatch order.
+		 * @return products.
+		 */
+		public List<Product> getProducts() {
+			return this.products;
+		}
+
+		/**
+		 * Get attachments of the products, in the same order as the products.
+		 * @return attachments.
+		 */
+		public List<T> getAttachments() {
+			return this.attachments;
+		}
+
+		/**
+		 * Get oven settings to burn the whole batch.
+		 * @return average temperature and longest burning time of the products.
+		 */
+		public OvenParameter getOvenParameter() {
+			return this.ovenParameter;
+		}
+
+		/**
+		 * Get number of products in the batch.
+		 * @return batch size.
+		 */
+		public int size() {
+			return this.products.size();
+		}
+	}
+}
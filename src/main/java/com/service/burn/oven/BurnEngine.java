@@ -0,0 +1,217 @@
+package com.service.burn.oven;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <h2>BurnEngine class runs burns on timers instead of sleeping threads.</h2>
+ * A burn registers a completion call back which is fired once the burning time has passed.<br>
+ * No thread is held while a product is burning, so a handful of timer threads can track any number of in-flight burns.<br>
+ * Completion call backs run on the given completion executor, so a slow acknowledgement or publish never delays other timers.
+ *
+ */
+public class BurnEngine {
+
+	/**
+	 * Timers of the in-flight burns.
+	 */
+	private final ScheduledThreadPoolExecutor timer;
+
+	/**
+	 * Executor running the completion call backs.
+	 */
+	private final Executor completionExecutor;
+
+	/**
+	 * Number of burns which are scheduled and whose completion call back has not finished yet.
+	 */
+	private int inFlight;
+
+	/**
+	 * Guards inFlight and wakes up threads waiting for the engine to drain.
+	 */
+	private final Object drainLock = new Object();
+
+	/**
+	 * <p>Constructor to initialize a burn engine.</p>
+	 * @param timerThreads number of threads firing the timers.
+	 * @param completionExecutor executor which runs the completion call backs.
+	 */
+	public BurnEngine(int timerThreads, Executor completionExecutor) {
+		this.timer = new ScheduledThreadPoolExecutor(timerThreads, BurnExecutors.newThreadFactory("burn-timer"));
+		this.timer.setRemoveOnCancelPolicy(true); // Cancelled burns must not stay in the timer queue until their deadline
+		this.completionExecutor = completionExecutor;
+	}
+
+	/**
+	 * Start a burn which completes after the given time.
+	 * @param durationMillis burning time in milliseconds.
+	 * @param onComplete call back which is run once the burn is complete.
+	 * @return the in-flight burn.
+	 * @throws RejectedExecutionException if the engine is shut down.
+	 */
+	public Burn burn(long durationMillis, Runnable onComplete) {
+		Burn burn = new Burn(durationMillis);
+		synchronized (this.drainLock) {
+			if (this.timer.isShutdown())
+				throw new RejectedExecutionException("Burn engine is shut down");
+			this.inFlight++;
+		}
+		try {
+			burn.future = this.timer.schedule(() -> this.complete(burn, onComplete), Math.max(0, durationMillis), TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException ex) {
+			this.finished();
+			throw ex;
+		}
+		return burn;
+	}
+
+	/**
+	 * Get number of burns which have not completed yet.
+	 * @return in-flight burn count.
+	 */
+	public int getInFlightCount() {
+		synchronized (this.drainLock) {
+			return this.inFlight;
+		}
+	}
+
+	/**
+	 * Stop accepting new burns. Burns which are already in-flight still complete.
+	 */
+	public void shutdown() {
+		synchronized (this.drainLock) {
+			this.timer.shutdown();
+		}
+	}
+
+	/**
+	 * Wait until every in-flight burn and its completion call back has finished.
+	 * @param timeout maximum time to wait.
+	 * @param unit unit of the timeout.
+	 * @return true if the engine drained, false if the timeout passed first.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	public boolean drain(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		synchronized (this.drainLock) {
+			while (this.inFlight > 0) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0)
+					return false;
+				TimeUnit.NANOSECONDS.timedWait(this.drainLock, remaining);
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Hand a burn whose time is over to the completion executor.
+	 * @param burn the completed burn.
+	 * @param onComplete completion call back.
+	 */
+	private void complete(Burn burn, Runnable onComplete) {
+		if (!burn.completed.compareAndSet(false, true))
+			return;
+
+		try {
+			this.completionExecutor.execute(() -> {
+				try {
+					onComplete.run();
+				} finally {
+					this.finished();
+				}
+			});
+		} catch (RejectedExecutionException ex) {
+			try {
+				onComplete.run(); // Completion executor is gone, finish the burn on the timer thread
+			} finally {
+				this.finished();
+			}
+		}
+	}
+
+	/**
+	 * Mark one in-flight burn as finished.
+	 */
+	private void finished() {
+		synchronized (this.drainLock) {
+			this.inFlight--;
+			if (this.inFlight == 0)
+				this.drainLock.notifyAll();
+		}
+	}
+
+	/**
+	 * <h2>Burn class represents one in-flight burn.</h2>
+	 */
+	public class Burn {
+
+		/**
+		 * Time at which the burn started.
+		 */
+		private final long startedAt = System.nanoTime();
+
+		/**
+		 * Burning time in milliseconds.
+		 */
+		private final long durationMillis;
+
+		/**
+		 * Set once the burn completed or was cancelled.
+		 */
+		private final AtomicBoolean completed = new AtomicBoolean();
+
+		/**
+		 * Timer of the burn.
+		 */
+		private volatile ScheduledFuture<?> future;
+
+		private Burn(long durationMillis) {
+			this.durationMillis = durationMillis;
+		}
+
+		/**
+		 * Get time since the burn started.
+		 * @return elapsed time in milliseconds.
+		 */
+		public long getElapsedMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.startedAt);
+		}
+
+		/**
+		 * Get time left until the burn completes.
+		 * @return remaining time in milliseconds, 0 if the burn is over.
+		 */
+		public long getRemainingMillis() {
+			return Math.max(0, this.durationMillis - this.getElapsedMillis());
+		}
+
+		/**
+		 * Get burning time.
+		 * @return burning time in milliseconds.
+		 */
+		public long getDurationMillis() {
+			return this.durationMillis;
+		}
+
+		/**
+		 * Cancel the burn. The completion call back will not run.
+		 * @return true if the burn was cancelled, false if it had already completed.
+		 */
+		public boolean cancel() {
+			if (!this.completed.compareAndSet(false, true))
+				return false;
+
+			ScheduledFuture<?> timerFuture = this.future;
+			if (timerFuture != null)
+				timerFuture.cancel(false);
+			BurnEngine.this.finished();
+			return true;
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package com.service.burn.oven;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BurnExecutors class creates the executors which run the work of an oven's burn slots.<br>
+ * Virtual threads are used when the running JDK supports them (JDK 21 and newer), otherwise a fixed pool with one platform thread per slot is used.
+ *
+ */
+public class BurnExecutors {
+
+	/**
+	 * Create an executor to run the burn slots of an oven.
+	 * @param slotCount number of burn slots of the oven.
+	 * @param name prefix of the thread names.
+	 * @return executor to submit slot work to.
+	 */
+	public static ExecutorService newSlotExecutor(int slotCount, String name) {
+		ExecutorService virtualThreadExecutor = newVirtualThreadExecutor();
+		if (virtualThreadExecutor != null)
+			return virtualThreadExecutor;
+
+		return Executors.newFixedThreadPool(slotCount, newThreadFactory(name));
+	}
+
+	/**
+	 * Create a thread factory which gives numbered names to the threads.
+	 * @param name prefix of the thread names.
+	 * @return thread factory.
+	 */
+	public static ThreadFactory newThreadFactory(String name) {
+		final AtomicInteger counter = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+			thread.setDaemon(false);
+			return thread;
+		};
+	}
+
+	/**
+	 * Tell whether virtual threads are available in the running JDK.
+	 * @return true if virtual threads can be used.
+	 */
+	public static boolean isVirtualThreadSupported() {
+		return findVirtualThreadFactoryMethod() != null;
+	}
+
+	/**
+	 * Create a virtual thread per task executor through reflection, so the project still builds and runs on Java 8.
+	 * @return executor or null if virtual threads are not supported.
+	 */
+	private static ExecutorService newVirtualThreadExecutor() {
+		Method method = findVirtualThreadFactoryMethod();
+		if (method == null)
+			return null;
+
+		try {
+			return (ExecutorService) method.invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException _ignored) {
+			return null;
+		}
+	}
+
+	/**
+	 * Find Executors.newVirtualThreadPerTaskExecutor().
+	 * @return the method or null if it does not exist.
+	 */
+	private static Method findVirtualThreadFactoryMethod() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException _ignored) {
+			return null;
+		}
+	}
+}
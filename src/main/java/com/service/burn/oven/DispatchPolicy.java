@@ -0,0 +1,71 @@
+package com.service.burn.oven;
+
+import com.service.burn.model.Product;
+
+/**
+ * <h2>DispatchPolicy enum decides which waiting product is burned first.</h2>
+ * A policy maps a product to a priority between 0 and {@link #MAX_PRIORITY}, higher first. The same priority is used
+ * as the message priority on the product queue (x-max-priority) and by the batch scheduler inside an oven.<br>
+ * Inside an oven a waiting product gains one priority level for every aging interval it waits, so low priority products are not starved.
+ * The broker does not age messages, its priorities are strict.
+ *
+ */
+public enum DispatchPolicy {
+
+	/**
+	 * First in, first out. Every product has priority 0.
+	 */
+	FIFO {
+		@Override
+		public int getPriority(Product product) {
+			return 0;
+		}
+	},
+
+	/**
+	 * Shortest job first. Products with a short burning time get a high priority, one level less per SECONDS_PER_LEVEL seconds of burning.
+	 */
+	SHORTEST_JOB_FIRST {
+		@Override
+		public int getPriority(Product product) {
+			if (product.getOvenParameter() == null)
+				return 0;
+			return Math.max(0, MAX_PRIORITY - product.getOvenParameter().getBurningTime() / SECONDS_PER_LEVEL);
+		}
+	},
+
+	/**
+	 * Priority given by the product service in the priority field of the product.
+	 */
+	PRIORITY {
+		@Override
+		public int getPriority(Product product) {
+			return Math.max(0, Math.min(MAX_PRIORITY, product.getPriority()));
+		}
+	};
+
+	/**
+	 * Highest priority. RabbitMQ recommends at most 10 priority levels (0 to 9).
+	 */
+	public static final int MAX_PRIORITY = 9;
+
+	/**
+	 * Seconds of burning time per priority level for SHORTEST_JOB_FIRST.
+	 */
+	private static final int SECONDS_PER_LEVEL = 2;
+
+	/**
+	 * Get priority of a product under this policy.
+	 * @param product waiting product.
+	 * @return priority between 0 and MAX_PRIORITY, higher is burned first.
+	 */
+	public abstract int getPriority(Product product);
+
+	/**
+	 * Get x-max-priority with which the product queue has to be declared for this policy.
+	 * @return 0 for FIFO (a plain queue), MAX_PRIORITY otherwise.
+	 */
+	public int getMaxPriority() {
+		return this == FIFO ? 0 : MAX_PRIORITY;
+	}
+}
@@ -0,0 +1,312 @@
+package com.service.burn.oven;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <h2>OvenSlots class keeps track of the burn slots of one oven process.</h2>
+ * A slot is one chamber of the oven where a batch of products can be burned together.<br>
+ * A batch has to acquire a free slot before burning and release it afterwards.<br>
+ * Every slot keeps its own counters (burned products, busy time, size of the batch currently burning) so the load of each slot is visible.<br>
+ * Every slot also keeps its temperature. A slot has to heat up or cool down to the temperature of the next batch before burning it,
+ * which takes time in proportion to the temperature difference (changeover).<br>
+ * The number of slots in use can be changed up to the number of slots created, e.g. when the configuration is reloaded.
+ * A slot taken out of use finishes its batch first.
+ *
+ */
+public class OvenSlots {
+
+	/**
+	 * Value of the current batch size while a slot is idle.
+	 */
+	private static final int IDLE = 0;
+
+	/**
+	 * Ids of the slots which are free.
+	 */
+	private final Queue<Integer> freeSlots = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Number of products burned by each slot.
+	 */
+	private final AtomicLong[] burnedCounts;
+
+	/**
+	 * Total busy time of each slot in nanoseconds.
+	 */
+	private final AtomicLong[] busyNanos;
+
+	/**
+	 * Number of products currently burning in each slot.
+	 */
+	private final AtomicInteger[] currentBatchSizes;
+
+	/**
+	 * Number of free slots, ConcurrentLinkedQueue.size() walks the whole queue.
+	 */
+	private final AtomicInteger freeCount;
+
+	/**
+	 * Number of slots burning a batch.
+	 */
+	private final AtomicInteger busyCount = new AtomicInteger();
+
+	/**
+	 * Number of slots in use, slots 0 to activeSlotCount - 1. Other slots are not handed out once their batch is burned.
+	 */
+	private volatile int activeSlotCount;
+
+	/**
+	 * Guards freeing of slots against a change of the number of slots in use.
+	 */
+	private final Object resizeLock = new Object();
+
+	/**
+	 * Current temperature of each slot.
+	 */
+	private final AtomicInteger[] temperatures;
+
+	/**
+	 * Degrees a slot heats up or cools down per second.
+	 */
+	private final int degreesPerSecond;
+
+	/**
+	 * Total time spent changing temperature by all slots in milliseconds.
+	 */
+	private final AtomicLong changeoverMillis = new AtomicLong();
+
+	/**
+	 * Time at which the slots were created, used to calculate utilisation.
+	 */
+	private final long createdAt = System.nanoTime();
+
+	/**
+	 * <p>Constructor to initialize the given number of free slots.</p>
+	 * @param slotCount number of slots.
+	 * @param initialTemperature temperature to which the slots are preheated.
+	 * @param degreesPerSecond degrees a slot heats up or cools down per second.
+	 */
+	public OvenSlots(int slotCount, int initialTemperature, int degreesPerSecond) {
+		this(slotCount, slotCount, initialTemperature, degreesPerSecond);
+	}
+
+	/**
+	 * <p>Constructor to initialize the given number of free slots, which can later be raised up to maxSlotCount.</p>
+	 * @param slotCount number of slots in use.
+	 * @param maxSlotCount number of slots created.
+	 * @param initialTemperature temperature to which the slots are preheated.
+	 * @param degreesPerSecond degrees a slot heats up or cools down per second.
+	 */
+	public OvenSlots(int slotCount, int maxSlotCount, int initialTemperature, int degreesPerSecond) {
+		if (slotCount < 1 || maxSlotCount < slotCount)
+			throw new IllegalArgumentException("An oven needs at least one slot and at most " + maxSlotCount);
+		if (degreesPerSecond < 1)
+			throw new IllegalArgumentException("A slot has to change at least one degree per second");
+
+		this.degreesPerSecond = degreesPerSecond;
+		this.temperatures = new AtomicInteger[maxSlotCount];
+
+		this.burnedCounts = new AtomicLong[maxSlotCount];
+		this.busyNanos = new AtomicLong[maxSlotCount];
+		this.currentBatchSizes = new AtomicInteger[maxSlotCount];
+		this.freeCount = new AtomicInteger(slotCount);
+		this.activeSlotCount = slotCount;
+		for (int slot = 0; slot < maxSlotCount; slot++) {
+			if (slot < slotCount)
+				this.freeSlots.add(slot);
+			this.burnedCounts[slot] = new AtomicLong();
+			this.busyNanos[slot] = new AtomicLong();
+			this.currentBatchSizes[slot] = new AtomicInteger(IDLE);
+			this.temperatures[slot] = new AtomicInteger(initialTemperature);
+		}
+	}
+
+	/**
+	 * Get the slot which has been free for the longest time, without acquiring it.<br>
+	 * Only one thread may peek and acquire slots at a time.
+	 * @return id of the free slot, -1 if every slot is busy.
+	 */
+	public int peekFreeSlot() {
+		Integer slot = this.freeSlots.peek();
+		return slot == null ? -1 : slot;
+	}
+
+	/**
+	 * Mark a free slot busy with a batch of the given size.
+	 * @param slot id of the slot returned by {@link #peekFreeSlot()}.
+	 * @param batchSize number of products which will be burned in the slot.
+	 */
+	public void acquire(int slot, int batchSize) {
+		if (!this.freeSlots.remove(slot))
+			throw new IllegalStateException("Slot " + slot + " is not free");
+
+		this.freeCount.decrementAndGet();
+		this.busyCount.incrementAndGet();
+		this.currentBatchSizes[slot].set(batchSize);
+	}
+
+	/**
+	 * Change the number of slots in use.<br>
+	 * Free slots are taken out of use at once, busy ones once their batch is burned. Only the thread which acquires slots may call this.
+	 * @param slotCount number of slots in use, between 1 and {@link #getMaxSlotCount()}.
+	 */
+	public void setSlotCount(int slotCount) {
+		if (slotCount < 1 || slotCount > this.getMaxSlotCount())
+			throw new IllegalArgumentException("Slot count must be between 1 and " + this.getMaxSlotCount() + " but was " + slotCount);
+
+		synchronized (this.resizeLock) {
+			for (int slot = slotCount; slot < this.activeSlotCount; slot++) {
+				if (this.freeSlots.remove(slot))
+					this.freeCount.decrementAndGet();
+			}
+			for (int slot = this.activeSlotCount; slot < slotCount; slot++) {
+				if (this.currentBatchSizes[slot].get() == IDLE) { // Busy slots are freed by release
+					this.freeSlots.add(slot);
+					this.freeCount.incrementAndGet();
+				}
+			}
+			this.activeSlotCount = slotCount;
+		}
+	}
+
+	/**
+	 * Set the slot to a new temperature.
+	 * @param slot id of the slot.
+	 * @param temperature temperature of the next batch.
+	 * @return time in milliseconds the slot needs to reach the temperature.
+	 */
+	public long changeTemperature(int slot, int temperature) {
+		int previous = this.temperatures[slot].getAndSet(temperature);
+		long millis = TimeUnit.SECONDS.toMillis(Math.abs(temperature - previous)) / this.degreesPerSecond;
+		this.changeoverMillis.addAndGet(millis);
+		return millis;
+	}
+
+	/**
+	 * Get time a slot would need to reach a temperature, without changing it.
+	 * @param slot id of the slot.
+	 * @param temperature temperature to reach.
+	 * @return changeover time in milliseconds.
+	 */
+	public long getChangeoverMillis(int slot, int temperature) {
+		return TimeUnit.SECONDS.toMillis(Math.abs(temperature - this.getTemperature(slot))) / this.degreesPerSecond;
+	}
+
+	/**
+	 * Get current temperature of a slot.
+	 * @param slot id of the slot.
+	 * @return temperature.
+	 */
+	public int getTemperature(int slot) {
+		return this.temperatures[slot].get();
+	}
+
+	/**
+	 * Get total time spent changing temperature by all slots.
+	 * @return changeover time in milliseconds.
+	 */
+	public long getChangeoverMillis() {
+		return this.changeoverMillis.get();
+	}
+
+	/**
+	 * Mark the given slot free again and count the products of its batch as burned.
+	 * @param slot id of the slot acquired by {@link #acquire(int, int)}.
+	 * @param busyTimeNanos time the slot was busy for the last batch.
+	 */
+	public void release(int slot, long busyTimeNanos) {
+		this.busyNanos[slot].addAndGet(busyTimeNanos);
+		this.busyCount.decrementAndGet();
+		synchronized (this.resizeLock) {
+			this.burnedCounts[slot].addAndGet(this.currentBatchSizes[slot].getAndSet(IDLE));
+			if (slot < this.activeSlotCount) { // Otherwise the slot was taken out of use while burning
+				this.freeSlots.add(slot);
+				this.freeCount.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Get number of slots in use.
+	 * @return slot count.
+	 */
+	public int getSlotCount() {
+		return this.activeSlotCount;
+	}
+
+	/**
+	 * Get number of slots created, the highest number of slots which can be in use.
+	 * @return maximum slot count.
+	 */
+	public int getMaxSlotCount() {
+		return this.burnedCounts.length;
+	}
+
+	/**
+	 * Get number of slots which are burning a batch right now.
+	 * @return busy slot count.
+	 */
+	public int getBusyCount() {
+		return this.busyCount.get();
+	}
+
+	/**
+	 * Check whether a slot is free.
+	 * @return true if at least one slot is free.
+	 */
+	public boolean hasFreeSlot() {
+		return this.freeCount.get() > 0;
+	}
+
+	/**
+	 * Get number of products burned by a slot.
+	 * @param slot id of the slot.
+	 * @return burned product count.
+	 */
+	public long getBurnedCount(int slot) {
+		return this.burnedCounts[slot].get();
+	}
+
+	/**
+	 * Get number of products burned by all slots.
+	 * @return burned product count.
+	 */
+	public long getBurnedCount() {
+		long burned = 0;
+		for (int slot = 0; slot < this.getMaxSlotCount(); slot++) {
+			burned += this.getBurnedCount(slot);
+		}
+		return burned;
+	}
+
+	/**
+	 * Get share of time the slot was busy since the slots were created.
+	 * @param slot id of the slot.
+	 * @return utilisation between 0 and 1.
+	 */
+	public double getUtilisation(int slot) {
+		long elapsed = System.nanoTime() - this.createdAt;
+		return elapsed <= 0 ? 0 : Math.min(1.0, (double) this.busyNanos[slot].get() / elapsed);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("Slots busy: ").append(this.getBusyCount()).append('/').append(this.getSlotCount())
+				.append(", changeover ").append(this.getChangeoverMillis()).append(" ms");
+		for (int slot = 0; slot < this.getMaxSlotCount(); slot++) {
+			int batchSize = this.currentBatchSizes[slot].get();
+			if (slot >= this.getSlotCount() && batchSize == IDLE)
+				continue;
+			builder.append(" | Slot ").append(slot)
+				.append(": ").append(batchSize == IDLE ? "idle" : batchSize + " products")
+				.append(" at ").append(this.getTemperature(slot))
+				.append(", burned ").append(this.getBurnedCount(slot))
+				.append(String.format(", util %.0f%%", this.getUtilisation(slot) * 100));
+		}
+		return builder.toString();
+	}
+}
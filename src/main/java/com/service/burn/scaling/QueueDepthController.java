@@ -0,0 +1,265 @@
+package com.service.burn.scaling;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import com.service.burn.Utility;
+import com.service.burn.logging.EventLog;
+import com.service.burn.transport.Transport;
+
+/**
+ * <h2>QueueDepthController class adapts the capacity of a consumer (its prefetch or its burn slots) to the backlog of its queue.</h2>
+ * At every update it reads the number of messages waiting in the queue and the rate at which the consumer handled messages
+ * since the last update:
+ * <ul>
+ * <li>While at least one full round of work waits (depth not below the capacity), the capacity is doubled up to the maximum,
+ * so a burst is drained quickly.</li>
+ * <li>If doubling did not raise the rate by {@link #MIN_GAIN}, the consumer is saturated (e.g. by its CPU or disk) and more
+ * capacity would only hold messages other consumers could handle. The capacity goes back and stays there until the queue was empty.</li>
+ * <li>Once the queue was empty for {@link #SCALE_DOWN_UPDATES} updates in a row, the capacity shrinks by a quarter down to the minimum,
+ * so an idle consumer does not keep a large prefetch.</li>
+ * </ul>
+ * The new capacity is given to a handler, e.g. to change the prefetch of a subscription. If the handler fails the capacity is kept.
+ *
+ */
+public class QueueDepthController implements AutoCloseable {
+
+	private static final EventLog LOG = Utility.getEventLog();
+
+	/**
+	 * Share by which the rate has to rise after the capacity was doubled, otherwise the consumer counts as saturated.
+	 */
+	public static final double MIN_GAIN = 0.1;
+
+	/**
+	 * Number of updates in a row with an empty queue after which the capacity shrinks.
+	 */
+	public static final int SCALE_DOWN_UPDATES = 3;
+
+	/**
+	 * Applies a new capacity to the consumer.
+	 */
+	@FunctionalInterface
+	public interface CapacityHandler {
+
+		/**
+		 * Apply a new capacity.
+		 * @param capacity new capacity, between the minimum and maximum.
+		 * @throws IOException if the capacity can not be applied.
+		 */
+		void apply(int capacity) throws IOException;
+	}
+
+	private final Transport transport;
+	private final String queue;
+
+	/**
+	 * Number of messages the consumer handled so far.
+	 */
+	private final LongSupplier handledCount;
+
+	/**
+	 * Clock in nanoseconds.
+	 */
+	private final LongSupplier clock;
+
+	private final CapacityHandler handler;
+
+	private int minCapacity;
+	private int maxCapacity;
+	private volatile int capacity;
+
+	/**
+	 * Highest capacity worth using until the queue is empty again, lowered when doubling did not help.
+	 */
+	private int ceiling;
+
+	/**
+	 * Capacity before the last doubling, 0 if the last update did not double.
+	 */
+	private int grownFrom;
+
+	/**
+	 * Rate before the last doubling.
+	 */
+	private double rateBeforeGrowth;
+
+	/**
+	 * Number of updates in a row with an empty queue.
+	 */
+	private int emptyUpdates;
+
+	private long lastUpdate;
+	private long lastHandledCount;
+	private volatile double rate;
+
+	/**
+	 * Runs the updates once started.
+	 */
+	private ScheduledExecutorService timer;
+
+	/**
+	 * <p>Constructor to initialize a controller, it does not update until started.</p>
+	 * @param transport transport of the queue.
+	 * @param queue name of the queue the consumer takes messages from.
+	 * @param handledCount number of messages the consumer handled so far.
+	 * @param minCapacity lowest capacity, at least 1.
+	 * @param maxCapacity highest capacity.
+	 * @param initialCapacity capacity the consumer has now.
+	 * @param handler applies a new capacity to the consumer.
+	 */
+	public QueueDepthController(Transport transport, String queue, LongSupplier handledCount, int minCapacity, int maxCapacity,
+			int initialCapacity, CapacityHandler handler) {
+		this(transport, queue, handledCount, minCapacity, maxCapacity, initialCapacity, handler, System::nanoTime);
+	}
+
+	/**
+	 * <p>Constructor to initialize a controller with the given clock.</p>
+	 * @param transport transport of the queue.
+	 * @param queue name of the queue the consumer takes messages from.
+	 * @param handledCount number of messages the consumer handled so far.
+	 * @param minCapacity lowest capacity, at least 1.
+	 * @param maxCapacity highest capacity.
+	 * @param initialCapacity capacity the consumer has now.
+	 * @param handler applies a new capacity to the consumer.
+	 * @param clock clock in nanoseconds.
+	 */
+	QueueDepthController(Transport transport, String queue, LongSupplier handledCount, int minCapacity, int maxCapacity,
+			int initialCapacity, CapacityHandler handler, LongSupplier clock) {
+		checkBounds(minCapacity, maxCapacity);
+
+		this.transport = transport;
+		this.queue = queue;
+		this.handledCount = handledCount;
+		this.handler = handler;
+		this.clock = clock;
+		this.minCapacity = minCapacity;
+		this.maxCapacity = maxCapacity;
+		this.capacity = initialCapacity;
+		this.ceiling = maxCapacity;
+		this.lastUpdate = clock.getAsLong();
+		this.lastHandledCount = handledCount.getAsLong();
+	}
+
+	/**
+	 * Start updating at a fixed interval on a daemon thread. A failed update is printed and the next one is tried.
+	 * @param intervalMillis time between two updates.
+	 */
+	public synchronized void start(long intervalMillis) {
+		if (this.timer != null)
+			throw new IllegalStateException("Controller of '" + this.queue + "' is already started");
+
+		ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+			Thread thread = new Thread(runnable, "autoscale-" + this.queue);
+			thread.setDaemon(true);
+			return thread;
+		});
+		timer.scheduleWithFixedDelay(() -> {
+			try {
+				this.update();
+			} catch (IOException | RuntimeException e) {
+				LOG.error("Exception Occurred", e).with("queue", this.queue).with("capacity", "not updated").log();
+			}
+		}, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+		this.timer = timer;
+	}
+
+	/**
+	 * Read the queue depth and the rate and change the capacity if needed.
+	 * @return capacity after the update.
+	 * @throws IOException if the queue depth can not be read or the handler fails.
+	 */
+	public synchronized int update() throws IOException {
+		long now = this.clock.getAsLong();
+		long handled = this.handledCount.getAsLong();
+		if (now > this.lastUpdate)
+			this.rate = (handled - this.lastHandledCount) * 1e9 / (now - this.lastUpdate);
+		this.lastUpdate = now;
+		this.lastHandledCount = handled;
+
+		int depth = this.transport.getMessageCount(this.queue);
+		int target = this.capacity;
+		if (depth >= this.capacity) {
+			this.emptyUpdates = 0;
+			if (this.grownFrom > 0 && this.rate < this.rateBeforeGrowth * (1 + MIN_GAIN)) {
+				target = this.grownFrom; // Doubling did not help
+				this.ceiling = this.grownFrom;
+				this.grownFrom = 0;
+			} else if (this.capacity < Math.min(this.maxCapacity, this.ceiling)) {
+				target = Math.min(Math.min(this.maxCapacity, this.ceiling), this.capacity * 2);
+				this.grownFrom = this.capacity;
+				this.rateBeforeGrowth = this.rate;
+			} else {
+				this.grownFrom = 0;
+			}
+		} else {
+			this.grownFrom = 0;
+			if (depth > 0) {
+				this.emptyUpdates = 0;
+			} else {
+				this.ceiling = this.maxCapacity;
+				if (++this.emptyUpdates >= SCALE_DOWN_UPDATES) {
+					this.emptyUpdates = 0;
+					target = Math.max(this.minCapacity, this.capacity - Math.max(1, this.capacity / 4));
+				}
+			}
+		}
+		if (target != this.capacity) {
+			this.handler.apply(target);
+			this.capacity = target;
+		}
+		return this.capacity;
+	}
+
+	/**
+	 * Change the bounds, e.g. when the configuration is reloaded. A capacity outside the new bounds is moved into them.
+	 * @param minCapacity lowest capacity, at least 1.
+	 * @param maxCapacity highest capacity.
+	 * @throws IOException if the handler fails.
+	 */
+	public synchronized void setBounds(int minCapacity, int maxCapacity) throws IOException {
+		checkBounds(minCapacity, maxCapacity);
+
+		this.minCapacity = minCapacity;
+		this.maxCapacity = maxCapacity;
+		this.ceiling = maxCapacity;
+		int target = Math.max(minCapacity, Math.min(maxCapacity, this.capacity));
+		if (target != this.capacity) {
+			this.handler.apply(target);
+			this.capacity = target;
+		}
+	}
+
+	/**
+	 * Get the current capacity.
+	 * @return capacity.
+	 */
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * Get the rate at which the consumer handled messages between the last two updates.
+	 * @return messages per second.
+	 */
+	public double getRate() {
+		return this.rate;
+	}
+
+	/**
+	 * Stop updating.
+	 */
+	@Override
+	public synchronized void close() {
+		if (this.timer != null)
+			this.timer.shutdownNow();
+	}
+
+	private static void checkBounds(int minCapacity, int maxCapacity) {
+		if (minCapacity < 1 || maxCapacity < minCapacity)
+			throw new IllegalArgumentException("Capacity bounds must be at least 1 and min not above max, but were " + minCapacity + ".." + maxCapacity);
+	}
+}
@@ -0,0 +1,96 @@
+package com.service.burn.simulation;
+
+import java.util.PriorityQueue;
+
+/**
+ * <h2>EventQueue class runs a discrete-event simulation on virtual time.</h2>
+ * An event is an action scheduled at a virtual time in nanoseconds. The queue runs the events in time order and sets the clock to
+ * the time of each event before running it, so nothing waits for real time and an hour of an oven fleet takes milliseconds.<br>
+ * Events at the same time run in the order they were scheduled, so a run is repeatable.<br>
+ * The queue is not thread safe, a simulation runs on one thread (run several simulations in parallel instead).
+ *
+ */
+public class EventQueue {
+
+	private final PriorityQueue<Event> events = new PriorityQueue<>();
+
+	/**
+	 * Virtual time of the event running now in nanoseconds.
+	 */
+	private long now;
+
+	/**
+	 * Number of events scheduled so far, keeps events of equal time in order.
+	 */
+	private long scheduledCount;
+
+	/**
+	 * Get the current virtual time.
+	 * @return time in nanoseconds since the start of the simulation.
+	 */
+	public long now() {
+		return this.now;
+	}
+
+	/**
+	 * Schedule an action at a virtual time.
+	 * @param time time in nanoseconds, not before now.
+	 * @param action action to run.
+	 */
+	public void schedule(long time, Runnable action) {
+		if (time < this.now)
+			throw new IllegalArgumentException("Event at " + time + " ns is before the current time " + this.now + " ns");
+		this.events.add(new Event(time, this.scheduledCount++, action));
+	}
+
+	/**
+	 * Schedule an action after a delay.
+	 * @param delayNanos delay in nanoseconds from now.
+	 * @param action action to run.
+	 */
+	public void scheduleAfter(long delayNanos, Runnable action) {
+		this.schedule(this.now + delayNanos, action);
+	}
+
+	/**
+	 * Run events until none are left. Events may schedule further events.
+	 * @return number of events run.
+	 */
+	public long run() {
+		long count = 0;
+		Event event;
+		while ((event = this.events.poll()) != null) {
+			this.now = event.time;
+			event.action.run();
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Get number of events waiting to run.
+	 * @return pending event count.
+	 */
+	public int size() {
+		return this.events.size();
+	}
+
+	private static class Event implements Comparable<Event> {
+
+		private final long time;
+		private final long sequence;
+		private final Runnable action;
+
+		private Event(long time, long sequence, Runnable action) {
+			this.time = time;
+			this.sequence = sequence;
+			this.action = action;
+		}
+
+		@Override
+		public int compareTo(Event other) {
+			int byTime = Long.compare(this.time, other.time);
+			return byTime != 0 ? byTime : Long.compare(this.sequence, other.sequence);
+		}
+	}
+}
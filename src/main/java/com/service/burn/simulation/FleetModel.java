@@ -0,0 +1,96 @@
+package com.service.burn.simulation;
+
+import com.service.burn.config.Tuning;
+import com.service.burn.oven.DispatchPolicy;
+
+/**
+ * <h2>FleetModel class describes the ovens of a simulated fleet.</h2>
+ * Every oven of the fleet has the same tuning (slots, batch capacity, prefetch, linger time) and the same batching and
+ * changeover settings as a real oven.
+ *
+ */
+public class FleetModel {
+
+	private final int ovenCount;
+	private final Tuning tuning;
+	private final int bandWidth;
+	private final long maxWaitMillis;
+	private final int initialTemperature;
+	private final int degreesPerSecond;
+	private final DispatchPolicy dispatchPolicy;
+	private final long agingMillis;
+
+	/**
+	 * <p>Constructor to initialize a fleet model.</p>
+	 * @param ovenCount number of ovens.
+	 * @param tuning tuning of every oven, only the oven values are used.
+	 * @param bandWidth width of a temperature band in degrees.
+	 * @param maxWaitMillis longest time a product is passed over in favour of bands closer to the slot temperature.
+	 * @param initialTemperature temperature to which the slots are preheated.
+	 * @param degreesPerSecond degrees a slot heats up or cools down per second.
+	 * @param dispatchPolicy policy which gives the priority of a product.
+	 * @param agingMillis waiting time after which a product gains one priority level.
+	 */
+	public FleetModel(int ovenCount, Tuning tuning, int bandWidth, long maxWaitMillis, int initialTemperature, int degreesPerSecond,
+			DispatchPolicy dispatchPolicy, long agingMillis) {
+		if (ovenCount < 1 || tuning.getSlotCount() < 1 || tuning.getBatchCapacity() < 1)
+			throw new IllegalArgumentException("Oven count, slot count and batch capacity must be at least 1");
+
+		this.ovenCount = ovenCount;
+		this.tuning = tuning;
+		this.bandWidth = bandWidth;
+		this.maxWaitMillis = maxWaitMillis;
+		this.initialTemperature = initialTemperature;
+		this.degreesPerSecond = degreesPerSecond;
+		this.dispatchPolicy = dispatchPolicy;
+		this.agingMillis = agingMillis;
+	}
+
+	/**
+	 * Get the same fleet with another number of ovens, e.g. for a sweep.
+	 * @param ovenCount number of ovens.
+	 * @return fleet model.
+	 */
+	public FleetModel withOvenCount(int ovenCount) {
+		return new FleetModel(ovenCount, this.tuning, this.bandWidth, this.maxWaitMillis, this.initialTemperature, this.degreesPerSecond,
+				this.dispatchPolicy, this.agingMillis);
+	}
+
+	public int getOvenCount() {
+		return this.ovenCount;
+	}
+
+	public Tuning getTuning() {
+		return this.tuning;
+	}
+
+	public int getBandWidth() {
+		return this.bandWidth;
+	}
+
+	public long getMaxWaitMillis() {
+		return this.maxWaitMillis;
+	}
+
+	public int getInitialTemperature() {
+		return this.initialTemperature;
+	}
+
+	public int getDegreesPerSecond() {
+		return this.degreesPerSecond;
+	}
+
+	public DispatchPolicy getDispatchPolicy() {
+		return this.dispatchPolicy;
+	}
+
+	public long getAgingMillis() {
+		return this.agingMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "ovens: " + this.ovenCount + " | slots: " + this.tuning.getSlotCount() + " | batch capacity: " + this.tuning.getBatchCapacity()
+				+ " | prefetch: " + this.tuning.getPrefetch() + " | linger: " + this.tuning.getBatchLingerMillis() + " ms | " + this.dispatchPolicy;
+	}
+}
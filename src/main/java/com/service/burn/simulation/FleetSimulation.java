@@ -0,0 +1,275 @@
+package com.service.burn.simulation;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.service.burn.load.LoadMode;
+import com.service.burn.load.LoadProfile;
+import com.service.burn.metrics.LatencyHistogram;
+import com.service.burn.model.OvenParameter;
+import com.service.burn.model.Product;
+import com.service.burn.oven.BatchScheduler;
+import com.service.burn.oven.OvenSlots;
+
+/**
+ * <h2>FleetSimulation class simulates an oven fleet burning a load on virtual time, for capacity planning.</h2>
+ * Products arrive in one queue as the load profile describes (open or closed loop). Like the broker, the queue hands products
+ * round robin to the ovens which have fewer unacknowledged products than their prefetch, and a product is acknowledged when its
+ * batch is burned.<br>
+ * Every oven batches its products with the BatchScheduler and burns them in OvenSlots exactly like OvenService: a batch is
+ * dispatched when a product arrives, when a slot is freed or when a linger time ends, and a slot changes its temperature before
+ * burning. Only the time is virtual (see {@link EventQueue}), so an hour of a fleet of hundreds of ovens takes seconds.<br>
+ * Sending and returning products over the network are not simulated, they take milliseconds next to burns of seconds.<br>
+ * A simulation can be run any number of times, with the same seed it gives the same result.
+ *
+ */
+public class FleetSimulation {
+
+	private final FleetModel model;
+	private final LoadProfile profile;
+	private final long sampleIntervalNanos;
+
+	/**
+	 * <p>Constructor to initialize a simulation.</p>
+	 * @param model ovens of the fleet.
+	 * @param profile load sent to the fleet.
+	 * @param sampleIntervalMillis virtual time between two samples of the queue length.
+	 */
+	public FleetSimulation(FleetModel model, LoadProfile profile, long sampleIntervalMillis) {
+		if (sampleIntervalMillis < 1)
+			throw new IllegalArgumentException("Sample interval must be at least 1 ms");
+
+		this.model = model;
+		this.profile = profile;
+		this.sampleIntervalNanos = TimeUnit.MILLISECONDS.toNanos(sampleIntervalMillis);
+	}
+
+	/**
+	 * Simulate every fleet with the same load, in parallel on all cores.
+	 * @param models fleets to simulate, e.g. the same fleet with a growing number of ovens.
+	 * @param profile load sent to every fleet.
+	 * @param sampleIntervalMillis virtual time between two samples of the queue length.
+	 * @return report of every fleet, in the order of the models.
+	 */
+	public static List<SimulationReport> sweep(List<FleetModel> models, LoadProfile profile, long sampleIntervalMillis) {
+		return models.parallelStream()
+				.map(model -> new FleetSimulation(model, profile, sampleIntervalMillis).run())
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Run the simulation until every product which arrived is burned.
+	 * @return summary of the run.
+	 */
+	public SimulationReport run() {
+		long start = System.nanoTime();
+		Run run = new Run();
+		long eventCount = run.simulate();
+		return new SimulationReport(this.model, run.created, run.burned, run.batches, run.makespan, run.busyNanos, run.changeoverNanos,
+				run.latencies, Arrays.copyOf(run.queueLengths, run.sampleCount), this.sampleIntervalNanos, eventCount, System.nanoTime() - start);
+	}
+
+	/**
+	 * State of one run.
+	 */
+	private class Run {
+
+		private final EventQueue events = new EventQueue();
+		private final SplittableRandom random = new SplittableRandom(FleetSimulation.this.profile.getSeed());
+		private final long durationNanos = TimeUnit.MILLISECONDS.toNanos(FleetSimulation.this.profile.getDurationMillis());
+		private final int prefetch = FleetSimulation.this.model.getTuning().getPrefetch();
+
+		/**
+		 * Products which wait in the queue for an oven.
+		 */
+		private final ArrayDeque<Job> queue = new ArrayDeque<>();
+
+		/**
+		 * Ovens which take more products, in round robin order.
+		 */
+		private final ArrayDeque<Oven> readyOvens = new ArrayDeque<>();
+
+		private final LatencyHistogram latencies = new LatencyHistogram();
+		private int[] queueLengths = new int[1024];
+		private int sampleCount;
+
+		/**
+		 * Number of products delivered to an oven which wait there for a slot.
+		 */
+		private long waitingInOvens;
+
+		private long created;
+		private long burned;
+		private long batches;
+		private long makespan;
+		private long busyNanos;
+		private long changeoverNanos;
+
+		private long simulate() {
+			for (int i = 0; i < FleetSimulation.this.model.getOvenCount(); i++) {
+				this.readyOvens.add(new Oven());
+			}
+			if (FleetSimulation.this.profile.getMode() == LoadMode.OPEN) {
+				this.events.schedule(0, this::arriveOpenLoop);
+			} else {
+				this.events.schedule(0, () -> {
+					for (int i = 0; i < FleetSimulation.this.profile.getConcurrency(); i++) {
+						this.arrive();
+					}
+				});
+			}
+			this.events.schedule(0, this::sample);
+			return this.events.run();
+		}
+
+		private void arriveOpenLoop() {
+			this.arrive();
+			long gap = FleetSimulation.this.profile.getArrivalPattern().nextGapNanos(this.random,
+					FleetSimulation.this.profile.getRatePerSecond(), FleetSimulation.this.profile.getBurstSize());
+			if (this.events.now() + gap < this.durationNanos)
+				this.events.scheduleAfter(gap, this::arriveOpenLoop);
+		}
+
+		/**
+		 * A new product arrives in the queue.
+		 */
+		private void arrive() {
+			int temperature = FleetSimulation.this.profile.getTemperature().sample(this.random);
+			int burningTime = FleetSimulation.this.profile.getBurningTime().sample(this.random);
+			long id = ++this.created; // Not an id of the generator, the sweep runs simulations in parallel and real products share it
+			Product product = new Product(id, "Simulated " + id, new OvenParameter(temperature, burningTime), null);
+			this.queue.add(new Job(product, this.events.now()));
+			this.deliver();
+		}
+
+		/**
+		 * Hand waiting products round robin to the ovens below their prefetch.
+		 */
+		private void deliver() {
+			while (!this.queue.isEmpty() && !this.readyOvens.isEmpty()) {
+				Oven oven = this.readyOvens.poll();
+				oven.receive(this.queue.poll());
+				if (oven.unacknowledged < this.prefetch)
+					this.readyOvens.add(oven);
+				else
+					oven.ready = false;
+			}
+		}
+
+		private void sample() {
+			if (this.sampleCount == this.queueLengths.length)
+				this.queueLengths = Arrays.copyOf(this.queueLengths, this.sampleCount * 2);
+			this.queueLengths[this.sampleCount++] = (int) Math.min(Integer.MAX_VALUE, this.queue.size() + this.waitingInOvens);
+			if (this.events.now() < this.durationNanos || this.burned < this.created)
+				this.events.scheduleAfter(FleetSimulation.this.sampleIntervalNanos, this::sample);
+		}
+
+		/**
+		 * One simulated oven process.
+		 */
+		private class Oven {
+
+			private final FleetModel model = FleetSimulation.this.model;
+			private final BatchScheduler<Job> scheduler = new BatchScheduler<>(this.model.getBandWidth(), this.model.getTuning().getBatchCapacity(),
+					this.model.getTuning().getBatchLingerMillis(), this.model.getMaxWaitMillis(), this.model.getDispatchPolicy(),
+					this.model.getAgingMillis());
+			private final OvenSlots slots = new OvenSlots(this.model.getTuning().getSlotCount(), this.model.getInitialTemperature(),
+					this.model.getDegreesPerSecond());
+
+			/**
+			 * Number of products delivered and not yet acknowledged.
+			 */
+			private int unacknowledged;
+
+			/**
+			 * True while the oven is in the round robin of ready ovens.
+			 */
+			private boolean ready = true;
+
+			private boolean lingerCheckScheduled;
+
+			private void receive(Job job) {
+				this.unacknowledged++;
+				Run.this.waitingInOvens++;
+				this.scheduler.add(job.product, job, Run.this.events.now());
+				this.dispatch();
+			}
+
+			/**
+			 * Burn batches which are ready as long as slots are free, like OvenService.dispatchBatches.
+			 */
+			private void dispatch() {
+				long now = Run.this.events.now();
+				int slot;
+				while ((slot = this.slots.peekFreeSlot()) >= 0) {
+					final int freeSlot = slot;
+					BatchScheduler.Batch<Job> batch = this.scheduler.nextBatch(now, temperature -> this.slots.getChangeoverMillis(freeSlot, temperature));
+					if (batch == null)
+						break;
+					this.slots.acquire(slot, batch.size());
+					Run.this.waitingInOvens -= batch.size();
+					OvenParameter parameter = batch.getOvenParameter();
+					long changeover = TimeUnit.MILLISECONDS.toNanos(this.slots.changeTemperature(slot, parameter.getTemparature()));
+					long busy = changeover + TimeUnit.SECONDS.toNanos(parameter.getBurningTime());
+					Run.this.changeoverNanos += changeover;
+					Run.this.events.scheduleAfter(busy, () -> this.finish(freeSlot, batch, busy));
+				}
+				if (this.slots.hasFreeSlot() && !this.lingerCheckScheduled) {
+					long delay = this.scheduler.getNanosUntilNextDeadline(now);
+					if (delay >= 0) {
+						this.lingerCheckScheduled = true;
+						Run.this.events.scheduleAfter(delay, () -> {
+							this.lingerCheckScheduled = false;
+							this.dispatch();
+						});
+					}
+				}
+			}
+
+			/**
+			 * Free the slot of a burned batch and acknowledge its products.
+			 */
+			private void finish(int slot, BatchScheduler.Batch<Job> batch, long busy) {
+				long now = Run.this.events.now();
+				this.slots.release(slot, busy);
+				Run.this.busyNanos += busy;
+				Run.this.batches++;
+				Run.this.makespan = now;
+				for (Job job : batch.getAttachments()) {
+					Run.this.latencies.record(now - job.arrivedAt);
+					Run.this.burned++;
+				}
+				this.unacknowledged -= batch.size();
+				if (!this.ready && this.unacknowledged < Run.this.prefetch) {
+					this.ready = true;
+					Run.this.readyOvens.add(this);
+				}
+				if (FleetSimulation.this.profile.getMode() == LoadMode.CLOSED && now < Run.this.durationNanos) {
+					for (int i = 0; i < batch.size(); i++) {
+						Run.this.arrive(); // Every burned product is replaced
+					}
+				}
+				Run.this.deliver();
+				this.dispatch();
+			}
+		}
+	}
+
+	/**
+	 * A product with the virtual time at which it arrived in the queue.
+	 */
+	private static class Job {
+
+		private final Product product;
+		private final long arrivedAt;
+
+		private Job(Product product, long arrivedAt) {
+			this.product = product;
+			this.arrivedAt = arrivedAt;
+		}
+	}
+}
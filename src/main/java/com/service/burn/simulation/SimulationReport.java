@@ -0,0 +1,167 @@
+package com.service.burn.simulation;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import com.service.burn.metrics.LatencyHistogram;
+
+/**
+ * <h2>SimulationReport class summarises a simulated run of an oven fleet.</h2>
+ * Latency is the virtual time from the arrival of a product in the queue until its batch is burned.
+ * Utilisation is the share of slot time spent burning or changing temperature.
+ * The queue length is sampled at a fixed virtual interval and counts every product which waits, in the queue or in an oven.
+ *
+ */
+public class SimulationReport {
+
+	private final FleetModel model;
+	private final long created;
+	private final long burned;
+	private final long batches;
+	private final long makespanNanos;
+	private final long busyNanos;
+	private final long changeoverNanos;
+	private final LatencyHistogram latencies;
+	private final int[] queueLengths;
+	private final long sampleIntervalNanos;
+	private final long eventCount;
+	private final long wallNanos;
+
+	/**
+	 * <p>Constructor to initialize a report.</p>
+	 * @param model simulated fleet.
+	 * @param created number of products which arrived.
+	 * @param burned number of products burned.
+	 * @param batches number of batches burned.
+	 * @param makespanNanos virtual time until the last batch was burned.
+	 * @param busyNanos total time the slots of all ovens were busy, changeover included.
+	 * @param changeoverNanos total time the slots of all ovens spent changing temperature.
+	 * @param latencies latency of every burned product.
+	 * @param queueLengths number of waiting products at every sample.
+	 * @param sampleIntervalNanos virtual time between two samples.
+	 * @param eventCount number of simulated events.
+	 * @param wallNanos real time the simulation took.
+	 */
+	public SimulationReport(FleetModel model, long created, long burned, long batches, long makespanNanos, long busyNanos,
+			long changeoverNanos, LatencyHistogram latencies, int[] queueLengths, long sampleIntervalNanos, long eventCount, long wallNanos) {
+		this.model = model;
+		this.created = created;
+		this.burned = burned;
+		this.batches = batches;
+		this.makespanNanos = makespanNanos;
+		this.busyNanos = busyNanos;
+		this.changeoverNanos = changeoverNanos;
+		this.latencies = latencies;
+		this.queueLengths = queueLengths;
+		this.sampleIntervalNanos = sampleIntervalNanos;
+		this.eventCount = eventCount;
+		this.wallNanos = wallNanos;
+	}
+
+	public FleetModel getModel() {
+		return this.model;
+	}
+
+	public long getCreated() {
+		return this.created;
+	}
+
+	public long getBurned() {
+		return this.burned;
+	}
+
+	public long getBatches() {
+		return this.batches;
+	}
+
+	public long getMakespanNanos() {
+		return this.makespanNanos;
+	}
+
+	public long getEventCount() {
+		return this.eventCount;
+	}
+
+	public long getWallNanos() {
+		return this.wallNanos;
+	}
+
+	/**
+	 * Get share of slot time spent burning or changing temperature, over all slots of the fleet until the last batch was burned.
+	 * @return utilisation between 0 and 1.
+	 */
+	public double getUtilisation() {
+		long slotCount = (long) this.model.getOvenCount() * this.model.getTuning().getSlotCount();
+		return this.makespanNanos == 0 ? 0 : (double) this.busyNanos / slotCount / this.makespanNanos;
+	}
+
+	/**
+	 * Get share of the busy slot time spent changing temperature.
+	 * @return changeover share between 0 and 1.
+	 */
+	public double getChangeoverShare() {
+		return this.busyNanos == 0 ? 0 : (double) this.changeoverNanos / this.busyNanos;
+	}
+
+	/**
+	 * Get mean number of products in a batch.
+	 * @return mean batch size.
+	 */
+	public double getMeanBatchSize() {
+		return this.batches == 0 ? 0 : (double) this.burned / this.batches;
+	}
+
+	/**
+	 * Get rate at which products were burned over the whole run.
+	 * @return products per second of virtual time.
+	 */
+	public double getThroughput() {
+		return this.makespanNanos == 0 ? 0 : this.burned * 1e9 / this.makespanNanos;
+	}
+
+	/**
+	 * Get latency of the burned products at a percentile.
+	 * @param percentile percentage between 0 and 100.
+	 * @return latency in nanoseconds.
+	 */
+	public long getLatencyNanos(double percentile) {
+		return this.latencies.getValueAtPercentile(percentile);
+	}
+
+	/**
+	 * Get mean latency of the burned products.
+	 * @return latency in nanoseconds.
+	 */
+	public double getMeanLatencyNanos() {
+		return this.latencies.getMeanNanos();
+	}
+
+	/**
+	 * Get number of waiting products at every sample, the first sample is taken at time 0.
+	 * @return queue lengths.
+	 */
+	public int[] getQueueLengths() {
+		return this.queueLengths.clone();
+	}
+
+	/**
+	 * Get largest sampled number of waiting products.
+	 * @return queue length.
+	 */
+	public int getMaxQueueLength() {
+		return Arrays.stream(this.queueLengths).max().orElse(0);
+	}
+
+	public long getSampleIntervalNanos() {
+		return this.sampleIntervalNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%4d ovens | %9d burned | %7.1f/s | util %5.1f%% | changeover %4.1f%% | batch %4.1f | p50 %7.1f s | p99 %7.1f s"
+				+ " | max %7.1f s | max queue %7d | %6d ms",
+				this.model.getOvenCount(), this.burned, this.getThroughput(), this.getUtilisation() * 100, this.getChangeoverShare() * 100,
+				this.getMeanBatchSize(), this.getLatencyNanos(50) / 1e9, this.getLatencyNanos(99) / 1e9, this.latencies.getMaxNanos() / 1e9,
+				this.getMaxQueueLength(), TimeUnit.NANOSECONDS.toMillis(this.wallNanos));
+	}
+}
@@ -0,0 +1,41 @@
+package com.service.burn.transport;
+
+import java.io.IOException;
+
+/**
+ * Delivery interface represents one message delivered to a consumer, waiting to be acked or nacked.
+ *
+ */
+public interface Delivery {
+
+	/**
+	 * Get the delivered message.
+	 * @return message.
+	 */
+	Message getMessage();
+
+	/**
+	 * Get tag of the consumer the message was delivered to.
+	 * @return consumer tag.
+	 */
+	String getConsumerTag();
+
+	/**
+	 * Tell whether the message was delivered before and not acked (e.g. its consumer died).
+	 * @return true if redelivered.
+	 */
+	boolean isRedelivered();
+
+	/**
+	 * Acknowledge the delivery, the message is removed from the queue.
+	 * @throws IOException if the acknowledgement can not be sent.
+	 */
+	void ack() throws IOException;
+
+	/**
+	 * Reject the delivery.
+	 * @param requeue true to put the message back into the queue, false to drop it.
+	 * @throws IOException if the rejection can not be sent.
+	 */
+	void nack(boolean requeue) throws IOException;
+}
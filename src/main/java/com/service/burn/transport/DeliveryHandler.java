@@ -0,0 +1,17 @@
+package com.service.burn.transport;
+
+/**
+ * DeliveryHandler interface is called for every message delivered to a consumer.<br>
+ * The handler has to ack or nack the delivery, either before returning or later from any thread.
+ *
+ */
+@FunctionalInterface
+public interface DeliveryHandler {
+
+	/**
+	 * Handle a delivered message.
+	 * @param delivery the delivery.
+	 * @throws Exception if the message can not be handled, the delivery is then nacked and requeued.
+	 */
+	void handle(Delivery delivery) throws Exception;
+}
@@ -0,0 +1,463 @@
+package com.service.burn.transport;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import com.service.burn.Utility;
+import com.service.burn.logging.EventLog;
+
+/**
+ * <h2>InMemoryTransport class is a transport whose queues live inside the JVM.</h2>
+ * It lets the whole product, oven and response pipeline run in one process, e.g. on a single box, in throughput tests and in integration tests.<br>
+ * Queues are lock free (ConcurrentLinkedQueue). Every consumer has its own dispatcher thread which delivers messages as long as
+ * the consumer has fewer unacked deliveries than its prefetch, and parks otherwise.<br>
+ * A priority queue keeps one ConcurrentLinkedQueue per priority and delivers from the highest priority first.<br>
+ * A delay queue holds no messages, every message published to it is moved to its target queue by a timer.<br>
+ * A fanout exchange calls its subscribers on the broadcasting thread.<br>
+ * Messages are kept in memory only, they do not survive the process.
+ *
+ */
+public class InMemoryTransport implements Transport {
+
+	private static final EventLog LOG = Utility.getEventLog();
+
+	/**
+	 * Longest time a dispatcher parks before looking at its queue again.
+	 */
+	private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	/**
+	 * Queues by name.
+	 */
+	private final ConcurrentMap<String, MemoryQueue> queues = new ConcurrentHashMap<>();
+
+	/**
+	 * Delay queues by name.
+	 */
+	private final ConcurrentMap<String, MemoryDelayQueue> delayQueues = new ConcurrentHashMap<>();
+
+	/**
+	 * Subscribers of the fanout exchanges by exchange name.
+	 */
+	private final ConcurrentMap<String, List<Consumer<Message>>> fanouts = new ConcurrentHashMap<>();
+
+	/**
+	 * Moves the messages of the delay queues, null until the first message is delayed.
+	 */
+	private ScheduledExecutorService delayTimer;
+
+	/**
+	 * Source of consumer tags.
+	 */
+	private final AtomicLong consumerCounter = new AtomicLong();
+
+	/**
+	 * Set once the transport is closed.
+	 */
+	private volatile boolean closed;
+
+	@Override
+	public void declareQueue(String queue, int maxPriority) throws IOException {
+		if (this.delayQueues.containsKey(queue))
+			throw new IOException("Queue '" + queue + "' is declared as a delay queue");
+		MemoryQueue memoryQueue = this.queues.computeIfAbsent(queue, name -> new MemoryQueue(maxPriority));
+		if (memoryQueue.levels.length != Math.max(0, maxPriority) + 1)
+			throw new IOException("Queue '" + queue + "' is declared with another maximum priority");
+	}
+
+	@Override
+	public void declareDelayQueue(String queue, long delayMillis, String targetQueue) throws IOException {
+		if (this.queues.containsKey(queue))
+			throw new IOException("Queue '" + queue + "' is declared as a plain queue");
+		MemoryDelayQueue delayQueue = this.delayQueues.computeIfAbsent(queue, name -> new MemoryDelayQueue(delayMillis, targetQueue));
+		if (delayQueue.delayMillis != delayMillis || !delayQueue.targetQueue.equals(targetQueue))
+			throw new IOException("Delay queue '" + queue + "' is declared with another delay or target");
+	}
+
+	@Override
+	public CompletableFuture<Void> publish(String queue, Message message) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		MemoryQueue memoryQueue = this.queues.get(queue);
+		MemoryDelayQueue delayQueue = memoryQueue == null ? this.delayQueues.get(queue) : null;
+		if (this.closed) {
+			future.completeExceptionally(new IOException("Transport is closed"));
+		} else if (delayQueue != null) {
+			try {
+				this.delay(delayQueue, message);
+				future.complete(null);
+			} catch (RejectedExecutionException ex) {
+				future.completeExceptionally(new IOException("Transport is closed"));
+			}
+		} else if (memoryQueue == null) {
+			future.completeExceptionally(new PublishRejectedException("Queue '" + queue + "' is not declared"));
+		} else {
+			memoryQueue.offer(new Envelope(message));
+			future.complete(null);
+		}
+		return future;
+	}
+
+	@Override
+	public Subscription consume(String queue, int prefetch, DeliveryHandler handler) throws IOException {
+		MemoryQueue memoryQueue = this.queues.get(queue);
+		if (memoryQueue == null)
+			throw new IOException("Queue '" + queue + "' is not declared");
+		if (prefetch < 1)
+			throw new IllegalArgumentException("Prefetch must be at least 1");
+
+		MemoryConsumer consumer = new MemoryConsumer(memoryQueue, "mem.ctag-" + this.consumerCounter.incrementAndGet(), prefetch, handler);
+		memoryQueue.consumers.add(consumer);
+		consumer.thread.start();
+		return consumer;
+	}
+
+	/**
+	 * Get number of messages in a queue which are waiting to be delivered.
+	 * @param queue name of the queue.
+	 * @return number of ready messages, 0 if the queue does not exist.
+	 */
+	@Override
+	public int getMessageCount(String queue) {
+		MemoryQueue memoryQueue = this.queues.get(queue);
+		if (memoryQueue != null)
+			return memoryQueue.size.get();
+		MemoryDelayQueue delayQueue = this.delayQueues.get(queue);
+		return delayQueue == null ? 0 : delayQueue.size.get();
+	}
+
+	@Override
+	public void declareFanout(String exchange) {
+		this.fanouts.computeIfAbsent(exchange, name -> new CopyOnWriteArrayList<>());
+	}
+
+	@Override
+	public void broadcast(String exchange, Message message) throws IOException {
+		List<Consumer<Message>> subscribers = this.fanouts.get(exchange);
+		if (subscribers == null)
+			throw new IOException("Exchange '" + exchange + "' is not declared");
+		if (this.closed)
+			throw new IOException("Transport is closed");
+		for (Consumer<Message> subscriber : subscribers) {
+			try {
+				subscriber.accept(message);
+			} catch (RuntimeException ex) {
+				LOG.error("Exception Occurred", ex).with("broadcast", "dropped").log();
+			}
+		}
+	}
+
+	@Override
+	public Subscription subscribe(String exchange, Consumer<Message> listener) throws IOException {
+		List<Consumer<Message>> subscribers = this.fanouts.get(exchange);
+		if (subscribers == null)
+			throw new IOException("Exchange '" + exchange + "' is not declared");
+
+		Consumer<Message> subscriber = message -> {
+			synchronized (listener) { // One message at a time, like a consumer of a queue
+				listener.accept(message);
+			}
+		};
+		subscribers.add(subscriber);
+		String consumerTag = "mem.ctag-" + this.consumerCounter.incrementAndGet();
+		return new Subscription() {
+			@Override
+			public String getConsumerTag() {
+				return consumerTag;
+			}
+
+			@Override
+			public void cancel() {
+				subscribers.remove(subscriber);
+			}
+
+			@Override
+			public void setPrefetch(int prefetch) {
+				// Nothing is acknowledged, there is nothing to limit
+			}
+		};
+	}
+
+	@Override
+	public void close() {
+		this.closed = true;
+		synchronized (this.delayQueues) {
+			if (this.delayTimer != null)
+				this.delayTimer.shutdownNow(); // Delayed messages are lost like every other message in memory
+		}
+		for (MemoryQueue memoryQueue : this.queues.values()) {
+			for (MemoryConsumer consumer : memoryQueue.consumers) {
+				consumer.cancel();
+			}
+		}
+		for (List<Consumer<Message>> subscribers : this.fanouts.values()) {
+			subscribers.clear();
+		}
+	}
+
+	/**
+	 * Move a message to the target of a delay queue once it waited the delay.<br>
+	 * Like a broker, the message is dropped if the target queue does not exist by then.
+	 * @param delayQueue delay queue the message was published to.
+	 * @param message message to move.
+	 * @throws RejectedExecutionException if the transport was closed meanwhile.
+	 */
+	private void delay(MemoryDelayQueue delayQueue, Message message) {
+		ScheduledExecutorService timer;
+		synchronized (this.delayQueues) {
+			if (this.delayTimer == null) {
+				this.delayTimer = new ScheduledThreadPoolExecutor(1, runnable -> {
+					Thread thread = new Thread(runnable, "in-memory-delay");
+					thread.setDaemon(true);
+					return thread;
+				});
+			}
+			timer = this.delayTimer;
+		}
+		delayQueue.size.incrementAndGet();
+		try {
+			timer.schedule(() -> {
+				delayQueue.size.decrementAndGet();
+				MemoryQueue target = this.queues.get(delayQueue.targetQueue);
+				if (target != null && !this.closed)
+					target.offer(new Envelope(message));
+			}, delayQueue.delayMillis, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException ex) {
+			delayQueue.size.decrementAndGet();
+			throw ex;
+		}
+	}
+
+	/**
+	 * A message in a queue, together with its redelivery flag.
+	 */
+	private static class Envelope {
+		private final Message message;
+		private volatile boolean redelivered;
+
+		private Envelope(Message message) {
+			this.message = message;
+		}
+	}
+
+	/**
+	 * A queue and the consumers which take messages from it.
+	 */
+	private static class MemoryQueue {
+
+		/**
+		 * Ready messages by priority.
+		 */
+		private final Queue<Envelope>[] levels;
+
+		/**
+		 * Number of ready messages, ConcurrentLinkedQueue.size() walks the whole queue.
+		 */
+		private final AtomicInteger size = new AtomicInteger();
+
+		private final List<MemoryConsumer> consumers = new CopyOnWriteArrayList<>();
+
+		@SuppressWarnings({"rawtypes", "unchecked"})
+		private MemoryQueue(int maxPriority) {
+			this.levels = new Queue[Math.max(0, maxPriority) + 1];
+			for (int priority = 0; priority < this.levels.length; priority++) {
+				this.levels[priority] = new ConcurrentLinkedQueue<>();
+			}
+		}
+
+		private void offer(Envelope envelope) {
+			int priority = Math.max(0, Math.min(this.levels.length - 1, envelope.message.getPriority()));
+			this.levels[priority].offer(envelope);
+			this.size.incrementAndGet();
+			for (MemoryConsumer consumer : this.consumers) {
+				consumer.wake();
+			}
+		}
+
+		private Envelope poll() {
+			for (int priority = this.levels.length - 1; priority >= 0; priority--) {
+				Envelope envelope = this.levels[priority].poll();
+				if (envelope != null) {
+					this.size.decrementAndGet();
+					return envelope;
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * A queue which moves its messages to a target queue after a delay.
+	 */
+	private static class MemoryDelayQueue {
+		private final long delayMillis;
+		private final String targetQueue;
+
+		/**
+		 * Number of messages waiting for their delay.
+		 */
+		private final AtomicInteger size = new AtomicInteger();
+
+		private MemoryDelayQueue(long delayMillis, String targetQueue) {
+			this.delayMillis = delayMillis;
+			this.targetQueue = targetQueue;
+		}
+	}
+
+	/**
+	 * A consumer with its own dispatcher thread.
+	 */
+	private static class MemoryConsumer implements Subscription, Runnable {
+
+		private final MemoryQueue queue;
+		private final String consumerTag;
+		private volatile int prefetch;
+		private final DeliveryHandler handler;
+		private final Thread thread;
+
+		/**
+		 * Number of delivered messages which are not acked or nacked yet.
+		 */
+		private final AtomicInteger unacked = new AtomicInteger();
+
+		private volatile boolean running = true;
+
+		private MemoryConsumer(MemoryQueue queue, String consumerTag, int prefetch, DeliveryHandler handler) {
+			this.queue = queue;
+			this.consumerTag = consumerTag;
+			this.prefetch = prefetch;
+			this.handler = handler;
+			this.thread = new Thread(this, "in-memory-" + consumerTag);
+			this.thread.setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			while (this.running) {
+				if (this.unacked.get() >= this.prefetch) {
+					LockSupport.parkNanos(this, MAX_PARK_NANOS); // Woken up by an ack
+					continue;
+				}
+				Envelope envelope = this.queue.poll();
+				if (envelope == null) {
+					LockSupport.parkNanos(this, MAX_PARK_NANOS); // Woken up by a publish
+					continue;
+				}
+				this.unacked.incrementAndGet();
+				MemoryDelivery delivery = new MemoryDelivery(this, envelope);
+				try {
+					this.handler.handle(delivery);
+				} catch (Exception ex) {
+					LOG.error("Exception Occurred", ex).with("delivery", "requeued").log();
+					delivery.requeueIfUnsettled();
+				}
+			}
+		}
+
+		@Override
+		public String getConsumerTag() {
+			return this.consumerTag;
+		}
+
+		@Override
+		public void cancel() {
+			this.running = false;
+			this.queue.consumers.remove(this);
+			this.wake();
+		}
+
+		@Override
+		public void setPrefetch(int prefetch) {
+			if (prefetch < 1)
+				throw new IllegalArgumentException("Prefetch must be at least 1");
+			this.prefetch = prefetch;
+			this.wake();
+		}
+
+		private void wake() {
+			LockSupport.unpark(this.thread);
+		}
+
+		private void settled() {
+			this.unacked.decrementAndGet();
+			this.wake();
+		}
+	}
+
+	/**
+	 * A message delivered to an in-memory consumer.
+	 */
+	private static class MemoryDelivery implements Delivery {
+
+		private final MemoryConsumer consumer;
+		private final Envelope envelope;
+		private final boolean redelivered;
+		private final AtomicBoolean settled = new AtomicBoolean();
+
+		private MemoryDelivery(MemoryConsumer consumer, Envelope envelope) {
+			this.consumer = consumer;
+			this.envelope = envelope;
+			this.redelivered = envelope.redelivered;
+		}
+
+		@Override
+		public Message getMessage() {
+			return this.envelope.message;
+		}
+
+		@Override
+		public String getConsumerTag() {
+			return this.consumer.consumerTag;
+		}
+
+		@Override
+		public boolean isRedelivered() {
+			return this.redelivered;
+		}
+
+		@Override
+		public void ack() throws IOException {
+			this.settle();
+		}
+
+		@Override
+		public void nack(boolean requeue) throws IOException {
+			this.settle();
+			if (requeue) {
+				this.envelope.redelivered = true;
+				this.consumer.queue.offer(this.envelope);
+			}
+		}
+
+		/**
+		 * Requeue the delivery unless the handler already acked or nacked it.
+		 */
+		private void requeueIfUnsettled() {
+			if (this.settled.compareAndSet(false, true)) {
+				this.consumer.settled();
+				this.envelope.redelivered = true;
+				this.consumer.queue.offer(this.envelope);
+			}
+		}
+
+		private void settle() throws IOException {
+			if (!this.settled.compareAndSet(false, true))
+				throw new IOException("Delivery was already acked or nacked");
+			this.consumer.settled();
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package com.service.burn.transport;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <h2>Message class is a persistent message travelling through a transport.</h2>
+ * A message has a body, the content-type of the body, optional headers and a priority (0 unless set).
+ *
+ */
+public class Message {
+
+	/**
+	 * Body of the message.
+	 */
+	private final byte[] body;
+
+	/**
+	 * Content-type of the body, may be null.
+	 */
+	private final String contentType;
+
+	/**
+	 * Headers of the message.
+	 */
+	private final Map<String, Object> headers;
+
+	/**
+	 * Priority of the message, only used by queues declared with a maximum priority.
+	 */
+	private final int priority;
+
+	/**
+	 * <p>Constructor to initialize a message without headers.</p>
+	 * @param body body of the message.
+	 * @param contentType content-type of the body, may be null.
+	 */
+	public Message(byte[] body, String contentType) {
+		this(body, contentType, null);
+	}
+
+	/**
+	 * <p>Constructor to initialize a message.</p>
+	 * @param body body of the message.
+	 * @param contentType content-type of the body, may be null.
+	 * @param headers headers of the message, may be null.
+	 */
+	public Message(byte[] body, String contentType, Map<String, Object> headers) {
+		this(body, contentType, headers, 0);
+	}
+
+	/**
+	 * <p>Constructor to initialize a message with a priority.</p>
+	 * @param body body of the message.
+	 * @param contentType content-type of the body, may be null.
+	 * @param headers headers of the message, may be null.
+	 * @param priority priority of the message, higher is delivered first.
+	 */
+	public Message(byte[] body, String contentType, Map<String, Object> headers, int priority) {
+		this.body = body;
+		this.contentType = contentType;
+		this.headers = headers == null || headers.isEmpty() ? Collections.<String, Object>emptyMap()
+				: Collections.unmodifiableMap(new HashMap<>(headers));
+		this.priority = priority;
+	}
+
+	public byte[] getBody() {
+		return this.body;
+	}
+
+	public String getContentType() {
+		return this.contentType;
+	}
+
+	/**
+	 * Get headers of the message.
+	 * @return unmodifiable headers, empty if the message has none.
+	 */
+	public Map<String, Object> getHeaders() {
+		return this.headers;
+	}
+
+	/**
+	 * Get priority of the message.
+	 * @return priority, 0 if not set.
+	 */
+	public int getPriority() {
+		return this.priority;
+	}
+
+	/**
+	 * Get a copy of this message with one more header.
+	 * @param name name of the header.
+	 * @param value value of the header.
+	 * @return new message.
+	 */
+	public Message withHeader(String name, Object value) {
+		Map<String, Object> copy = new HashMap<>(this.headers);
+		copy.put(name, value);
+		return new Message(this.body, this.contentType, copy, this.priority);
+	}
+
+	/**
+	 * Get a copy of this message with another priority.
+	 * @param priority priority of the copy.
+	 * @return new message.
+	 */
+	public Message withPriority(int priority) {
+		return new Message(this.body, this.contentType, this.headers, priority);
+	}
+}
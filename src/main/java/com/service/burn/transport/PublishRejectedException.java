@@ -0,0 +1,20 @@
+package com.service.burn.transport;
+
+import java.io.IOException;
+
+/**
+ * PublishRejectedException is reported when the broker refuses (nacks) a published message.
+ *
+ */
+public class PublishRejectedException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * <p>Constructor to initialize the exception.</p>
+	 * @param message description of the rejection.
+	 */
+	public PublishRejectedException(String message) {
+		super(message);
+	}
+}
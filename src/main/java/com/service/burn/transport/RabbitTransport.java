@@ -0,0 +1,328 @@
+package com.service.burn.transport;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.BuiltinExchangeType;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+import com.rabbitmq.client.DeliverCallback;
+import com.rabbitmq.client.MessageProperties;
+import com.service.burn.Utility;
+import com.service.burn.logging.EventLog;
+import com.service.burn.messaging.PooledPublisher;
+
+/**
+ * <h2>RabbitTransport class is the transport through a RabbitMQ broker.</h2>
+ * Messages are published with the oven's pooled, confirming publisher and published as persistent messages through the default exchange.<br>
+ * Every consumer gets its own channel on a shared consumer connection, so its prefetch (basicQos) only limits that consumer.<br>
+ * Broadcasts are published without confirms on one channel of the consumer connection. A subscriber consumes with auto ack from
+ * its own exclusive, server named queue bound to the fanout exchange, which the broker deletes when the subscriber goes away.
+ *
+ */
+public class RabbitTransport implements Transport {
+
+	private static final EventLog LOG = Utility.getEventLog();
+
+	/**
+	 * Settings of the connections.
+	 */
+	private final ConnectionFactory factory;
+
+	/**
+	 * Publisher used for every publish.
+	 */
+	private final PooledPublisher publisher;
+
+	/**
+	 * Guards opening of the consumer connection.
+	 */
+	private final Object connectionLock = new Object();
+
+	/**
+	 * Connection on which the consumer channels are opened, null until the first consumer or queue declaration.
+	 */
+	private Connection consumerConnection;
+
+	/**
+	 * Channel on which broadcasts are published, null until the first broadcast.
+	 */
+	private Channel broadcastChannel;
+
+	/**
+	 * <p>Constructor to initialize a RabbitMQ transport.</p>
+	 * @param factory connection settings.
+	 * @param publisherPoolSize maximum number of channels used to publish concurrently.
+	 * @param borrowTimeoutMillis maximum time to wait for a free publisher channel.
+	 * @throws IOException if the publisher connection can not be opened.
+	 * @throws TimeoutException if the broker does not answer in time.
+	 */
+	public RabbitTransport(ConnectionFactory factory, int publisherPoolSize, long borrowTimeoutMillis) throws IOException, TimeoutException {
+		this.factory = factory;
+		this.publisher = new PooledPublisher(factory, publisherPoolSize, borrowTimeoutMillis);
+		this.publisher.start();
+	}
+
+	@Override
+	public void declareQueue(String queue, int maxPriority) throws IOException {
+		Channel channel = this.getConsumerConnection().createChannel();
+		try {
+			Map<String, Object> arguments = maxPriority > 0 ? Collections.<String, Object>singletonMap("x-max-priority", maxPriority) : null;
+			channel.queueDeclare(queue, true, false, false, arguments); // Durable queue which survives a broker restart
+		} finally {
+			closeQuietly(channel);
+		}
+	}
+
+	/**
+	 * Declare a delay queue as a durable queue whose messages expire after the delay (x-message-ttl)
+	 * and are then dead-lettered by the broker through the default exchange to the target queue.
+	 */
+	@Override
+	public void declareDelayQueue(String queue, long delayMillis, String targetQueue) throws IOException {
+		Channel channel = this.getConsumerConnection().createChannel();
+		try {
+			Map<String, Object> arguments = new HashMap<>();
+			arguments.put("x-message-ttl", delayMillis);
+			arguments.put("x-dead-letter-exchange", "");
+			arguments.put("x-dead-letter-routing-key", targetQueue);
+			channel.queueDeclare(queue, true, false, false, arguments);
+		} finally {
+			closeQuietly(channel);
+		}
+	}
+
+	@Override
+	public int getMessageCount(String queue) throws IOException {
+		Channel channel = this.getConsumerConnection().createChannel();
+		try {
+			return channel.queueDeclarePassive(queue).getMessageCount(); // Fails and closes the channel if the queue does not exist
+		} finally {
+			closeQuietly(channel);
+		}
+	}
+
+	@Override
+	public CompletableFuture<Void> publish(String queue, Message message) {
+		return this.publisher.publish(queue, toProperties(message), message.getBody());
+	}
+
+	@Override
+	public Subscription consume(String queue, int prefetch, DeliveryHandler handler) throws IOException {
+		final Channel channel = this.getConsumerConnection().createChannel();
+		channel.basicQos(prefetch, true); // Channel wide, the channel has only this consumer and a channel limit can be changed later
+		DeliverCallback deliverCallback = (consumerTag, delivery) -> {
+			RabbitDelivery rabbitDelivery = new RabbitDelivery(channel, consumerTag, delivery);
+			try {
+				handler.handle(rabbitDelivery);
+			} catch (Exception ex) {
+				LOG.error("Exception Occurred", ex).with("delivery", "requeued").log();
+				rabbitDelivery.nack(true);
+			}
+		};
+		final String consumerTag = channel.basicConsume(queue, false, deliverCallback, tag -> { });
+		return new Subscription() {
+			@Override
+			public String getConsumerTag() {
+				return consumerTag;
+			}
+
+			@Override
+			public void cancel() throws IOException {
+				synchronized (channel) {
+					channel.basicCancel(consumerTag);
+				}
+			}
+
+			@Override
+			public void setPrefetch(int prefetch) throws IOException {
+				synchronized (channel) {
+					channel.basicQos(prefetch, true); // Applies to the running consumer, unlike a per consumer limit
+				}
+			}
+		};
+	}
+
+	@Override
+	public void declareFanout(String exchange) throws IOException {
+		Channel channel = this.getConsumerConnection().createChannel();
+		try {
+			channel.exchangeDeclare(exchange, BuiltinExchangeType.FANOUT, true);
+		} finally {
+			closeQuietly(channel);
+		}
+	}
+
+	@Override
+	public void broadcast(String exchange, Message message) throws IOException {
+		synchronized (this.connectionLock) {
+			if (this.broadcastChannel == null || !this.broadcastChannel.isOpen())
+				this.broadcastChannel = this.getConsumerConnection().createChannel();
+			AMQP.BasicProperties properties = new AMQP.BasicProperties.Builder() // Not persistent, an old status is worth nothing after a restart
+					.contentType(message.getContentType())
+					.headers(message.getHeaders().isEmpty() ? null : message.getHeaders())
+					.build();
+			this.broadcastChannel.basicPublish(exchange, "", properties, message.getBody());
+		}
+	}
+
+	@Override
+	public Subscription subscribe(String exchange, Consumer<Message> listener) throws IOException {
+		final Channel channel = this.getConsumerConnection().createChannel();
+		String queue = channel.queueDeclare().getQueue(); // Exclusive and auto delete
+		channel.queueBind(queue, exchange, "");
+		DeliverCallback deliverCallback = (consumerTag, delivery) -> {
+			try {
+				listener.accept(toMessage(delivery.getProperties(), delivery.getBody()));
+			} catch (RuntimeException ex) {
+				LOG.error("Exception Occurred", ex).with("broadcast", "dropped").log();
+			}
+		};
+		final String consumerTag = channel.basicConsume(queue, true, deliverCallback, tag -> { });
+		return new Subscription() {
+			@Override
+			public String getConsumerTag() {
+				return consumerTag;
+			}
+
+			@Override
+			public void cancel() throws IOException {
+				synchronized (channel) {
+					channel.basicCancel(consumerTag);
+				}
+				closeQuietly(channel); // Deletes the queue
+			}
+
+			@Override
+			public void setPrefetch(int prefetch) {
+				// Auto ack, there is nothing unacknowledged to limit
+			}
+		};
+	}
+
+	@Override
+	public void close() {
+		this.publisher.close();
+		synchronized (this.connectionLock) {
+			if (this.consumerConnection != null) {
+				try {
+					this.consumerConnection.close();
+				} catch (Exception _ignored) {
+					// The connection is already gone, nothing left to release.
+				}
+				this.consumerConnection = null;
+			}
+		}
+	}
+
+	/**
+	 * Get the consumer connection, opening it on first use.<br>
+	 * The connection recovers by itself (see Configuration.getConnectionFactory()), so it is opened only once.
+	 * @return consumer connection.
+	 * @throws IOException if the connection can not be opened.
+	 */
+	private Connection getConsumerConnection() throws IOException {
+		synchronized (this.connectionLock) {
+			if (this.consumerConnection == null) {
+				try {
+					this.consumerConnection = this.factory.newConnection();
+				} catch (TimeoutException ex) {
+					throw new IOException(ex);
+				}
+			}
+			return this.consumerConnection;
+		}
+	}
+
+	/**
+	 * Convert a message into persistent RabbitMQ properties.
+	 * @param message message to convert.
+	 * @return message properties.
+	 */
+	private static AMQP.BasicProperties toProperties(Message message) {
+		return MessageProperties.PERSISTENT_BASIC.builder()
+				.contentType(message.getContentType())
+				.headers(message.getHeaders().isEmpty() ? null : message.getHeaders())
+				.priority(message.getPriority() > 0 ? message.getPriority() : null)
+				.build();
+	}
+
+	/**
+	 * Convert RabbitMQ properties and a body into a message.
+	 * @param properties message properties, may be null.
+	 * @param body message body.
+	 * @return message.
+	 */
+	private static Message toMessage(AMQP.BasicProperties properties, byte[] body) {
+		return new Message(body, properties == null ? null : properties.getContentType(),
+				properties == null ? null : properties.getHeaders(),
+				properties == null || properties.getPriority() == null ? 0 : properties.getPriority());
+	}
+
+	/**
+	 * Close a channel ignoring any failure.
+	 * @param channel channel to close.
+	 */
+	private static void closeQuietly(Channel channel) {
+		try {
+			if (channel.isOpen())
+				channel.close();
+		} catch (Exception _ignored) {
+			// Closing a broken channel is best effort.
+		}
+	}
+
+	/**
+	 * A message delivered by RabbitMQ.
+	 */
+	private static class RabbitDelivery implements Delivery {
+
+		private final Channel channel;
+		private final String consumerTag;
+		private final com.rabbitmq.client.Delivery delivery;
+		private final Message message;
+
+		private RabbitDelivery(Channel channel, String consumerTag, com.rabbitmq.client.Delivery delivery) {
+			this.channel = channel;
+			this.consumerTag = consumerTag;
+			this.delivery = delivery;
+			this.message = toMessage(delivery.getProperties(), delivery.getBody());
+		}
+
+		@Override
+		public Message getMessage() {
+			return this.message;
+		}
+
+		@Override
+		public String getConsumerTag() {
+			return this.consumerTag;
+		}
+
+		@Override
+		public boolean isRedelivered() {
+			return this.delivery.getEnvelope().isRedeliver();
+		}
+
+		@Override
+		public void ack() throws IOException {
+			synchronized (this.channel) { // Deliveries are acked from different threads, keep the consuming channel used by one at a time
+				this.channel.basicAck(this.delivery.getEnvelope().getDeliveryTag(), false);
+			}
+		}
+
+		@Override
+		public void nack(boolean requeue) throws IOException {
+			synchronized (this.channel) {
+				this.channel.basicNack(this.delivery.getEnvelope().getDeliveryTag(), false, requeue);
+			}
+		}
+	}
+}
@@ -0,0 +1,30 @@
+package com.service.burn.transport;
+
+import java.io.IOException;
+
+/**
+ * Subscription interface represents a running consumer of a queue.
+ *
+ */
+public interface Subscription {
+
+	/**
+	 * Get tag of the consumer.
+	 * @return consumer tag.
+	 */
+	String getConsumerTag();
+
+	/**
+	 * Stop delivering new messages to the consumer. Messages already delivered can still be acked or nacked.
+	 * @throws IOException if the consumer can not be cancelled.
+	 */
+	void cancel() throws IOException;
+
+	/**
+	 * Change the maximum number of unacknowledged messages delivered to the consumer.<br>
+	 * Messages already delivered stay with the consumer, a lower prefetch only holds back further deliveries.
+	 * @param prefetch maximum number of unacknowledged messages, at least 1.
+	 * @throws IOException if the prefetch can not be changed.
+	 */
+	void setPrefetch(int prefetch) throws IOException;
+}
@@ -0,0 +1,100 @@
+package com.service.burn.transport;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * <h2>Transport interface is the small set of messaging operations the services need.</h2>
+ * It hides whether products travel through RabbitMQ ({@link RabbitTransport}) or through queues inside the JVM ({@link InMemoryTransport}).<br>
+ * Queues are durable and work queue like: every message is delivered to one consumer, which has to ack or nack it.<br>
+ * Fanout exchanges are for small status messages every subscriber should see: a broadcast reaches every subscriber at that time,
+ * it is neither persistent nor acknowledged.
+ *
+ */
+public interface Transport extends AutoCloseable {
+
+	/**
+	 * Declare a queue if it does not exist yet.
+	 * @param queue name of the queue.
+	 * @throws IOException if the queue can not be declared.
+	 */
+	default void declareQueue(String queue) throws IOException {
+		this.declareQueue(queue, 0);
+	}
+
+	/**
+	 * Declare a priority queue if it does not exist yet.<br>
+	 * Messages with a higher priority are delivered first, priorities above the maximum count as the maximum.
+	 * A queue must always be declared with the same maximum priority.
+	 * @param queue name of the queue.
+	 * @param maxPriority maximum priority of the queue, 0 for a plain first in, first out queue.
+	 * @throws IOException if the queue can not be declared, e.g. because it exists with another maximum priority.
+	 */
+	void declareQueue(String queue, int maxPriority) throws IOException;
+
+	/**
+	 * Declare a delay queue if it does not exist yet.<br>
+	 * A delay queue has no consumer, every message published to it is moved to the target queue once it waited the delay.
+	 * A delay queue must always be declared with the same delay and target.
+	 * @param queue name of the delay queue.
+	 * @param delayMillis time a message waits before it is moved.
+	 * @param targetQueue name of the queue the messages are moved to.
+	 * @throws IOException if the queue can not be declared, e.g. because it exists with another delay.
+	 */
+	void declareDelayQueue(String queue, long delayMillis, String targetQueue) throws IOException;
+
+	/**
+	 * Publish a message to a queue.
+	 * @param queue name of the queue.
+	 * @param message message to publish.
+	 * @return future which completes once the transport took responsibility for the message,
+	 * or completes exceptionally if the message was rejected or could not be published.
+	 */
+	CompletableFuture<Void> publish(String queue, Message message);
+
+	/**
+	 * Start consuming messages of a queue.
+	 * @param queue name of the queue.
+	 * @param prefetch maximum number of delivered messages which are not acked or nacked yet.
+	 * @param handler handler called for every delivered message.
+	 * @return subscription which can be used to stop consuming.
+	 * @throws IOException if consuming can not be started.
+	 */
+	Subscription consume(String queue, int prefetch, DeliveryHandler handler) throws IOException;
+
+	/**
+	 * Get number of messages in a queue which are waiting to be delivered, not counting delivered messages which are not acked yet.
+	 * @param queue name of the queue.
+	 * @return number of ready messages.
+	 * @throws IOException if the queue can not be read, e.g. because it does not exist.
+	 */
+	int getMessageCount(String queue) throws IOException;
+
+	/**
+	 * Declare a fanout exchange if it does not exist yet.
+	 * @param exchange name of the exchange.
+	 * @throws IOException if the exchange can not be declared.
+	 */
+	void declareFanout(String exchange) throws IOException;
+
+	/**
+	 * Send a message to every subscriber of a fanout exchange. A subscriber which is not connected misses it.
+	 * @param exchange name of the exchange.
+	 * @param message message to send.
+	 * @throws IOException if the message can not be sent, e.g. because the exchange does not exist.
+	 */
+	void broadcast(String exchange, Message message) throws IOException;
+
+	/**
+	 * Start receiving every message broadcast to a fanout exchange from now on.
+	 * @param exchange name of the exchange.
+	 * @param listener called with every message, one at a time.
+	 * @return subscription which can be used to stop receiving, its prefetch has no effect.
+	 * @throws IOException if the subscription can not be started, e.g. because the exchange does not exist.
+	 */
+	Subscription subscribe(String exchange, Consumer<Message> listener) throws IOException;
+
+	@Override
+	void close();
+}
@@ -0,0 +1,498 @@
+package com.service.burn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.service.burn.checkpoint.CheckpointDirectory;
+import com.service.burn.journal.BurnJournal;
+import com.service.burn.messaging.FailedDeliveryHandler;
+import com.service.burn.messaging.ProductWireFormat;
+import com.service.burn.messaging.PublishReport;
+import com.service.burn.model.OvenParameter;
+import com.service.burn.model.Product;
+import com.service.burn.transport.Delivery;
+import com.service.burn.transport.DeliveryHandler;
+import com.service.burn.transport.InMemoryTransport;
+import com.service.burn.transport.Message;
+import com.service.burn.transport.Subscription;
+import com.service.burn.transport.Transport;
+
+/**
+ * Integration test of the product, oven and response pipeline on an in-memory transport.
+ */
+public class PipelineTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void shouldBurnAndReturnEveryProduct() throws Exception {
+		InMemoryTransport transport = new InMemoryTransport();
+		OvenService first = new OvenService(transport, 8);
+		OvenService second = new OvenService(transport, 8);
+		first.start();
+		second.start();
+		BurnJournal journal = new BurnJournal(this.folder.getRoot().toPath(), 4096);
+		ProductService productService = new ProductService(transport, journal);
+		productService.openConnectionToGetBurnedProduct();
+
+		List<Product> products = new ArrayList<>();
+		for (int i = 0; i < 32; i++) {
+			products.add(new Product("Product " + i, new OvenParameter(200, 1)));
+		}
+		PublishReport report = productService.submitProducts(products);
+
+		assertEquals(32, report.getConfirmed());
+		assertTrue(productService.awaitBurnedProducts(32, 10, TimeUnit.SECONDS)); // 16 slots burn 32 one second products in about two seconds
+		Set<Long> journaled = new HashSet<>();
+		journal.replay(0, (product, sequence) -> journaled.add(product.getProductId()));
+		for (Product product : products) {
+			assertTrue(journaled.contains(product.getProductId())); // Acknowledged only once in the journal
+		}
+		first.stop(1, TimeUnit.SECONDS);
+		second.stop(1, TimeUnit.SECONDS);
+		journal.close();
+		transport.close();
+	}
+
+	@Test
+	public void shouldBurnOneProductPerSlotAtOnceAndAcknowledgeEachOnce() throws Exception {
+		AcknowledgeCountingTransport transport = new AcknowledgeCountingTransport();
+		OvenService oven = new OvenService(transport, 4, 1);
+		oven.start();
+		ProductService productService = new ProductService(transport);
+		productService.openConnectionToGetBurnedProduct();
+
+		List<Product> products = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			products.add(new Product("Product " + i, new OvenParameter(Configuration.DEFAULT_TEMPERATURE_FOR_BURNING, 2))); // No temperature change
+		}
+		productService.submitProducts(products);
+
+		assertTrue(productService.awaitBurnedProducts(4, 6, TimeUnit.SECONDS)); // One after the other they would burn for 8 seconds
+		oven.stop(1, TimeUnit.SECONDS);
+		assertEquals(4, transport.deliveries.size());
+		for (CountingDelivery delivery : transport.deliveries) {
+			assertEquals(1, delivery.acks.get());
+			assertEquals(0, delivery.nacks.get());
+		}
+		transport.close();
+	}
+
+	@Test
+	public void shouldCountABurnedProductWhichComesBackTwiceOnce() throws Exception {
+		InMemoryTransport transport = new InMemoryTransport();
+		ProductService productService = new ProductService(transport);
+		productService.openConnectionToGetBurnedProduct();
+		Product product = new Product("Product 1", new OvenParameter(200, 1));
+		product.setBurnedBy("oven-1");
+
+		transport.publish(Configuration.OVEN_RESPONSE_QUEUE_NAME, ProductWireFormat.JSON.toMessage(product)).get();
+		transport.publish(Configuration.OVEN_RESPONSE_QUEUE_NAME, ProductWireFormat.BINARY.toMessage(product)).get(); // Sent again by another oven
+
+		assertTrue(productService.awaitBurnedProducts(1, 5, TimeUnit.SECONDS));
+		assertFalse(productService.awaitBurnedProducts(2, 300, TimeUnit.MILLISECONDS));
+		assertEquals(1, productService.getMetrics().getProductCount());
+		transport.close();
+	}
+
+	@Test
+	public void shouldDeadLetterMalformedProductAndKeepBurning() throws Exception {
+		InMemoryTransport transport = new InMemoryTransport();
+		OvenService oven = new OvenService(transport, 1, 1); // Prefetch 1, a stuck product would stall the oven
+		oven.start();
+		ProductService productService = new ProductService(transport);
+		productService.openConnectionToGetBurnedProduct();
+
+		transport.publish(Configuration.PRODUCT_QUEUE_NAME, new Message("{\"productId\":".getBytes("UTF-8"), ProductWireFormat.JSON.getContentType())).get();
+		productService.submitProducts(Collections.singletonList(new Product("Product 1", new OvenParameter(200, 1))));
+
+		assertTrue(productService.awaitBurnedProducts(1, 10, TimeUnit.SECONDS));
+		assertEquals(1, transport.getMessageCount(Configuration.PRODUCT_DEAD_LETTER_QUEUE_NAME));
+		oven.stop(1, TimeUnit.SECONDS);
+		transport.close();
+	}
+
+	@Test
+	public void shouldDeadLetterProductWithoutOvenParameterAtOnce() throws Exception {
+		InMemoryTransport transport = new InMemoryTransport();
+		OvenService oven = new OvenService(transport, 1, 1);
+		oven.start();
+		ProductService productService = new ProductService(transport);
+		productService.openConnectionToGetBurnedProduct();
+
+		transport.publish(Configuration.PRODUCT_QUEUE_NAME, new Message("{\"productId\":1}".getBytes("UTF-8"), ProductWireFormat.JSON.getContentType())).get();
+		productService.submitProducts(Collections.singletonList(new Product("Product 1", new OvenParameter(200, 1))));
+
+		assertTrue(productService.awaitBurnedProducts(1, 10, TimeUnit.SECONDS));
+		BlockingQueue<Delivery> deadLetters = new LinkedBlockingQueue<>();
+		transport.consume(Configuration.PRODUCT_DEAD_LETTER_QUEUE_NAME, 1, deadLetters::add);
+		Delivery deadLetter = deadLetters.poll(5, TimeUnit.SECONDS);
+		assertEquals(FailedDeliveryHandler.REASON_MALFORMED, deadLetter.getMessage().getHeaders().get(FailedDeliveryHandler.FAILURE_REASON_HEADER));
+		oven.stop(1, TimeUnit.SECONDS);
+		transport.close();
+	}
+
+	@Test
+	public void shouldSendStoppedBurnBackWithItsBurnedTime() throws Exception {
+		InMemoryTransport transport = new InMemoryTransport();
+		OvenService oven = new OvenService(transport, 1, 1);
+		oven.start();
+		ProductService productService = new ProductService(transport);
+		Product product = new Product("Product 1", new OvenParameter(Configuration.DEFAULT_TEMPERATURE_FOR_BURNING, 5)); // No temperature change
+		productService.submitProducts(Collections.singletonList(product));
+
+		Thread.sleep(1500);
+		oven.stop(0, TimeUnit.SECONDS);
+
+		BlockingQueue<Delivery> deliveries = new LinkedBlockingQueue<>();
+		transport.consume(Configuration.PRODUCT_QUEUE_NAME, 1, deliveries::add);
+		Delivery delivery = deliveries.poll(5, TimeUnit.SECONDS);
+		long burnedMillis = ((Number) delivery.getMessage().getHeaders().get(OvenService.BURNED_MILLIS_HEADER)).longValue();
+		assertTrue("Burned " + burnedMillis + " ms", burnedMillis >= 1000 && burnedMillis < 5000);
+		assertEquals(product.getProductId(), ProductWireFormat.of(delivery.getMessage()).decode(delivery.getMessage().getBody()).getProductId());
+		transport.close();
+	}
+
+	@Test
+	public void shouldResumeRedeliveredProductFromItsCheckpoint() throws Exception {
+		InMemoryTransport transport = new InMemoryTransport();
+		CheckpointDirectory checkpoints = new CheckpointDirectory(this.folder.newFolder().toPath(), 16, 60000);
+		OvenService oven = new OvenService(transport, 1, 1);
+		oven.startCheckpointing(checkpoints, 100);
+		oven.start();
+		ProductService productService = new ProductService(transport);
+		productService.openConnectionToGetBurnedProduct();
+		Product product = new Product("Product 1", new OvenParameter(Configuration.DEFAULT_TEMPERATURE_FOR_BURNING, 5));
+		checkpoints.put(product.getProductId(), 4000); // Burned 4 of 5 seconds by an oven which died
+
+		productService.submitProducts(Collections.singletonList(product));
+
+		assertTrue(productService.awaitBurnedProducts(1, 3, TimeUnit.SECONDS));
+		Thread.sleep(100); // Removed once acknowledged
+		assertEquals(0, checkpoints.size());
+		oven.stop(1, TimeUnit.SECONDS);
+		checkpoints.close();
+		transport.close();
+	}
+
+	@Test
+	public void shouldResumeProductOfKilledOvenInAnotherOven() throws Exception {
+		InMemoryTransport transport = new InMemoryTransport();
+		Path directory = this.folder.newFolder().toPath();
+		KillableTransport firstConnection = new KillableTransport(transport);
+		CheckpointDirectory firstCheckpoints = new CheckpointDirectory(directory, 16, 60000);
+		OvenService first = new OvenService(firstConnection, 1, 1);
+		first.startCheckpointing(firstCheckpoints, 100);
+		first.start();
+		ProductService productService = new ProductService(transport);
+		productService.openConnectionToGetBurnedProduct();
+		productService.submitProducts(Collections.singletonList(new Product("Product 1",
+				new OvenParameter(Configuration.DEFAULT_TEMPERATURE_FOR_BURNING, 6)))); // No temperature change
+		Thread.sleep(3000);
+
+		CheckpointDirectory secondCheckpoints = new CheckpointDirectory(directory, 16, 60000);
+		OvenService second = new OvenService(transport, 1, 1);
+		second.startCheckpointing(secondCheckpoints, 100);
+		second.start();
+		firstConnection.kill(); // The broker gives the product to the second oven, without the time it burned
+		firstCheckpoints.close(); // The process died and its file stays behind
+
+		assertFalse(firstCheckpoints.getFile().equals(secondCheckpoints.getFile()));
+		assertTrue(productService.awaitBurnedProducts(1, 4500, TimeUnit.MILLISECONDS)); // Burning all 6 seconds again would take longer
+		second.stop(1, TimeUnit.SECONDS);
+		first.stop(0, TimeUnit.SECONDS);
+		secondCheckpoints.close();
+		transport.close();
+	}
+
+	@Test
+	public void shouldSeeOvenInTheFleetUntilItStops() throws Exception {
+		InMemoryTransport transport = new InMemoryTransport();
+		ProductService productService = new ProductService(transport);
+		productService.watchFleet(50);
+		productService.openConnectionToGetBurnedProduct();
+		OvenService oven = new OvenService(transport, 2, 1);
+		oven.start();
+		oven.startHeartbeats(50);
+
+		productService.submitProducts(Collections.singletonList(new Product("Product 1", new OvenParameter(200, 1))));
+		Thread.sleep(500);
+
+		assertEquals(1, productService.getFleet().getOvenCount());
+		assertEquals(2, productService.getFleet().getSlotCount());
+		assertEquals(1, productService.getFleet().getBusySlotCount()); // Still burning its one second product
+		oven.stop(0, TimeUnit.SECONDS);
+		assertEquals(0, productService.getFleet().getOvenCount()); // Left at once, not only once expired
+		productService.getFleet().close();
+		transport.close();
+	}
+
+	@Test
+	public void shouldBurnMixedTemperaturesInBatches() throws Exception {
+		InMemoryTransport transport = new InMemoryTransport();
+		OvenService oven = new OvenService(transport, 2, 4);
+		oven.start();
+		ProductService productService = new ProductService(transport);
+		productService.openConnectionToGetBurnedProduct();
+
+		List<Product> products = new ArrayList<>();
+		for (int i = 0; i < 18; i++) {
+			products.add(new Product("Product " + i, new OvenParameter(200 + (i % 3) * 50, 1))); // Three bands, the last batch of each band is not full
+		}
+		productService.submitProducts(products);
+
+		assertTrue(productService.awaitBurnedProducts(18, 20, TimeUnit.SECONDS)); // 2 slots of 4 burn 18 products in 6 batches, with changeovers of about a second
+		assertEquals(18, oven.getSlots().getBurnedCount(0) + oven.getSlots().getBurnedCount(1));
+		oven.stop(1, TimeUnit.SECONDS);
+		transport.close();
+	}
+
+	/**
+	 * In-memory transport which counts the acknowledgements of every product delivered to an oven.
+	 */
+	private static class AcknowledgeCountingTransport implements Transport {
+
+		private final InMemoryTransport delegate = new InMemoryTransport();
+		private final List<CountingDelivery> deliveries = new CopyOnWriteArrayList<>();
+
+		@Override
+		public void declareQueue(String queue, int maxPriority) throws IOException {
+			this.delegate.declareQueue(queue, maxPriority);
+		}
+
+		@Override
+		public void declareDelayQueue(String queue, long delayMillis, String targetQueue) throws IOException {
+			this.delegate.declareDelayQueue(queue, delayMillis, targetQueue);
+		}
+
+		@Override
+		public CompletableFuture<Void> publish(String queue, Message message) {
+			return this.delegate.publish(queue, message);
+		}
+
+		@Override
+		public Subscription consume(String queue, int prefetch, DeliveryHandler handler) throws IOException {
+			if (!Configuration.PRODUCT_QUEUE_NAME.equals(queue))
+				return this.delegate.consume(queue, prefetch, handler);
+
+			return this.delegate.consume(queue, prefetch, delivery -> {
+				CountingDelivery counting = new CountingDelivery(delivery);
+				this.deliveries.add(counting);
+				handler.handle(counting);
+			});
+		}
+
+		@Override
+		public int getMessageCount(String queue) {
+			return this.delegate.getMessageCount(queue);
+		}
+
+		@Override
+		public void declareFanout(String exchange) {
+			this.delegate.declareFanout(exchange);
+		}
+
+		@Override
+		public void broadcast(String exchange, Message message) throws IOException {
+			this.delegate.broadcast(exchange, message);
+		}
+
+		@Override
+		public Subscription subscribe(String exchange, Consumer<Message> listener) throws IOException {
+			return this.delegate.subscribe(exchange, listener);
+		}
+
+		@Override
+		public void close() {
+			this.delegate.close();
+		}
+	}
+
+	/**
+	 * Delivery which counts how often it was acknowledged and rejected.
+	 */
+	private static class CountingDelivery implements Delivery {
+
+		private final Delivery delegate;
+		private final AtomicInteger acks = new AtomicInteger();
+		private final AtomicInteger nacks = new AtomicInteger();
+
+		private CountingDelivery(Delivery delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Message getMessage() {
+			return this.delegate.getMessage();
+		}
+
+		@Override
+		public String getConsumerTag() {
+			return this.delegate.getConsumerTag();
+		}
+
+		@Override
+		public boolean isRedelivered() {
+			return this.delegate.isRedelivered();
+		}
+
+		@Override
+		public void ack() throws IOException {
+			this.acks.incrementAndGet();
+			this.delegate.ack();
+		}
+
+		@Override
+		public void nack(boolean requeue) throws IOException {
+			this.nacks.incrementAndGet();
+			this.delegate.nack(requeue);
+		}
+	}
+
+	/**
+	 * Connection of one oven to a shared in-memory transport which can be killed like the connection of a process which died:
+	 * its consumers are cancelled, its unacknowledged deliveries go back to their queue and nothing it sends arrives any more.
+	 */
+	private static class KillableTransport implements Transport {
+
+		private final InMemoryTransport delegate;
+		private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+		private final Set<KillableDelivery> unsettled = ConcurrentHashMap.newKeySet();
+		private volatile boolean killed;
+
+		private KillableTransport(InMemoryTransport delegate) {
+			this.delegate = delegate;
+		}
+
+		private void kill() throws IOException {
+			this.killed = true;
+			for (Subscription subscription : this.subscriptions) {
+				subscription.cancel();
+			}
+			for (KillableDelivery delivery : this.unsettled) {
+				if (this.unsettled.remove(delivery))
+					delivery.delegate.nack(true);
+			}
+		}
+
+		@Override
+		public void declareQueue(String queue, int maxPriority) throws IOException {
+			this.delegate.declareQueue(queue, maxPriority);
+		}
+
+		@Override
+		public void declareDelayQueue(String queue, long delayMillis, String targetQueue) throws IOException {
+			this.delegate.declareDelayQueue(queue, delayMillis, targetQueue);
+		}
+
+		@Override
+		public CompletableFuture<Void> publish(String queue, Message message) {
+			if (!this.killed)
+				return this.delegate.publish(queue, message);
+			CompletableFuture<Void> failed = new CompletableFuture<>();
+			failed.completeExceptionally(new IOException("Connection is closed"));
+			return failed;
+		}
+
+		@Override
+		public Subscription consume(String queue, int prefetch, DeliveryHandler handler) throws IOException {
+			Subscription subscription = this.delegate.consume(queue, prefetch, delivery -> {
+				KillableDelivery killable = new KillableDelivery(this, delivery);
+				this.unsettled.add(killable);
+				handler.handle(killable);
+			});
+			this.subscriptions.add(subscription);
+			return subscription;
+		}
+
+		@Override
+		public int getMessageCount(String queue) {
+			return this.delegate.getMessageCount(queue);
+		}
+
+		@Override
+		public void declareFanout(String exchange) {
+			this.delegate.declareFanout(exchange);
+		}
+
+		@Override
+		public void broadcast(String exchange, Message message) throws IOException {
+			if (this.killed)
+				throw new IOException("Connection is closed");
+			this.delegate.broadcast(exchange, message);
+		}
+
+		@Override
+		public Subscription subscribe(String exchange, Consumer<Message> listener) throws IOException {
+			return this.delegate.subscribe(exchange, listener);
+		}
+
+		@Override
+		public void close() {
+			// The in-memory transport is shared with the other services
+		}
+	}
+
+	/**
+	 * Delivery through a killable connection, settling it does nothing once the connection was killed.
+	 */
+	private static class KillableDelivery implements Delivery {
+
+		private final KillableTransport connection;
+		private final Delivery delegate;
+
+		private KillableDelivery(KillableTransport connection, Delivery delegate) {
+			this.connection = connection;
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Message getMessage() {
+			return this.delegate.getMessage();
+		}
+
+		@Override
+		public String getConsumerTag() {
+			return this.delegate.getConsumerTag();
+		}
+
+		@Override
+		public boolean isRedelivered() {
+			return this.delegate.isRedelivered();
+		}
+
+		@Override
+		public void ack() throws IOException {
+			if (!this.connection.killed && this.connection.unsettled.remove(this))
+				this.delegate.ack();
+		}
+
+		@Override
+		public void nack(boolean requeue) throws IOException {
+			if (!this.connection.killed && this.connection.unsettled.remove(this))
+				this.delegate.nack(requeue);
+		}
+	}
+}
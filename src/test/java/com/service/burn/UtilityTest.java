@@ -0,0 +1,58 @@
+package com.service.burn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import com.service.burn.model.OvenParameter;
+import com.service.burn.model.Product;
+
+/**
+ * Unit test for the product codec in Utility.
+ */
+public class UtilityTest {
+
+	@Test
+	public void shouldRoundTripProductThroughBytes() {
+		Product product = new Product("Product 7", new OvenParameter(450, 12));
+		product.setBurnedBy("oven-3");
+
+		Product read = Utility.getProduct(Utility.getJsonBytes(product));
+
+		assertEquals(product.getProductId(), read.getProductId());
+		assertEquals("Product 7", read.getProductName());
+		assertEquals(450, read.getOvenParameter().getTemparature());
+		assertEquals(12, read.getOvenParameter().getBurningTime());
+		assertEquals("oven-3", read.getBurnedBy());
+	}
+
+	@Test
+	public void shouldWriteSameJsonAsReflectiveGson() {
+		Product product = new Product("Product 8", new OvenParameter(120, 5));
+
+		assertEquals(new GsonBuilder().create().toJson(product), Utility.getJson(product));
+		assertEquals(Utility.getJson(product), new String(Utility.getJsonBytes(product), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void shouldReadJsonWrittenByReflectiveGson() {
+		Product product = new Product("Product 9", new OvenParameter(300, 20));
+		String json = new GsonBuilder().create().toJson(product);
+
+		Product read = Utility.getProduct(json.getBytes(StandardCharsets.UTF_8));
+
+		assertEquals(product.getProductId(), read.getProductId());
+		assertEquals(300, read.getOvenParameter().getTemparature());
+		assertNull(read.getBurnedBy());
+	}
+
+	@Test(expected = JsonSyntaxException.class)
+	public void shouldRejectMalformedBody() {
+		Utility.getProduct("{\"productId\": oops".getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,117 @@
+package com.service.burn.checkpoint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit test for BurnCheckpointStore.
+ */
+public class BurnCheckpointStoreTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void shouldKeepCheckpointsWhenReopened() throws Exception {
+		Path file = this.folder.getRoot().toPath().resolve("oven.checkpoints");
+		try (BurnCheckpointStore store = new BurnCheckpointStore(file, 2000, 60000)) {
+			assertEquals(2048, store.getCapacity());
+			for (long id = 1; id <= 1000; id++) {
+				assertTrue(store.put(id << 22, id)); // Ids of one node and millisecond apart
+			}
+			for (long id = 1; id <= 1000; id += 2) {
+				assertTrue(store.remove(id << 22));
+			}
+			store.put(2L << 22, 5000);
+		}
+
+		try (BurnCheckpointStore store = new BurnCheckpointStore(file, 16, 60000)) {
+			assertEquals(2048, store.getCapacity()); // Capacity of the file
+			assertEquals(500, store.size());
+			assertEquals(0, store.get(1L << 22));
+			assertEquals(5000, store.get(2L << 22));
+			assertEquals(1000, store.get(1000L << 22));
+			assertFalse(store.remove(999L << 22));
+		}
+	}
+
+	@Test
+	public void shouldDropOldCheckpointsOnceFull() throws Exception {
+		AtomicLong clock = new AtomicLong();
+		try (BurnCheckpointStore store = new BurnCheckpointStore(this.folder.newFile().toPath(), 16, 1000, clock::get)) {
+			for (long id = 1; id <= 12; id++) {
+				assertTrue(store.put(id, 100));
+			}
+			assertFalse(store.put(13, 100)); // Three quarters taken
+			assertTrue(store.put(12, 200)); // Replacing needs no new entry
+
+			clock.set(1500);
+			store.put(12, 300);
+			assertTrue(store.put(13, 100));
+
+			assertEquals(2, store.size());
+			assertEquals(0, store.get(1));
+			assertEquals(300, store.get(12));
+		}
+	}
+
+	@Test
+	public void shouldKeepRebuiltTableWhenReopened() throws Exception {
+		AtomicLong clock = new AtomicLong();
+		Path file = this.folder.getRoot().toPath().resolve("oven.checkpoints");
+		try (BurnCheckpointStore store = new BurnCheckpointStore(file, 16, 1000, clock::get)) {
+			for (long id = 1; id <= 12; id++) {
+				store.put(id, id * 10);
+			}
+			store.remove(1);
+			assertTrue(store.put(13, 130)); // Rebuilt without the removed entry
+		}
+
+		try (BurnCheckpointStore store = new BurnCheckpointStore(file, 16, 1000)) {
+			assertEquals(12, store.size());
+			assertEquals(0, store.get(1));
+			assertEquals(120, store.get(12));
+			assertEquals(130, store.get(13));
+			assertFalse(Files.exists(file.resolveSibling("oven.checkpoints.rebuild")));
+		}
+	}
+
+	@Test
+	public void shouldLeaveFileAloneOnceClosed() throws Exception {
+		Path file = this.folder.newFile().toPath();
+		BurnCheckpointStore store = new BurnCheckpointStore(file, 16, 1000);
+		store.put(1, 100);
+		store.close();
+
+		try (BurnCheckpointStore next = new BurnCheckpointStore(file, 16, 1000)) {
+			assertFalse(store.put(2, 200));
+			assertFalse(store.remove(1));
+			assertEquals(0, store.get(1));
+			store.close();
+
+			assertEquals(100, next.get(1));
+			assertEquals(0, next.get(2));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void shouldRejectFileOpenedByAnotherStore() throws Exception {
+		Path file = this.folder.newFile().toPath();
+		BurnCheckpointStore store = new BurnCheckpointStore(file, 16, 1000);
+		try {
+			new BurnCheckpointStore(file, 16, 1000).close(); // Only closed if it wrongly opened
+		} finally {
+			store.close();
+		}
+	}
+}
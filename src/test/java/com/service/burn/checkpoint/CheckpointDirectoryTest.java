@@ -0,0 +1,52 @@
+package com.service.burn.checkpoint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit test for CheckpointDirectory.
+ */
+public class CheckpointDirectoryTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void shouldReadCheckpointsOfEveryOvenButWriteOnlyItsOwn() throws Exception {
+		Path directory = this.folder.getRoot().toPath().resolve("checkpoints");
+		try (CheckpointDirectory first = new CheckpointDirectory(directory, 16, 60000);
+				CheckpointDirectory second = new CheckpointDirectory(directory, 16, 60000)) {
+			assertEquals(directory.resolve("oven-0.checkpoints"), first.getFile());
+			assertEquals(directory.resolve("oven-1.checkpoints"), second.getFile());
+			first.put(1, 1000);
+			first.put(2, 3000);
+			second.put(2, 2000);
+
+			assertEquals(1000, second.get(1));
+			assertEquals(3000, second.get(2)); // The longest time burned
+			assertEquals(0, second.get(3));
+			assertFalse(second.remove(1)); // Not in its own file
+			assertEquals(1000, first.get(1));
+		}
+	}
+
+	@Test
+	public void shouldTakeOverFileOfClosedOven() throws Exception {
+		Path directory = this.folder.getRoot().toPath();
+		CheckpointDirectory dead = new CheckpointDirectory(directory, 16, 60000);
+		dead.put(1, 1000);
+		dead.close();
+
+		try (CheckpointDirectory next = new CheckpointDirectory(directory, 16, 60000)) {
+			assertEquals(dead.getFile(), next.getFile());
+			assertEquals(1000, next.get(1));
+			assertEquals(1, next.size());
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package com.service.burn.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.service.burn.oven.DispatchPolicy;
+
+/**
+ * Unit test for Settings, Tuning and ConfigWatcher.
+ */
+public class SettingsTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void shouldPreferSystemPropertiesOverEnvironmentOverFile() throws Exception {
+		Path file = this.write("oven.slot.count=2\noven.batch.capacity=3\nbatch.linger.millis=100\n");
+		Map<String, String> environment = new HashMap<>();
+		environment.put("BURN_OVEN_BATCH_CAPACITY", "5");
+		environment.put("BURN_BATCH_LINGER_MILLIS", "200");
+		environment.put("PATH", "/bin");
+		Properties systemProperties = new Properties();
+		systemProperties.setProperty("burn.batch.linger.millis", "300");
+		systemProperties.setProperty("java.version", "8");
+
+		Settings settings = Settings.load(file, environment, systemProperties);
+
+		assertEquals(2, settings.getInt("oven.slot.count", 4, 1, 16));
+		assertEquals(5, settings.getInt("oven.batch.capacity", 4, 1, 16));
+		assertEquals(300, settings.getLong("batch.linger.millis", 500, 0, 1000));
+		assertEquals(7, settings.getInt("oven.prefetch", 7, 0, 100));
+		assertEquals(3, settings.getValues().size());
+	}
+
+	@Test
+	public void shouldApplyOverridesOfTheOven() {
+		Map<String, String> values = new HashMap<>();
+		values.put("oven.slot.count", "4");
+		values.put("oven-2.oven.slot.count", "2");
+
+		Settings settings = Settings.of(values);
+
+		assertEquals(4, settings.getInt("oven.slot.count", 1, 1, 16));
+		assertEquals(4, settings.forOven("oven-1").getInt("oven.slot.count", 1, 1, 16));
+		assertEquals(2, settings.forOven("oven-2").getInt("oven.slot.count", 1, 1, 16));
+		assertEquals(2, Tuning.read(settings.forOven("oven-2"), 16).getSlotCount());
+	}
+
+	@Test
+	public void shouldNameKeyValueAndSourceOfInvalidValues() {
+		Map<String, String> values = new HashMap<>();
+		values.put("oven.slot.count", "many");
+		values.put("oven.batch.capacity", "0");
+		values.put("dispatch.policy", "random");
+		Settings settings = Settings.of(values);
+
+		assertInvalid(() -> settings.getInt("oven.slot.count", 4, 1, 16), "oven.slot.count='many'", "not a number");
+		assertInvalid(() -> settings.getInt("oven.batch.capacity", 4, 1, 16), "oven.batch.capacity='0'", "between 1 and 16");
+		assertInvalid(() -> settings.getEnum("dispatch.policy", DispatchPolicy.FIFO), "dispatch.policy='random'", "SHORTEST_JOB_FIRST");
+		assertEquals(DispatchPolicy.PRIORITY, Settings.of(Collections.singletonMap("dispatch.policy", "priority"))
+				.getEnum("dispatch.policy", DispatchPolicy.FIFO));
+	}
+
+	@Test
+	public void shouldCheckTuningValuesAgainstEachOther() {
+		Map<String, String> values = new HashMap<>();
+		values.put("publish.batch.size", "500");
+		values.put("max.unconfirmed.products", "100");
+
+		assertInvalid(() -> Tuning.read(Settings.of(values), 16), "publish.batch.size", "max.unconfirmed.products");
+		assertInvalid(() -> Tuning.read(Settings.of(Collections.singletonMap("oven.slot.count", "17")), 16), "between 1 and 16");
+		Tuning tuning = Tuning.read(Settings.of(Collections.<String, String>emptyMap()), 16);
+		assertEquals(16, tuning.getPrefetch()); // 4 slots of 4 products
+	}
+
+	@Test
+	public void shouldReloadWhenTheFileChangesAndKeepValuesOnErrors() throws Exception {
+		Path file = this.write("oven.slot.count=2\n");
+		BlockingQueue<Tuning> reloads = new ArrayBlockingQueue<>(10);
+		try (ConfigWatcher watcher = new ConfigWatcher(file, Collections.<String, String>emptyMap(), new Properties())) {
+			watcher.addListener(settings -> reloads.add(Tuning.read(settings, 16)));
+			watcher.start();
+
+			Files.write(file, "oven.slot.count=8\n".getBytes(StandardCharsets.UTF_8));
+			Tuning tuning = reloads.poll(30, TimeUnit.SECONDS); // Polling watch services can take seconds
+			assertEquals(8, tuning.getSlotCount());
+
+			Files.write(file, "oven.slot.count=99\n".getBytes(StandardCharsets.UTF_8));
+			assertFalse(watcher.reload());
+			assertEquals(null, reloads.poll(0, TimeUnit.SECONDS));
+
+			Files.delete(file); // Not read as a file of defaults
+			assertFalse(watcher.reload());
+			assertEquals(null, reloads.poll(0, TimeUnit.SECONDS));
+		}
+	}
+
+	private Path write(String text) throws Exception {
+		Path file = this.folder.newFile("burn.properties").toPath();
+		Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	private static void assertInvalid(Runnable read, String... expectedParts) {
+		try {
+			read.run();
+			fail("Expected an InvalidConfigurationException");
+		} catch (InvalidConfigurationException e) {
+			for (String part : expectedParts) {
+				assertTrue(e.getMessage() + " should contain " + Arrays.toString(expectedParts), e.getMessage().contains(part));
+			}
+		}
+	}
+}
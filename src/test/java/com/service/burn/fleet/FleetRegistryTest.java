@@ -0,0 +1,103 @@
+package com.service.burn.fleet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Unit test for FleetRegistry.
+ */
+public class FleetRegistryTest {
+
+	@Test
+	public void shouldSumUpTheOvensAndWarnWhenSaturated() {
+		List<String> events = new ArrayList<>();
+		FleetRegistry fleet = new FleetRegistry(3, 0.75, new RecordingListener(events), new AtomicLong()::get);
+
+		fleet.record(heartbeat("oven-1", 4, 2, 10, 100, false));
+		fleet.record(heartbeat("oven-2", 4, 3, 30, 300, false));
+		fleet.record(heartbeat("oven-2", 4, 4, 30, 300, false));
+
+		assertEquals(2, fleet.getOvenCount());
+		assertEquals(8, fleet.getSlotCount());
+		assertEquals(0.75, fleet.getUtilisation(), 1e-9);
+		assertEquals(40, fleet.getProductsPerSecond(), 1e-9);
+		assertEquals(250, fleet.getMeanBurnMillis(), 1e-9); // Weighted by the products burned
+		assertTrue(fleet.isSaturated());
+
+		fleet.record(heartbeat("oven-2", 4, 4, 30, 300, true));
+
+		assertEquals(1, fleet.getOvenCount());
+		assertFalse(fleet.isSaturated());
+		assertEquals(Arrays.asList("joined oven-1", "joined oven-2", "saturated", "left oven-2", "recovered"), events);
+	}
+
+	@Test
+	public void shouldExpireOvenWithoutHeartbeat() {
+		List<String> events = new ArrayList<>();
+		AtomicLong clock = new AtomicLong();
+		FleetRegistry fleet = new FleetRegistry(3, 0.9, new RecordingListener(events), clock::get);
+		fleet.record(heartbeat("oven-1", 2, 0, 0, 0, false));
+		fleet.record(heartbeat("oven-2", 2, 0, 0, 0, false));
+
+		clock.set(2000);
+		fleet.record(heartbeat("oven-2", 2, 1, 5, 200, false));
+		clock.set(3000);
+		assertEquals(Collections.emptyList(), fleet.expire()); // Exactly three intervals late is still alive
+		clock.set(3001);
+
+		assertEquals(Arrays.asList("oven-1"), fleet.expire());
+		assertEquals(1, fleet.getOvenCount());
+		assertEquals("oven-2", fleet.getOvens().get(0).getOvenId());
+		assertEquals("expired oven-1", events.get(events.size() - 1));
+	}
+
+	@Test
+	public void shouldReadHeartbeatItWrote() {
+		Heartbeat heartbeat = heartbeat("amq.ctag-ÄÖ", 16, 9, 12.5, 1500.25, true);
+
+		Heartbeat read = Heartbeat.fromMessage(heartbeat.toMessage());
+
+		assertEquals(heartbeat.toString(), read.toString());
+		assertEquals(heartbeat.getSentAtMillis(), read.getSentAtMillis());
+		assertEquals(heartbeat.getIntervalMillis(), read.getIntervalMillis());
+	}
+
+	private static Heartbeat heartbeat(String ovenId, int slots, int busySlots, double productsPerSecond, double meanBurnMillis, boolean leaving) {
+		return new Heartbeat(ovenId, 1234567890123L, 1000, slots, busySlots, 180, productsPerSecond, meanBurnMillis, leaving);
+	}
+
+	/**
+	 * Listener which writes down every change of the fleet.
+	 */
+	private static class RecordingListener implements FleetRegistry.FleetListener {
+		private final List<String> events;
+
+		private RecordingListener(List<String> events) {
+			this.events = events;
+		}
+
+		@Override
+		public void ovenJoined(Heartbeat heartbeat) {
+			this.events.add("joined " + heartbeat.getOvenId());
+		}
+
+		@Override
+		public void ovenLost(String ovenId, boolean expired) {
+			this.events.add((expired ? "expired " : "left ") + ovenId);
+		}
+
+		@Override
+		public void saturationChanged(boolean saturated, double utilisation) {
+			this.events.add(saturated ? "saturated" : "recovered");
+		}
+	}
+}
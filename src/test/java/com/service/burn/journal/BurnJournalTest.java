@@ -0,0 +1,110 @@
+package com.service.burn.journal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.service.burn.model.OvenParameter;
+import com.service.burn.model.Product;
+import com.service.burn.model.ProductStage;
+
+/**
+ * Unit test for BurnJournal.
+ */
+public class BurnJournalTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void shouldReplayAppendedProductsInOrder() throws Exception {
+		Path directory = this.folder.getRoot().toPath();
+		List<Product> replayed = new ArrayList<>();
+		try (BurnJournal journal = new BurnJournal(directory, 1 << 20)) {
+			List<CompletableFuture<Long>> commits = new ArrayList<>();
+			for (int i = 0; i < 1000; i++) {
+				Product product = new Product("Product " + i, new OvenParameter(200 + i % 100, 5));
+				product.setBurnedBy("oven-" + (i % 3));
+				product.stamp(ProductStage.BURN_ENDED);
+				commits.add(journal.append(product));
+			}
+			for (int i = 0; i < commits.size(); i++) {
+				assertEquals(i, commits.get(i).get().longValue());
+			}
+			assertTrue(journal.getCommitCount() <= 1000); // Appends waiting together share a commit
+
+			assertEquals(1000, journal.replay(0, (product, sequence) -> replayed.add(product)));
+		}
+		for (int i = 0; i < 1000; i++) {
+			assertEquals("Product " + i, replayed.get(i).getProductName());
+			assertEquals(200 + i % 100, replayed.get(i).getOvenParameter().getTemparature());
+			assertEquals("oven-" + (i % 3), replayed.get(i).getBurnedBy());
+			assertTrue(replayed.get(i).getTimestamp(ProductStage.BURN_ENDED) > 0);
+		}
+	}
+
+	@Test
+	public void shouldRollOverToNewSegmentsAndReplayFromTheMiddle() throws Exception {
+		Path directory = this.folder.getRoot().toPath();
+		try (BurnJournal journal = new BurnJournal(directory, 1024)) {
+			for (int i = 0; i < 100; i++) {
+				journal.append(new Product("Product " + i, new OvenParameter(200, 5)));
+			}
+			journal.append(new Product("Last", new OvenParameter(200, 5))).get();
+
+			assertTrue(listSegments(directory).size() > 5);
+			List<Long> sequences = new ArrayList<>();
+			assertEquals(31, journal.replay(70, (product, sequence) -> sequences.add(sequence)));
+			assertEquals(70, sequences.get(0).longValue());
+			assertEquals(100, sequences.get(30).longValue());
+		}
+	}
+
+	@Test
+	public void shouldRecoverUpToTheLastCompleteRecord() throws Exception {
+		Path directory = this.folder.getRoot().toPath();
+		try (BurnJournal journal = new BurnJournal(directory, 4096)) {
+			for (int i = 0; i < 10; i++) {
+				journal.append(new Product("Product " + i, new OvenParameter(200, 5))).get();
+			}
+		}
+		Path segment = listSegments(directory).get(0);
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			int position = BurnJournal.SEGMENT_HEADER_SIZE;
+			for (int i = 0; i < 8; i++) { // Skip to the ninth record
+				ByteBuffer length = ByteBuffer.allocate(4);
+				channel.read(length, position);
+				position += BurnJournal.RECORD_HEADER_SIZE + length.getInt(0);
+			}
+			channel.write(ByteBuffer.wrap(new byte[] { 42 }), position + BurnJournal.RECORD_HEADER_SIZE + 2); // Torn write
+		}
+
+		try (BurnJournal journal = new BurnJournal(directory, 4096)) {
+			assertEquals(8, journal.getNextSequence()); // The tenth record is behind the broken one and is dropped as well
+			assertEquals(8, journal.append(new Product("After crash", new OvenParameter(200, 5))).get().longValue());
+			List<String> names = new ArrayList<>();
+			assertEquals(9, journal.replay(0, (product, sequence) -> names.add(product.getProductName())));
+			assertEquals("After crash", names.get(8));
+		}
+	}
+
+	private static List<Path> listSegments(Path directory) throws Exception {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.sorted().collect(Collectors.toList());
+		}
+	}
+}
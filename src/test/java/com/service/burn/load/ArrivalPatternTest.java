@@ -0,0 +1,37 @@
+package com.service.burn.load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+/**
+ * Unit test for ArrivalPattern.
+ */
+public class ArrivalPatternTest {
+
+	@Test
+	public void shouldKeepTheMeanRateOfEveryPattern() {
+		for (ArrivalPattern pattern : ArrivalPattern.values()) {
+			SplittableRandom random = new SplittableRandom(3);
+			long total = 0;
+			for (int i = 0; i < 100000; i++) {
+				total += pattern.nextGapNanos(random, 1000, 10);
+			}
+			assertEquals(pattern.name(), 1e6, total / 100000.0, 0.05e6); // 1 ms
+		}
+	}
+
+	@Test
+	public void shouldSendBurstyArrivalsTogether() {
+		SplittableRandom random = new SplittableRandom(3);
+		int together = 0;
+		for (int i = 0; i < 100000; i++) {
+			if (ArrivalPattern.BURSTY.nextGapNanos(random, 1000, 10) == 0)
+				together++;
+		}
+		assertTrue(together > 85000 && together < 95000); // 9 of every 10 arrivals are in the burst of the one before
+	}
+}
@@ -0,0 +1,45 @@
+package com.service.burn.load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.SplittableRandom;
+
+import org.junit.Test;
+
+/**
+ * Unit test for IntDistribution.
+ */
+public class IntDistributionTest {
+
+	@Test
+	public void shouldDrawAroundTheMeanWithinTheRange() {
+		SplittableRandom random = new SplittableRandom(5);
+		IntDistribution normal = IntDistribution.parse("normal:300:50", 100, 500);
+		IntDistribution exponential = IntDistribution.parse("exponential:8", 5, 20);
+		long normalSum = 0;
+		for (int i = 0; i < 100000; i++) {
+			int value = normal.sample(random);
+			assertTrue(value >= 100 && value <= 500);
+			normalSum += value;
+			int time = exponential.sample(random);
+			assertTrue(time >= 5 && time <= 20);
+		}
+		assertEquals(300, normalSum / 100000.0, 1);
+		assertEquals(230, IntDistribution.parse("fixed:230", 100, 500).sample(random));
+		assertEquals(500, IntDistribution.parse("fixed:900", 100, 500).sample(random));
+	}
+
+	@Test
+	public void shouldRejectInvalidDistributions() {
+		for (String text : new String[] { "gamma:2", "normal:300", "uniform:5:1", "fixed:hot" }) {
+			try {
+				IntDistribution.parse(text, 0, 1000);
+				fail(text + " should be rejected");
+			} catch (IllegalArgumentException expected) {
+				assertTrue(expected.getMessage().contains(text));
+			}
+		}
+	}
+}
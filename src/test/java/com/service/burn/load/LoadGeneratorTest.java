@@ -0,0 +1,83 @@
+package com.service.burn.load;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.service.burn.model.Product;
+
+/**
+ * Unit test for LoadGenerator.
+ */
+public class LoadGeneratorTest {
+
+	@Test
+	public void shouldSendAtTheOpenLoopRate() throws Exception {
+		LoadProfile profile = new LoadProfile(LoadMode.OPEN, 2000, 1, 500, ArrivalPattern.POISSON, 1, 7,
+				IntDistribution.uniform(100, 500), IntDistribution.uniform(5, 20));
+		List<Product> sent = new ArrayList<>();
+		LoadGenerator generator = new LoadGenerator(profile, product -> {
+			sent.add(product);
+			return CompletableFuture.completedFuture(null);
+		});
+
+		LoadReport report = generator.run(0, TimeUnit.SECONDS);
+
+		assertEquals(sent.size(), report.getSubmitted());
+		assertTrue(report.getSubmitted() + " products sent", report.getSubmitted() > 700 && report.getSubmitted() < 1300); // About 1000
+		for (Product product : sent) {
+			int temperature = product.getOvenParameter().getTemparature();
+			assertTrue(temperature >= 100 && temperature <= 500);
+		}
+	}
+
+	@Test
+	public void shouldKeepTheClosedLoopConcurrency() throws Exception {
+		LoadProfile profile = new LoadProfile(LoadMode.CLOSED, 1, 8, 300, ArrivalPattern.POISSON, 1, 7,
+				IntDistribution.uniform(100, 500), IntDistribution.uniform(5, 20));
+		ExecutorService ovens = Executors.newFixedThreadPool(4);
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+		LoadGenerator[] generator = new LoadGenerator[1];
+		generator[0] = new LoadGenerator(profile, product -> {
+			maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			ovens.execute(() -> { // Burn and send back
+				inFlight.decrementAndGet();
+				generator[0].productBurned(product);
+			});
+			return CompletableFuture.completedFuture(null);
+		});
+
+		LoadReport report = generator[0].run(5, TimeUnit.SECONDS);
+
+		assertTrue(report.getBurned() > 8);
+		assertEquals(report.getSubmitted(), report.getBurned());
+		assertTrue(maxInFlight.get() <= 8);
+		ovens.shutdown();
+	}
+
+	@Test
+	public void shouldGenerateTheSameProductsForTheSameSeed() throws Exception {
+		assertEquals(generateTemperatures(42), generateTemperatures(42));
+	}
+
+	private static List<Integer> generateTemperatures(long seed) throws Exception {
+		LoadProfile profile = new LoadProfile(LoadMode.CLOSED, 1, 20, 1, ArrivalPattern.POISSON, 1, seed,
+				IntDistribution.parse("normal:300:50", 100, 500), IntDistribution.uniform(5, 20));
+		List<Integer> temperatures = new ArrayList<>();
+		new LoadGenerator(profile, product -> {
+			temperatures.add(product.getOvenParameter().getTemparature());
+			return CompletableFuture.completedFuture(null);
+		}).run(0, TimeUnit.SECONDS);
+		return temperatures;
+	}
+}
@@ -0,0 +1,93 @@
+package com.service.burn.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Unit test for EventLog.
+ */
+public class EventLogTest {
+
+	private static final String PATTERN = "yyyy/MM/dd HH:mm:ss";
+
+	@Test
+	public void shouldWriteEventsOfLevelWithTheirValues() throws InterruptedException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (EventLog log = new EventLog(EventLevel.INFO, 16, new PrintStream(bytes, true), PATTERN)) {
+			log.debug("Hidden").log();
+			log.info("Received").with("product", 42L).with("name", "Product 1").with("oven", "amq.ctag-1").log();
+			log.error("Exception Occurred", new IOException("broken")).log();
+			assertTrue(log.flush(5, TimeUnit.SECONDS));
+		}
+
+		String[] lines = new String(bytes.toByteArray(), StandardCharsets.UTF_8).split(System.lineSeparator());
+		assertEquals(2, lines.length);
+		assertTrue(lines[0], lines[0].matches("\\d{4}/\\d\\d/\\d\\d \\d\\d:\\d\\d:\\d\\d\\.\\d{3} INFO  Received product=42 name=\"Product 1\" oven=amq.ctag-1"));
+		assertTrue(lines[1], lines[1].endsWith(" ERROR Exception Occurred message=broken"));
+	}
+
+	@Test
+	public void shouldDropEventsInsteadOfBlockingWhenWriterIsStuck() throws InterruptedException {
+		CountDownLatch writing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		OutputStream stuck = new OutputStream() {
+			@Override
+			public void write(int b) {
+				this.write(new byte[] { (byte) b }, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				writing.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				bytes.write(b, off, len);
+			}
+		};
+		try (EventLog log = new EventLog(EventLevel.INFO, 4, new PrintStream(stuck, true), PATTERN)) {
+			log.info("First").log();
+			assertTrue(writing.await(5, TimeUnit.SECONDS)); // Writer is stuck writing the first event
+			for (int i = 0; i < 10; i++) {
+				log.info("Event").with("i", i).log();
+			}
+			assertEquals(6, log.getDroppedCount());
+
+			release.countDown();
+			assertTrue(log.flush(5, TimeUnit.SECONDS));
+		}
+		String text = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+		assertTrue(text, text.contains("Event i=3"));
+		assertTrue(text, text.contains("Events dropped, the event log could not keep up: 6"));
+	}
+
+	@Test
+	public void shouldWriteDirectlyAfterClose() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		EventLog log = new EventLog(EventLevel.WARN, 8, new PrintStream(bytes, true), PATTERN);
+		log.close();
+		log.warn("Late").with("burns", 2).log();
+
+		assertTrue(new String(bytes.toByteArray(), StandardCharsets.UTF_8).contains("WARN  Late burns=2"));
+	}
+
+	@Test
+	public void shouldParseLevelIgnoringCase() {
+		assertEquals(EventLevel.DEBUG, EventLevel.parse(" debug", EventLevel.INFO));
+		assertEquals(EventLevel.INFO, EventLevel.parse("loud", EventLevel.INFO));
+		assertEquals(EventLevel.INFO, EventLevel.parse(null, EventLevel.INFO));
+	}
+}
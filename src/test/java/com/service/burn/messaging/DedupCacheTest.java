@@ -0,0 +1,93 @@
+package com.service.burn.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Unit test for DedupCache.
+ */
+public class DedupCacheTest {
+
+	@Test
+	public void shouldReportDuplicatesUntilTheTimeToLivePassed() {
+		AtomicLong clock = new AtomicLong();
+		DedupCache cache = new DedupCache(100, 1000, clock::get);
+
+		assertTrue(cache.add(42));
+		assertFalse(cache.add(42));
+		clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+		assertTrue(cache.contains(42));
+		clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+		assertFalse(cache.contains(42));
+		assertTrue(cache.add(42));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void shouldEvictTheOldestIdWhenFull() {
+		DedupCache cache = new DedupCache(3, 60000, () -> 0);
+		cache.add(1);
+		cache.add(2);
+		cache.add(3);
+
+		assertTrue(cache.add(4));
+
+		assertEquals(3, cache.size());
+		assertFalse(cache.contains(1));
+		assertTrue(cache.contains(2) && cache.contains(3) && cache.contains(4));
+	}
+
+	@Test
+	public void shouldKeepAnIdAddedAgainAfterItWasRemoved() {
+		DedupCache cache = new DedupCache(2, 60000, () -> 0);
+		cache.add(1);
+		assertTrue(cache.remove(1));
+		assertFalse(cache.remove(1));
+		cache.add(2);
+		cache.add(1);
+
+		cache.add(3); // Evicts the first entry of 1, which was removed, and 2
+
+		assertTrue(cache.contains(1));
+		assertFalse(cache.contains(2));
+	}
+
+	@Test
+	public void shouldMatchASetOfTheLatestAddedIds() {
+		DedupCache cache = new DedupCache(1000, 60000, () -> 0);
+		Map<Long, Integer> expected = new HashMap<>(); // Id and when it was added
+		ArrayDeque<long[]> adds = new ArrayDeque<>(); // Removed ids keep their place until they are the oldest
+		Random random = new Random(7);
+		for (int i = 0; i < 200000; i++) {
+			long id = (long) random.nextInt(5000) << 22; // Clustered ids like those of one generator
+			if (random.nextInt(10) == 0) {
+				assertEquals(expected.remove(id) != null, cache.remove(id));
+				continue;
+			}
+			boolean added = !expected.containsKey(id);
+			assertEquals(added, cache.add(id));
+			if (added) {
+				expected.put(id, i);
+				adds.add(new long[] { id, i });
+				if (adds.size() > 1000) {
+					long[] oldest = adds.poll();
+					expected.remove(oldest[0], (int) oldest[1]);
+				}
+			}
+		}
+		assertEquals(expected.size(), cache.size());
+		for (long id : expected.keySet()) {
+			assertTrue(cache.contains(id));
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package com.service.burn.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.service.burn.transport.Delivery;
+import com.service.burn.transport.InMemoryTransport;
+import com.service.burn.transport.Message;
+
+/**
+ * Unit test for FailedDeliveryHandler on an in-memory transport.
+ */
+public class FailedDeliveryHandlerTest {
+
+	private static final String QUEUE = "product_queue";
+	private static final String DEAD_LETTER_QUEUE = "product_queue.dead";
+
+	@Test
+	public void shouldDeadLetterMalformedProductAtOnce() throws Exception {
+		InMemoryTransport transport = new InMemoryTransport();
+		FailedDeliveryHandler handler = this.handler(transport, 3);
+		BlockingQueue<Delivery> deliveries = consume(transport, QUEUE);
+		transport.publish(QUEUE, new Message("{not a product".getBytes("UTF-8"), ProductWireFormat.JSON.getContentType())).get();
+
+		Delivery delivery = deliveries.poll(5, TimeUnit.SECONDS);
+		Throwable cause = catchDecode(delivery);
+		assertEquals(DEAD_LETTER_QUEUE, handler.fail(delivery, cause).get(5, TimeUnit.SECONDS));
+
+		Message deadLetter = consume(transport, DEAD_LETTER_QUEUE).poll(5, TimeUnit.SECONDS).getMessage();
+		assertEquals(FailedDeliveryHandler.REASON_MALFORMED, deadLetter.getHeaders().get(FailedDeliveryHandler.FAILURE_REASON_HEADER));
+		assertEquals(QUEUE, deadLetter.getHeaders().get(FailedDeliveryHandler.ORIGINAL_QUEUE_HEADER));
+		assertEquals(delivery.getConsumerTag(), deadLetter.getHeaders().get(FailedDeliveryHandler.FAILED_BY_HEADER));
+		assertEquals(0, transport.getMessageCount(QUEUE));
+		assertEquals(1, handler.getDeadLetteredCount());
+		transport.close();
+	}
+
+	@Test
+	public void shouldRetryWithBackoffAndDeadLetterOnceRetriesAreUsedUp() throws Exception {
+		InMemoryTransport transport = new InMemoryTransport();
+		FailedDeliveryHandler handler = this.handler(transport, 2);
+		BlockingQueue<Delivery> deliveries = consume(transport, QUEUE);
+		transport.publish(QUEUE, new Message(new byte[] { 1 }, null, null, 0)).get();
+
+		for (int retry = 0; retry < 2; retry++) {
+			Delivery delivery = deliveries.poll(5, TimeUnit.SECONDS);
+			assertEquals(retry, FailedDeliveryHandler.getRetryCount(delivery.getMessage()));
+			assertEquals(handler.getRetryQueue(handler.getBackoffMillis(retry)),
+					handler.fail(delivery, new IOException("Response queue is full")).get(5, TimeUnit.SECONDS));
+		}
+		Delivery delivery = deliveries.poll(5, TimeUnit.SECONDS);
+		assertEquals(DEAD_LETTER_QUEUE, handler.fail(delivery, new IOException("Response queue is full")).get(5, TimeUnit.SECONDS));
+
+		Message deadLetter = consume(transport, DEAD_LETTER_QUEUE).poll(5, TimeUnit.SECONDS).getMessage();
+		assertEquals(FailedDeliveryHandler.REASON_RETRIES_EXHAUSTED, deadLetter.getHeaders().get(FailedDeliveryHandler.FAILURE_REASON_HEADER));
+		assertEquals(2, FailedDeliveryHandler.getRetryCount(deadLetter));
+		assertEquals(2, handler.getRetriedCount());
+		transport.close();
+	}
+
+	@Test
+	public void shouldDoubleBackoffUpToMaximum() {
+		FailedDeliveryHandler handler = new FailedDeliveryHandler(new InMemoryTransport(), QUEUE, DEAD_LETTER_QUEUE, 30, 1000, 60000);
+
+		List<Long> backoffs = Arrays.asList(handler.getBackoffMillis(0), handler.getBackoffMillis(1), handler.getBackoffMillis(5),
+				handler.getBackoffMillis(6), handler.getBackoffMillis(29));
+
+		assertEquals(Arrays.asList(1000L, 2000L, 32000L, 60000L, 60000L), backoffs);
+	}
+
+	private FailedDeliveryHandler handler(InMemoryTransport transport, int maxRetries) throws IOException {
+		transport.declareQueue(QUEUE);
+		FailedDeliveryHandler handler = new FailedDeliveryHandler(transport, QUEUE, DEAD_LETTER_QUEUE, maxRetries, 10, 20);
+		handler.declareQueues();
+		return handler;
+	}
+
+	private static BlockingQueue<Delivery> consume(InMemoryTransport transport, String queue) throws IOException {
+		BlockingQueue<Delivery> deliveries = new LinkedBlockingQueue<>();
+		transport.consume(queue, 10, deliveries::add);
+		return deliveries;
+	}
+
+	private static Throwable catchDecode(Delivery delivery) {
+		try {
+			ProductWireFormat.of(delivery.getMessage()).decode(delivery.getMessage().getBody());
+			fail("Body should not be readable");
+			return null;
+		} catch (MalformedProductException e) {
+			return e;
+		}
+	}
+}
@@ -0,0 +1,191 @@
+package com.service.burn.messaging;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+
+/**
+ * In-process stand-in for a RabbitMQ broker.<br>
+ * Hands out proxy connections and channels which store published bodies in memory, so publishers can be tested without a running broker.<br>
+ * Channels in confirm mode confirm every publish asynchronously; {@link #nackNextPublishes(int)} makes the broker reject publishes.
+ */
+public class InProcessBroker {
+
+	private final Map<String, List<byte[]>> queues = new ConcurrentHashMap<>();
+	private final Set<String> declaredQueues = ConcurrentHashMap.newKeySet();
+	private final List<boolean[]> connectionStates = new CopyOnWriteArrayList<>();
+	private final AtomicInteger connectionCount = new AtomicInteger();
+	private final AtomicInteger abortedConnectionCount = new AtomicInteger();
+	private final AtomicInteger channelCount = new AtomicInteger();
+	private final AtomicInteger declareCount = new AtomicInteger();
+	private final AtomicInteger publishesToNack = new AtomicInteger();
+	private final ExecutorService confirmExecutor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "in-process-broker-confirms");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * Get a connection factory whose connections talk to this broker.
+	 * @return connection factory.
+	 */
+	public ConnectionFactory getConnectionFactory() {
+		return new ConnectionFactory() {
+			@Override
+			public Connection newConnection() {
+				return openConnection();
+			}
+		};
+	}
+
+	/**
+	 * Close every connection opened so far as if the broker connection was lost.
+	 */
+	public void dropConnections() {
+		for (boolean[] state : this.connectionStates) {
+			state[0] = false;
+		}
+	}
+
+	/**
+	 * Reject the next given number of publishes on channels in confirm mode. Rejected bodies are not stored.
+	 * @param count number of publishes to nack.
+	 */
+	public void nackNextPublishes(int count) {
+		this.publishesToNack.set(count);
+	}
+
+	public List<byte[]> getMessages(String queue) {
+		return this.queues.computeIfAbsent(queue, name -> new CopyOnWriteArrayList<>());
+	}
+
+	public boolean isDeclared(String queue) {
+		return this.declaredQueues.contains(queue);
+	}
+
+	public int getConnectionCount() {
+		return this.connectionCount.get();
+	}
+
+	public int getAbortedConnectionCount() {
+		return this.abortedConnectionCount.get();
+	}
+
+	public int getChannelCount() {
+		return this.channelCount.get();
+	}
+
+	public int getDeclareCount() {
+		return this.declareCount.get();
+	}
+
+	private Connection openConnection() {
+		this.connectionCount.incrementAndGet();
+		final boolean[] open = { true };
+		this.connectionStates.add(open);
+		InvocationHandler handler = (proxy, method, args) -> {
+			switch (method.getName()) {
+			case "createChannel":
+				if (!open[0])
+					throw new IOException("Connection is closed");
+				return openChannel(open);
+			case "isOpen":
+				return open[0];
+			case "close":
+				open[0] = false;
+				return null;
+			case "abort":
+				open[0] = false;
+				this.abortedConnectionCount.incrementAndGet();
+				return null;
+			default:
+				return defaultValue(proxy, method.getName(), method.getReturnType(), args);
+			}
+		};
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, handler);
+	}
+
+	private Channel openChannel(boolean[] connectionOpen) {
+		this.channelCount.incrementAndGet();
+		final boolean[] open = { true };
+		final boolean[] confirmMode = { false };
+		final AtomicLong nextSequenceNumber = new AtomicLong(1);
+		final List<ConfirmListener> confirmListeners = new CopyOnWriteArrayList<>();
+		InvocationHandler handler = (proxy, method, args) -> {
+			switch (method.getName()) {
+			case "confirmSelect":
+				confirmMode[0] = true;
+				return null;
+			case "addConfirmListener":
+				confirmListeners.add((ConfirmListener) args[0]);
+				return null;
+			case "getNextPublishSeqNo":
+				return confirmMode[0] ? nextSequenceNumber.get() : 0L;
+			case "queueDeclare":
+				this.declareCount.incrementAndGet();
+				this.declaredQueues.add((String) args[0]);
+				return null;
+			case "basicPublish":
+				if (!open[0] || !connectionOpen[0])
+					throw new IOException("Channel is closed");
+				if (!confirmMode[0]) {
+					getMessages((String) args[1]).add((byte[]) args[args.length - 1]);
+					return null;
+				}
+				long sequenceNumber = nextSequenceNumber.getAndIncrement();
+				boolean nack = this.publishesToNack.getAndUpdate(count -> Math.max(0, count - 1)) > 0;
+				if (!nack)
+					getMessages((String) args[1]).add((byte[]) args[args.length - 1]);
+				this.confirmExecutor.execute(() -> {
+					for (ConfirmListener listener : confirmListeners) {
+						try {
+							if (nack)
+								listener.handleNack(sequenceNumber, false);
+							else
+								listener.handleAck(sequenceNumber, false);
+						} catch (IOException _ignored) {
+							// Listeners of the tests do not fail
+						}
+					}
+				});
+				return null;
+			case "isOpen":
+				return open[0] && connectionOpen[0];
+			case "close":
+				open[0] = false;
+				return null;
+			default:
+				return defaultValue(proxy, method.getName(), method.getReturnType(), args);
+			}
+		};
+		return (Channel) Proxy.newProxyInstance(Channel.class.getClassLoader(), new Class<?>[] { Channel.class }, handler);
+	}
+
+	private static Object defaultValue(Object proxy, String name, Class<?> type, Object[] args) {
+		if (name.equals("equals"))
+			return proxy == args[0];
+		if (name.equals("hashCode"))
+			return System.identityHashCode(proxy);
+		if (name.equals("toString"))
+			return "InProcessBroker proxy";
+		if (type == boolean.class)
+			return false;
+		if (type == int.class || type == long.class)
+			return 0;
+		return null;
+	}
+}
@@ -0,0 +1,97 @@
+package com.service.burn.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.rabbitmq.client.MessageProperties;
+import com.service.burn.transport.PublishRejectedException;
+
+/**
+ * Unit test for PooledPublisher against an in-process broker.
+ */
+public class PooledPublisherTest {
+
+	private static final String QUEUE = "oven_response";
+
+	@Test
+	public void shouldReuseOneConnectionAndDeclareQueueOnce() throws Exception {
+		InProcessBroker broker = new InProcessBroker();
+		try (PooledPublisher publisher = new PooledPublisher(broker.getConnectionFactory(), 2, 1000, QUEUE)) {
+			publisher.start();
+			for (int i = 0; i < 100; i++) {
+				publisher.publish(QUEUE, MessageProperties.PERSISTENT_TEXT_PLAIN, ("product " + i).getBytes(StandardCharsets.UTF_8)).get(1, TimeUnit.SECONDS);
+			}
+
+			assertEquals(100, broker.getMessages(QUEUE).size());
+			assertEquals(1, broker.getConnectionCount());
+			assertEquals(1, broker.getDeclareCount());
+			assertTrue(broker.getChannelCount() <= 3); // one declaring channel plus the pooled ones
+			assertEquals(100, publisher.getPublishLatency().getCount());
+		}
+	}
+
+	@Test
+	public void shouldBoundChannelsUnderConcurrentPublishing() throws Exception {
+		InProcessBroker broker = new InProcessBroker();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try (PooledPublisher publisher = new PooledPublisher(broker.getConnectionFactory(), 3, 5000, QUEUE)) {
+			publisher.start();
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < 800; i++) {
+				futures.add(executor.submit(() -> publisher.publish(QUEUE, MessageProperties.PERSISTENT_TEXT_PLAIN, new byte[] { 1 }).get(1, TimeUnit.SECONDS)));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+
+			assertEquals(800, broker.getMessages(QUEUE).size());
+			assertTrue(broker.getChannelCount() <= 4);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void shouldFailPublishRejectedByBroker() throws Exception {
+		InProcessBroker broker = new InProcessBroker();
+		try (PooledPublisher publisher = new PooledPublisher(broker.getConnectionFactory(), 1, 1000, QUEUE)) {
+			publisher.start();
+			broker.nackNextPublishes(1);
+			try {
+				publisher.publish(QUEUE, MessageProperties.PERSISTENT_TEXT_PLAIN, new byte[] { 1 }).get(1, TimeUnit.SECONDS);
+				fail("Rejected publish must fail");
+			} catch (ExecutionException ex) {
+				assertTrue(ex.getCause() instanceof PublishRejectedException);
+			}
+		}
+	}
+
+	@Test
+	public void shouldRecoverAfterConnectionLoss() throws Exception {
+		InProcessBroker broker = new InProcessBroker();
+		try (PooledPublisher publisher = new PooledPublisher(broker.getConnectionFactory(), 2, 1000, QUEUE)) {
+			publisher.start();
+			publisher.publish(QUEUE, MessageProperties.PERSISTENT_TEXT_PLAIN, new byte[] { 1 }).get(1, TimeUnit.SECONDS);
+
+			broker.dropConnections();
+			publisher.publish(QUEUE, MessageProperties.PERSISTENT_TEXT_PLAIN, new byte[] { 2 }).get(1, TimeUnit.SECONDS);
+
+			assertEquals(2, broker.getMessages(QUEUE).size());
+			assertEquals(2, broker.getConnectionCount());
+			assertEquals(1, broker.getAbortedConnectionCount()); // the lost connection does not recover next to the new one
+			assertEquals(2, broker.getDeclareCount()); // queues are declared again on the new connection
+		}
+	}
+}
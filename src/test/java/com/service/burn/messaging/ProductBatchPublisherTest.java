@@ -0,0 +1,141 @@
+package com.service.burn.messaging;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import com.service.burn.model.OvenParameter;
+import com.service.burn.model.Product;
+import com.service.burn.transport.DeliveryHandler;
+import com.service.burn.transport.InMemoryTransport;
+import com.service.burn.transport.Message;
+import com.service.burn.transport.PublishRejectedException;
+import com.service.burn.transport.Subscription;
+import com.service.burn.transport.Transport;
+
+/**
+ * Unit test for ProductBatchPublisher on an in-memory transport.
+ */
+public class ProductBatchPublisherTest {
+
+	private static final String QUEUE = "product_queue";
+
+	@Test
+	public void shouldPublishAllProductsWithConfirms() throws Exception {
+		InMemoryTransport transport = new InMemoryTransport();
+		transport.declareQueue(QUEUE);
+		ProductBatchPublisher publisher = new ProductBatchPublisher(transport, QUEUE, ProductWireFormat.BINARY, 50, 20, 3, 5000);
+
+		PublishReport report = publisher.publishAll(products(1000));
+
+		assertEquals(1000, report.getConfirmed());
+		assertEquals(0, report.getFailed());
+		assertEquals(1000, report.getConfirmLatency().getCount());
+		assertEquals(1000, transport.getMessageCount(QUEUE));
+	}
+
+	@Test
+	public void shouldRetryRejectedProducts() throws Exception {
+		RejectingTransport transport = new RejectingTransport(5);
+		ProductBatchPublisher publisher = new ProductBatchPublisher(transport, QUEUE, ProductWireFormat.JSON, 10, 100, 3, 5000);
+
+		PublishReport report = publisher.publishAll(products(100));
+
+		assertEquals(100, report.getConfirmed());
+		assertEquals(5, report.getRetried());
+		assertEquals(100, transport.delegate.getMessageCount(QUEUE));
+	}
+
+	@Test
+	public void shouldGiveUpAfterMaxRetries() throws Exception {
+		RejectingTransport transport = new RejectingTransport(Integer.MAX_VALUE);
+		ProductBatchPublisher publisher = new ProductBatchPublisher(transport, QUEUE, ProductWireFormat.JSON, 10, 10, 2, 5000);
+
+		PublishReport report = publisher.publishAll(products(4));
+
+		assertEquals(0, report.getConfirmed());
+		assertEquals(4, report.getFailed());
+		assertEquals(8, report.getRetried()); // Every product is published once and retried twice
+	}
+
+	private static List<Product> products(int count) {
+		List<Product> products = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			products.add(new Product("Product " + i, new OvenParameter(100 + i % 400, 5 + i % 15)));
+		}
+		return products;
+	}
+
+	/**
+	 * Transport which rejects the first given number of publishes, asynchronously like a broker nack.
+	 */
+	private static class RejectingTransport implements Transport {
+
+		private final InMemoryTransport delegate = new InMemoryTransport();
+		private final AtomicInteger rejections;
+
+		private RejectingTransport(int rejections) throws IOException {
+			this.rejections = new AtomicInteger(rejections);
+			this.delegate.declareQueue(QUEUE);
+		}
+
+		@Override
+		public void declareQueue(String queue, int maxPriority) throws IOException {
+			this.delegate.declareQueue(queue, maxPriority);
+		}
+
+		@Override
+		public void declareDelayQueue(String queue, long delayMillis, String targetQueue) throws IOException {
+			this.delegate.declareDelayQueue(queue, delayMillis, targetQueue);
+		}
+
+		@Override
+		public CompletableFuture<Void> publish(String queue, Message message) {
+			if (this.rejections.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+				return CompletableFuture.runAsync(() -> { }).thenCompose(ignored -> {
+					CompletableFuture<Void> rejected = new CompletableFuture<>();
+					rejected.completeExceptionally(new PublishRejectedException("rejected"));
+					return rejected;
+				});
+			}
+			return this.delegate.publish(queue, message);
+		}
+
+		@Override
+		public Subscription consume(String queue, int prefetch, DeliveryHandler handler) throws IOException {
+			return this.delegate.consume(queue, prefetch, handler);
+		}
+
+		@Override
+		public int getMessageCount(String queue) {
+			return this.delegate.getMessageCount(queue);
+		}
+
+		@Override
+		public void declareFanout(String exchange) {
+			this.delegate.declareFanout(exchange);
+		}
+
+		@Override
+		public void broadcast(String exchange, Message message) throws IOException {
+			this.delegate.broadcast(exchange, message);
+		}
+
+		@Override
+		public Subscription subscribe(String exchange, Consumer<Message> listener) throws IOException {
+			return this.delegate.subscribe(exchange, listener);
+		}
+
+		@Override
+		public void close() {
+			this.delegate.close();
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package com.service.burn.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.service.burn.model.OvenParameter;
+import com.service.burn.model.Product;
+import com.service.burn.model.ProductStage;
+
+/**
+ * Unit test for ProductWireFormat.
+ */
+public class ProductWireFormatTest {
+
+	@Test
+	public void shouldRoundTripProductInEveryFormat() {
+		Product product = new Product("Ofen überprüft", new OvenParameter(275, 14));
+		product.setBurnedBy("oven-1");
+		for (ProductWireFormat format : ProductWireFormat.values()) {
+			Product read = format.decode(format.encode(product));
+
+			assertEquals(product.getProductId(), read.getProductId());
+			assertEquals(product.getProductName(), read.getProductName());
+			assertEquals(275, read.getOvenParameter().getTemparature());
+			assertEquals(14, read.getOvenParameter().getBurningTime());
+			assertEquals("oven-1", read.getBurnedBy());
+		}
+	}
+
+	@Test
+	public void shouldKeepNullFieldsInBinaryFormat() {
+		Product product = new Product(null, new OvenParameter(100, 5));
+
+		Product read = ProductWireFormat.BINARY.decode(ProductWireFormat.BINARY.encode(product));
+
+		assertNull(read.getProductName());
+		assertNull(read.getBurnedBy());
+	}
+
+	@Test
+	public void shouldBeSmallerInBinaryFormat() {
+		Product product = new Product("Product 12", new OvenParameter(480, 20));
+
+		assertTrue(ProductWireFormat.BINARY.encode(product).length < ProductWireFormat.JSON.encode(product).length / 2);
+	}
+
+	@Test
+	public void shouldNegotiateFormatFromContentType() {
+		Product product = new Product("Product 14");
+		assertEquals(ProductWireFormat.BINARY, ProductWireFormat.of(ProductWireFormat.BINARY.toMessage(product)));
+		assertEquals(ProductWireFormat.JSON, ProductWireFormat.of(ProductWireFormat.JSON.toMessage(product)));
+		assertEquals(ProductWireFormat.JSON, ProductWireFormat.forContentType("text/plain"));
+		assertEquals(ProductWireFormat.JSON, ProductWireFormat.forContentType(null));
+	}
+
+	@Test
+	public void shouldKeepPriorityAndReadOlderBinaryVersions() {
+		Product product = new Product("Product 15", new OvenParameter(300, 6));
+		product.setPriority(7);
+		for (ProductWireFormat format : ProductWireFormat.values()) {
+			assertEquals(7, format.decode(format.encode(product)).getPriority());
+		}
+
+		byte[] body = ProductWireFormat.BINARY.encode(product);
+		int timestampBytes = 1 + 8; // Stage bits and the created timestamp of version 4
+		byte[] version3 = new byte[body.length - timestampBytes];
+		System.arraycopy(body, 0, version3, 0, version3.length);
+		version3[0] = 3;
+		Product read = ProductWireFormat.BINARY.decode(version3);
+		assertEquals(product.getProductId(), read.getProductId());
+		assertEquals(0, read.getTimestamp(ProductStage.CREATED));
+
+		byte[] version2 = olderVersion(body, 2, 15, timestampBytes); // Version 2 has an int product id
+		read = ProductWireFormat.BINARY.decode(version2);
+		assertEquals(15, read.getProductId());
+		assertEquals(7, read.getPriority());
+		assertEquals(300, read.getOvenParameter().getTemparature());
+
+		byte[] version1 = olderVersion(body, 1, 16, timestampBytes + 1); // Version 1 in addition has no priority byte at the end
+		read = ProductWireFormat.BINARY.decode(version1);
+		assertEquals(16, read.getProductId());
+		assertEquals(0, read.getPriority());
+	}
+
+	@Test
+	public void shouldKeepTimestampsInEveryFormat() {
+		Product product = new Product("Product 17", new OvenParameter(300, 6));
+		product.setTimestamp(ProductStage.BURN_ENDED, Long.MAX_VALUE);
+		for (ProductWireFormat format : ProductWireFormat.values()) {
+			Product read = format.decode(format.encode(product));
+
+			assertEquals(product.getTimestamp(ProductStage.CREATED), read.getTimestamp(ProductStage.CREATED));
+			assertEquals(Long.MAX_VALUE, read.getTimestamp(ProductStage.BURN_ENDED));
+			assertEquals(0, read.getTimestamp(ProductStage.ENQUEUED));
+		}
+	}
+
+	@Test
+	public void shouldKeepProductIdsAboveIntRange() {
+		Product product = new Product("Product 16", new OvenParameter(300, 6));
+		assertTrue(product.getProductId() > Integer.MAX_VALUE);
+		for (ProductWireFormat format : ProductWireFormat.values()) {
+			assertEquals(product.getProductId(), format.decode(format.encode(product)).getProductId());
+		}
+	}
+
+	/**
+	 * Rewrite a current binary product into an older version with an int product id.
+	 * @param body current binary product.
+	 * @param version older version.
+	 * @param productId int product id.
+	 * @param trailingBytes bytes to drop at the end.
+	 * @return older binary product.
+	 */
+	private static byte[] olderVersion(byte[] body, int version, int productId, int trailingBytes) {
+		ByteBuffer buffer = ByteBuffer.allocate(body.length - 4 - trailingBytes);
+		buffer.put((byte) version).putInt(productId);
+		buffer.put(body, 9, body.length - 9 - trailingBytes);
+		return buffer.array();
+	}
+
+	@Test(expected = MalformedProductException.class)
+	public void shouldRejectTruncatedBinaryProduct() {
+		byte[] body = ProductWireFormat.BINARY.encode(new Product("Product 13"));
+		byte[] truncated = new byte[body.length - 3];
+		System.arraycopy(body, 0, truncated, 0, truncated.length);
+
+		ProductWireFormat.BINARY.decode(truncated);
+	}
+}
@@ -0,0 +1,51 @@
+package com.service.burn.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Unit test for LatencyHistogram.
+ */
+public class LatencyHistogramTest {
+
+	@Test
+	public void shouldReportPercentilesWithinBucketPrecision() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long micros = 1; micros <= 10000; micros++) {
+			histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+		}
+
+		assertEquals(10000, histogram.getCount());
+		assertClose(TimeUnit.MICROSECONDS.toNanos(5000), histogram.getValueAtPercentile(50));
+		assertClose(TimeUnit.MICROSECONDS.toNanos(9900), histogram.getValueAtPercentile(99));
+		assertEquals(TimeUnit.MICROSECONDS.toNanos(10000), histogram.getValueAtPercentile(100));
+		assertEquals(TimeUnit.MICROSECONDS.toNanos(10000), histogram.getMaxNanos());
+	}
+
+	@Test
+	public void shouldPlaceEveryValueInsideItsBucket() {
+		long[] values = { 0, 1, 127, 128, 129, 255, 256, 1000000007L, Long.MAX_VALUE };
+		for (long value : values) {
+			int index = LatencyHistogram.indexOf(value);
+			assertTrue(value <= LatencyHistogram.highestValueOf(index));
+			assertTrue(index == 0 || value > LatencyHistogram.highestValueOf(index - 1));
+		}
+	}
+
+	@Test
+	public void shouldRecordNegativeLatencyAsZero() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+
+		assertEquals(0, histogram.getValueAtPercentile(50));
+		assertEquals(0, new LatencyHistogram().getValueAtPercentile(99));
+	}
+
+	static void assertClose(long expected, long actual) {
+		assertEquals(expected, actual, expected / 60.0);
+	}
+}
@@ -0,0 +1,55 @@
+package com.service.burn.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.service.burn.model.OvenParameter;
+import com.service.burn.model.Product;
+import com.service.burn.model.ProductStage;
+
+/**
+ * Unit test for PipelineMetrics.
+ */
+public class PipelineMetricsTest {
+
+	@Test
+	public void shouldSplitPipelineTimeIntoStages() {
+		Product product = new Product("Product 1", new OvenParameter(230, 5));
+		long created = product.getTimestamp(ProductStage.CREATED);
+		product.setTimestamp(ProductStage.ENQUEUED, created + 1000000);
+		product.setTimestamp(ProductStage.BURN_STARTED, created + 3000000);
+		product.setTimestamp(ProductStage.BURN_ENDED, created + 8000000);
+		product.setTimestamp(ProductStage.RESPONSE_RECEIVED, created + 9000000);
+		PipelineMetrics metrics = new PipelineMetrics();
+		metrics.record(product);
+		metrics.record(new Product("Product 2")); // Not burned, only counted
+
+		assertEquals(2, metrics.getProductCount());
+		assertEquals(1, metrics.getBurn().getCount());
+		LatencyHistogramTest.assertClose(2000000, metrics.getQueueWait().getValueAtPercentile(50));
+		LatencyHistogramTest.assertClose(5000000, metrics.getBurn().getValueAtPercentile(50));
+		LatencyHistogramTest.assertClose(1000000, metrics.getReturnTrip().getValueAtPercentile(50));
+		assertEquals(9.0, metrics.getEndToEndMaxMillis(), 0.0);
+
+		metrics.reset();
+		assertEquals(0, metrics.getProductCount());
+	}
+
+	@Test
+	public void shouldRegisterWithJmxOncePerName() throws Exception {
+		PipelineMetrics metrics = new PipelineMetrics();
+
+		assertTrue(metrics.register("pipeline-metrics-test"));
+		assertFalse(new PipelineMetrics().register("pipeline-metrics-test"));
+		ObjectName name = new ObjectName("com.service.burn:type=PipelineMetrics,name=\"pipeline-metrics-test\"");
+		assertEquals(0L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "ProductCount"));
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+	}
+}
@@ -0,0 +1,86 @@
+package com.service.burn.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Unit test for ProductIdGenerator.
+ */
+public class ProductIdGeneratorTest {
+
+	private static final long NOW = ProductIdGenerator.EPOCH_MILLIS + 123456789L;
+
+	@Test
+	public void shouldCreateUniqueIdsOnManyThreads() throws InterruptedException {
+		ProductIdGenerator generator = new ProductIdGenerator(5);
+		Set<Long> ids = ConcurrentHashMap.newKeySet();
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			Thread thread = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int j = 0; j < 20000; j++) {
+					ids.add(generator.nextId());
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(8 * 20000, ids.size());
+	}
+
+	@Test
+	public void shouldOverflowSequenceIntoNextMillisecond() {
+		ProductIdGenerator generator = new ProductIdGenerator(1, () -> NOW);
+		long previous = generator.nextId();
+		for (int i = 1; i < 5000; i++) { // More than 4096 ids in the same millisecond
+			long id = generator.nextId();
+			assertTrue(id > previous);
+			previous = id;
+		}
+		assertEquals(NOW + 1, ProductIdGenerator.getTimestampMillis(previous));
+	}
+
+	@Test
+	public void shouldStayIncreasingWhenClockGoesBack() {
+		AtomicLong clock = new AtomicLong(NOW);
+		ProductIdGenerator generator = new ProductIdGenerator(1, clock::get);
+		long first = generator.nextId();
+		clock.set(NOW - 1000);
+
+		assertTrue(generator.nextId() > first);
+	}
+
+	@Test
+	public void shouldEncodeNodeAndTimestamp() {
+		ProductIdGenerator generator = new ProductIdGenerator(ProductIdGenerator.MAX_NODE, () -> NOW);
+		long id = generator.nextId();
+
+		assertEquals(ProductIdGenerator.MAX_NODE, ProductIdGenerator.getNode(id));
+		assertEquals(NOW, ProductIdGenerator.getTimestampMillis(id));
+		assertTrue(new ProductIdGenerator(3, () -> NOW).nextId() != id); // Same time, different node
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectNodeOutOfRange() {
+		new ProductIdGenerator(ProductIdGenerator.MAX_NODE + 1);
+	}
+}
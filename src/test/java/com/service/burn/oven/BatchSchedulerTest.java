@@ -0,0 +1,138 @@
+package com.service.burn.oven;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToLongFunction;
+
+import org.junit.Test;
+
+import com.service.burn.model.OvenParameter;
+import com.service.burn.model.Product;
+
+/**
+ * Unit test for BatchScheduler.
+ */
+public class BatchSchedulerTest {
+
+	private static final long LINGER_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+	@Test
+	public void shouldBatchFullBandAtOnceWithoutMixingBands() {
+		BatchScheduler<String> scheduler = new BatchScheduler<>(25, 3, 500, 30000);
+		scheduler.add(product(200, 5), "a", 0);
+		scheduler.add(product(300, 5), "x", 0);
+		scheduler.add(product(210, 5), "b", 1);
+		assertNull(scheduler.nextBatch(2)); // No band is full and nobody waited long enough
+		scheduler.add(product(224, 5), "c", 2);
+
+		BatchScheduler.Batch<String> batch = scheduler.nextBatch(3);
+		assertEquals(Arrays.asList("a", "b", "c"), batch.getAttachments());
+		assertNull(scheduler.nextBatch(3));
+		assertEquals(1, scheduler.getPendingCount());
+	}
+
+	@Test
+	public void shouldBurnSmallerBatchAfterLinger() {
+		BatchScheduler<String> scheduler = new BatchScheduler<>(25, 4, 500, 30000);
+		scheduler.add(product(400, 5), "a", 0);
+		scheduler.add(product(405, 5), "b", 100);
+		assertEquals(LINGER_NANOS - 10, scheduler.getNanosUntilNextDeadline(10));
+		assertNull(scheduler.nextBatch(LINGER_NANOS - 1));
+
+		BatchScheduler.Batch<String> batch = scheduler.nextBatch(LINGER_NANOS);
+		assertEquals(Arrays.asList("a", "b"), batch.getAttachments());
+		assertEquals(-1, scheduler.getNanosUntilNextDeadline(LINGER_NANOS));
+	}
+
+	@Test
+	public void shouldBurnBatchForLongestTimeAtAverageTemperature() {
+		BatchScheduler<String> scheduler = new BatchScheduler<>(25, 2, 500, 30000);
+		scheduler.add(product(250, 8), "a", 0);
+		scheduler.add(product(260, 17), "b", 0);
+
+		BatchScheduler.Batch<String> batch = scheduler.nextBatch(0);
+		assertEquals(2, batch.size());
+		assertEquals(255, batch.getOvenParameter().getTemparature());
+		assertEquals(17, batch.getOvenParameter().getBurningTime());
+	}
+
+	@Test
+	public void shouldPreferFullBandOverLingeringBand() {
+		BatchScheduler<String> scheduler = new BatchScheduler<>(25, 2, 500, 30000);
+		scheduler.add(product(100, 5), "old", 0);
+		scheduler.add(product(450, 5), "x", LINGER_NANOS);
+		scheduler.add(product(460, 5), "y", LINGER_NANOS);
+
+		assertEquals(Arrays.asList("x", "y"), scheduler.nextBatch(LINGER_NANOS).getAttachments());
+		assertEquals(Arrays.asList("old"), scheduler.nextBatch(LINGER_NANOS).getAttachments());
+		assertEquals(Arrays.asList(), scheduler.removeAll());
+	}
+
+	@Test
+	public void shouldPreferBandClosestToSlotTemperature() {
+		BatchScheduler<String> scheduler = new BatchScheduler<>(25, 2, 500, 30000);
+		scheduler.add(product(110, 5), "cold", 0);
+		scheduler.add(product(120, 5), "cold", 0);
+		scheduler.add(product(470, 5), "hot", 1);
+		scheduler.add(product(460, 5), "hot", 1);
+
+		assertEquals(Arrays.asList("hot", "hot"), scheduler.nextBatch(2, changeoverFrom(460)).getAttachments());
+		assertEquals(Arrays.asList("cold", "cold"), scheduler.nextBatch(2, changeoverFrom(460)).getAttachments());
+	}
+
+	@Test
+	public void shouldTakeOverdueBandRegardlessOfTemperature() {
+		BatchScheduler<String> scheduler = new BatchScheduler<>(25, 2, 500, 1000);
+		long overdue = TimeUnit.MILLISECONDS.toNanos(1000);
+		scheduler.add(product(120, 5), "cold", 0);
+		scheduler.add(product(470, 5), "hot", overdue);
+		scheduler.add(product(460, 5), "hot", overdue);
+
+		assertEquals(Arrays.asList("cold"), scheduler.nextBatch(overdue, changeoverFrom(460)).getAttachments());
+	}
+
+	@Test
+	public void shouldBurnShortJobsFirstButAgeLongOnes() {
+		BatchScheduler<String> scheduler = new BatchScheduler<>(1000, 1, 0, Long.MAX_VALUE / 1000000, DispatchPolicy.SHORTEST_JOB_FIRST, 1000);
+		long second = TimeUnit.SECONDS.toNanos(1);
+		scheduler.add(product(200, 20), "long", 0); // Priority 0
+		scheduler.add(product(200, 5), "short", second); // Priority 7, passes the long product
+		scheduler.add(product(200, 6), "later short", 8 * second); // Priority 6, the long product waited 8 seconds and goes first
+
+		assertEquals(Arrays.asList("short"), scheduler.nextBatch(8 * second).getAttachments());
+		assertEquals(Arrays.asList("long"), scheduler.nextBatch(8 * second).getAttachments());
+		assertEquals(Arrays.asList("later short"), scheduler.nextBatch(8 * second).getAttachments());
+	}
+
+	@Test
+	public void shouldPreferPriorityOverTemperatureAndAgeBandsPassedOver() {
+		BatchScheduler<String> scheduler = new BatchScheduler<>(25, 1, 0, Long.MAX_VALUE / 1000000, DispatchPolicy.PRIORITY, 1000);
+		long second = TimeUnit.SECONDS.toNanos(1);
+		scheduler.add(product(120, 5, 9), "urgent cold", 0);
+		scheduler.add(product(110, 5, 0), "old cold", 0);
+		scheduler.add(product(460, 5, 0), "hot", 3 * second / 2);
+		scheduler.add(product(120, 5, 0), "new cold", 2 * second);
+
+		assertEquals(Arrays.asList("urgent cold"), scheduler.nextBatch(3 * second / 2, changeoverFrom(460)).getAttachments());
+		assertEquals(Arrays.asList("old cold"), scheduler.nextBatch(3 * second / 2, changeoverFrom(460)).getAttachments()); // Waited more than a level longer
+		assertEquals(Arrays.asList("hot"), scheduler.nextBatch(5 * second / 2, changeoverFrom(460)).getAttachments()); // Within a level, the slot temperature wins
+		assertEquals(Arrays.asList("new cold"), scheduler.nextBatch(5 * second / 2, changeoverFrom(460)).getAttachments());
+	}
+
+	private static IntToLongFunction changeoverFrom(int slotTemperature) {
+		return temperature -> Math.abs(temperature - slotTemperature) * 25L; // 40 degrees per second
+	}
+
+	private static Product product(int temperature, int time) {
+		return new Product("Product", new OvenParameter(temperature, time));
+	}
+
+	private static Product product(int temperature, int time, int priority) {
+		Product product = product(temperature, time);
+		product.setPriority(priority);
+		return product;
+	}
+}
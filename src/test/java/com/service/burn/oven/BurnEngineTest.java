@@ -0,0 +1,62 @@
+package com.service.burn.oven;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Unit test for BurnEngine.
+ */
+public class BurnEngineTest {
+
+	@Test
+	public void shouldCompleteManyBurnsWithFewThreads() throws Exception {
+		ExecutorService completionExecutor = Executors.newFixedThreadPool(2);
+		BurnEngine engine = new BurnEngine(1, completionExecutor);
+		AtomicInteger completed = new AtomicInteger();
+		for (int i = 0; i < 10000; i++) {
+			engine.burn(20 + (i % 30), completed::incrementAndGet);
+		}
+
+		engine.shutdown();
+		assertTrue(engine.drain(5, TimeUnit.SECONDS));
+		assertEquals(10000, completed.get());
+		assertEquals(0, engine.getInFlightCount());
+		completionExecutor.shutdown();
+	}
+
+	@Test
+	public void shouldNotRunCallbackOfCancelledBurn() throws Exception {
+		ExecutorService completionExecutor = Executors.newSingleThreadExecutor();
+		BurnEngine engine = new BurnEngine(1, completionExecutor);
+		AtomicInteger completed = new AtomicInteger();
+		BurnEngine.Burn burn = engine.burn(TimeUnit.SECONDS.toMillis(30), completed::incrementAndGet);
+
+		assertEquals(1, engine.getInFlightCount());
+		assertTrue(burn.getRemainingMillis() > 0);
+		assertTrue(burn.cancel());
+		assertFalse(burn.cancel());
+		assertTrue(engine.drain(1, TimeUnit.SECONDS));
+		assertEquals(0, completed.get());
+		completionExecutor.shutdown();
+	}
+
+	@Test
+	public void shouldReportTimeoutWhileBurnsAreInFlight() throws Exception {
+		ExecutorService completionExecutor = Executors.newSingleThreadExecutor();
+		BurnEngine engine = new BurnEngine(1, completionExecutor);
+		BurnEngine.Burn burn = engine.burn(TimeUnit.SECONDS.toMillis(30), () -> { });
+
+		engine.shutdown();
+		assertFalse(engine.drain(50, TimeUnit.MILLISECONDS));
+		burn.cancel();
+		completionExecutor.shutdown();
+	}
+}
@@ -0,0 +1,50 @@
+package com.service.burn.oven;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit test for OvenSlots.
+ */
+public class OvenSlotsTest {
+
+	@Test
+	public void shouldHandOutAddedSlots() {
+		OvenSlots slots = new OvenSlots(1, 3, 200, 40);
+		slots.acquire(slots.peekFreeSlot(), 4);
+		assertFalse(slots.hasFreeSlot());
+
+		slots.setSlotCount(3);
+
+		assertEquals(3, slots.getSlotCount());
+		slots.acquire(slots.peekFreeSlot(), 4);
+		slots.acquire(slots.peekFreeSlot(), 4);
+		assertFalse(slots.hasFreeSlot());
+		assertEquals(3, slots.getBusyCount());
+	}
+
+	@Test
+	public void shouldTakeBusySlotOutOfUseOnceItsBatchIsBurned() {
+		OvenSlots slots = new OvenSlots(2, 2, 200, 40);
+		slots.acquire(0, 4);
+		slots.acquire(1, 2);
+
+		slots.setSlotCount(1);
+
+		assertEquals(2, slots.getBusyCount()); // The batch of slot 1 keeps burning
+		slots.release(1, 1000);
+		assertFalse(slots.hasFreeSlot());
+		assertEquals(1, slots.getBusyCount());
+		assertEquals(2, slots.getBurnedCount(1));
+		slots.release(0, 1000);
+		assertTrue(slots.hasFreeSlot());
+		assertEquals(0, slots.peekFreeSlot());
+
+		slots.setSlotCount(2);
+		slots.acquire(0, 1);
+		assertEquals(1, slots.peekFreeSlot());
+	}
+}
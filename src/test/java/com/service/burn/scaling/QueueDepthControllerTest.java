@@ -0,0 +1,89 @@
+package com.service.burn.scaling;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.service.burn.transport.InMemoryTransport;
+
+/**
+ * Unit test for QueueDepthController with a queue depth and clock set by the test.
+ */
+public class QueueDepthControllerTest {
+
+	private static final String QUEUE = "oven_response_queue";
+
+	private final DepthTransport transport = new DepthTransport();
+	private final AtomicLong handled = new AtomicLong();
+	private final AtomicLong clock = new AtomicLong();
+	private final List<Integer> applied = new ArrayList<>();
+
+	@Test
+	public void shouldDoubleUnderBacklogAndShrinkWhenIdle() throws Exception {
+		QueueDepthController controller = this.controller(1, 8, 1);
+		this.transport.depth = 100;
+
+		assertEquals(2, this.update(controller, 10));
+		assertEquals(4, this.update(controller, 20));
+		assertEquals(8, this.update(controller, 40));
+		assertEquals(8, this.update(controller, 80)); // Maximum reached
+
+		this.transport.depth = 0;
+		assertEquals(8, this.update(controller, 80));
+		assertEquals(8, this.update(controller, 0));
+		assertEquals(6, this.update(controller, 0));
+		this.update(controller, 0);
+		this.update(controller, 0);
+		assertEquals(5, this.update(controller, 0));
+		assertEquals(Arrays.asList(2, 4, 8, 6, 5), this.applied);
+	}
+
+	@Test
+	public void shouldGoBackWhenDoublingDoesNotRaiseTheRate() throws Exception {
+		QueueDepthController controller = this.controller(1, 16, 2);
+		this.transport.depth = 100;
+
+		assertEquals(4, this.update(controller, 10));
+		assertEquals(2, this.update(controller, 10)); // Saturated at 10 per second
+		assertEquals(2, this.update(controller, 10));
+		assertEquals(10.0, controller.getRate(), 0.001);
+
+		this.transport.depth = 0;
+		this.update(controller, 10);
+		this.transport.depth = 100;
+		assertEquals(4, this.update(controller, 10)); // Tried again after the queue was empty
+		assertEquals(Arrays.asList(4, 2, 4), this.applied);
+	}
+
+	private QueueDepthController controller(int min, int max, int initial) {
+		return new QueueDepthController(this.transport, QUEUE, this.handled::get, min, max, initial, this.applied::add, this.clock::get);
+	}
+
+	/**
+	 * Let a second pass in which the consumer handled the given number of messages, then update.
+	 */
+	private int update(QueueDepthController controller, int handledInSecond) throws Exception {
+		this.clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		this.handled.addAndGet(handledInSecond);
+		return controller.update();
+	}
+
+	/**
+	 * In-memory transport with a queue depth set by the test.
+	 */
+	private static class DepthTransport extends InMemoryTransport {
+
+		private volatile int depth;
+
+		@Override
+		public int getMessageCount(String queue) {
+			return this.depth;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package com.service.burn.simulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.service.burn.config.Tuning;
+import com.service.burn.load.ArrivalPattern;
+import com.service.burn.load.IntDistribution;
+import com.service.burn.load.LoadMode;
+import com.service.burn.load.LoadProfile;
+import com.service.burn.oven.DispatchPolicy;
+
+/**
+ * Unit test for FleetSimulation and EventQueue.
+ */
+public class FleetSimulationTest {
+
+	@Test
+	public void shouldRunEventsInTimeOrder() {
+		EventQueue events = new EventQueue();
+		StringBuilder order = new StringBuilder();
+		events.schedule(20, () -> order.append('c'));
+		events.schedule(10, () -> {
+			order.append('a');
+			events.scheduleAfter(10, () -> order.append('d')); // Same time as c, scheduled later
+		});
+		events.schedule(10, () -> order.append('b'));
+
+		assertEquals(4, events.run());
+		assertEquals("abcd", order.toString());
+		assertEquals(20, events.now());
+	}
+
+	@Test
+	public void shouldBurnEveryProductAfterItsBurningTimeWhenTheOvenIsIdle() {
+		// One product every 20 s, each burns 10 s alone in one slot at the preheated temperature
+		FleetModel model = fleet(1, 1, 1);
+		LoadProfile profile = new LoadProfile(LoadMode.OPEN, 0.05, 1, 1000000, ArrivalPattern.CONSTANT, 1, 7,
+				IntDistribution.parse("fixed:230", 100, 500), IntDistribution.parse("fixed:10", 5, 20));
+
+		SimulationReport report = new FleetSimulation(model, profile, 1000).run();
+
+		assertEquals(50, report.getCreated());
+		assertEquals(50, report.getBurned());
+		assertEquals(TimeUnit.SECONDS.toNanos(10), report.getLatencyNanos(100), TimeUnit.SECONDS.toNanos(10) / 50);
+		assertEquals(TimeUnit.SECONDS.toNanos(990), report.getMakespanNanos());
+		assertEquals(500.0 / 990, report.getUtilisation(), 0.001);
+		assertEquals(0, report.getChangeoverShare(), 0);
+	}
+
+	@Test
+	public void shouldKeepTheClosedLoopBusy() {
+		// 4 products in flight on 2 slots: every slot burns all the time, 2 products every 10 s
+		LoadProfile profile = new LoadProfile(LoadMode.CLOSED, 1, 4, 100000, ArrivalPattern.POISSON, 1, 7,
+				IntDistribution.parse("fixed:230", 100, 500), IntDistribution.parse("fixed:10", 5, 20));
+
+		SimulationReport report = new FleetSimulation(fleet(1, 2, 1), profile, 1000).run();
+
+		assertEquals(report.getCreated(), report.getBurned());
+		assertEquals(0.2, report.getThroughput(), 0.01);
+		assertEquals(1.0, report.getUtilisation(), 0.001);
+		assertEquals(2, report.getMaxQueueLength()); // 2 wait while 2 burn
+	}
+
+	@Test
+	public void shouldSweepFleetsInOrderAndRepeatably() {
+		LoadProfile profile = new LoadProfile(LoadMode.OPEN, 10, 1, TimeUnit.MINUTES.toMillis(30), ArrivalPattern.POISSON, 1, 42,
+				IntDistribution.uniform(100, 500), IntDistribution.uniform(5, 20));
+		List<FleetModel> models = new ArrayList<>();
+		for (int ovens = 2; ovens <= 32; ovens *= 2) {
+			models.add(fleet(ovens, 4, 4));
+		}
+
+		List<SimulationReport> reports = FleetSimulation.sweep(models, profile, 10000);
+		SimulationReport again = new FleetSimulation(models.get(2), profile, 10000).run();
+
+		assertEquals(models.size(), reports.size());
+		for (int i = 0; i < models.size(); i++) {
+			assertEquals(models.get(i).getOvenCount(), reports.get(i).getModel().getOvenCount());
+			assertEquals(reports.get(i).getCreated(), reports.get(i).getBurned());
+		}
+		assertTrue("Too few ovens keep up", reports.get(0).getUtilisation() > 0.9);
+		assertTrue("More ovens burn sooner", reports.get(0).getLatencyNanos(99) > reports.get(4).getLatencyNanos(99));
+		assertEquals(reports.get(2).getLatencyNanos(99), again.getLatencyNanos(99));
+		assertEquals(reports.get(2).getMakespanNanos(), again.getMakespanNanos());
+	}
+
+	private static FleetModel fleet(int ovens, int slots, int capacity) {
+		return new FleetModel(ovens, new Tuning(slots, capacity, 0, 500, 100, 1000), 25, 120000, 230, 40, DispatchPolicy.FIFO, 5000);
+	}
+}
@@ -0,0 +1,131 @@
+package com.service.burn.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Unit test for InMemoryTransport.
+ */
+public class InMemoryTransportTest {
+
+	private static final String QUEUE = "queue";
+
+	@Test
+	public void shouldDeliverEveryMessageToOneConsumer() throws Exception {
+		InMemoryTransport transport = new InMemoryTransport();
+		transport.declareQueue(QUEUE);
+		CountDownLatch delivered = new CountDownLatch(1000);
+		AtomicInteger first = new AtomicInteger();
+		AtomicInteger second = new AtomicInteger();
+		transport.consume(QUEUE, 10, delivery -> { first.incrementAndGet(); delivery.ack(); delivered.countDown(); });
+		transport.consume(QUEUE, 10, delivery -> { second.incrementAndGet(); delivery.ack(); delivered.countDown(); });
+
+		for (int i = 0; i < 1000; i++) {
+			transport.publish(QUEUE, new Message(new byte[] { (byte) i }, "application/octet-stream")).get();
+		}
+
+		assertTrue(delivered.await(5, TimeUnit.SECONDS));
+		assertEquals(1000, first.get() + second.get());
+		transport.close();
+	}
+
+	@Test
+	public void shouldDeliverHigherPriorityFirst() throws Exception {
+		InMemoryTransport transport = new InMemoryTransport();
+		transport.declareQueue(QUEUE, 9);
+		int[] priorities = { 0, 5, 12, 3, 9 };
+		for (int priority : priorities) {
+			transport.publish(QUEUE, new Message(new byte[] { (byte) priority }, null, null, priority)).get();
+		}
+		List<Integer> delivered = new CopyOnWriteArrayList<>();
+		transport.consume(QUEUE, 10, delivery -> { delivered.add((int) delivery.getMessage().getBody()[0]); delivery.ack(); });
+
+		Thread.sleep(100);
+		assertEquals(Arrays.asList(12, 9, 5, 3, 0), delivered); // 12 counts as the maximum priority 9, it was published first
+		transport.close();
+	}
+
+	@Test(expected = IOException.class)
+	public void shouldRejectRedeclarationWithAnotherMaxPriority() throws Exception {
+		InMemoryTransport transport = new InMemoryTransport();
+		transport.declareQueue(QUEUE);
+		transport.declareQueue(QUEUE, 9);
+	}
+
+	@Test
+	public void shouldNotDeliverMoreThanPrefetch() throws Exception {
+		InMemoryTransport transport = new InMemoryTransport();
+		transport.declareQueue(QUEUE);
+		List<Delivery> unacked = new CopyOnWriteArrayList<>();
+		transport.consume(QUEUE, 3, unacked::add);
+		for (int i = 0; i < 10; i++) {
+			transport.publish(QUEUE, new Message(new byte[0], null));
+		}
+
+		Thread.sleep(100);
+		assertEquals(3, unacked.size());
+		assertEquals(7, transport.getMessageCount(QUEUE));
+
+		unacked.get(0).ack();
+		Thread.sleep(100);
+		assertEquals(4, unacked.size());
+		transport.close();
+	}
+
+	@Test
+	public void shouldRedeliverRequeuedMessage() throws Exception {
+		InMemoryTransport transport = new InMemoryTransport();
+		transport.declareQueue(QUEUE);
+		List<Boolean> redeliveredFlags = new CopyOnWriteArrayList<>();
+		CountDownLatch delivered = new CountDownLatch(2);
+		transport.consume(QUEUE, 1, delivery -> {
+			redeliveredFlags.add(delivery.isRedelivered());
+			if (delivery.isRedelivered())
+				delivery.ack();
+			else
+				delivery.nack(true);
+			delivered.countDown();
+		});
+		transport.publish(QUEUE, new Message(new byte[0], null));
+
+		assertTrue(delivered.await(5, TimeUnit.SECONDS));
+		assertFalse(redeliveredFlags.get(0));
+		assertTrue(redeliveredFlags.get(1));
+		transport.close();
+	}
+
+	@Test
+	public void shouldBroadcastToEverySubscriberUntilCancelled() throws Exception {
+		InMemoryTransport transport = new InMemoryTransport();
+		transport.declareFanout("exchange");
+		List<Integer> first = new CopyOnWriteArrayList<>();
+		List<Integer> second = new CopyOnWriteArrayList<>();
+		Subscription subscription = transport.subscribe("exchange", message -> first.add((int) message.getBody()[0]));
+		transport.subscribe("exchange", message -> second.add((int) message.getBody()[0]));
+
+		transport.broadcast("exchange", new Message(new byte[] { 1 }, null));
+		subscription.cancel();
+		transport.broadcast("exchange", new Message(new byte[] { 2 }, null));
+
+		assertEquals(Arrays.asList(1), first);
+		assertEquals(Arrays.asList(1, 2), second);
+		transport.close();
+	}
+
+	@Test(expected = ExecutionException.class)
+	public void shouldRejectPublishToUnknownQueue() throws Exception {
+		new InMemoryTransport().publish("unknown", new Message(new byte[0], null)).get();
+	}
+}